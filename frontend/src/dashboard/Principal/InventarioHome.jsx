@@ -7,12 +7,13 @@ import { Boxes, AlertTriangle, TrendingUp, Users } from "lucide-react";
 
 import { obtenerProductos } from "@/services/productoService";
 import { obtenerProveedores } from "@/services/proveedorService";
-import { obtenerTransacciones } from "@/services/transaccionService";
+import { obtenerPaginaTransacciones, obtenerAgregados } from "@/services/transaccionService";
 
 export default function InventarioHome() {
   const [productos, setProductos] = useState([]);
   const [proveedores, setProveedores] = useState([]);
   const [transacciones, setTransacciones] = useState([]);
+  const [totales, setTotales] = useState(null);
   const [loading, setLoading] = useState(true);
 
   const { scrollY } = useScroll();
@@ -22,14 +23,16 @@ export default function InventarioHome() {
   useEffect(() => {
     async function fetchData() {
       try {
-        const [prods, provs, trans] = await Promise.all([
+        const [prods, provs, trans, agregados] = await Promise.all([
           obtenerProductos(),
           obtenerProveedores(),
-          obtenerTransacciones(),
+          obtenerPaginaTransacciones({ orden: "desc", limite: 5 }),
+          obtenerAgregados(),
         ]);
         setProductos(prods || []);
         setProveedores(provs || []);
-        setTransacciones(trans || []);
+        setTransacciones(trans?.items || []);
+        setTotales(agregados?.total ?? null);
       } catch (error) {
         console.error(error);
         toast.error("Error cargando datos del inventario");
@@ -44,7 +47,7 @@ export default function InventarioHome() {
     { title: "Total Productos", value: productos.length, icon: Boxes, color: "#3b82f6" },
     { title: "Stock Crítico (<10)", value: productos.filter(p => p.stockActual < 10).length, icon: AlertTriangle, color: "#f59e0b" },
     { title: "Total Proveedores", value: proveedores.length, icon: Users, color: "#0ea5e9" },
-    { title: "Total Transacciones", value: transacciones.length, icon: TrendingUp, color: "#16a34a" },
+    { title: "Total Transacciones", value: totales ? totales.movimientos : transacciones.length, icon: TrendingUp, color: "#16a34a" },
   ];
 
   return (
@@ -122,7 +125,7 @@ export default function InventarioHome() {
             <h2 className="font-semibold text-gray-700 mb-2 text-lg">Últimas Transacciones</h2>
             <Table
               headers={["ID", "Tipo", "Producto", "Cantidad", "Fecha"]}
-              data={transacciones.slice(-5)}
+              data={transacciones}
               renderRow={(t) => [
                 t.idTransaccion,
                 t.tipo,
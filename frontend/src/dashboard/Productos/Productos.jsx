@@ -41,8 +41,12 @@ export default function Productos() {
   // Cargar productos
   useEffect(() => {
     async function fetchProductos() {
-      const data = await obtenerProductos();
-      setProductos(data || []);
+      try {
+        const data = await obtenerProductos();
+        setProductos(data || []);
+      } catch (error) {
+        toast.error("Error cargando productos");
+      }
     }
     fetchProductos();
   }, []);
@@ -274,8 +278,12 @@ export default function Productos() {
             const ok = await crearProducto(producto);
             if (ok) {
               toast.success("Producto creado correctamente");
-              const data = await obtenerProductos();
-              setProductos(data || []);
+              try {
+                const data = await obtenerProductos();
+                setProductos(data || []);
+              } catch (error) {
+                toast.error("Error recargando productos");
+              }
             } else {
               toast.error("No se pudo crear el producto");
             }
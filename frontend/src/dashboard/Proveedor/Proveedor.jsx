@@ -38,10 +38,14 @@ export default function Proveedor() {
   // Cargar proveedores y productos
   useEffect(() => {
     async function fetchData() {
-      const provs = await obtenerProveedores();
-      setProveedores(provs || []);
-      const prods = await obtenerProductos();
-      setProductos(prods || []);
+      try {
+        const provs = await obtenerProveedores();
+        setProveedores(provs || []);
+        const prods = await obtenerProductos();
+        setProductos(prods || []);
+      } catch (error) {
+        toast.error("Error cargando proveedores o productos");
+      }
     }
     fetchData();
   }, []);
@@ -207,8 +211,12 @@ export default function Proveedor() {
           onClose={() => setOpenModal(false)}
           onSave={async (proveedor) => {
             toast.success("Proveedor creado correctamente");
-            const data = await obtenerProveedores();
-            setProveedores(data || []);
+            try {
+              const data = await obtenerProveedores();
+              setProveedores(data || []);
+            } catch (error) {
+              toast.error("Error recargando proveedores");
+            }
           }}
         />
       </div>
@@ -9,12 +9,14 @@ import SelectField from "@/components/ui/SelectField";
 import { Dialog, DialogContent } from "@/components/ui/dialog";
 import { Plus, Box, ArrowDownCircle, ArrowUpCircle, AlertTriangle, Download } from "lucide-react";
 
-import { obtenerTransacciones, crearTransaccion } from "@/services/transaccionService";
+import { obtenerPaginaTransacciones, crearTransaccion, obtenerAgregados } from "@/services/transaccionService";
 import { obtenerProductos } from "@/services/productoService";
 
 export default function TransaccionesDashboard() {
   const [transacciones, setTransacciones] = useState([]);
+  const [cursor, setCursor] = useState(null);   // siguienteCursor de la última página cargada
   const [productos, setProductos] = useState([]);
+  const [totales, setTotales] = useState(null);
   const [filtros, setFiltros] = useState({
     texto: "",
     tipo: "TODOS",
@@ -41,9 +43,15 @@ export default function TransaccionesDashboard() {
   useEffect(() => {
     async function fetchData() {
       try {
-        const [trans, prods] = await Promise.all([obtenerTransacciones(), obtenerProductos()]);
-        setTransacciones(trans || []);
+        const [trans, prods, agregados] = await Promise.all([
+          obtenerPaginaTransacciones({ orden: "desc" }),
+          obtenerProductos(),
+          obtenerAgregados(),
+        ]);
+        setTransacciones(trans.items);
+        setCursor(trans.siguienteCursor);
         setProductos(prods || []);
+        setTotales(agregados?.total ?? null);
       } catch (error) {
         console.error(error);
         toast.error("Error cargando transacciones o productos");
@@ -54,7 +62,15 @@ export default function TransaccionesDashboard() {
     fetchData();
   }, []);
 
-  // ======= Filtrado avanzado =======
+  // ======= Página siguiente (más antiguas) =======
+  const cargarMas = async () => {
+    if (!cursor) return;
+    const pagina = await obtenerPaginaTransacciones({ orden: "desc", despues: cursor });
+    setTransacciones((actuales) => [...actuales, ...pagina.items]);
+    setCursor(pagina.siguienteCursor);
+  };
+
+  // ======= Filtrado avanzado (sobre las páginas cargadas) =======
   const transaccionesFiltradas = transacciones.filter((t) => {
     const { texto, tipo, producto, usuario, fechaInicio, fechaFin } = filtros;
     const busqueda = texto.toLowerCase();
@@ -72,10 +88,10 @@ export default function TransaccionesDashboard() {
     return coincide;
   });
 
-  // ======= KPIs =======
-  const totalTransacciones = transacciones.length;
-  const totalEntradas = transacciones.filter((t) => t.tipo === "ENTRADA").length;
-  const totalSalidas = transacciones.filter((t) => t.tipo === "SALIDA").length;
+  // ======= KPIs (agregados del backend; si no responde, se cuentan en la lista) =======
+  const totalTransacciones = totales ? totales.movimientos : transacciones.length;
+  const totalEntradas = totales ? totales.movimientosEntrada : transacciones.filter((t) => t.tipo === "ENTRADA").length;
+  const totalSalidas = totales ? totales.movimientosSalida : transacciones.filter((t) => t.tipo === "SALIDA").length;
   const stockBajo = productos.filter((p) => p.stockActual < 10).length;
 
   // ======= Guardar movimiento =======
@@ -98,8 +114,10 @@ export default function TransaccionesDashboard() {
 
     const ok = await crearTransaccion(movimiento);
     if (ok) {
-      const trans = await obtenerTransacciones();
-      setTransacciones(trans || []);
+      const [trans, agregados] = await Promise.all([obtenerPaginaTransacciones({ orden: "desc" }), obtenerAgregados()]);
+      setTransacciones(trans.items);
+      setCursor(trans.siguienteCursor);
+      setTotales(agregados?.total ?? null);
       setModalAbierto(false);
       setNuevoMovimiento({ tipo: "ENTRADA", productoCodigo: "", cantidad: "", razon: "", nota: "" });
       toast.success("Movimiento registrado");
@@ -271,6 +289,14 @@ export default function TransaccionesDashboard() {
           ))}
         </div>
 
+        {cursor && (
+          <div className="flex justify-center mt-4">
+            <Button variant="outline" onClick={cargarMas} className="px-4 py-2 text-sm">
+              Cargar más transacciones
+            </Button>
+          </div>
+        )}
+
         {/* MODAL */}
         <Dialog open={modalAbierto} onOpenChange={setModalAbierto}>
           <DialogContent className="max-w-md">
@@ -1,16 +1,34 @@
 const API_URL = "http://localhost:8081/api/productos"; // Ajusta el puerto si es necesario
 
-export async function obtenerProductos() {
+// Una página de productos ordenada por código: { items, siguienteCursor } (cursor null = última)
+export async function obtenerPaginaProductos({ despues, limite } = {}) {
   try {
-    const response = await fetch(API_URL);
+    const params = new URLSearchParams();
+    if (despues) params.append("despues", despues);
+    if (limite) params.append("limite", limite);
+
+    const response = await fetch(`${API_URL}?${params.toString()}`);
     if (!response.ok) throw new Error("Error al obtener productos");
     return await response.json();
   } catch (error) {
     console.error(error);
-    return [];
+    throw error;   // una página vacía haría pasar un catálogo a medias por completo
   }
 }
 
+// Catálogo completo, recorriendo las páginas con el cursor (el servidor no devuelve todo de una vez).
+// Si falla alguna página se rechaza, para que la vista muestre su error
+export async function obtenerProductos() {
+  const productos = [];
+  let despues = null;
+  do {
+    const pagina = await obtenerPaginaProductos({ despues, limite: 1000 });
+    productos.push(...pagina.items);
+    despues = pagina.siguienteCursor;
+  } while (despues);
+  return productos;
+}
+
 export async function crearProducto(producto) {
   try {
     const response = await fetch(API_URL, {
@@ -1,17 +1,33 @@
 const API_URL = "http://localhost:8081/api/proveedores"; // Ajusta el puerto si es necesario
 
-// Obtener todos los proveedores
-export async function obtenerProveedores() {
+// Una página de proveedores ordenada por RUC: { items, siguienteCursor } (cursor null = última)
+export async function obtenerPaginaProveedores({ despues, limite } = {}) {
   try {
-    const response = await fetch(API_URL);
+    const params = new URLSearchParams();
+    if (despues) params.append("despues", despues);
+    if (limite) params.append("limite", limite);
+
+    const response = await fetch(`${API_URL}?${params.toString()}`);
     if (!response.ok) throw new Error("Error al obtener proveedores");
     return await response.json();
   } catch (error) {
     console.error(error);
-    return [];
+    throw error;
   }
 }
 
+// Todos los proveedores, recorriendo las páginas con el cursor. Si falla alguna página se rechaza
+export async function obtenerProveedores() {
+  const proveedores = [];
+  let despues = null;
+  do {
+    const pagina = await obtenerPaginaProveedores({ despues, limite: 1000 });
+    proveedores.push(...pagina.items);
+    despues = pagina.siguienteCursor;
+  } while (despues);
+  return proveedores;
+}
+
 // Crear un proveedor
 export async function crearProveedor(proveedor) {
   try {
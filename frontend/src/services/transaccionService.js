@@ -1,14 +1,20 @@
 const API_URL = "http://localhost:8081/api/transacciones"; // Ajusta el puerto si es necesario
 
-// Obtener todas las transacciones
-export async function obtenerTransacciones() {
+// Una página del historial: { items, siguienteCursor } (cursor null = última página)
+// orden "desc" empieza por la más reciente; la siguiente página se pide con despues = siguienteCursor
+export async function obtenerPaginaTransacciones({ despues, limite, orden } = {}) {
   try {
-    const response = await fetch(API_URL);
+    const params = new URLSearchParams();
+    if (despues) params.append("despues", despues);
+    if (limite) params.append("limite", limite);
+    if (orden) params.append("orden", orden);
+
+    const response = await fetch(`${API_URL}?${params.toString()}`);
     if (!response.ok) throw new Error("Error al obtener transacciones");
     return await response.json();
   } catch (error) {
     console.error(error);
-    return [];
+    return { items: [], siguienteCursor: null };
   }
 }
 
@@ -108,3 +114,21 @@ export async function generarReporte({ tipo, fechaInicio, fechaFin }) {
     return [];
   }
 }
+
+// Totales de entradas/salidas por periodo (agregados por hora/día/mes del backend)
+export async function obtenerAgregados({ por = "total", clave, fechaInicio, fechaFin, granularidad } = {}) {
+  try {
+    const params = new URLSearchParams({ por });
+    if (clave) params.append("clave", clave);
+    if (fechaInicio) params.append("fechaInicio", fechaInicio);
+    if (fechaFin) params.append("fechaFin", fechaFin);
+    if (granularidad) params.append("granularidad", granularidad);
+
+    const response = await fetch(`${API_URL}/agregados?${params.toString()}`);
+    if (!response.ok) throw new Error("Error al obtener agregados");
+    return await response.json();
+  } catch (error) {
+    console.error(error);
+    return null;
+  }
+}
@@ -0,0 +1,192 @@
+package carga;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+/**
+ * [BaseDatosSintetica.java]
+ * Crea el esquema del inventario y lo llena con datos sintéticos reproducibles (semilla fija).
+ *
+ * El historial cubre el último año: las transacciones avanzan a paso fijo hasta "ahora".
+ * Si la BD ya tiene exactamente las cantidades pedidas se reutiliza (generar millones de filas
+ * tarda); con "regenerar" se vuelve a crear desde cero.
+ */
+final class BaseDatosSintetica {
+
+    private static final int TAM_LOTE = 10_000;
+    private static final String[] USUARIOS = {"admin", "almacen1", "almacen2", "ventas1", "ventas2", "compras"};
+    private static final String[] RAZONES = {"Compra", "Venta", "Devolución", "Ajuste de inventario"};
+
+    /** Lo que la prueba necesita saber de los datos para construir peticiones válidas. */
+    record Datos(int proveedores, int productos, int ultimoIdTransaccion,
+                 LocalDateTime primeraFecha, LocalDateTime ultimaFecha) {
+    }
+
+    private BaseDatosSintetica() {
+    }
+
+    static String codigoProducto(int i) {
+        return String.format("P%07d", i);
+    }
+
+    static String rucProveedor(int i) {
+        return String.format("20%09d", i);
+    }
+
+    static Datos preparar(String url, int proveedores, int productos, int transacciones,
+                          long semilla, boolean regenerar) throws SQLException, IOException {
+        try (Connection conn = DriverManager.getConnection(url, "sa", "")) {
+            if (!regenerar && coincide(conn, proveedores, productos, transacciones)) {
+                System.out.println("✔ Reutilizando la BD sintética existente");
+            } else {
+                long inicio = System.nanoTime();
+                crearEsquema(conn);
+                conn.setAutoCommit(false);
+                Random azar = new Random(semilla);
+                insertarProveedores(conn, proveedores);
+                insertarProductos(conn, proveedores, productos, azar);
+                insertarTransacciones(conn, productos, transacciones, azar);
+                conn.setAutoCommit(true);
+                System.out.printf("✔ BD sintética generada: %,d proveedores, %,d productos, %,d transacciones (%d s)%n",
+                        proveedores, productos, transacciones, (System.nanoTime() - inicio) / 1_000_000_000L);
+            }
+
+            try (Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT MAX(id_transaccion), MIN(fecha), MAX(fecha) FROM transaccion")) {
+                rs.next();
+                LocalDateTime ahora = LocalDateTime.now();
+                return new Datos(proveedores, productos, rs.getInt(1),
+                        rs.getTimestamp(2) != null ? rs.getTimestamp(2).toLocalDateTime() : ahora,
+                        rs.getTimestamp(3) != null ? rs.getTimestamp(3).toLocalDateTime() : ahora);
+            }
+        }
+    }
+
+    // =========================================================================
+    //  AUXILIARES
+    // =========================================================================
+    private static boolean coincide(Connection conn, int proveedores, int productos, int transacciones) {
+        try (Statement st = conn.createStatement()) {
+            return contar(st, "proveedor") == proveedores
+                    && contar(st, "producto") == productos
+                    && contar(st, "transaccion") == transacciones;
+        } catch (SQLException e) {
+            return false;   // no existe el esquema
+        }
+    }
+
+    private static long contar(Statement st, String tabla) throws SQLException {
+        try (ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM " + tabla)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static void crearEsquema(Connection conn) throws SQLException, IOException {
+        String esquema;
+        try (InputStream in = BaseDatosSintetica.class.getResourceAsStream("/carga/esquema.sql")) {
+            if (in == null) throw new IOException("No se encontró /carga/esquema.sql");
+            esquema = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        try (Statement st = conn.createStatement()) {
+            for (String sentencia : esquema.replaceAll("(?m)^--.*$", "").split(";")) {
+                if (!sentencia.isBlank()) st.execute(sentencia);
+            }
+        }
+    }
+
+    private static void insertarProveedores(Connection conn, int proveedores) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO proveedor (ruc, razon_social, contacto) VALUES (?, ?, ?)")) {
+            for (int i = 0; i < proveedores; i++) {
+                ps.setString(1, rucProveedor(i));
+                ps.setString(2, "Proveedor " + i + " S.A.C.");
+                ps.setString(3, "contacto" + i + "@proveedor.com");
+                agregarAlLote(conn, ps, i);
+            }
+            ps.executeBatch();
+            conn.commit();
+        }
+    }
+
+    private static void insertarProductos(Connection conn, int proveedores, int productos, Random azar) throws SQLException {
+        LocalDate hoy = LocalDate.now();
+        try (PreparedStatement ps = conn.prepareStatement("""
+                INSERT INTO producto (codigo, nombre, precio, stock_actual, ruc_proveedor, tipo_producto,
+                                      fecha_vencimiento, requiere_refrigeracion, categoria, garantia_meses)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """)) {
+            for (int i = 0; i < productos; i++) {
+                boolean perecedero = i % 3 == 0;
+                ps.setString(1, codigoProducto(i));
+                ps.setString(2, "Producto " + i);
+                ps.setDouble(3, Math.round((1 + azar.nextDouble() * 499) * 100.0) / 100.0);
+                ps.setInt(4, 100 + azar.nextInt(900));
+                ps.setString(5, rucProveedor(azar.nextInt(proveedores)));
+                ps.setString(6, perecedero ? "perecedero" : "duradero");
+                if (perecedero) {
+                    ps.setDate(7, Date.valueOf(hoy.plusDays(azar.nextInt(181) - 30)));
+                    ps.setBoolean(8, azar.nextBoolean());
+                } else {
+                    ps.setNull(7, Types.DATE);
+                    ps.setNull(8, Types.BOOLEAN);
+                }
+                ps.setString(9, "Categoría " + (i % 25));
+                ps.setInt(10, perecedero ? 0 : 12);
+                agregarAlLote(conn, ps, i);
+            }
+            ps.executeBatch();
+            conn.commit();
+        }
+    }
+
+    private static void insertarTransacciones(Connection conn, int productos, int transacciones, Random azar) throws SQLException {
+        LocalDateTime fin = LocalDateTime.now();
+        LocalDateTime inicio = fin.minusDays(365);
+        long pasoMs = Math.max(1, 365L * 24 * 3600 * 1000 / Math.max(1, transacciones));
+
+        try (PreparedStatement ps = conn.prepareStatement("""
+                INSERT INTO transaccion (tipo, cantidad, codigo_producto, fecha, razon, nota,
+                                         usuario, id_proveedor, id_cliente)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """)) {
+            for (int i = 0; i < transacciones; i++) {
+                boolean salida = azar.nextInt(10) < 4;
+                ps.setString(1, salida ? "SALIDA" : "ENTRADA");
+                ps.setInt(2, 1 + azar.nextInt(20));
+                ps.setString(3, codigoProducto(azar.nextInt(productos)));
+                ps.setTimestamp(4, Timestamp.valueOf(inicio.plusNanos(i * pasoMs * 1_000_000L)));
+                ps.setString(5, RAZONES[azar.nextInt(RAZONES.length)]);
+                ps.setString(6, "");
+                ps.setString(7, USUARIOS[azar.nextInt(USUARIOS.length)]);
+                ps.setString(8, salida ? null : rucProveedor(azar.nextInt(1000)));
+                ps.setString(9, salida ? "C" + azar.nextInt(5000) : null);
+                agregarAlLote(conn, ps, i);
+                if (i > 0 && i % 500_000 == 0) System.out.printf("  … %,d transacciones%n", i);
+            }
+            ps.executeBatch();
+            conn.commit();
+        }
+    }
+
+    private static void agregarAlLote(Connection conn, PreparedStatement ps, int i) throws SQLException {
+        ps.addBatch();
+        if ((i + 1) % TAM_LOTE == 0) {
+            ps.executeBatch();
+            conn.commit();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package carga;
+
+/**
+ * [HistogramaLatencias.java]
+ * Histograma log-lineal de latencias en microsegundos (mismo esquema que HdrHistogram).
+ *
+ * Hasta 128 µs cada valor tiene su propio contador; a partir de ahí cada potencia de 2 se
+ * divide en 64 tramos, así el error relativo de un percentil es menor al 1,6 % en todo el
+ * rango, con un arreglo fijo de ~3.700 contadores. No es seguro entre hilos: cada hilo de
+ * carga usa el suyo y al final se combinan.
+ */
+final class HistogramaLatencias {
+
+    private static final int BITS_SUB = 7;
+    private static final int SUB = 1 << BITS_SUB;          // 128
+    private static final int MITAD = SUB / 2;              // 64 tramos por potencia de 2
+
+    private final long[] cuentas = new long[SUB + (64 - BITS_SUB) * MITAD];
+    private long total;
+    private long suma;
+    private long maximo;
+
+    void registrar(long micros) {
+        long v = Math.max(0, micros);
+        cuentas[indice(v)]++;
+        total++;
+        suma += v;
+        if (v > maximo) maximo = v;
+    }
+
+    void combinar(HistogramaLatencias otro) {
+        for (int i = 0; i < cuentas.length; i++) cuentas[i] += otro.cuentas[i];
+        total += otro.total;
+        suma += otro.suma;
+        maximo = Math.max(maximo, otro.maximo);
+    }
+
+    /** Valor (µs) por debajo del cual queda el p % de las muestras (0 si no hay muestras). */
+    long percentil(double p) {
+        if (total == 0) return 0;
+        long objetivo = Math.max(1, (long) Math.ceil(p / 100.0 * total));
+        long acumulado = 0;
+        for (int i = 0; i < cuentas.length; i++) {
+            acumulado += cuentas[i];
+            if (acumulado >= objetivo) return Math.min(limiteSuperior(i), maximo);
+        }
+        return maximo;
+    }
+
+    long getTotal() {
+        return total;
+    }
+
+    long getMaximo() {
+        return maximo;
+    }
+
+    double getMedia() {
+        return total == 0 ? 0.0 : (double) suma / total;
+    }
+
+    // =========================================================================
+    //  AUXILIARES
+    // =========================================================================
+    private static int indice(long v) {
+        if (v < SUB) return (int) v;
+        int desplazamiento = 63 - Long.numberOfLeadingZeros(v) - BITS_SUB + 1;   // v >> desp ∈ [64, 128)
+        return SUB + (desplazamiento - 1) * MITAD + (int) (v >>> desplazamiento) - MITAD;
+    }
+
+    private static long limiteSuperior(int indice) {
+        if (indice < SUB) return indice;
+        int desplazamiento = (indice - SUB) / MITAD + 1;
+        long base = (long) ((indice - SUB) % MITAD + MITAD) << desplazamiento;
+        return base + (1L << desplazamiento) - 1;
+    }
+}
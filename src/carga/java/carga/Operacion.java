@@ -0,0 +1,119 @@
+package carga;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * [Operacion.java]
+ * Peticiones que componen la mezcla de carga, con su peso por defecto.
+ *
+ * Los parámetros (código, cursor, ventana de fechas) se eligen al azar dentro de los datos
+ * sintéticos para que la prueba no golpee siempre la misma entrada de caché.
+ */
+enum Operacion {
+
+    PRODUCTO(30),
+    PAGINA_PRODUCTOS(10),
+    PAGINA_PROVEEDORES(5),
+    PAGINA_TRANSACCIONES(10),
+    FILTRAR_TRANSACCIONES(10),
+    RESUMEN(5),
+    REGISTRAR_TRANSACCION(30),
+    REGISTRAR_TRANSACCION_ASYNC(0);
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final String[] USUARIOS = {"carga1", "carga2", "carga3", "carga4"};
+
+    private final int pesoPorDefecto;
+
+    Operacion(int pesoPorDefecto) {
+        this.pesoPorDefecto = pesoPorDefecto;
+    }
+
+    static Map<Operacion, Integer> mezclaPorDefecto() {
+        Map<Operacion, Integer> mezcla = new EnumMap<>(Operacion.class);
+        for (Operacion op : values()) mezcla.put(op, op.pesoPorDefecto);
+        return mezcla;
+    }
+
+    /** "producto:50,registrar_transaccion:50" → esas operaciones con esos pesos (el resto en 0). */
+    static Map<Operacion, Integer> mezclaDesde(String texto) {
+        Map<Operacion, Integer> mezcla = new EnumMap<>(Operacion.class);
+        for (Operacion op : values()) mezcla.put(op, 0);
+        for (String parte : texto.split(",")) {
+            String[] par = parte.trim().split(":");
+            if (par.length != 2) throw new IllegalArgumentException("Mezcla inválida: " + parte + " (operacion:peso)");
+            mezcla.put(Operacion.valueOf(par[0].trim().toUpperCase()), Integer.parseInt(par[1].trim()));
+        }
+        return mezcla;
+    }
+
+    /**
+     * Respuestas esperables que no son errores: 409 (stock insuficiente) en las escrituras y
+     * 429 (admisión llena) en la escritura asíncrona.
+     */
+    boolean esRechazo(int estado) {
+        return switch (this) {
+            case REGISTRAR_TRANSACCION -> estado == 409;
+            case REGISTRAR_TRANSACCION_ASYNC -> estado == 409 || estado == 429;
+            default -> false;
+        };
+    }
+
+    HttpRequest construir(String base, BaseDatosSintetica.Datos datos) {
+        ThreadLocalRandom azar = ThreadLocalRandom.current();
+        String codigo = BaseDatosSintetica.codigoProducto(azar.nextInt(datos.productos()));
+
+        return switch (this) {
+            case PRODUCTO -> get(base + "/api/productos/" + codigo);
+            case PAGINA_PRODUCTOS -> get(base + "/api/productos?limite=50&despues=" + codigo);
+            case PAGINA_PROVEEDORES -> get(base + "/api/proveedores?limite=50&despues="
+                    + BaseDatosSintetica.rucProveedor(azar.nextInt(datos.proveedores())));
+            case PAGINA_TRANSACCIONES -> get(base + "/api/transacciones?limite=50&despues="
+                    + azar.nextInt(Math.max(1, datos.ultimoIdTransaccion())));
+            case FILTRAR_TRANSACCIONES -> {
+                LocalDateTime inicio = instanteAlAzar(datos, ChronoUnit.HOURS);
+                yield get(base + "/api/transacciones/filtrar?fechaInicio=" + inicio + "&fechaFin=" + inicio.plusHours(1));
+            }
+            case RESUMEN -> {
+                LocalDateTime inicio = instanteAlAzar(datos, ChronoUnit.DAYS);
+                yield get(base + "/api/transacciones/resumen?agruparPor=usuario&fechaInicio=" + inicio
+                        + "&fechaFin=" + inicio.plusDays(1));
+            }
+            case REGISTRAR_TRANSACCION, REGISTRAR_TRANSACCION_ASYNC -> {
+                boolean salida = azar.nextInt(10) < 4;
+                String cuerpo = String.format(
+                        "{\"tipo\":\"%s\",\"cantidad\":%d,\"codigoProducto\":\"%s\",\"razon\":\"%s\",\"usuario\":\"%s\"}",
+                        salida ? "SALIDA" : "ENTRADA", 1 + azar.nextInt(5), codigo,
+                        salida ? "Venta" : "Compra", USUARIOS[azar.nextInt(USUARIOS.length)]);
+                String ruta = this == REGISTRAR_TRANSACCION ? "/api/transacciones" : "/api/transacciones/async";
+                yield HttpRequest.newBuilder(URI.create(base + ruta))
+                        .timeout(TIMEOUT)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(cuerpo))
+                        .build();
+            }
+        };
+    }
+
+    // =========================================================================
+    //  AUXILIARES
+    // =========================================================================
+    private static HttpRequest get(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).timeout(TIMEOUT).GET().build();
+    }
+
+    /** Instante truncado a la unidad, dentro del rango de fechas del historial generado. */
+    private static LocalDateTime instanteAlAzar(BaseDatosSintetica.Datos datos, ChronoUnit unidad) {
+        long segundos = Math.max(1, ChronoUnit.SECONDS.between(datos.primeraFecha(), datos.ultimaFecha()));
+        return datos.primeraFecha()
+                .plusSeconds(ThreadLocalRandom.current().nextLong(segundos))
+                .truncatedTo(unidad);
+    }
+}
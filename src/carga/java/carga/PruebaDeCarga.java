@@ -0,0 +1,260 @@
+package carga;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import vista.BackendApplication;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * [PruebaDeCarga.java]
+ * Prueba de carga de extremo a extremo: BD H2 embebida en modo MySQL con el esquema real,
+ * datos sintéticos, la aplicación Spring completa en un puerto libre y N clientes HTTP en
+ * lazo cerrado (cada uno lanza la siguiente petición al recibir la respuesta).
+ *
+ * Argumentos (--clave=valor): proveedores, productos, transacciones, concurrencia, duracion y
+ * calentamiento (segundos), mezcla (operacion:peso,...), semilla, directorio, regenerar.
+ * Cualquier otro argumento con punto (p. ej. --inventario.escritura.modo=diferido) se pasa
+ * tal cual a la aplicación, para comparar configuraciones con la misma carga.
+ *
+ * Las latencias del calentamiento se descartan. El resultado se imprime como tabla y se
+ * guarda en <directorio>/resultado.csv; el log del servidor queda en <directorio>/servidor.log.
+ */
+public final class PruebaDeCarga {
+
+    private PruebaDeCarga() {
+    }
+
+    /** Contadores de un hilo cliente (sin compartir: se combinan al final). */
+    private static final class Medidas {
+        final Map<Operacion, HistogramaLatencias> latencias = new EnumMap<>(Operacion.class);
+        final Map<Operacion, long[]> fallos = new EnumMap<>(Operacion.class);   // {errores, rechazos}
+
+        Medidas() {
+            for (Operacion op : Operacion.values()) {
+                latencias.put(op, new HistogramaLatencias());
+                fallos.put(op, new long[2]);
+            }
+        }
+
+        void combinar(Medidas otras) {
+            for (Operacion op : Operacion.values()) {
+                latencias.get(op).combinar(otras.latencias.get(op));
+                fallos.get(op)[0] += otras.fallos.get(op)[0];
+                fallos.get(op)[1] += otras.fallos.get(op)[1];
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opciones = new LinkedHashMap<>();
+        Map<String, String> propiedadesApp = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) throw new IllegalArgumentException("Argumento inválido: " + arg + " (--clave=valor)");
+            int igual = arg.indexOf('=');
+            String clave = igual < 0 ? arg.substring(2) : arg.substring(2, igual);
+            String valor = igual < 0 ? "true" : arg.substring(igual + 1);
+            (clave.contains(".") ? propiedadesApp : opciones).put(clave, valor);
+        }
+
+        int proveedores = entero(opciones, "proveedores", 1_000);
+        int productos = entero(opciones, "productos", 100_000);
+        int transacciones = entero(opciones, "transacciones", 2_000_000);
+        int concurrencia = entero(opciones, "concurrencia", 32);
+        int duracion = entero(opciones, "duracion", 60);
+        int calentamiento = entero(opciones, "calentamiento", 15);
+        long semilla = entero(opciones, "semilla", 42);
+        boolean regenerar = Boolean.parseBoolean(opciones.getOrDefault("regenerar", "false"));
+        Map<Operacion, Integer> mezcla = opciones.containsKey("mezcla")
+                ? Operacion.mezclaDesde(opciones.get("mezcla"))
+                : Operacion.mezclaPorDefecto();
+        Path directorio = Path.of(opciones.getOrDefault("directorio", "target/carga")).toAbsolutePath();
+        Files.createDirectories(directorio);
+
+        // ===== BD =====
+        String url = "jdbc:h2:file:" + directorio.resolve("bd").resolve("inventario")
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE";
+        BaseDatosSintetica.Datos datos = BaseDatosSintetica.preparar(
+                url, proveedores, productos, transacciones, semilla, regenerar);
+
+        // ===== Aplicación =====
+        // La instantánea de una corrida anterior traería el stock ya movido: se parte siempre de la BD
+        Path snapshot = directorio.resolve("inventario_snapshot.bin");
+        Files.deleteIfExists(snapshot);
+
+        Map<String, String> propiedades = new LinkedHashMap<>();
+        propiedades.put("server.port", "0");
+        propiedades.put("inventario.db.url", url);
+        propiedades.put("inventario.db.usuario", "sa");
+        propiedades.put("inventario.db.clave", "");
+        propiedades.put("inventario.snapshot.archivo", snapshot.toString());
+        propiedades.putAll(propiedadesApp);
+        String[] argsApp = propiedades.entrySet().stream()
+                .map(e -> "--" + e.getKey() + "=" + e.getValue())
+                .toArray(String[]::new);
+
+        PrintStream consola = System.out;
+        PrintStream consolaErr = System.err;
+        Path log = directorio.resolve("servidor.log");
+        consola.println("⏳ Iniciando la aplicación (log en " + log + ")...");
+        long inicioApp = System.nanoTime();
+        ConfigurableApplicationContext contexto;
+        try (PrintStream salidaServidor = new PrintStream(new FileOutputStream(log.toFile()), true, StandardCharsets.UTF_8)) {
+            System.setOut(salidaServidor);
+            System.setErr(salidaServidor);
+            try {
+                contexto = SpringApplication.run(BackendApplication.class, argsApp);
+                String base = "http://localhost:" + contexto.getEnvironment().getProperty("local.server.port");
+                // System.out sigue yendo al log: la aplicación escribe en él en cada petición
+                consola.printf("✔ Aplicación lista en %s (%d s)%n", base, (System.nanoTime() - inicioApp) / 1_000_000_000L);
+
+                // ===== Carga =====
+                Medidas total = ejecutar(base, datos, mezcla, concurrencia, calentamiento, duracion, consola);
+                imprimir(total, duracion, consola);
+                guardarCsv(total, duracion, directorio.resolve("resultado.csv"));
+                consola.println("✔ Resultado guardado en " + directorio.resolve("resultado.csv"));
+
+                contexto.close();
+            } finally {
+                System.setOut(consola);
+                System.setErr(consolaErr);
+            }
+        }
+    }
+
+    // =========================================================================
+    //  CARGA
+    // =========================================================================
+    private static Medidas ejecutar(String base, BaseDatosSintetica.Datos datos, Map<Operacion, Integer> mezcla,
+                                    int concurrencia, int calentamiento, int duracion, PrintStream consola)
+            throws InterruptedException {
+        Operacion[] ruleta = ruleta(mezcla);
+        HttpClient cliente = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        long inicioMedida = System.nanoTime() + calentamiento * 1_000_000_000L;
+        long fin = inicioMedida + duracion * 1_000_000_000L;
+        consola.printf("⏳ %d clientes: %d s de calentamiento + %d s de medida...%n", concurrencia, calentamiento, duracion);
+
+        List<Medidas> porHilo = new ArrayList<>();
+        List<Thread> hilos = new ArrayList<>();
+        for (int i = 0; i < concurrencia; i++) {
+            Medidas medidas = new Medidas();
+            porHilo.add(medidas);
+            Thread hilo = new Thread(() -> cliente(cliente, base, datos, ruleta, inicioMedida, fin, medidas), "carga-" + i);
+            hilos.add(hilo);
+            hilo.start();
+        }
+        for (Thread hilo : hilos) hilo.join();
+
+        Medidas total = new Medidas();
+        porHilo.forEach(total::combinar);
+        return total;
+    }
+
+    private static void cliente(HttpClient cliente, String base, BaseDatosSintetica.Datos datos, Operacion[] ruleta,
+                                long inicioMedida, long fin, Medidas medidas) {
+        long ahora;
+        while ((ahora = System.nanoTime()) < fin) {
+            Operacion op = ruleta[ThreadLocalRandom.current().nextInt(ruleta.length)];
+            HttpRequest peticion = op.construir(base, datos);
+            int estado;
+            try {
+                estado = cliente.send(peticion, HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (IOException e) {
+                estado = -1;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long finPeticion = System.nanoTime();
+            if (ahora < inicioMedida) continue;   // calentamiento
+
+            medidas.latencias.get(op).registrar((finPeticion - ahora) / 1_000);
+            if (op.esRechazo(estado)) {
+                medidas.fallos.get(op)[1]++;
+            } else if (estado < 200 || estado >= 300) {
+                medidas.fallos.get(op)[0]++;
+            }
+        }
+    }
+
+    /** Arreglo de 100 casillas repartidas según los pesos: elegir una al azar respeta la mezcla. */
+    private static Operacion[] ruleta(Map<Operacion, Integer> mezcla) {
+        int suma = mezcla.values().stream().mapToInt(Integer::intValue).sum();
+        if (suma <= 0) throw new IllegalArgumentException("La mezcla no tiene ninguna operación con peso > 0");
+        List<Operacion> casillas = new ArrayList<>();
+        mezcla.forEach((op, peso) -> {
+            for (int i = 0; i < Math.round(peso * 100.0 / suma); i++) casillas.add(op);
+        });
+        if (casillas.isEmpty()) mezcla.forEach((op, peso) -> { if (peso > 0) casillas.add(op); });
+        return casillas.toArray(new Operacion[0]);
+    }
+
+    // =========================================================================
+    //  RESULTADOS
+    // =========================================================================
+    private static void imprimir(Medidas total, int duracion, PrintStream consola) {
+        consola.println();
+        consola.printf("%-28s %10s %8s %8s %10s %9s %9s %9s %9s%n",
+                "operacion", "peticiones", "errores", "rechazos", "pet/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        HistogramaLatencias global = new HistogramaLatencias();
+        long errores = 0;
+        long rechazos = 0;
+        for (Operacion op : Operacion.values()) {
+            HistogramaLatencias h = total.latencias.get(op);
+            if (h.getTotal() == 0) continue;
+            long[] f = total.fallos.get(op);
+            imprimirFila(consola, op.name(), h, f[0], f[1], duracion);
+            global.combinar(h);
+            errores += f[0];
+            rechazos += f[1];
+        }
+        imprimirFila(consola, "TOTAL", global, errores, rechazos, duracion);
+        consola.println();
+    }
+
+    private static void imprimirFila(PrintStream consola, String nombre, HistogramaLatencias h,
+                                     long errores, long rechazos, int duracion) {
+        consola.printf("%-28s %10d %8d %8d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                nombre, h.getTotal(), errores, rechazos, (double) h.getTotal() / duracion,
+                h.percentil(50) / 1000.0, h.percentil(99) / 1000.0, h.percentil(99.9) / 1000.0, h.getMaximo() / 1000.0);
+    }
+
+    private static void guardarCsv(Medidas total, int duracion, Path archivo) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(archivo, StandardCharsets.UTF_8))) {
+            out.println("operacion,peticiones,errores,rechazos,peticiones_por_segundo,p50_us,p99_us,p999_us,max_us,media_us");
+            for (Operacion op : Operacion.values()) {
+                HistogramaLatencias h = total.latencias.get(op);
+                long[] f = total.fallos.get(op);
+                out.printf(Locale.ROOT, "%s,%d,%d,%d,%.1f,%d,%d,%d,%d,%.1f%n",
+                        op.name(), h.getTotal(), f[0], f[1], (double) h.getTotal() / duracion,
+                        h.percentil(50), h.percentil(99), h.percentil(99.9), h.getMaximo(), h.getMedia());
+            }
+        }
+    }
+
+    private static int entero(Map<String, String> opciones, String clave, int porDefecto) {
+        String valor = opciones.get(clave);
+        return valor == null ? porDefecto : Integer.parseInt(valor.replace("_", ""));
+    }
+}
@@ -0,0 +1,49 @@
+-- Esquema de la BD del inventario (el que usan InventarioDAOImpl y ProveedorDAOImpl).
+-- Válido en MySQL y en H2 con MODE=MySQL (pruebas de carga).
+
+DROP TABLE IF EXISTS transaccion;
+DROP TABLE IF EXISTS producto;
+DROP TABLE IF EXISTS proveedor;
+
+CREATE TABLE proveedor (
+    ruc           VARCHAR(11)  NOT NULL PRIMARY KEY,
+    razon_social  VARCHAR(150) NOT NULL,
+    contacto      VARCHAR(150)
+);
+
+CREATE TABLE producto (
+    codigo                 VARCHAR(20)  NOT NULL PRIMARY KEY,
+    nombre                 VARCHAR(150),
+    precio                 DOUBLE       NOT NULL,
+    stock_actual           INT          NOT NULL DEFAULT 0,
+    ruc_proveedor          VARCHAR(11)  NOT NULL,
+    tipo_producto          VARCHAR(20),
+    fecha_vencimiento      DATE,
+    requiere_refrigeracion BOOLEAN,
+    categoria              VARCHAR(80),
+    garantia_meses         INT          DEFAULT 0,
+    CONSTRAINT fk_producto_proveedor FOREIGN KEY (ruc_proveedor) REFERENCES proveedor (ruc)
+);
+
+CREATE TABLE transaccion (
+    id_transaccion  INT          NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    tipo            VARCHAR(10)  NOT NULL,
+    cantidad        INT          NOT NULL,
+    codigo_producto VARCHAR(20)  NOT NULL,
+    fecha           DATETIME(6)  NOT NULL,
+    razon           VARCHAR(150),
+    nota            VARCHAR(255),
+    usuario         VARCHAR(60),
+    id_proveedor    VARCHAR(11),
+    id_cliente      VARCHAR(20),
+    clave_movimiento CHAR(36),
+    CONSTRAINT uk_transaccion_clave_movimiento UNIQUE (clave_movimiento),
+    CONSTRAINT fk_transaccion_producto FOREIGN KEY (codigo_producto) REFERENCES producto (codigo)
+);
+
+CREATE INDEX idx_transaccion_fecha ON transaccion (fecha);
+
+-- clave_movimiento solo se escribe con inventario.diario.habilitado=true. En una BD existente,
+-- antes de habilitar el diario:
+-- ALTER TABLE transaccion ADD COLUMN clave_movimiento CHAR(36),
+--     ADD CONSTRAINT uk_transaccion_clave_movimiento UNIQUE (clave_movimiento);
@@ -0,0 +1,75 @@
+package rendimiento;
+
+import persistencia.IConexionDB;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * [ConexionDBSimulada.java]
+ * IConexionDB cuyas consultas devuelven filas fijas en memoria (Connection, PreparedStatement y
+ * ResultSet son proxies dinámicos). Sirve para medir el mapeo fila → objeto de los DAO sin red
+ * ni driver; el coste del proxy se incluye en la medida, así que compárese contra sí mismo.
+ *
+ * Las consultas sobre la tabla transaccion devuelven "transacciones"; el resto, "productos".
+ */
+class ConexionDBSimulada implements IConexionDB {
+
+    private final List<Map<String, Object>> productos;
+    private final List<Map<String, Object>> transacciones;
+
+    ConexionDBSimulada(List<Map<String, Object>> productos, List<Map<String, Object>> transacciones) {
+        this.productos = productos;
+        this.transacciones = transacciones;
+    }
+
+    @Override
+    public Connection conectar() {
+        return proxy(Connection.class, (objeto, metodo, args) -> switch (metodo.getName()) {
+            case "prepareStatement" -> sentencia(((String) args[0]).contains("FROM transaccion") ? transacciones : productos);
+            case "getMetaData" -> proxy(DatabaseMetaData.class, (m, metodoMeta, a) ->
+                    metodoMeta.getName().equals("getURL") ? "jdbc:simulada:" : null);
+            case "getAutoCommit", "isClosed" -> false;
+            default -> null;
+        });
+    }
+
+    @Override
+    public void desconectar() {
+    }
+
+    private static PreparedStatement sentencia(List<Map<String, Object>> filas) {
+        return proxy(PreparedStatement.class, (objeto, metodo, args) ->
+                metodo.getName().equals("executeQuery") ? resultado(filas) : null);
+    }
+
+    private static ResultSet resultado(List<Map<String, Object>> filas) {
+        int[] actual = {-1};
+        return proxy(ResultSet.class, (objeto, metodo, args) -> {
+            switch (metodo.getName()) {
+                case "next":
+                    return ++actual[0] < filas.size();
+                case "close":
+                    return null;
+                default:
+                    Object valor = filas.get(actual[0]).get((String) args[0]);
+                    Class<?> tipo = metodo.getReturnType();
+                    if (tipo == int.class) return valor == null ? 0 : ((Number) valor).intValue();
+                    if (tipo == double.class) return valor == null ? 0.0 : ((Number) valor).doubleValue();
+                    if (tipo == boolean.class) return valor != null && (Boolean) valor;
+                    return valor;
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> tipo, InvocationHandler manejador) {
+        return (T) Proxy.newProxyInstance(ConexionDBSimulada.class.getClassLoader(), new Class<?>[] {tipo}, manejador);
+    }
+}
@@ -0,0 +1,82 @@
+package rendimiento;
+
+import modelo.Producto;
+import modelo.ProductoPerecedero;
+import modelo.Proveedor;
+import modelo.TipoTransaccion;
+import modelo.Transaccion;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * [DatosSinteticos.java]
+ * Catálogo, proveedores e historial generados con semilla fija (mismos datos en cada ejecución).
+ *
+ * Un tercio de los productos son perecederos con vencimiento repartido en ±60 días desde hoy;
+ * el historial avanza un minuto por transacción desde INICIO.
+ */
+final class DatosSinteticos {
+
+    static final LocalDateTime INICIO = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private static final String[] USUARIOS = {"admin", "almacen1", "almacen2", "ventas1", "ventas2", "compras"};
+    private static final String[] RAZONES = {"Compra", "Venta", "Devolución", "Ajuste de inventario"};
+
+    private DatosSinteticos() {
+    }
+
+    static String codigo(int i) {
+        return String.format("P%06d", i);
+    }
+
+    static List<Proveedor> proveedores(int cantidad) {
+        List<Proveedor> proveedores = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            proveedores.add(new Proveedor(String.format("20%09d", i), "Proveedor " + i, "contacto" + i + "@correo.com"));
+        }
+        return proveedores;
+    }
+
+    static List<Producto> productos(int cantidad, List<Proveedor> proveedores, long semilla) {
+        Random azar = new Random(semilla);
+        LocalDate hoy = LocalDate.now();
+        List<Producto> productos = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            Proveedor proveedor = proveedores.get(azar.nextInt(proveedores.size()));
+            double precio = Math.round((1 + azar.nextDouble() * 499) * 100.0) / 100.0;
+            int stock = azar.nextInt(500);
+
+            Producto p = (i % 3 == 0)
+                    ? new ProductoPerecedero(codigo(i), "Producto " + i, precio, stock, proveedor,
+                            hoy.plusDays(azar.nextInt(121) - 60), azar.nextBoolean())
+                    : new Producto(codigo(i), "Producto " + i, precio, stock, proveedor);
+            p.setCategoria("Categoría " + (i % 20));
+            productos.add(p);
+        }
+        return productos;
+    }
+
+    static List<Transaccion> transacciones(int cantidad, List<Producto> productos, long semilla) {
+        Random azar = new Random(semilla);
+        List<Transaccion> historial = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            boolean salida = azar.nextBoolean();
+            Transaccion t = new Transaccion();
+            t.setIdTransaccion(i + 1);
+            t.setTipo(salida ? TipoTransaccion.SALIDA : TipoTransaccion.ENTRADA);
+            t.setFecha(INICIO.plusMinutes(i));
+            t.setCantidad(1 + azar.nextInt(20));
+            t.setProducto(productos.get(azar.nextInt(productos.size())));
+            t.setRazon(RAZONES[azar.nextInt(RAZONES.length)]);
+            t.setNota("");
+            t.setUsuario(USUARIOS[azar.nextInt(USUARIOS.length)]);
+            if (salida) t.setIdCliente("C" + azar.nextInt(1000)); else t.setIdProveedor("20" + azar.nextInt(1000));
+            historial.add(t);
+        }
+        return historial;
+    }
+}
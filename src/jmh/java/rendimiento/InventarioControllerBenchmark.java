@@ -0,0 +1,117 @@
+package rendimiento;
+
+import controlador.ArchivoColumnarTransacciones;
+import controlador.InventarioController;
+import modelo.Producto;
+import modelo.ProductoPerecedero;
+import modelo.Proveedor;
+import modelo.TipoTransaccion;
+import modelo.Transaccion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import persistencia.ResultadoMovimientoStock;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * [InventarioControllerBenchmark.java]
+ * Caminos en memoria de InventarioController con un DAO simulado (sin BD).
+ *
+ * El estado se reconstruye en cada iteración: procesarTransaccion agrega al historial y,
+ * de lo contrario, cada iteración mediría sobre un historial más grande que la anterior.
+ * El número de hilos se elige al ejecutar (-Djmh.hilos=N en el perfil jmh).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InventarioControllerBenchmark {
+
+    @Param({"1000", "100000"})
+    public int tamanoCatalogo;
+
+    @Param({"100000"})
+    public int tamanoHistorial;
+
+    private InventarioController controller;
+    private String[] codigos;
+    private String fechaInicio;
+    private String fechaFin;
+    private PrintStream salidaOriginal;
+
+    @Setup(Level.Iteration)
+    public void preparar() {
+        // El controlador registra cada transacción por consola: se descarta para no medir la E/S
+        salidaOriginal = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        List<Proveedor> proveedores = DatosSinteticos.proveedores(50);
+        List<Producto> productos = DatosSinteticos.productos(tamanoCatalogo, proveedores, 42);
+        List<Transaccion> historial = DatosSinteticos.transacciones(tamanoHistorial, productos, 42);
+
+        controller = new InventarioController(new InventarioDAOSimulado(productos, historial),
+                new ProveedorDAOSimulado(proveedores));
+        controller.cargarInventarioDesdeBD();
+
+        codigos = productos.stream().map(Producto::getCodigo).toArray(String[]::new);
+        // Un día de historial a mitad del rango generado
+        fechaInicio = DatosSinteticos.INICIO.plusMinutes(tamanoHistorial / 2).toString();
+        fechaFin = DatosSinteticos.INICIO.plusMinutes(tamanoHistorial / 2).plusDays(1).toString();
+    }
+
+    @TearDown(Level.Iteration)
+    public void restaurar() {
+        System.setOut(salidaOriginal);
+    }
+
+    @Benchmark
+    public ResultadoMovimientoStock procesarTransaccion() {
+        ThreadLocalRandom azar = ThreadLocalRandom.current();
+        Transaccion t = new Transaccion(azar.nextBoolean() ? TipoTransaccion.ENTRADA : TipoTransaccion.SALIDA,
+                1 + azar.nextInt(5), null, "Benchmark", null, "jmh", null, null);
+        t.setCodigoProducto(codigos[azar.nextInt(codigos.length)]);
+        return controller.procesarTransaccion(t);
+    }
+
+    @Benchmark
+    public List<Transaccion> filtrarTransacciones() {
+        return controller.filtrarTransacciones(null, fechaInicio, fechaFin);
+    }
+
+    @Benchmark
+    public ArchivoColumnarTransacciones.Resumen resumirTransacciones() {
+        return controller.resumirTransacciones(null, fechaInicio, fechaFin, null);
+    }
+
+    @Benchmark
+    public List<Producto> obtenerStockBajo() {
+        return controller.obtenerStockBajo(10);
+    }
+
+    @Benchmark
+    public double obtenerValorTotalInventario() {
+        return controller.obtenerValorTotalInventario();
+    }
+
+    @Benchmark
+    public List<ProductoPerecedero> obtenerVencimientoProximo() {
+        return controller.obtenerVencimientoProximo(7);
+    }
+}
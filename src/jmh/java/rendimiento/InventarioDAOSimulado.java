@@ -0,0 +1,147 @@
+package rendimiento;
+
+import modelo.Producto;
+import modelo.TipoTransaccion;
+import modelo.Transaccion;
+import persistencia.IInventarioDAO;
+import persistencia.ResultadoMovimientoStock;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * [InventarioDAOSimulado.java]
+ * IInventarioDAO en memoria, sin JDBC: aísla el coste de InventarioController de la BD.
+ * El stock se mueve con la misma regla que SQL_MOVER_STOCK (no puede quedar negativo).
+ */
+class InventarioDAOSimulado implements IInventarioDAO {
+
+    private final List<Producto> productos;
+    private final List<Transaccion> historial;
+    private final Map<String, Integer> stock = new ConcurrentHashMap<>();
+    private final AtomicInteger ultimoId;
+
+    InventarioDAOSimulado(List<Producto> productos, List<Transaccion> historial) {
+        this.productos = productos;
+        this.historial = historial;
+        this.ultimoId = new AtomicInteger(historial.size());
+        productos.forEach(p -> stock.put(p.getCodigo(), p.getStockActual()));
+    }
+
+    // ==========================
+    // PRODUCTOS
+    // ==========================
+    @Override
+    public void guardar(Producto producto) {
+        stock.put(producto.getCodigo(), producto.getStockActual());
+    }
+
+    @Override
+    public Producto obtenerPorCodigo(String codigo) {
+        for (Producto p : productos) {
+            if (p.getCodigo().equals(codigo)) return p;
+        }
+        return null;
+    }
+
+    @Override
+    public boolean actualizarProductoDB(String codigo, String nombre, double precio,
+                                        int stockAnterior, int stockNuevo) {
+        return stock.replace(codigo, stockAnterior, stockNuevo);
+    }
+
+    private ResultadoMovimientoStock moverStock(String codigo, int delta) {
+        boolean[] aplicado = {false};
+        Integer resultante = stock.computeIfPresent(codigo, (k, actual) -> {
+            if (actual + delta < 0) return actual;
+            aplicado[0] = true;
+            return actual + delta;
+        });
+        if (resultante == null) return ResultadoMovimientoStock.noEncontrado();
+        return aplicado[0] ? ResultadoMovimientoStock.aplicado(resultante) : ResultadoMovimientoStock.stockInsuficiente(resultante);
+    }
+
+    @Override
+    public ResultadoMovimientoStock registrarMovimiento(Transaccion transaccion) {
+        ResultadoMovimientoStock resultado = moverStock(transaccion.getCodigoProducto(), transaccion.calcularDeltaStock());
+        if (resultado.isAplicado()) guardarTransaccion(transaccion);
+        return resultado;
+    }
+
+    @Override
+    public List<Producto> obtenerTodos() {
+        return new ArrayList<>(productos);
+    }
+
+    @Override
+    public void recorrerTodos(Consumer<Producto> consumidor) {
+        productos.forEach(consumidor);
+    }
+
+    // ==========================
+    // TRANSACCIONES
+    // ==========================
+    @Override
+    public void guardarTransaccion(Transaccion transaccion) {
+        transaccion.setIdTransaccion(ultimoId.incrementAndGet());
+    }
+
+    @Override
+    public List<Transaccion> obtenerTodasTransacciones() {
+        return new ArrayList<>(historial);
+    }
+
+    @Override
+    public void recorrerTransacciones(TipoTransaccion tipo, LocalDateTime desde, LocalDateTime hasta,
+                                      Function<String, Producto> resolverProducto,
+                                      Consumer<Transaccion> consumidor) {
+        for (Transaccion t : historial) {
+            if (tipo != null && t.getTipo() != tipo) continue;
+            if (desde != null && t.getFecha().isBefore(desde)) continue;
+            if (hasta != null && t.getFecha().isAfter(hasta)) continue;
+            if (resolverProducto.apply(t.getCodigoProducto()) == null) continue;
+            consumidor.accept(t);
+        }
+    }
+
+    @Override
+    public void recorrerTransaccionesPosteriores(int idTransaccion,
+                                                 Function<String, Producto> resolverProducto,
+                                                 Consumer<Transaccion> consumidor) {
+        for (Transaccion t : historial) {
+            if (t.getIdTransaccion() > idTransaccion && resolverProducto.apply(t.getCodigoProducto()) != null) {
+                consumidor.accept(t);
+            }
+        }
+    }
+
+    @Override
+    public Map<String, ResultadoMovimientoStock> guardarTransaccionesLote(List<Transaccion> lote) {
+        Map<String, ResultadoMovimientoStock> resultados = new LinkedHashMap<>();
+        for (Transaccion t : lote) {
+            resultados.put(t.getCodigoProducto(), moverStock(t.getCodigoProducto(), t.calcularDeltaStock()));
+            guardarTransaccion(t);
+        }
+        return resultados;
+    }
+
+    @Override
+    public Map<String, Integer> buscarClavesMovimiento(Collection<String> claves) {
+        Map<String, Integer> presentes = new HashMap<>();
+        for (Transaccion t : historial) {
+            if (t.getClaveMovimiento() != null && claves.contains(t.getClaveMovimiento())) {
+                presentes.put(t.getClaveMovimiento(), t.getIdTransaccion());
+            }
+        }
+        return presentes;
+    }
+}
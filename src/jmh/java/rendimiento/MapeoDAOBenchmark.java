@@ -0,0 +1,103 @@
+package rendimiento;
+
+import modelo.Producto;
+import modelo.ProductoPerecedero;
+import modelo.Transaccion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import persistencia.InventarioDAOImpl;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * [MapeoDAOBenchmark.java]
+ * Mapeo de filas a Producto / Transaccion en InventarioDAOImpl (recorrerTodos y
+ * recorrerTransacciones) sobre un ResultSet simulado. Resultado por fila.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapeoDAOBenchmark {
+
+    private static final int FILAS = 10_000;
+
+    private InventarioDAOImpl dao;
+
+    @Setup
+    public void preparar() {
+        List<Producto> productos = DatosSinteticos.productos(FILAS, DatosSinteticos.proveedores(50), 42);
+        List<Transaccion> historial = DatosSinteticos.transacciones(FILAS, productos, 42);
+
+        List<Map<String, Object>> filasProductos = new ArrayList<>(FILAS);
+        for (Producto p : productos) {
+            Map<String, Object> fila = new HashMap<>();
+            fila.put("codigo", p.getCodigo());
+            fila.put("nombre", p.getNombre());
+            fila.put("precio", p.getPrecioUnitario());
+            fila.put("stock_actual", p.getStockActual());
+            fila.put("categoria", p.getCategoria());
+            fila.put("garantia_meses", p.getGarantiaMeses());
+            fila.put("ruc", p.getProveedor().getRuc());
+            fila.put("nombre_prov", p.getProveedor().getRazonSocial());
+            if (p instanceof ProductoPerecedero pp) {
+                fila.put("tipo_producto", "perecedero");
+                fila.put("fecha_vencimiento", Date.valueOf(pp.getFechaVencimiento()));
+                fila.put("requiere_refrigeracion", pp.isRequiereRefrigeracion());
+            } else {
+                fila.put("tipo_producto", "normal");
+            }
+            filasProductos.add(fila);
+        }
+
+        List<Map<String, Object>> filasTransacciones = new ArrayList<>(FILAS);
+        for (Transaccion t : historial) {
+            Map<String, Object> fila = new HashMap<>();
+            fila.put("id_transaccion", t.getIdTransaccion());
+            fila.put("tipo", t.getTipo().name());
+            fila.put("fecha", Timestamp.valueOf(t.getFecha()));
+            fila.put("cantidad", t.getCantidad());
+            fila.put("codigo_producto", t.getCodigoProducto());
+            fila.put("razon", t.getRazon());
+            fila.put("nota", t.getNota());
+            fila.put("usuario", t.getUsuario());
+            fila.put("id_proveedor", t.getIdProveedor());
+            fila.put("id_cliente", t.getIdCliente());
+            filasTransacciones.add(fila);
+        }
+
+        dao = new InventarioDAOImpl(new ConexionDBSimulada(filasProductos, filasTransacciones));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FILAS)
+    public void mapearProductos(Blackhole bh) throws Exception {
+        dao.recorrerTodos(bh::consume);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FILAS)
+    public void mapearTransacciones(Blackhole bh) throws Exception {
+        // Todas las filas con producto "resuelto": solo se mide el mapeo
+        Producto cualquiera = new Producto("P000000", null, 0.0, 0, null);
+        dao.recorrerTransacciones(null, null, null, codigo -> cualquiera, bh::consume);
+    }
+}
@@ -0,0 +1,44 @@
+package rendimiento;
+
+import modelo.Proveedor;
+import persistencia.IProveedorDAO;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * [ProveedorDAOSimulado.java]
+ * IProveedorDAO en memoria para los benchmarks.
+ */
+class ProveedorDAOSimulado implements IProveedorDAO {
+
+    private final List<Proveedor> proveedores;
+
+    ProveedorDAOSimulado(List<Proveedor> proveedores) {
+        this.proveedores = new ArrayList<>(proveedores);
+    }
+
+    @Override
+    public void guardar(Proveedor proveedor) {
+        proveedores.add(proveedor);
+    }
+
+    @Override
+    public Proveedor obtenerPorRuc(String ruc) {
+        for (Proveedor p : proveedores) {
+            if (p.getRuc().equals(ruc)) return p;
+        }
+        return null;
+    }
+
+    @Override
+    public List<Proveedor> obtenerTodos() {
+        return new ArrayList<>(proveedores);
+    }
+
+    @Override
+    public void recorrerTodos(Consumer<Proveedor> consumidor) {
+        proveedores.forEach(consumidor);
+    }
+}
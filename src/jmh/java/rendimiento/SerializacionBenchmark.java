@@ -0,0 +1,98 @@
+package rendimiento;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import controlador.ModuloJsonInventario;
+import modelo.Producto;
+import modelo.Proveedor;
+import modelo.Transaccion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * [SerializacionBenchmark.java]
+ * Coste de Jackson al escribir/leer Producto y Transaccion como lo hacen los controladores REST
+ * (mapper con los módulos del classpath, fechas ISO y sin fallar ante propiedades desconocidas,
+ * igual que el de Spring Boot).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializacionBenchmark {
+
+    @Param({"100"})
+    public int tamanoLista;
+
+    private ObjectMapper mapper;
+    private Producto producto;
+    private Producto perecedero;
+    private Transaccion transaccion;
+    private List<Producto> lista;
+    private byte[] transaccionJson;
+
+    @Setup
+    public void preparar() throws Exception {
+        mapper = JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .build();
+
+        List<Proveedor> proveedores = DatosSinteticos.proveedores(10);
+        List<Producto> productos = DatosSinteticos.productos(Math.max(tamanoLista, 3), proveedores, 42);
+        perecedero = productos.get(0);   // índice múltiplo de 3: perecedero
+        producto = productos.get(1);
+        lista = productos.subList(0, tamanoLista);
+
+        // El "producto" de la transacción se resuelve contra este catálogo (como en la aplicación)
+        Map<String, Producto> catalogo = new HashMap<>();
+        productos.forEach(p -> catalogo.put(p.getCodigo(), p));
+        mapper.registerModule(new ModuloJsonInventario(catalogo::get));
+        transaccion = DatosSinteticos.transacciones(1, productos, 42).get(0);
+        transaccionJson = mapper.writeValueAsBytes(transaccion);
+    }
+
+    @Benchmark
+    public byte[] serializarProducto() throws Exception {
+        return mapper.writeValueAsBytes(producto);
+    }
+
+    @Benchmark
+    public byte[] serializarProductoPerecedero() throws Exception {
+        return mapper.writeValueAsBytes(perecedero);
+    }
+
+    @Benchmark
+    public byte[] serializarTransaccion() throws Exception {
+        return mapper.writeValueAsBytes(transaccion);
+    }
+
+    @Benchmark
+    public byte[] serializarListaProductos() throws Exception {
+        return mapper.writeValueAsBytes(lista);
+    }
+
+    @Benchmark
+    public Transaccion deserializarTransaccion() throws Exception {
+        return mapper.readValue(transaccionJson, Transaccion.class);
+    }
+}
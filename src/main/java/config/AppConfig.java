@@ -1,29 +1,190 @@
 package config;
 
+import com.fasterxml.jackson.databind.Module;
 import controlador.InventarioController;
+import controlador.ModoConfirmacion;
+import controlador.ModuloJsonInventario;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import persistencia.DAOMedido;
+import persistencia.DiarioTransacciones;
+import persistencia.HistorialFueraDeHeap;
 import persistencia.InventarioDAOImpl;
 import persistencia.ProveedorDAOImpl;
 import persistencia.ConexionDBMySQL;
 import persistencia.IConexionDB;
+import persistencia.IInventarioDAO;
+import persistencia.IProveedorDAO;
+import persistencia.PoolConexionesDB;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class AppConfig {
 
+    @Value("${inventario.db.url:jdbc:mysql://localhost:3306/inventario?rewriteBatchedStatements=true}")
+    private String url;
+
+    @Value("${inventario.db.usuario:admin}")
+    private String usuario;
+
+    @Value("${inventario.db.clave:270509}")
+    private String clave;
+
+    // Pool de conexiones (inventario.db.pool.habilitado=false vuelve a la conexión única)
+    @Value("${inventario.db.pool.habilitado:true}")
+    private boolean poolHabilitado;
+
+    @Value("${inventario.db.pool.minimo:2}")
+    private int poolMinimo;
+
+    @Value("${inventario.db.pool.maximo:20}")
+    private int poolMaximo;
+
+    @Value("${inventario.db.pool.espera-maxima-ms:5000}")
+    private long poolEsperaMaximaMs;
+
+    @Value("${inventario.db.pool.ocioso-maximo-ms:600000}")
+    private long poolOciosoMaximoMs;
+
+    @Value("${inventario.db.pool.vida-maxima-ms:1800000}")
+    private long poolVidaMaximaMs;
+
+    // Escritura diferida con commit agrupado (inventario.escritura.modo=diferido)
+    @Value("${inventario.escritura.modo:sincrono}")
+    private String modoEscritura;
+
+    @Value("${inventario.escritura.capacidad-cola:10000}")
+    private int escrituraCapacidadCola;
+
+    @Value("${inventario.escritura.tamano-grupo:500}")
+    private int escrituraTamanoGrupo;
+
+    @Value("${inventario.escritura.ventana-ms:20}")
+    private long escrituraVentanaMs;
+
+    @Value("${inventario.escritura.espera-encolar-ms:1000}")
+    private long escrituraEsperaEncolarMs;
+
+    @Value("${inventario.escritura.confirmacion:durable}")
+    private String escrituraConfirmacion;
+
+    // Diario local de movimientos (solo con escritura diferida)
+    @Value("${inventario.diario.habilitado:false}")
+    private boolean diarioHabilitado;
+
+    @Value("${inventario.diario.directorio:diario}")
+    private String diarioDirectorio;
+
+    @Value("${inventario.diario.sincronizacion:periodica}")
+    private String diarioSincronizacion;
+
+    @Value("${inventario.diario.intervalo-sincronizacion-ms:50}")
+    private long diarioIntervaloSincronizacionMs;
+
+    @Value("${inventario.diario.tamano-segmento-mb:64}")
+    private long diarioTamanoSegmentoMb;
+
+    @Value("${inventario.diario.intervalo-instantanea-min:10}")
+    private long diarioIntervaloInstantaneaMin;
+
+    // Historial antiguo fuera del heap: heap (todo en memoria) | directo | mapeado
+    @Value("${inventario.historial.modo:heap}")
+    private String historialModo;
+
+    @Value("${inventario.historial.ventana-reciente:200000}")
+    private int historialVentanaReciente;
+
+    @Value("${inventario.historial.directorio:historial}")
+    private String historialDirectorio;
+
+    @Value("${inventario.historial.filas-por-segmento:1048576}")
+    private int historialFilasPorSegmento;
+
+    @Value("${inventario.snapshot.archivo:inventario_snapshot.bin}")
+    private String archivoSnapshot;
+
+    // Procesamiento asíncrono de transacciones (POST /api/transacciones/async)
+    @Value("${inventario.async.hilos:16}")
+    private int asyncHilos;
+
+    @Value("${inventario.async.capacidad-cola:1000}")
+    private int asyncCapacidadCola;
+
+    // Hilos del análisis ABC / rotación (0 = uno por núcleo)
+    @Value("${inventario.analisis.paralelismo:0}")
+    private int analisisParalelismo;
+
+    @Bean(destroyMethod = "desconectar")
+    public IConexionDB conexionDB() {
+        if (!poolHabilitado) {
+            return new ConexionDBMySQL(url, usuario, clave);
+        }
+        return new PoolConexionesDB(url, usuario, clave,
+                poolMinimo, poolMaximo, poolEsperaMaximaMs, poolOciosoMaximoMs, poolVidaMaximaMs);
+    }
+
+    // Estado del pool en /actuator/prometheus (sin pool no hay nada que publicar)
     @Bean
-    public InventarioController inventarioController() {
-        IConexionDB conexionDB = new ConexionDBMySQL(
-                "jdbc:mysql://localhost:3306/inventario",
-                "admin",
-                "270509"
-        );
+    public MeterBinder metricasPoolConexiones(IConexionDB conexionDB) {
+        return registro -> {
+            if (!(conexionDB instanceof PoolConexionesDB pool)) return;
+            Gauge.builder("inventario.db.pool.activas", pool, PoolConexionesDB::getConexionesActivas)
+                    .description("Conexiones prestadas").register(registro);
+            Gauge.builder("inventario.db.pool.ociosas", pool, PoolConexionesDB::getConexionesOciosas)
+                    .description("Conexiones libres en el pool").register(registro);
+            Gauge.builder("inventario.db.pool.totales", pool, PoolConexionesDB::getConexionesTotales)
+                    .description("Conexiones físicas abiertas").register(registro);
+            Gauge.builder("inventario.db.pool.en.espera", pool, PoolConexionesDB::getHilosEnEspera)
+                    .description("Hilos esperando una conexión").register(registro);
+            Gauge.builder("inventario.db.pool.maximo", pool, PoolConexionesDB::getTamanoMaximo)
+                    .register(registro);
+        };
+    }
 
-        InventarioDAOImpl inventarioDAO = new InventarioDAOImpl(conexionDB);
-        ProveedorDAOImpl proveedorDAO = new ProveedorDAOImpl(conexionDB);
+    @Bean
+    public InventarioController inventarioController(IConexionDB conexionDB, MeterRegistry registro) {
+        InventarioDAOImpl inventarioDAOImpl = new InventarioDAOImpl(conexionDB);
+        // La clave de movimiento solo se escribe con el diario (requiere la columna clave_movimiento)
+        inventarioDAOImpl.setGuardarClaveMovimiento("diferido".equalsIgnoreCase(modoEscritura) && diarioHabilitado);
+        IInventarioDAO inventarioDAO = DAOMedido.medir(IInventarioDAO.class, inventarioDAOImpl, registro, "inventario");
+        IProveedorDAO proveedorDAO = DAOMedido.medir(IProveedorDAO.class,
+                new ProveedorDAOImpl(conexionDB), registro, "proveedor");
 
         InventarioController controller = new InventarioController(inventarioDAO, proveedorDAO);
+        controller.habilitarMetricas(registro);
+        controller.setCargaParalela(conexionDB instanceof PoolConexionesDB);
+        controller.setArchivoSnapshot(Path.of(archivoSnapshot));
+        if ("diferido".equalsIgnoreCase(modoEscritura)) {
+            controller.habilitarEscrituraDiferida(escrituraCapacidadCola, escrituraTamanoGrupo,
+                    escrituraVentanaMs, escrituraEsperaEncolarMs,
+                    ModoConfirmacion.desde(escrituraConfirmacion, ModoConfirmacion.DURABLE));
+            if (diarioHabilitado) {
+                controller.habilitarDiarioTransacciones(Path.of(diarioDirectorio),
+                        DiarioTransacciones.PoliticaSincronizacion.valueOf(diarioSincronizacion.toUpperCase()),
+                        diarioIntervaloSincronizacionMs, diarioTamanoSegmentoMb * 1024 * 1024,
+                        TimeUnit.MINUTES.toMillis(diarioIntervaloInstantaneaMin));
+            }
+        }
+        if (!"heap".equalsIgnoreCase(historialModo)) {
+            controller.habilitarHistorialFueraDeHeap(HistorialFueraDeHeap.Almacen.valueOf(historialModo.toUpperCase()),
+                    Path.of(historialDirectorio), historialVentanaReciente, historialFilasPorSegmento);
+        }
+        controller.habilitarProcesamientoAsincrono(asyncHilos, asyncCapacidadCola);
+        controller.setParalelismoAnalisis(analisisParalelismo);
         controller.cargarInventarioSerializado(); // opcional
         return controller;
     }
+
+    // Spring Boot registra los Module en su ObjectMapper: el "producto" de cada transacción
+    // serializada se resuelve contra el catálogo en memoria del controller
+    @Bean
+    public Module moduloJsonInventario(InventarioController inventarioController) {
+        return new ModuloJsonInventario(inventarioController::buscarProductoPorCodigo);
+    }
 }
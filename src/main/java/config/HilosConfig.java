@@ -0,0 +1,45 @@
+package config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * [HilosConfig.java]
+ * Modo de ejecución de las peticiones HTTP (inventario.hilos.modo).
+ *
+ * - plataforma: pool de hilos de Tomcat (server.tomcat.threads.max), como hasta ahora.
+ * - virtual: cada petición corre en su propio hilo virtual. El hilo que espera a la BD
+ *   (pool de conexiones, JDBC) libera su portador, así que la concurrencia deja de estar
+ *   limitada por el tamaño del pool de Tomcat; el límite real pasa a ser el pool de conexiones.
+ *
+ * La capa de acceso a datos no usa synchronized alrededor de E/S (ReentrantLock en el pool,
+ * en ConexionDBMySQL y en los candados por producto), así que los hilos virtuales no quedan
+ * fijados a su portador mientras esperan. Si el JDK no tiene hilos virtuales (< 21) se avisa
+ * y se sigue con hilos de plataforma.
+ *
+ * Comparación con la prueba de carga (misma carga, solo cambia el modo):
+ *   mvn -Pcarga test-compile exec:exec -Dcarga.args="--concurrencia=1000"
+ *   mvn -Pcarga test-compile exec:exec -Dcarga.args="--concurrencia=1000 --inventario.hilos.modo=virtual"
+ */
+@Configuration
+public class HilosConfig {
+
+    @Value("${inventario.hilos.modo:plataforma}")
+    private String modo;
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> ejecutorPeticiones() {
+        return protocolo -> {
+            if (!"virtual".equalsIgnoreCase(modo)) return;
+            if (!HilosVirtuales.disponibles()) {
+                System.err.println("⚠ inventario.hilos.modo=virtual requiere Java 21+ (en ejecución: Java "
+                        + Runtime.version().feature() + "); se usan hilos de plataforma.");
+                return;
+            }
+            protocolo.setExecutor(HilosVirtuales.ejecutorPorTarea("http-virtual-"));
+            System.out.println("✔ Peticiones HTTP en hilos virtuales");
+        };
+    }
+}
@@ -0,0 +1,63 @@
+package config;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * [HilosVirtuales.java]
+ * Acceso a los hilos virtuales (Java 21+) sin exigir Java 21 para compilar.
+ *
+ * El proyecto compila con release 17, donde Thread.ofVirtual() no existe: se resuelve por
+ * reflexión una sola vez. En un JDK sin soporte {@link #disponibles()} es false y el llamador
+ * sigue con hilos de plataforma.
+ */
+final class HilosVirtuales {
+
+    private static final Method OF_VIRTUAL;
+    private static final Method NOMBRE;
+    private static final Method FABRICA;
+    private static final Method EJECUTOR_POR_TAREA;
+
+    static {
+        Method ofVirtual = null, nombre = null, fabrica = null, ejecutor = null;
+        try {
+            Class<?> constructor = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            nombre = constructor.getMethod("name", String.class, long.class);
+            fabrica = constructor.getMethod("factory");
+            ejecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+        } catch (ReflectiveOperationException e) {
+            ofVirtual = null;   // JDK < 21
+        }
+        OF_VIRTUAL = ofVirtual;
+        NOMBRE = nombre;
+        FABRICA = fabrica;
+        EJECUTOR_POR_TAREA = ejecutor;
+    }
+
+    private HilosVirtuales() {
+    }
+
+    static boolean disponibles() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Ejecutor que crea un hilo virtual por tarea (nombres prefijo0, prefijo1, ...).
+     * @throws IllegalStateException Si el JDK no tiene hilos virtuales.
+     */
+    static ExecutorService ejecutorPorTarea(String prefijo) {
+        if (!disponibles()) {
+            throw new IllegalStateException("Hilos virtuales no disponibles en Java " + Runtime.version().feature());
+        }
+        try {
+            Object constructor = NOMBRE.invoke(OF_VIRTUAL.invoke(null), prefijo, 0L);
+            ThreadFactory fabrica = (ThreadFactory) FABRICA.invoke(constructor);
+            return (ExecutorService) EJECUTOR_POR_TAREA.invoke(null, fabrica);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("No se pudo crear el ejecutor de hilos virtuales", e);
+        }
+    }
+}
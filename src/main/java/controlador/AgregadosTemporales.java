@@ -0,0 +1,336 @@
+package controlador;
+
+import modelo.Transaccion;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * [AgregadosTemporales.java]
+ * Totales de entradas/salidas por hora, día y mes, para cada producto, categoría y proveedor
+ * (y el total general). Se mantienen al registrar cada movimiento y se reconstruyen del
+ * historial al iniciar.
+ *
+ * Un rango [desde, hasta] se descompone en horas sueltas en los bordes, días completos y
+ * meses completos en el centro; cada tramo es una suma sobre un arreglo ordenado de cubetas.
+ * El coste depende del número de cubetas del rango (un año ≈ 12 meses + ~60 días + ~46 horas),
+ * no del número de movimientos. Resolución: horas ("hasta" incluye toda su hora).
+ *
+ * Los ejes de categoría y proveedor usan los vigentes del producto, no los que tenía al moverse
+ * (el historial no los guarda): la reconstrucción toma los del catálogo actual. Ambos son fijos
+ * una vez creado el producto (la actualización solo edita nombre, precio y stock), así que los
+ * totales en vivo coinciden con los de una reconstrucción.
+ */
+public class AgregadosTemporales {
+
+    /** Tamaño de las cubetas. */
+    public enum Granularidad {
+        HORA, DIA, MES;
+
+        public static Granularidad desde(String valor) {
+            return valueOf(valor.trim().toUpperCase());
+        }
+
+        LocalDateTime truncar(LocalDateTime fecha) {
+            return switch (this) {
+                case HORA -> fecha.truncatedTo(ChronoUnit.HOURS);
+                case DIA -> fecha.truncatedTo(ChronoUnit.DAYS);
+                case MES -> fecha.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+            };
+        }
+
+        LocalDateTime siguiente(LocalDateTime inicio) {
+            return switch (this) {
+                case HORA -> inicio.plusHours(1);
+                case DIA -> inicio.plusDays(1);
+                case MES -> inicio.plusMonths(1);
+            };
+        }
+
+        /** Primer inicio de cubeta >= fecha. */
+        LocalDateTime redondearArriba(LocalDateTime fecha) {
+            LocalDateTime piso = truncar(fecha);
+            return piso.equals(fecha) ? piso : siguiente(piso);
+        }
+    }
+
+    /** Por qué se agrupan los movimientos. TOTAL tiene una sola clave (""). */
+    public enum Eje {
+        PRODUCTO, CATEGORIA, PROVEEDOR, TOTAL;
+
+        public static Eje desde(String valor) {
+            return valueOf(valor.trim().toUpperCase());
+        }
+    }
+
+    /** Cantidades y número de movimientos de entrada y de salida. */
+    public record Totales(long entradas, long salidas, int movimientosEntrada, int movimientosSalida) {
+        public long getNeto() {
+            return entradas - salidas;
+        }
+
+        public int getMovimientos() {
+            return movimientosEntrada + movimientosSalida;
+        }
+    }
+
+    /** Una cubeta de la serie. */
+    public record Cubeta(LocalDateTime inicio, Totales totales) {
+    }
+
+    /** Cubetas de una clave en una granularidad, en arreglos paralelos ordenados por inicio. */
+    private static final class Serie {
+        int tamano;
+        long[] inicio = new long[2];
+        long[] entradas = new long[2];
+        long[] salidas = new long[2];
+        int[] movimientosEntrada = new int[2];
+        int[] movimientosSalida = new int[2];
+
+        void sumar(long cubeta, int cantidad, boolean salida) {
+            int pos = ubicar(cubeta);
+            if (salida) {
+                salidas[pos] += cantidad;
+                movimientosSalida[pos]++;
+            } else {
+                entradas[pos] += cantidad;
+                movimientosEntrada[pos]++;
+            }
+        }
+
+        /** Posición de la cubeta, creándola vacía si no existe. */
+        private int ubicar(long cubeta) {
+            if (tamano > 0 && inicio[tamano - 1] == cubeta) return tamano - 1;        // caso normal: la cubeta en curso
+            if (tamano == 0 || inicio[tamano - 1] < cubeta) return insertar(tamano, cubeta);   // nueva al final
+            int pos = Arrays.binarySearch(inicio, 0, tamano, cubeta);
+            return pos >= 0 ? pos : insertar(-pos - 1, cubeta);   // movimiento con fecha atrasada
+        }
+
+        private int insertar(int pos, long cubeta) {
+            if (tamano == inicio.length) {
+                int capacidad = tamano * 2;
+                inicio = Arrays.copyOf(inicio, capacidad);
+                entradas = Arrays.copyOf(entradas, capacidad);
+                salidas = Arrays.copyOf(salidas, capacidad);
+                movimientosEntrada = Arrays.copyOf(movimientosEntrada, capacidad);
+                movimientosSalida = Arrays.copyOf(movimientosSalida, capacidad);
+            }
+            int mover = tamano - pos;
+            System.arraycopy(inicio, pos, inicio, pos + 1, mover);
+            System.arraycopy(entradas, pos, entradas, pos + 1, mover);
+            System.arraycopy(salidas, pos, salidas, pos + 1, mover);
+            System.arraycopy(movimientosEntrada, pos, movimientosEntrada, pos + 1, mover);
+            System.arraycopy(movimientosSalida, pos, movimientosSalida, pos + 1, mover);
+            inicio[pos] = cubeta;
+            entradas[pos] = 0;
+            salidas[pos] = 0;
+            movimientosEntrada[pos] = 0;
+            movimientosSalida[pos] = 0;
+            tamano++;
+            return pos;
+        }
+
+        /** Primera posición con inicio >= cubeta. */
+        int posicion(long cubeta) {
+            int pos = Arrays.binarySearch(inicio, 0, tamano, cubeta);
+            return pos < 0 ? -pos - 1 : pos;
+        }
+
+        /** Suma las cubetas con inicio en [desde, hasta) al acumulador (mismo orden que Totales). */
+        void sumarRango(long desde, long hasta, long[] acumulado) {
+            for (int i = posicion(desde); i < tamano && inicio[i] < hasta; i++) {
+                acumulado[0] += entradas[i];
+                acumulado[1] += salidas[i];
+                acumulado[2] += movimientosEntrada[i];
+                acumulado[3] += movimientosSalida[i];
+            }
+        }
+
+        Totales totales(int i) {
+            return new Totales(entradas[i], salidas[i], movimientosEntrada[i], movimientosSalida[i]);
+        }
+    }
+
+    private final ReentrantReadWriteLock candado = new ReentrantReadWriteLock();
+    // eje → clave → series (una por granularidad: HORA, DIA, MES)
+    private final Map<Eje, Map<String, Serie[]>> series = new EnumMap<>(Eje.class);
+    private int movimientos;
+
+    public AgregadosTemporales() {
+        for (Eje eje : Eje.values()) series.put(eje, new HashMap<>());
+    }
+
+    // =========================================================================
+    //  ESCRITURA
+    // =========================================================================
+    /**
+     * @param categoria Categoría vigente del producto (null = sin dato).
+     * @param ruc       RUC del proveedor vigente del producto (null = sin dato).
+     */
+    public void agregar(Transaccion t, String categoria, String ruc) {
+        if (t == null || t.getFecha() == null || t.getTipo() == null) return;
+        boolean salida = t.calcularDeltaStock() < 0;
+        long[] cubetas = new long[Granularidad.values().length];
+        for (Granularidad g : Granularidad.values()) {
+            cubetas[g.ordinal()] = ArchivoColumnarTransacciones.aEpoch(g.truncar(t.getFecha()));
+        }
+
+        candado.writeLock().lock();
+        try {
+            sumar(Eje.PRODUCTO, t.getCodigoProducto(), cubetas, t.getCantidad(), salida);
+            sumar(Eje.CATEGORIA, IndiceCatalogo.claveCategoria(categoria), cubetas, t.getCantidad(), salida);
+            sumar(Eje.PROVEEDOR, ruc, cubetas, t.getCantidad(), salida);
+            sumar(Eje.TOTAL, "", cubetas, t.getCantidad(), salida);
+            movimientos++;
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    public void limpiar() {
+        candado.writeLock().lock();
+        try {
+            series.values().forEach(Map::clear);
+            movimientos = 0;
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    // =========================================================================
+    //  CONSULTAS
+    // =========================================================================
+    public int tamano() {
+        candado.readLock().lock();
+        try {
+            return movimientos;
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    /** Totales de una clave en el rango (desde/hasta null = sin límite). */
+    public Totales resumir(Eje eje, String clave, LocalDateTime desde, LocalDateTime hasta) {
+        candado.readLock().lock();
+        try {
+            Serie[] s = series.get(eje).get(claveConsulta(eje, clave));
+            return s == null ? new Totales(0, 0, 0, 0) : resumirSinCandado(s, desde, hasta);
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    /** Totales por clave del eje en el rango (las claves sin movimientos en el rango se omiten). */
+    public Map<String, Totales> agrupar(Eje eje, LocalDateTime desde, LocalDateTime hasta) {
+        candado.readLock().lock();
+        try {
+            Map<String, Totales> resultado = new TreeMap<>();
+            series.get(eje).forEach((clave, s) -> {
+                Totales r = resumirSinCandado(s, desde, hasta);
+                if (r.getMovimientos() > 0) resultado.put(clave, r);
+            });
+            return resultado;
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    /** Cubetas con movimientos de una clave en el rango, en la granularidad pedida. */
+    public List<Cubeta> serie(Eje eje, String clave, Granularidad granularidad, LocalDateTime desde, LocalDateTime hasta) {
+        candado.readLock().lock();
+        try {
+            Serie[] s = series.get(eje).get(claveConsulta(eje, clave));
+            List<Cubeta> cubetas = new ArrayList<>();
+            if (s == null) return cubetas;
+            Serie serie = s[granularidad.ordinal()];
+            long inicio = desde == null ? Long.MIN_VALUE : ArchivoColumnarTransacciones.aEpoch(granularidad.truncar(desde));
+            long fin = hasta == null ? Long.MAX_VALUE : ArchivoColumnarTransacciones.aEpoch(granularidad.truncar(hasta));
+            for (int i = serie.posicion(inicio); i < serie.tamano && serie.inicio[i] <= fin; i++) {
+                cubetas.add(new Cubeta(ArchivoColumnarTransacciones.desdeEpoch(serie.inicio[i]), serie.totales(i)));
+            }
+            return cubetas;
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    // =========================================================================
+    //  AUXILIARES
+    // =========================================================================
+    private void sumar(Eje eje, String clave, long[] cubetas, int cantidad, boolean salida) {
+        Serie[] s = serieDe(eje, clave);
+        for (int g = 0; g < s.length; g++) s[g].sumar(cubetas[g], cantidad, salida);
+    }
+
+    private Serie[] serieDe(Eje eje, String clave) {
+        return series.get(eje).computeIfAbsent(normalizar(clave), c -> {
+            Serie[] nuevas = new Serie[Granularidad.values().length];
+            for (int i = 0; i < nuevas.length; i++) nuevas[i] = new Serie();
+            return nuevas;
+        });
+    }
+
+    // La categoría consultada se compara igual que se guardó (claveCategoria)
+    private static String claveConsulta(Eje eje, String clave) {
+        if (eje == Eje.TOTAL) return "";
+        return normalizar(eje == Eje.CATEGORIA ? IndiceCatalogo.claveCategoria(clave) : clave);
+    }
+
+    private static String normalizar(String clave) {
+        return clave == null ? ArchivoColumnarTransacciones.SIN_DATO : clave;
+    }
+
+    /**
+     * [desde, fin) con fin = hora siguiente a "hasta", partido en:
+     * horas [desde, d1) + días [d1, m1) + meses [m1, m2) + días [m2, d2) + horas [d2, fin).
+     */
+    private static Totales resumirSinCandado(Serie[] s, LocalDateTime desde, LocalDateTime hasta) {
+        long[] acumulado = new long[4];
+        Serie meses = s[Granularidad.MES.ordinal()];
+        Serie dias = s[Granularidad.DIA.ordinal()];
+        Serie horas = s[Granularidad.HORA.ordinal()];
+
+        if (desde == null && hasta == null) {
+            meses.sumarRango(Long.MIN_VALUE, Long.MAX_VALUE, acumulado);
+        } else if (meses.tamano > 0) {
+            // Los extremos abiertos se acotan a la primera/última cubeta existente
+            LocalDateTime inicio = desde != null ? Granularidad.HORA.truncar(desde)
+                    : ArchivoColumnarTransacciones.desdeEpoch(meses.inicio[0]);
+            LocalDateTime fin = hasta != null ? Granularidad.HORA.truncar(hasta).plusHours(1)
+                    : ArchivoColumnarTransacciones.desdeEpoch(horas.inicio[horas.tamano - 1]).plusHours(1);
+
+            LocalDateTime d1 = Granularidad.DIA.redondearArriba(inicio);
+            LocalDateTime d2 = Granularidad.DIA.truncar(fin);
+            if (!d1.isBefore(d2)) {
+                sumar(horas, inicio, fin, acumulado);
+            } else {
+                LocalDateTime m1 = Granularidad.MES.redondearArriba(d1);
+                LocalDateTime m2 = Granularidad.MES.truncar(d2);
+                sumar(horas, inicio, d1, acumulado);
+                if (!m1.isBefore(m2)) {
+                    sumar(dias, d1, d2, acumulado);
+                } else {
+                    sumar(dias, d1, m1, acumulado);
+                    sumar(meses, m1, m2, acumulado);
+                    sumar(dias, m2, d2, acumulado);
+                }
+                sumar(horas, d2, fin, acumulado);
+            }
+        }
+        return new Totales(acumulado[0], acumulado[1], (int) acumulado[2], (int) acumulado[3]);
+    }
+
+    private static void sumar(Serie serie, LocalDateTime desde, LocalDateTime hasta, long[] acumulado) {
+        if (desde.isBefore(hasta)) {
+            serie.sumarRango(ArchivoColumnarTransacciones.aEpoch(desde), ArchivoColumnarTransacciones.aEpoch(hasta), acumulado);
+        }
+    }
+}
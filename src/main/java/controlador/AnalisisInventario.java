@@ -0,0 +1,316 @@
+package controlador;
+
+import modelo.Producto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+/**
+ * [AnalisisInventario.java]
+ * Clasificación ABC (por valorización o por movimiento) y productos de mayor/menor rotación
+ * sobre todo el catálogo y el historial, en un pool fork-join propio.
+ *
+ * Cada paso reparte el trabajo en particiones contiguas (una por hilo del pool): cada
+ * partición acumula por su cuenta (totales por producto, top-N, tramo ordenado) sin tocar
+ * nada compartido y los resultados parciales se combinan de dos en dos al unir las tareas.
+ * El historial se lee del archivo columnar (agruparEnParalelo), no de los objetos Transaccion.
+ *
+ * ABC: los productos se ordenan por valor descendente; es A el que empieza antes de llegar al
+ * umbral A del total acumulado (80 % por defecto), B antes del umbral B (95 %) y C el resto.
+ * La rotación se mide en unidades de salida dentro de la ventana; los productos sin salidas
+ * cuentan con 0 (son los candidatos a "más lentos").
+ */
+public class AnalisisInventario {
+
+    public static final double UMBRAL_A = 0.80;
+    public static final double UMBRAL_B = 0.95;
+    // Por debajo de esto una partición del catálogo no compensa repartir
+    private static final int MIN_PRODUCTOS_PARTICION = 4096;
+
+    /** Qué se mide para la clasificación ABC. */
+    public enum Criterio {
+        VALOR,        // precio × stock actual (0 si es perecedero vencido)
+        MOVIMIENTO;   // unidades de salida en la ventana
+
+        public static Criterio desde(String valor) {
+            return valueOf(valor.trim().toUpperCase());
+        }
+    }
+
+    /** Un producto en el orden ABC. porcentajeAcumulado incluye al propio producto. */
+    public record ItemAbc(String codigo, String nombre, String categoria, double valor,
+                          double porcentajeAcumulado, String clase) {
+    }
+
+    public record ResumenClase(String clase, int productos, double valor, double porcentaje) {
+    }
+
+    /** items: los de la clase pedida (o los primeros del orden), como máximo 'limite'. */
+    public record ResultadoAbc(Criterio criterio, LocalDateTime desde, LocalDateTime hasta, double total,
+                               List<ResumenClase> clases, List<ItemAbc> items) {
+    }
+
+    public record Rotacion(String codigo, String nombre, String categoria, long unidadesSalida,
+                           long unidadesEntrada, int movimientos) {
+    }
+
+    public record ResultadoRotacion(LocalDateTime desde, LocalDateTime hasta,
+                                    List<Rotacion> masRapidos, List<Rotacion> masLentos) {
+    }
+
+    // Más rápido primero: más salidas; empate por código
+    private static final Comparator<Rotacion> MAS_RAPIDO = Comparator
+            .comparingLong(Rotacion::unidadesSalida).reversed()
+            .thenComparing(Rotacion::codigo);
+    private static final Comparator<Rotacion> MAS_LENTO = Comparator
+            .comparingLong(Rotacion::unidadesSalida)
+            .thenComparing(Rotacion::codigo);
+
+    private final ArchivoColumnarTransacciones archivo;
+    private final Map<String, Producto> catalogo;
+    private final ForkJoinPool pool;
+    private final int paralelismo;
+
+    /**
+     * @param catalogo    Productos vigentes (mapa concurrente: se toma una copia al empezar cada análisis).
+     * @param paralelismo Hilos del pool (0 o menos = uno por núcleo).
+     */
+    public AnalisisInventario(ArchivoColumnarTransacciones archivo, Map<String, Producto> catalogo, int paralelismo) {
+        this.archivo = archivo;
+        this.catalogo = catalogo;
+        this.paralelismo = paralelismo > 0 ? paralelismo : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(this.paralelismo, p -> {
+            ForkJoinWorkerThread hilo = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            hilo.setName("analisis-" + hilo.getPoolIndex());
+            return hilo;
+        }, null, false);
+    }
+
+    public int getParalelismo() {
+        return paralelismo;
+    }
+
+    public void cerrar() {
+        pool.shutdownNow();
+    }
+
+    // =========================================================================
+    //  CLASIFICACIÓN ABC
+    // =========================================================================
+    /**
+     * @param desde  Inicio de la ventana (solo MOVIMIENTO; null = desde el primero).
+     * @param hasta  Fin de la ventana, inclusive (solo MOVIMIENTO; null = hasta el último).
+     * @param clase  "A", "B" o "C" para listar esa clase; null = los primeros del orden.
+     */
+    public ResultadoAbc clasificarAbc(Criterio criterio, LocalDateTime desde, LocalDateTime hasta,
+                                      double umbralA, double umbralB, String clase, int limite) {
+        Producto[] productos = catalogo.values().toArray(new Producto[0]);
+        double[] valores = new double[productos.length];
+
+        if (criterio == Criterio.VALOR) {
+            LocalDate hoy = LocalDate.now();
+            reducir(productos.length, (inicio, fin) -> {
+                for (int i = inicio; i < fin; i++) valores[i] = ValorizacionInventario.valorDe(productos[i], hoy);
+                return null;
+            }, (a, b) -> null);
+        } else {
+            Map<String, ArchivoColumnarTransacciones.Resumen> porProducto = movimientosPorProducto(desde, hasta);
+            reducir(productos.length, (inicio, fin) -> {
+                for (int i = inicio; i < fin; i++) {
+                    ArchivoColumnarTransacciones.Resumen r = porProducto.get(productos[i].getCodigo());
+                    valores[i] = r == null ? 0 : r.salidas();
+                }
+                return null;
+            }, (a, b) -> null);
+        }
+
+        // Orden descendente: cada partición ordena su tramo y los tramos se mezclan al combinar
+        int[] orden = reducir(productos.length, (inicio, fin) -> {
+            Integer[] tramo = new Integer[fin - inicio];
+            for (int i = inicio; i < fin; i++) tramo[i - inicio] = i;
+            Arrays.sort(tramo, (x, y) -> comparar(productos, valores, x, y));
+            return Arrays.stream(tramo).mapToInt(Integer::intValue).toArray();
+        }, (a, b) -> mezclar(a, b, productos, valores));
+        if (orden == null) orden = new int[0];
+
+        // Fronteras A/B/C sobre el acumulado (una pasada; el orden ya es lo costoso)
+        double total = 0;
+        for (double v : valores) total += v;
+        double[] acumulado = new double[orden.length];
+        int finA = 0, finB = 0;
+        double suma = 0;
+        for (int k = 0; k < orden.length; k++) {
+            if (total > 0 && suma < umbralA * total) finA = k + 1;
+            if (total > 0 && suma < umbralB * total) finB = k + 1;
+            suma += valores[orden[k]];
+            acumulado[k] = suma;
+        }
+
+        List<ResumenClase> clases = List.of(
+                resumenClase("A", 0, finA, acumulado, total),
+                resumenClase("B", finA, finB, acumulado, total),
+                resumenClase("C", finB, orden.length, acumulado, total));
+
+        int inicio = 0, fin = orden.length;
+        if ("A".equalsIgnoreCase(clase)) fin = finA;
+        else if ("B".equalsIgnoreCase(clase)) { inicio = finA; fin = finB; }
+        else if ("C".equalsIgnoreCase(clase)) inicio = finB;
+
+        List<ItemAbc> items = new ArrayList<>(Math.max(0, Math.min(limite, fin - inicio)));
+        for (int k = inicio; k < fin && items.size() < limite; k++) {
+            Producto p = productos[orden[k]];
+            items.add(new ItemAbc(p.getCodigo(), p.getNombre(), p.getCategoria(), redondear(valores[orden[k]]),
+                    total > 0 ? redondear(acumulado[k] * 100.0 / total) : 0.0,
+                    k < finA ? "A" : k < finB ? "B" : "C"));
+        }
+        return new ResultadoAbc(criterio, criterio == Criterio.MOVIMIENTO ? desde : null,
+                criterio == Criterio.MOVIMIENTO ? hasta : null, redondear(total), clases, items);
+    }
+
+    // =========================================================================
+    //  ROTACIÓN (TOP-N MÁS RÁPIDOS / MÁS LENTOS)
+    // =========================================================================
+    /** Los 'n' productos con más y con menos unidades de salida en la ventana. */
+    public ResultadoRotacion rotacion(LocalDateTime desde, LocalDateTime hasta, int n) {
+        Producto[] productos = catalogo.values().toArray(new Producto[0]);
+        Map<String, ArchivoColumnarTransacciones.Resumen> porProducto = movimientosPorProducto(desde, hasta);
+
+        Seleccion seleccion = reducir(productos.length, (inicio, fin) -> {
+            Seleccion parcial = new Seleccion(n);
+            for (int i = inicio; i < fin; i++) {
+                Producto p = productos[i];
+                ArchivoColumnarTransacciones.Resumen r = porProducto.get(p.getCodigo());
+                parcial.ofrecer(new Rotacion(p.getCodigo(), p.getNombre(), p.getCategoria(),
+                        r == null ? 0 : r.salidas(), r == null ? 0 : r.entradas(), r == null ? 0 : r.movimientos()));
+            }
+            return parcial;
+        }, Seleccion::combinar);
+        if (seleccion == null) seleccion = new Seleccion(n);
+
+        return new ResultadoRotacion(desde, hasta, seleccion.ordenados(seleccion.rapidos, MAS_RAPIDO),
+                seleccion.ordenados(seleccion.lentos, MAS_LENTO));
+    }
+
+    // =========================================================================
+    //  AUXILIARES
+    // =========================================================================
+    /** Procesa el tramo [inicio, fin) del catálogo y devuelve su resultado parcial. */
+    @FunctionalInterface
+    private interface Particion<A> {
+        A procesar(int inicio, int fin);
+    }
+
+    /** Los n mayores y los n menores vistos por una partición (montículos acotados). */
+    private static final class Seleccion {
+        final int n;
+        // La raíz de cada montículo es el primero en salir si llega uno mejor
+        final PriorityQueue<Rotacion> rapidos = new PriorityQueue<>(MAS_RAPIDO.reversed());
+        final PriorityQueue<Rotacion> lentos = new PriorityQueue<>(MAS_LENTO.reversed());
+
+        Seleccion(int n) {
+            this.n = n;
+        }
+
+        void ofrecer(Rotacion r) {
+            ofrecer(rapidos, r, MAS_RAPIDO);
+            ofrecer(lentos, r, MAS_LENTO);
+        }
+
+        private void ofrecer(PriorityQueue<Rotacion> monticulo, Rotacion r, Comparator<Rotacion> orden) {
+            if (monticulo.size() < n) {
+                monticulo.add(r);
+            } else if (n > 0 && orden.compare(r, monticulo.peek()) < 0) {
+                monticulo.poll();
+                monticulo.add(r);
+            }
+        }
+
+        Seleccion combinar(Seleccion otra) {
+            otra.rapidos.forEach(r -> ofrecer(rapidos, r, MAS_RAPIDO));
+            otra.lentos.forEach(r -> ofrecer(lentos, r, MAS_LENTO));
+            return this;
+        }
+
+        List<Rotacion> ordenados(PriorityQueue<Rotacion> monticulo, Comparator<Rotacion> orden) {
+            List<Rotacion> lista = new ArrayList<>(monticulo);
+            lista.sort(orden);
+            return lista;
+        }
+    }
+
+    /** Parte [inicio, fin) en mitades hasta el tamaño de partición y combina al volver. */
+    private static final class TareaParticion<A> extends RecursiveTask<A> {
+        private final int inicio;
+        private final int fin;
+        private final int tamanoParticion;
+        private final Particion<A> particion;
+        private final BinaryOperator<A> combinar;
+
+        TareaParticion(int inicio, int fin, int tamanoParticion, Particion<A> particion, BinaryOperator<A> combinar) {
+            this.inicio = inicio;
+            this.fin = fin;
+            this.tamanoParticion = tamanoParticion;
+            this.particion = particion;
+            this.combinar = combinar;
+        }
+
+        @Override
+        protected A compute() {
+            if (fin - inicio <= tamanoParticion) return particion.procesar(inicio, fin);
+            int medio = (inicio + fin) >>> 1;
+            TareaParticion<A> izquierda = new TareaParticion<>(inicio, medio, tamanoParticion, particion, combinar);
+            TareaParticion<A> derecha = new TareaParticion<>(medio, fin, tamanoParticion, particion, combinar);
+            izquierda.fork();
+            A resultado = derecha.compute();
+            return combinar.apply(izquierda.join(), resultado);
+        }
+    }
+
+    /** Reduce [0, n) en el pool: una partición por hilo (null si n = 0). */
+    private <A> A reducir(int n, Particion<A> particion, BinaryOperator<A> combinar) {
+        if (n == 0) return null;
+        int tamano = Math.max(MIN_PRODUCTOS_PARTICION, (n + paralelismo - 1) / paralelismo);
+        return pool.invoke(new TareaParticion<>(0, n, tamano, particion, combinar));
+    }
+
+    private Map<String, ArchivoColumnarTransacciones.Resumen> movimientosPorProducto(LocalDateTime desde, LocalDateTime hasta) {
+        return archivo.agruparEnParalelo(ArchivoColumnarTransacciones.Dimension.PRODUCTO,
+                new ArchivoColumnarTransacciones.Filtro(null, desde, hasta, null), pool, paralelismo);
+    }
+
+    /** Valor descendente; a igual valor, por código (orden estable entre ejecuciones). */
+    private static int comparar(Producto[] productos, double[] valores, int x, int y) {
+        int c = Double.compare(valores[y], valores[x]);
+        return c != 0 ? c : productos[x].getCodigo().compareTo(productos[y].getCodigo());
+    }
+
+    private static int[] mezclar(int[] a, int[] b, Producto[] productos, double[] valores) {
+        int[] resultado = new int[a.length + b.length];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length && j < b.length) {
+            resultado[k++] = comparar(productos, valores, a[i], b[j]) <= 0 ? a[i++] : b[j++];
+        }
+        while (i < a.length) resultado[k++] = a[i++];
+        while (j < b.length) resultado[k++] = b[j++];
+        return resultado;
+    }
+
+    private static ResumenClase resumenClase(String clase, int inicio, int fin, double[] acumulado, double total) {
+        double valor = fin == inicio ? 0 : acumulado[fin - 1] - (inicio == 0 ? 0 : acumulado[inicio - 1]);
+        return new ResumenClase(clase, fin - inicio, redondear(valor), total > 0 ? redondear(valor * 100.0 / total) : 0.0);
+    }
+
+    private static double redondear(double valor) {
+        return Math.round(valor * 100.0) / 100.0;
+    }
+}
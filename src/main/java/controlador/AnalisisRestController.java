@@ -0,0 +1,86 @@
+// controlador/AnalisisRestController.java
+package controlador;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.format.DateTimeParseException;
+
+/**
+ * Controller REST para análisis del inventario.
+ * Clasificación ABC y productos de mayor/menor rotación (cálculo en paralelo).
+ */
+@RestController
+@RequestMapping("/api/analisis")
+public class AnalisisRestController {
+
+    private static final int TOP_POR_DEFECTO = 10;
+    private static final Integer DIAS_ROTACION_POR_DEFECTO = 30;
+
+    private final InventarioController inventarioController;
+
+    public AnalisisRestController(InventarioController inventarioController) {
+        this.inventarioController = inventarioController;
+    }
+
+    // GET /api/analisis/abc → Clasificación ABC del catálogo: {criterio, total, clases, items}
+    // ?criterio=valor|movimiento (valor = precio × stock; movimiento = unidades de salida en la ventana)
+    // ?dias=N o ?fechaInicio, ?fechaFin → ventana (solo movimiento; sin ellas, todo el historial)
+    // ?umbralA=80&umbralB=95 (% acumulado); ?clase=A|B|C&limite=N → productos de esa clase
+    @GetMapping("/abc")
+    public ResponseEntity<?> clasificarAbc(
+            @RequestParam(defaultValue = "valor") String criterio,
+            @RequestParam(required = false) Integer dias,
+            @RequestParam(required = false) String fechaInicio,
+            @RequestParam(required = false) String fechaFin,
+            @RequestParam(required = false) Double umbralA,
+            @RequestParam(required = false) Double umbralB,
+            @RequestParam(required = false) String clase,
+            @RequestParam(required = false) Integer limite) {
+        AnalisisInventario.Criterio tipo;
+        try {
+            tipo = AnalisisInventario.Criterio.desde(criterio);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("criterio no soportado: " + criterio + " (valor, movimiento)");
+        }
+        double a = umbralA != null ? umbralA / 100.0 : AnalisisInventario.UMBRAL_A;
+        double b = umbralB != null ? umbralB / 100.0 : AnalisisInventario.UMBRAL_B;
+        if (a <= 0 || a > b || b > 1) {
+            return ResponseEntity.badRequest().body("Umbrales inválidos: se requiere 0 < umbralA <= umbralB <= 100");
+        }
+        if (clase != null && !clase.matches("[AaBbCc]")) {
+            return ResponseEntity.badRequest().body("clase no soportada: " + clase + " (A, B, C)");
+        }
+        if (dias != null && dias <= 0) {
+            return ResponseEntity.badRequest().body("dias debe ser mayor que 0");
+        }
+
+        try {
+            return ResponseEntity.ok(inventarioController.clasificarAbc(tipo, fechaInicio, fechaFin, dias, a, b,
+                    clase, Pagina.normalizarLimite(limite)));
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("Fecha inválida (yyyy-MM-dd o yyyy-MM-ddTHH:mm:ss)");
+        }
+    }
+
+    // GET /api/analisis/rotacion → Los N productos con más y con menos salidas: {masRapidos, masLentos}
+    // ?n=10; ?dias=30 (por defecto) o ?fechaInicio, ?fechaFin → ventana
+    @GetMapping("/rotacion")
+    public ResponseEntity<?> obtenerRotacion(
+            @RequestParam(required = false) Integer n,
+            @RequestParam(required = false) Integer dias,
+            @RequestParam(required = false) String fechaInicio,
+            @RequestParam(required = false) String fechaFin) {
+        if (dias != null && dias <= 0) {
+            return ResponseEntity.badRequest().body("dias debe ser mayor que 0");
+        }
+        Integer ventana = fechaInicio == null && dias == null ? DIAS_ROTACION_POR_DEFECTO : dias;
+        int top = n == null ? TOP_POR_DEFECTO : Math.max(1, Math.min(n, Pagina.LIMITE_MAXIMO));
+
+        try {
+            return ResponseEntity.ok(inventarioController.obtenerRotacion(fechaInicio, fechaFin, ventana, top));
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("Fecha inválida (yyyy-MM-dd o yyyy-MM-ddTHH:mm:ss)");
+        }
+    }
+}
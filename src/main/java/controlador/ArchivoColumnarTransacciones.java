@@ -0,0 +1,474 @@
+package controlador;
+
+import modelo.TipoTransaccion;
+import modelo.Transaccion;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * [ArchivoColumnarTransacciones.java]
+ * Copia columnar del historial de movimientos para reportes y agregados.
+ *
+ * Cada columna es un arreglo de primitivos (fecha en segundos, cantidad, producto, usuario,
+ * cliente, proveedor) y el tipo es un bit (1 = SALIDA). Los textos se guardan como ordinales
+ * de un diccionario, así una fila ocupa 28 bytes + 1 bit en vez de un Transaccion con su
+ * LocalDateTime, su Integer y los nodos de los índices. Las filas van en bloques de 64K para
+ * crecer sin copiar el historial completo.
+ *
+ * Las sumas y agrupaciones recorren los arreglos de forma secuencial. Cada bloque se mantiene
+ * en orden de fecha (una fila atrasada se inserta en su lugar dentro del último bloque) y guarda
+ * su fecha mínima y máxima: con un rango de fechas se saltan los bloques que no lo tocan y en
+ * los demás el tramo se localiza por búsqueda binaria. Una fila que llega más atrasada que el
+ * comienzo del último bloque solo solapa rangos de bloques; nunca obliga a comparar la fecha
+ * fila a fila en todo el historial. Resolución de fechas: segundos.
+ * agruparEnParalelo reparte el tramo entre varias tareas fork-join, cada una con sus propios
+ * acumuladores, y los suma al final.
+ */
+public class ArchivoColumnarTransacciones {
+
+    private static final int BITS_BLOQUE = 16;
+    private static final int TAM_BLOQUE = 1 << BITS_BLOQUE;
+    private static final int MASCARA = TAM_BLOQUE - 1;
+    private static final int BYTES_POR_FILA = 8 + 5 * 4;
+
+    private static final int NULO = -1;
+    // Por debajo de esto una partición no compensa el coste de repartir y combinar
+    private static final int MIN_FILAS_PARTICION = 16 * 1024;
+    static final String SIN_DATO = "(sin dato)";
+
+    /** Columna por la que se agrupa. */
+    public enum Dimension {
+        PRODUCTO, USUARIO, CLIENTE, PROVEEDOR, TIPO;
+
+        public static Dimension desde(String valor) {
+            return valueOf(valor.trim().toUpperCase());
+        }
+    }
+
+    /** Filtro de un recorrido; cualquier campo null significa "sin restricción". */
+    public record Filtro(TipoTransaccion tipo, LocalDateTime desde, LocalDateTime hasta, String codigoProducto) {
+        public static final Filtro TODO = new Filtro(null, null, null, null);
+    }
+
+    /** Totales de un grupo de movimientos. */
+    public record Resumen(long entradas, long salidas, int movimientos) {
+        public long getNeto() {
+            return entradas - salidas;
+        }
+    }
+
+    /** Recibe cada fila que pasa el filtro (sin crear objetos por fila). */
+    @FunctionalInterface
+    public interface VisitanteFila {
+        void visitar(long epochSegundos, int cantidad, boolean salida, int ordinalProducto);
+    }
+
+    private static final class Bloque {
+        final long[] epoch = new long[TAM_BLOQUE];
+        final int[] cantidad = new int[TAM_BLOQUE];
+        final int[] producto = new int[TAM_BLOQUE];
+        final int[] usuario = new int[TAM_BLOQUE];
+        final int[] cliente = new int[TAM_BLOQUE];
+        final int[] proveedor = new int[TAM_BLOQUE];
+        final BitSet salida = new BitSet(TAM_BLOQUE);
+        long min = Long.MAX_VALUE;   // rango de epoch de las filas del bloque
+        long max = Long.MIN_VALUE;
+
+        boolean tocaRango(long desde, long hasta) {
+            return max >= desde && min <= hasta;
+        }
+    }
+
+    /** Texto ↔ ordinal (0, 1, 2...). null se codifica como NULO. */
+    private static final class Diccionario {
+        private final Map<String, Integer> ordinales = new HashMap<>();
+        private final List<String> valores = new ArrayList<>();
+
+        int ordinal(String valor) {
+            if (valor == null) return NULO;
+            Integer o = ordinales.get(valor);
+            if (o == null) {
+                o = valores.size();
+                ordinales.put(valor, o);
+                valores.add(valor);
+            }
+            return o;
+        }
+
+        int buscar(String valor) {
+            Integer o = valor == null ? null : ordinales.get(valor);
+            return o == null ? NULO : o;
+        }
+
+        String valor(int ordinal) {
+            return ordinal == NULO ? null : valores.get(ordinal);
+        }
+
+        int tamano() {
+            return valores.size();
+        }
+
+        void limpiar() {
+            ordinales.clear();
+            valores.clear();
+        }
+    }
+
+    private final ReentrantReadWriteLock candado = new ReentrantReadWriteLock();
+    private final List<Bloque> bloques = new ArrayList<>();
+    private final Diccionario productos = new Diccionario();
+    private final Diccionario usuarios = new Diccionario();
+    private final Diccionario clientes = new Diccionario();
+    private final Diccionario proveedores = new Diccionario();
+    private int filas;
+
+    // =========================================================================
+    //  ESCRITURA
+    // =========================================================================
+    public void agregar(Transaccion t) {
+        if (t == null || t.getFecha() == null || t.getTipo() == null) return;
+
+        candado.writeLock().lock();
+        try {
+            agregarFila(t);
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    public void limpiar() {
+        candado.writeLock().lock();
+        try {
+            limpiarSinCandado();
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    // =========================================================================
+    //  CONSULTAS
+    // =========================================================================
+    public int tamano() {
+        candado.readLock().lock();
+        try {
+            return filas;
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    /** Memoria aproximada de las columnas (bloques reservados + bits de tipo). */
+    public long tamanoEnBytes() {
+        candado.readLock().lock();
+        try {
+            return (long) bloques.size() * TAM_BLOQUE * BYTES_POR_FILA + (long) bloques.size() * TAM_BLOQUE / 8;
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    /** Entradas, salidas y número de movimientos que pasan el filtro. */
+    public Resumen resumir(Filtro filtro) {
+        long[] acumulado = new long[3];
+        recorrer(filtro, (epoch, cantidad, salida, producto) -> {
+            acumulado[salida ? 1 : 0] += cantidad;
+            acumulado[2]++;
+        });
+        return new Resumen(acumulado[0], acumulado[1], (int) acumulado[2]);
+    }
+
+    /**
+     * Totales por valor de la dimensión. Los acumuladores son arreglos indexados por el ordinal
+     * del diccionario: no hay búsqueda en mapas por fila.
+     */
+    public Map<String, Resumen> agrupar(Dimension dimension, Filtro filtro) {
+        candado.readLock().lock();
+        try {
+            Acumulado acumulado = new Acumulado(dimension, gruposDe(dimension));
+            Tramo tramo = tramo(filtro);
+            if (tramo != null) recorrerTramo(tramo, tramo.inicio(), tramo.fin(), acumulado::sumar);
+            return acumulado.resultado(diccionarioDe(dimension));
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    /**
+     * Igual que agrupar, pero el tramo de filas se reparte en hasta 'particiones' partes
+     * contiguas que se recorren en el pool; cada parte acumula en sus propios arreglos (sin
+     * compartir nada mientras recorre) y los resultados se suman de dos en dos al unir las tareas.
+     * El candado de lectura lo sostiene el hilo que llama durante todo el recorrido.
+     */
+    public Map<String, Resumen> agruparEnParalelo(Dimension dimension, Filtro filtro, ForkJoinPool pool, int particiones) {
+        candado.readLock().lock();
+        try {
+            int grupos = gruposDe(dimension);
+            Tramo tramo = tramo(filtro);
+            if (tramo == null) return new Acumulado(dimension, grupos).resultado(diccionarioDe(dimension));
+            int filasPorParticion = Math.max(MIN_FILAS_PARTICION,
+                    (tramo.fin() - tramo.inicio() + particiones - 1) / Math.max(1, particiones));
+            Acumulado acumulado = pool.invoke(
+                    new TareaAgrupar(dimension, grupos, tramo, tramo.inicio(), tramo.fin(), filasPorParticion));
+            return acumulado.resultado(diccionarioDe(dimension));
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    /** Entrega al visitante cada fila que pasa el filtro (bloque a bloque, cada uno en orden de fecha). */
+    public void recorrer(Filtro filtro, VisitanteFila visitante) {
+        candado.readLock().lock();
+        try {
+            recorrerSinCandado(filtro, (b, j) ->
+                    visitante.visitar(b.epoch[j], b.cantidad[j], b.salida.get(j), b.producto[j]));
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    /** Código del producto con ese ordinal (el que recibe VisitanteFila). */
+    public String codigoProducto(int ordinal) {
+        candado.readLock().lock();
+        try {
+            return productos.valor(ordinal);
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    public static long aEpoch(LocalDateTime fecha) {
+        return fecha.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    public static LocalDateTime desdeEpoch(long epochSegundos) {
+        return LocalDateTime.ofEpochSecond(epochSegundos, 0, ZoneOffset.UTC);
+    }
+
+    // =========================================================================
+    //  AUXILIARES
+    // =========================================================================
+    @FunctionalInterface
+    private interface AccionFila {
+        void aplicar(Bloque bloque, int indice);
+    }
+
+    /** Filas [inicio, fin) candidatas y lo que aún hay que comprobar en cada una. */
+    private record Tramo(int inicio, int fin, int producto, boolean filtrarTipo, boolean soloSalidas,
+                         boolean acotarFecha, long desde, long hasta) {
+    }
+
+    /** Acumuladores de agrupar, indexados por el ordinal del grupo (el último es "sin dato"). */
+    private static final class Acumulado {
+        final Dimension dimension;
+        final long[] entradas;
+        final long[] salidas;
+        final int[] movimientos;
+
+        Acumulado(Dimension dimension, int grupos) {
+            this.dimension = dimension;
+            entradas = new long[grupos];
+            salidas = new long[grupos];
+            movimientos = new int[grupos];
+        }
+
+        void sumar(Bloque b, int j) {
+            int g = switch (dimension) {
+                case PRODUCTO -> b.producto[j];
+                case USUARIO -> b.usuario[j];
+                case CLIENTE -> b.cliente[j];
+                case PROVEEDOR -> b.proveedor[j];
+                case TIPO -> b.salida.get(j) ? TipoTransaccion.SALIDA.ordinal() : TipoTransaccion.ENTRADA.ordinal();
+            };
+            if (g == NULO) g = movimientos.length - 1;
+            if (b.salida.get(j)) salidas[g] += b.cantidad[j]; else entradas[g] += b.cantidad[j];
+            movimientos[g]++;
+        }
+
+        Acumulado combinar(Acumulado otro) {
+            for (int g = 0; g < movimientos.length; g++) {
+                entradas[g] += otro.entradas[g];
+                salidas[g] += otro.salidas[g];
+                movimientos[g] += otro.movimientos[g];
+            }
+            return this;
+        }
+
+        Map<String, Resumen> resultado(Diccionario dic) {
+            int sinDato = movimientos.length - 1;
+            Map<String, Resumen> resultado = new TreeMap<>();
+            for (int g = 0; g < movimientos.length; g++) {
+                if (movimientos[g] == 0) continue;
+                String clave = g == sinDato ? SIN_DATO
+                        : dic != null ? dic.valor(g) : TipoTransaccion.values()[g].name();
+                resultado.put(clave, new Resumen(entradas[g], salidas[g], movimientos[g]));
+            }
+            return resultado;
+        }
+    }
+
+    /** Parte el tramo en mitades (alineadas a bloques) hasta 'filasPorParticion' y suma al volver. */
+    private final class TareaAgrupar extends RecursiveTask<Acumulado> {
+        private final Dimension dimension;
+        private final int grupos;
+        private final Tramo tramo;
+        private final int desde;
+        private final int hasta;
+        private final int filasPorParticion;
+
+        TareaAgrupar(Dimension dimension, int grupos, Tramo tramo, int desde, int hasta, int filasPorParticion) {
+            this.dimension = dimension;
+            this.grupos = grupos;
+            this.tramo = tramo;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.filasPorParticion = filasPorParticion;
+        }
+
+        @Override
+        protected Acumulado compute() {
+            if (hasta - desde <= filasPorParticion) {
+                Acumulado acumulado = new Acumulado(dimension, grupos);
+                recorrerTramo(tramo, desde, hasta, acumulado::sumar);
+                return acumulado;
+            }
+            int medio = desde + (hasta - desde) / 2;
+            int alineado = medio & ~MASCARA;
+            if (alineado > desde) medio = alineado;
+            TareaAgrupar izquierda = new TareaAgrupar(dimension, grupos, tramo, desde, medio, filasPorParticion);
+            TareaAgrupar derecha = new TareaAgrupar(dimension, grupos, tramo, medio, hasta, filasPorParticion);
+            izquierda.fork();
+            Acumulado resultado = derecha.compute();
+            return izquierda.join().combinar(resultado);
+        }
+    }
+
+    private void agregarFila(Transaccion t) {
+        int j = filas & MASCARA;
+        if (j == 0) bloques.add(new Bloque());
+        Bloque b = bloques.get(bloques.size() - 1);
+
+        // Lo normal es llegar en orden de fecha: la posición es el final del bloque
+        long epoch = aEpoch(t.getFecha());
+        int pos = j;
+        while (pos > 0 && b.epoch[pos - 1] > epoch) pos--;
+        if (pos < j) {
+            int n = j - pos;
+            System.arraycopy(b.epoch, pos, b.epoch, pos + 1, n);
+            System.arraycopy(b.cantidad, pos, b.cantidad, pos + 1, n);
+            System.arraycopy(b.producto, pos, b.producto, pos + 1, n);
+            System.arraycopy(b.usuario, pos, b.usuario, pos + 1, n);
+            System.arraycopy(b.cliente, pos, b.cliente, pos + 1, n);
+            System.arraycopy(b.proveedor, pos, b.proveedor, pos + 1, n);
+            for (int k = j; k > pos; k--) b.salida.set(k, b.salida.get(k - 1));
+        }
+
+        b.epoch[pos] = epoch;
+        b.cantidad[pos] = t.getCantidad();
+        b.producto[pos] = productos.ordinal(t.getCodigoProducto());
+        b.usuario[pos] = usuarios.ordinal(t.getUsuario());
+        b.cliente[pos] = clientes.ordinal(t.getIdCliente());
+        b.proveedor[pos] = proveedores.ordinal(t.getIdProveedor());
+        b.salida.set(pos, t.getTipo() == TipoTransaccion.SALIDA);
+        b.min = Math.min(b.min, epoch);
+        b.max = Math.max(b.max, epoch);
+        filas++;
+    }
+
+    private void limpiarSinCandado() {
+        bloques.clear();
+        productos.limpiar();
+        usuarios.limpiar();
+        clientes.limpiar();
+        proveedores.limpiar();
+        filas = 0;
+    }
+
+    /** Llamar con el candado de lectura tomado. */
+    private void recorrerSinCandado(Filtro filtro, AccionFila accion) {
+        Tramo tramo = tramo(filtro);
+        if (tramo != null) recorrerTramo(tramo, tramo.inicio(), tramo.fin(), accion);
+    }
+
+    /** Tramo de filas del filtro, o null si ninguna fila puede pasarlo. Llamar con el candado tomado. */
+    private Tramo tramo(Filtro filtro) {
+        if (filtro == null) filtro = Filtro.TODO;
+
+        int producto = NULO;
+        if (filtro.codigoProducto() != null) {
+            producto = productos.buscar(filtro.codigoProducto());
+            if (producto == NULO) return null;   // código sin movimientos
+        }
+        long desde = filtro.desde() != null ? aEpoch(filtro.desde()) : Long.MIN_VALUE;
+        long hasta = filtro.hasta() != null ? aEpoch(filtro.hasta()) : Long.MAX_VALUE;
+        if (desde > hasta) return null;
+
+        // Con rango de fechas el tramo va del primer al último bloque que lo toca
+        int inicio = 0, fin = filas;
+        boolean acotarFecha = desde != Long.MIN_VALUE || hasta != Long.MAX_VALUE;
+        if (acotarFecha) {
+            int primero = 0, ultimo = bloques.size() - 1;
+            while (primero <= ultimo && !bloques.get(primero).tocaRango(desde, hasta)) primero++;
+            while (ultimo >= primero && !bloques.get(ultimo).tocaRango(desde, hasta)) ultimo--;
+            if (primero > ultimo) return null;
+            inicio = primero << BITS_BLOQUE;
+            fin = Math.min(filas, (ultimo + 1) << BITS_BLOQUE);
+        }
+        return new Tramo(inicio, fin, producto, filtro.tipo() != null, filtro.tipo() == TipoTransaccion.SALIDA,
+                acotarFecha, desde, hasta);
+    }
+
+    /** Aplica la acción a las filas de [desde, hasta) (dentro del tramo) que pasan el filtro. */
+    private void recorrerTramo(Tramo tramo, int desde, int hasta, AccionFila accion) {
+        for (int i = desde; i < hasta; ) {
+            Bloque b = bloques.get(i >>> BITS_BLOQUE);
+            int j = i & MASCARA;
+            int limite = Math.min(TAM_BLOQUE, j + (hasta - i));
+            i += limite - j;
+            if (tramo.acotarFecha()) {
+                // Bloque fuera del rango: se salta; dentro, está en orden de fecha y el rango es contiguo
+                if (!b.tocaRango(tramo.desde(), tramo.hasta())) continue;
+                if (b.min < tramo.desde()) j = primeraFilaDesde(b.epoch, j, limite, tramo.desde());
+                if (b.max > tramo.hasta()) limite = primeraFilaDesde(b.epoch, j, limite, tramo.hasta() + 1);
+            }
+            for (; j < limite; j++) {
+                if (tramo.producto() != NULO && b.producto[j] != tramo.producto()) continue;
+                if (tramo.filtrarTipo() && b.salida.get(j) != tramo.soloSalidas()) continue;
+                accion.aplicar(b, j);
+            }
+        }
+    }
+
+    /** Primera posición de [bajo, alto) con epoch >= valor (el bloque está en orden de fecha). */
+    private static int primeraFilaDesde(long[] epoch, int bajo, int alto, long valor) {
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (epoch[medio] < valor) bajo = medio + 1; else alto = medio;
+        }
+        return bajo;
+    }
+
+    private int gruposDe(Dimension dimension) {
+        Diccionario dic = diccionarioDe(dimension);
+        return (dic != null ? dic.tamano() : TipoTransaccion.values().length) + 1;   // +1: sin dato
+    }
+
+    private Diccionario diccionarioDe(Dimension dimension) {
+        return switch (dimension) {
+            case PRODUCTO -> productos;
+            case USUARIO -> usuarios;
+            case CLIENTE -> clientes;
+            case PROVEEDOR -> proveedores;
+            case TIPO -> null;
+        };
+    }
+}
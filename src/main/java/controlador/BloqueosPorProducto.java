@@ -0,0 +1,69 @@
+package controlador;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * [BloqueosPorProducto.java]
+ * Bloqueo segmentado (striped locking) por código de producto.
+ *
+ * Los movimientos de stock de un mismo producto se serializan, pero productos
+ * distintos avanzan en paralelo sin un candado global. Se usa ReentrantLock
+ * (no synchronized) porque dentro del bloqueo se hace E/S contra la BD.
+ */
+public class BloqueosPorProducto {
+
+    private final ReentrantLock[] segmentos;
+    private final int mascara;
+
+    /**
+     * @param segmentos Número de segmentos; se redondea a la siguiente potencia de 2.
+     */
+    public BloqueosPorProducto(int segmentos) {
+        int n = Integer.highestOneBit(Math.max(1, segmentos - 1)) << 1;
+        this.segmentos = new ReentrantLock[n];
+        for (int i = 0; i < n; i++) {
+            this.segmentos[i] = new ReentrantLock();
+        }
+        this.mascara = n - 1;
+    }
+
+    public BloqueosPorProducto() {
+        this(256);
+    }
+
+    /** Candado del segmento al que pertenece el código. */
+    public ReentrantLock bloqueoDe(String codigo) {
+        return segmentos[indice(codigo)];
+    }
+
+    /**
+     * Adquiere los segmentos de varios productos siempre en el mismo orden
+     * (por índice de segmento) para evitar interbloqueos entre lotes.
+     *
+     * @return Los candados adquiridos; liberar con {@link #liberar(Collection)}.
+     */
+    public Collection<ReentrantLock> bloquearTodos(Collection<String> codigos) {
+        TreeSet<Integer> indices = new TreeSet<>();
+        codigos.forEach(c -> indices.add(indice(c)));
+
+        List<ReentrantLock> adquiridos = new ArrayList<>(indices.size());
+        for (int i : indices) {
+            segmentos[i].lock();
+            adquiridos.add(segmentos[i]);
+        }
+        return adquiridos;
+    }
+
+    public void liberar(Collection<ReentrantLock> adquiridos) {
+        adquiridos.forEach(ReentrantLock::unlock);
+    }
+
+    private int indice(String codigo) {
+        int h = codigo == null ? 0 : codigo.hashCode();
+        return (h ^ (h >>> 16)) & mascara;
+    }
+}
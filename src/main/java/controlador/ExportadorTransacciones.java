@@ -0,0 +1,156 @@
+package controlador;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import modelo.Producto;
+import modelo.Transaccion;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * [ExportadorTransacciones.java]
+ * Escribe transacciones fila a fila en un flujo de salida (NDJSON o CSV).
+ *
+ * Cada fila se escribe en cuanto llega y no se guarda: la memoria usada es la del búfer
+ * de salida, sin importar cuántas filas tenga el reporte. Las filas son planas
+ * (código y nombre del producto en lugar del objeto Producto completo).
+ */
+public final class ExportadorTransacciones {
+
+    public enum Formato {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String tipoContenido;
+        private final String extension;
+
+        Formato(String tipoContenido, String extension) {
+            this.tipoContenido = tipoContenido;
+            this.extension = extension;
+        }
+
+        public String getTipoContenido() { return tipoContenido; }
+        public String getExtension() { return extension; }
+    }
+
+    private static final String[] COLUMNAS = {
+            "idTransaccion", "tipo", "fecha", "cantidad", "codigoProducto", "nombreProducto",
+            "razon", "nota", "usuario", "idProveedor", "idCliente"
+    };
+
+    private ExportadorTransacciones() {
+    }
+
+    /**
+     * Recorre el origen escribiendo cada transacción en la salida.
+     *
+     * @param catalogo Producto por código (para el nombre del producto de cada fila).
+     * @param origen   Recibe el consumidor de filas y le entrega las transacciones en orden.
+     * @return Número de filas escritas.
+     */
+    public static long exportar(Formato formato, OutputStream salida, ObjectMapper mapper,
+                                Function<String, Producto> catalogo,
+                                Consumer<Consumer<Transaccion>> origen) throws IOException {
+        try {
+            return formato == Formato.NDJSON
+                    ? exportarNdjson(salida, mapper, catalogo, origen)
+                    : exportarCsv(salida, catalogo, origen);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();   // p.ej. el cliente cerró la conexión a mitad del reporte
+        }
+    }
+
+    // =========================================================================
+    //  NDJSON: un objeto JSON por línea
+    // =========================================================================
+    private static long exportarNdjson(OutputStream salida, ObjectMapper mapper, Function<String, Producto> catalogo,
+                                       Consumer<Consumer<Transaccion>> origen) throws IOException {
+        long[] filas = {0};
+        try (JsonGenerator gen = mapper.getFactory().createGenerator(salida)) {
+            gen.setRootValueSeparator(null);
+            origen.accept(t -> {
+                try {
+                    String[] v = valores(t, catalogo);
+                    gen.writeStartObject();
+                    gen.writeNumberField(COLUMNAS[0], t.getIdTransaccion() != null ? t.getIdTransaccion() : 0);
+                    gen.writeStringField(COLUMNAS[1], v[1]);
+                    gen.writeStringField(COLUMNAS[2], v[2]);
+                    gen.writeNumberField(COLUMNAS[3], t.getCantidad());
+                    for (int i = 4; i < COLUMNAS.length; i++) {
+                        gen.writeStringField(COLUMNAS[i], v[i]);
+                    }
+                    gen.writeEndObject();
+                    gen.writeRaw('\n');
+                    filas[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        return filas[0];
+    }
+
+    // =========================================================================
+    //  CSV (RFC 4180): cabecera + una línea por transacción
+    // =========================================================================
+    private static long exportarCsv(OutputStream salida, Function<String, Producto> catalogo,
+                                    Consumer<Consumer<Transaccion>> origen) throws IOException {
+        long[] filas = {0};
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), 64 * 1024)) {
+            w.write(String.join(",", COLUMNAS));
+            w.write("\r\n");
+            origen.accept(t -> {
+                try {
+                    String[] v = valores(t, catalogo);
+                    for (int i = 0; i < v.length; i++) {
+                        if (i > 0) w.write(',');
+                        escribirCampoCsv(w, v[i]);
+                    }
+                    w.write("\r\n");
+                    filas[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        return filas[0];
+    }
+
+    private static void escribirCampoCsv(Writer w, String valor) throws IOException {
+        if (valor == null) return;
+        boolean comillas = valor.indexOf(',') >= 0 || valor.indexOf('"') >= 0
+                || valor.indexOf('\n') >= 0 || valor.indexOf('\r') >= 0;
+        if (!comillas) {
+            w.write(valor);
+            return;
+        }
+        w.write('"');
+        w.write(valor.replace("\"", "\"\""));
+        w.write('"');
+    }
+
+    private static String[] valores(Transaccion t, Function<String, Producto> catalogo) {
+        Producto p = t.getCodigoProducto() != null ? catalogo.apply(t.getCodigoProducto()) : null;
+        return new String[] {
+                t.getIdTransaccion() != null ? t.getIdTransaccion().toString() : null,
+                t.getTipo() != null ? t.getTipo().name() : null,
+                t.getFecha() != null ? t.getFecha().toString() : null,
+                Integer.toString(t.getCantidad()),
+                t.getCodigoProducto(),
+                p != null ? p.getNombre() : null,
+                t.getRazon(),
+                t.getNota(),
+                t.getUsuario(),
+                t.getIdProveedor(),
+                t.getIdCliente()
+        };
+    }
+}
@@ -0,0 +1,145 @@
+package controlador;
+
+import modelo.Producto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * [IndiceCatalogo.java]
+ * Índices secundarios del catálogo de productos:
+ * - Ordenado por stockActual: "stock bajo" cuesta O(log n + k) en vez de recorrer todo el catálogo.
+ * - Hash por categoría y por RUC del proveedor.
+ * - Ordenado por código: orden estable para la paginación por cursor.
+ *
+ * Se guarda lo que se indexó de cada producto, así un producto modificado "en sitio"
+ * (p.ej. desde el PUT) se reubica correctamente al reindexarlo.
+ * Las altas/bajas de un mismo producto deben hacerse bajo su candado (BloqueosPorProducto).
+ */
+public class IndiceCatalogo {
+
+    /** Clave del índice de stock: (stock, código) para desempatar productos con igual stock. */
+    private record ClaveStock(int stock, String codigo) implements Comparable<ClaveStock> {
+        @Override
+        public int compareTo(ClaveStock otra) {
+            int c = Integer.compare(stock, otra.stock);
+            return c != 0 ? c : codigo.compareTo(otra.codigo);
+        }
+    }
+
+    /** Lo indexado de cada producto (para poder retirarlo después). */
+    private record Entrada(ClaveStock claveStock, String categoria, String ruc) {}
+
+    private final ConcurrentNavigableMap<ClaveStock, Producto> porStock = new ConcurrentSkipListMap<>();
+    private final ConcurrentNavigableMap<String, Producto> porCodigo = new ConcurrentSkipListMap<>();
+    private final Map<String, Map<String, Producto>> porCategoria = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Producto>> porProveedor = new ConcurrentHashMap<>();
+    private final Map<String, Entrada> indexados = new ConcurrentHashMap<>();
+
+    /** Alta o actualización de un producto en todos los índices. */
+    public void indexar(Producto p) {
+        if (p == null || p.getCodigo() == null) return;
+
+        Entrada nueva = new Entrada(
+                new ClaveStock(p.getStockActual(), p.getCodigo()),
+                claveCategoria(p.getCategoria()),
+                p.getProveedor() != null ? p.getProveedor().getRuc() : null);
+
+        Entrada anterior = indexados.put(p.getCodigo(), nueva);
+        if (anterior != null) {
+            if (!anterior.claveStock().equals(nueva.claveStock())) porStock.remove(anterior.claveStock());
+            if (!Objects.equals(anterior.categoria(), nueva.categoria())) quitar(porCategoria, anterior.categoria(), p.getCodigo());
+            if (!Objects.equals(anterior.ruc(), nueva.ruc())) quitar(porProveedor, anterior.ruc(), p.getCodigo());
+        }
+
+        porStock.put(nueva.claveStock(), p);
+        porCodigo.put(p.getCodigo(), p);
+        poner(porCategoria, nueva.categoria(), p);
+        poner(porProveedor, nueva.ruc(), p);
+    }
+
+    public void eliminar(String codigo) {
+        if (codigo == null) return;
+        Entrada anterior = indexados.remove(codigo);
+        if (anterior == null) return;
+
+        porStock.remove(anterior.claveStock());
+        porCodigo.remove(codigo);
+        quitar(porCategoria, anterior.categoria(), codigo);
+        quitar(porProveedor, anterior.ruc(), codigo);
+    }
+
+    public void limpiar() {
+        porStock.clear();
+        porCodigo.clear();
+        porCategoria.clear();
+        porProveedor.clear();
+        indexados.clear();
+    }
+
+    // =========================================================================
+    //  CONSULTAS
+    // =========================================================================
+
+    /** Productos con stock estrictamente menor que el umbral, de menor a mayor stock. */
+    public List<Producto> stockMenorQue(int umbral) {
+        return new ArrayList<>(porStock.headMap(new ClaveStock(umbral, ""), false).values());
+    }
+
+    /** Página de productos ordenados por código, a partir del cursor (código excluido). */
+    public Pagina<Producto> pagina(String despuesDeCodigo, int limite) {
+        return Pagina.desde(porCodigo, despuesDeCodigo, limite);
+    }
+
+    public List<Producto> porCategoria(String categoria) {
+        String clave = claveCategoria(categoria);
+        return copia(clave == null ? null : porCategoria.get(clave));
+    }
+
+    public List<Producto> porProveedor(String ruc) {
+        return copia(ruc == null ? null : porProveedor.get(ruc));
+    }
+
+    /** Categorías existentes (tal como se indexaron, en minúsculas), ordenadas. */
+    public Set<String> categorias() {
+        Set<String> resultado = new TreeSet<>();
+        porCategoria.forEach((c, productos) -> {
+            if (!productos.isEmpty()) resultado.add(c);
+        });
+        return resultado;
+    }
+
+    // =========================================================================
+    //  AUXILIARES
+    // =========================================================================
+    /**
+     * Clave de agrupación de una categoría (sin espacios en los bordes, en minúsculas), o null si
+     * no tiene. La comparten todas las vistas por categoría: índice, valorización y agregados.
+     */
+    static String claveCategoria(String categoria) {
+        return categoria == null || categoria.isBlank() ? null : categoria.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static void poner(Map<String, Map<String, Producto>> indice, String clave, Producto p) {
+        if (clave == null) return;
+        indice.computeIfAbsent(clave, k -> new ConcurrentHashMap<>()).put(p.getCodigo(), p);
+    }
+
+    private static void quitar(Map<String, Map<String, Producto>> indice, String clave, String codigo) {
+        if (clave == null) return;
+        Map<String, Producto> grupo = indice.get(clave);
+        if (grupo != null) grupo.remove(codigo);
+    }
+
+    private static List<Producto> copia(Map<String, Producto> grupo) {
+        return grupo == null ? List.of() : new ArrayList<>(grupo.values());
+    }
+}
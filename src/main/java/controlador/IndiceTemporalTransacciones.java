@@ -0,0 +1,89 @@
+package controlador;
+
+import modelo.TipoTransaccion;
+import modelo.Transaccion;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * [IndiceTemporalTransacciones.java]
+ * Índice de transacciones ordenado por fecha, con un subíndice por TipoTransaccion.
+ *
+ * Las consultas por rango de fechas recorren solo el tramo que coincide (O(log n + k))
+ * en lugar de todo el historial. Se mantiene de forma incremental con cada transacción.
+ */
+public class IndiceTemporalTransacciones {
+
+    /** Clave compuesta (fecha, id): varias transacciones pueden compartir la misma fecha. */
+    private record Clave(LocalDateTime fecha, int id) implements Comparable<Clave> {
+        @Override
+        public int compareTo(Clave otra) {
+            int c = fecha.compareTo(otra.fecha);
+            return c != 0 ? c : Integer.compare(id, otra.id);
+        }
+    }
+
+    private final ConcurrentNavigableMap<Clave, Transaccion> porFecha = new ConcurrentSkipListMap<>();
+    private final Map<TipoTransaccion, ConcurrentNavigableMap<Clave, Transaccion>> porTipo = new EnumMap<>(TipoTransaccion.class);
+
+    public IndiceTemporalTransacciones() {
+        // La estructura del EnumMap no cambia después de construirse: lecturas concurrentes seguras
+        for (TipoTransaccion tipo : TipoTransaccion.values()) {
+            porTipo.put(tipo, new ConcurrentSkipListMap<>());
+        }
+    }
+
+    public void agregar(Transaccion t) {
+        if (t == null || t.getFecha() == null || t.getIdTransaccion() == null) return;
+
+        Clave clave = new Clave(t.getFecha(), t.getIdTransaccion());
+        porFecha.put(clave, t);
+        if (t.getTipo() != null) porTipo.get(t.getTipo()).put(clave, t);
+    }
+
+    public void eliminar(Transaccion t) {
+        if (t == null || t.getFecha() == null || t.getIdTransaccion() == null) return;
+
+        Clave clave = new Clave(t.getFecha(), t.getIdTransaccion());
+        porFecha.remove(clave);
+        if (t.getTipo() != null) porTipo.get(t.getTipo()).remove(clave);
+    }
+
+    /**
+     * Transacciones en el rango [desde, hasta] (ambos inclusive), ordenadas por fecha.
+     * Devuelve una vista del índice: no copia nada hasta que el llamador la recorre.
+     *
+     * @param tipo  Tipo de transacción, o null para todos.
+     * @param desde Inicio del rango, o null para "desde el principio".
+     * @param hasta Fin del rango, o null para "hasta el final".
+     */
+    public Collection<Transaccion> rango(TipoTransaccion tipo, LocalDateTime desde, LocalDateTime hasta) {
+        ConcurrentNavigableMap<Clave, Transaccion> base = tipo == null ? porFecha : porTipo.get(tipo);
+
+        ConcurrentNavigableMap<Clave, Transaccion> tramo = base;
+        if (desde != null && hasta != null) {
+            if (desde.isAfter(hasta)) return List.of();
+            tramo = base.subMap(new Clave(desde, Integer.MIN_VALUE), true, new Clave(hasta, Integer.MAX_VALUE), true);
+        } else if (desde != null) {
+            tramo = base.tailMap(new Clave(desde, Integer.MIN_VALUE), true);
+        } else if (hasta != null) {
+            tramo = base.headMap(new Clave(hasta, Integer.MAX_VALUE), true);
+        }
+        return tramo.values();
+    }
+
+    public int tamano() {
+        return porFecha.size();
+    }
+
+    public void limpiar() {
+        porFecha.clear();
+        porTipo.values().forEach(Map::clear);
+    }
+}
@@ -0,0 +1,127 @@
+package controlador;
+
+import modelo.Producto;
+import modelo.ProductoPerecedero;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * [IndiceVencimientos.java]
+ * Índice de productos perecederos ordenado por fecha de vencimiento.
+ *
+ * - "Vence en los próximos N días" es una consulta por rango: O(log n + k).
+ * - barrer() mueve los productos ya vencidos al conjunto de vencidos y avisa a los oyentes
+ *   (se programa una vez al día desde InventarioController).
+ */
+public class IndiceVencimientos {
+
+    /** Clave (fecha, código): varios productos pueden vencer el mismo día. */
+    private record Clave(LocalDate fecha, String codigo) implements Comparable<Clave> {
+        @Override
+        public int compareTo(Clave otra) {
+            int c = fecha.compareTo(otra.fecha);
+            return c != 0 ? c : codigo.compareTo(otra.codigo);
+        }
+    }
+
+    private final ConcurrentNavigableMap<Clave, ProductoPerecedero> vigentes = new ConcurrentSkipListMap<>();
+    private final Map<String, Clave> indexados = new ConcurrentHashMap<>();
+    private final Map<String, ProductoPerecedero> vencidos = new ConcurrentHashMap<>();
+    private final List<Consumer<ProductoPerecedero>> oyentes = new CopyOnWriteArrayList<>();
+
+    /** Alta o actualización. Los productos no perecederos (o sin fecha) se ignoran. */
+    public void indexar(Producto producto, LocalDate hoy) {
+        if (producto == null || producto.getCodigo() == null) return;
+        eliminar(producto.getCodigo());
+
+        if (!(producto instanceof ProductoPerecedero pp) || pp.getFechaVencimiento() == null) return;
+
+        if (pp.verificarVencimiento(hoy)) {
+            vencidos.put(pp.getCodigo(), pp);
+        } else {
+            Clave clave = new Clave(pp.getFechaVencimiento(), pp.getCodigo());
+            indexados.put(pp.getCodigo(), clave);
+            vigentes.put(clave, pp);
+        }
+    }
+
+    public void eliminar(String codigo) {
+        if (codigo == null) return;
+        Clave anterior = indexados.remove(codigo);
+        if (anterior != null) vigentes.remove(anterior);
+        vencidos.remove(codigo);
+    }
+
+    public void limpiar() {
+        vigentes.clear();
+        indexados.clear();
+        vencidos.clear();
+    }
+
+    // =========================================================================
+    //  CONSULTAS
+    // =========================================================================
+
+    /** Perecederos aún vigentes que vencen entre hoy y hoy + dias (inclusive), por fecha. */
+    public List<ProductoPerecedero> vencenEnLosProximos(int dias, LocalDate hoy) {
+        return new ArrayList<>(vigentes.subMap(
+                new Clave(hoy, ""), true,
+                new Clave(hoy.plusDays(Math.max(dias, 0)).plusDays(1), ""), false).values());
+    }
+
+    /** Todos los perecederos vigentes (desde hoy en adelante), por fecha. */
+    public List<ProductoPerecedero> vigentes(LocalDate hoy) {
+        return new ArrayList<>(vigentes.tailMap(new Clave(hoy, ""), true).values());
+    }
+
+    public List<ProductoPerecedero> vencidos() {
+        return new ArrayList<>(vencidos.values());
+    }
+
+    // =========================================================================
+    //  BARRIDO Y EVENTOS
+    // =========================================================================
+    public void agregarOyente(Consumer<ProductoPerecedero> oyente) {
+        oyentes.add(oyente);
+    }
+
+    /**
+     * Mueve a "vencidos" los productos cuya fecha es anterior a hoy y notifica a los oyentes.
+     * Solo toca el tramo inicial del índice (los ya vencidos), no todo el catálogo.
+     *
+     * @return Productos que vencieron en este barrido.
+     */
+    public List<ProductoPerecedero> barrer(LocalDate hoy) {
+        List<ProductoPerecedero> recienVencidos = new ArrayList<>();
+        ConcurrentNavigableMap<Clave, ProductoPerecedero> tramo = vigentes.headMap(new Clave(hoy, ""), false);
+
+        for (Map.Entry<Clave, ProductoPerecedero> e : tramo.entrySet()) {
+            ProductoPerecedero p = e.getValue();
+            // remove(clave, valor): si otro hilo lo reindexó entretanto, no se toca
+            if (vigentes.remove(e.getKey(), p)) {
+                indexados.remove(p.getCodigo(), e.getKey());
+                vencidos.put(p.getCodigo(), p);
+                recienVencidos.add(p);
+            }
+        }
+
+        for (ProductoPerecedero p : recienVencidos) {
+            for (Consumer<ProductoPerecedero> oyente : oyentes) {
+                try {
+                    oyente.accept(p);
+                } catch (RuntimeException ex) {
+                    System.err.println("⚠ Error en oyente de vencimiento: " + ex.getMessage());
+                }
+            }
+        }
+        return recienVencidos;
+    }
+}
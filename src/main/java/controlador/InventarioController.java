@@ -5,17 +5,44 @@ import modelo.Proveedor;
 import modelo.Transaccion;
 import modelo.TipoTransaccion;
 import modelo.ProductoPerecedero;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import persistencia.DiarioTransacciones;
+import persistencia.EscritorDiferidoTransacciones;
+import persistencia.HistorialFueraDeHeap;
 import persistencia.IInventarioDAO;
 import persistencia.IProveedorDAO;
+import persistencia.ResultadoMovimientoStock;
+import persistencia.SnapshotInventario;
 import org.springframework.stereotype.Component;
 
 import jakarta.annotation.PostConstruct;
-import java.io.*;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * =============================================================================
@@ -24,24 +51,84 @@ import java.util.stream.Collectors;
  * - Aplica lógica de negocio
  * - Usa Streams & Lambdas
  * - Maneja inventario en memoria
- * - Implementa Serialización
+ * - Instantánea binaria local del estado (SnapshotInventario)
  * =============================================================================
  */
 @Component
 public class InventarioController {
 
-    private static final String ARCHIVO_CACHE = "inventario_cache.dat";
+    private static final String ARCHIVO_SNAPSHOT = "inventario_snapshot.bin";
+    private Path archivoSnapshot = Path.of(ARCHIVO_SNAPSHOT);
 
     private final IInventarioDAO inventarioDAO;
     private final IProveedorDAO proveedorDAO;
 
-    private final Map<String, Producto> stockEnMemoria = new HashMap<>();
-    private final Map<String, Proveedor> proveedoresEnMemoria = new HashMap<>();
-    private final Map<Integer, Transaccion> transaccionesEnMemoria = new LinkedHashMap<>();
+    // Almacén en memoria concurrente: lecturas sin bloqueo e iteración segura para los streams.
+    // Las transacciones se ordenan por ID (equivale al orden de inserción del LinkedHashMap anterior)
+    // y los proveedores por RUC: ese orden estable es el que usa la paginación por cursor.
+    private final Map<String, Producto> stockEnMemoria = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Proveedor> proveedoresEnMemoria = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Integer, Transaccion> transaccionesEnMemoria = new ConcurrentSkipListMap<>();
+    private final IndiceTemporalTransacciones indiceTemporal = new IndiceTemporalTransacciones();
+    private final IndiceCatalogo indiceCatalogo = new IndiceCatalogo();
+    private final IndiceVencimientos indiceVencimientos = new IndiceVencimientos();
+    private final ValorizacionInventario valorizacion = new ValorizacionInventario();
+    // Copia columnar del historial para resúmenes y agregados (se llena al terminar la carga inicial)
+    private final ArchivoColumnarTransacciones archivoColumnar = new ArchivoColumnarTransacciones();
+    private final KardexProductos kardex = new KardexProductos();
+    private final AgregadosTemporales agregados = new AgregadosTemporales();
+    // ABC y rotación en paralelo sobre el catálogo y el archivo columnar (pool fork-join propio)
+    private AnalisisInventario analisis = new AnalisisInventario(archivoColumnar, stockEnMemoria, 0);
+    private volatile boolean historialCargado = false;
+
+    // Historial antiguo fuera del heap (opcional): en memoria solo queda la ventana más reciente
+    private HistorialFueraDeHeap historialAntiguo;
+    private int ventanaReciente;
+    private final ReentrantLock candadoArchivado = new ReentrantLock();
+
+    // Marca de recuperación de la instantánea local cargada (-1 = no se cargó ninguna): la carga
+    // desde BD relee las transacciones de ID mayor y descarta las que ya estén en memoria
+    private int marcaSnapshot = -1;
+
+    // Marca baja para las instantáneas. Los IDs de la BD se asignan en orden creciente, pero un ID
+    // menor puede confirmarse después que uno mayor: cada escritura propia en curso (BD sin confirmar
+    // o aún sin registrar en memoria) guarda el último ID registrado cuando empezó; lo que reciba
+    // será mayor. Los huecos recientes entre IDs cubren lo que escriben otras instancias.
+    private final AtomicInteger ultimoIdRegistrado = new AtomicInteger();
+    private final Map<Transaccion, Integer> escriturasEnCurso = new ConcurrentHashMap<>();   // identidad
+    private static final int VENTANA_HUECOS = 1_000;
+
+    // Carga inicial: en paralelo solo si el IConexionDB entrega conexiones independientes (pool)
+    private boolean cargaParalela = false;
+
+    // Barrido diario de vencimientos
+    private static final int DIAS_VENCIMIENTO_PROXIMO = 30;
+    private ScheduledExecutorService planificador;
+
+    // Movimientos de stock serializados por producto (sin candado global)
+    private final BloqueosPorProducto bloqueos = new BloqueosPorProducto();
+
+    // Escritura diferida (opcional): null = persistencia síncrona en el hilo HTTP
+    private static final long ESPERA_CONFIRMACION_MS = 30_000;
+    private EscritorDiferidoTransacciones escritorDiferido;
+    private ModoConfirmacion confirmacionPorDefecto = ModoConfirmacion.DURABLE;
+
+    // Diario local de movimientos (opcional, junto a la escritura diferida)
+    private DiarioTransacciones diario;
+    private final Map<Transaccion, Long> secuenciasDiario = new ConcurrentHashMap<>();   // identidad
+    private long intervaloInstantaneaMs;
+
+    // Procesamiento asíncrono (opcional): ejecutor acotado; con la cola llena se rechaza al instante
+    private ThreadPoolExecutor ejecutorAsincrono;
+
+    // Métricas (Micrometer): sin registro configurado no publican nada
+    private MetricasInventario metricas = MetricasInventario.sinRegistro();
 
     public InventarioController(IInventarioDAO inventarioDAO, IProveedorDAO proveedorDAO) {
         this.inventarioDAO = inventarioDAO;
         this.proveedorDAO = proveedorDAO;
+        // Un perecedero que vence deja de sumar al valor del inventario
+        indiceVencimientos.agregarOyente(this::revalorizarProducto);
     }
 
     // =========================================================
@@ -50,53 +137,508 @@ public class InventarioController {
     @PostConstruct
     public void cargarInventarioDesdeBD() {
         try {
-            // Carga productos
-            inventarioDAO.obtenerTodos().forEach(p -> stockEnMemoria.put(p.getCodigo(), p));
-            System.out.println("✔ Inventario cargado desde la BD. Productos: " + stockEnMemoria.size());
+            cargarDesdeBD();
+        } catch (RuntimeException e) {
+            // Si el arranque falla Spring no llama a cerrar(): el hilo escritor (no daemon) mantendría
+            // viva la JVM. Solo se detiene el escritor; guardar la instantánea pisaría la buena con una a medias
+            if (escritorDiferido != null) escritorDiferido.cerrar(ESPERA_CONFIRMACION_MS);
+            throw e;
+        }
+    }
+
+    private void cargarDesdeBD() {
+        long inicio = System.nanoTime();
+
+        // Productos, proveedores y transacciones se leen a la vez, cada uno con su cursor en streaming.
+        // Mientras el catálogo aún no está cargado, las transacciones apuntan a un producto provisional
+        // (solo con el código) que se sustituye por el real al terminar.
+        // Si ya se cargó una instantánea local, el catálogo se refresca desde la BD (stock vigente)
+        // y del historial solo se leen las transacciones posteriores a la instantánea.
+        boolean desdeSnapshot = marcaSnapshot >= 0;
+        Map<String, Producto> provisionales = new ConcurrentHashMap<>();
+        ExecutorService carga = Executors.newFixedThreadPool(cargaParalela ? 3 : 1, r -> new Thread(r, "carga-inicial"));
+        try {
+            CompletableFuture<Void> productos = CompletableFuture.runAsync(() -> cronometrar("Inventario", () -> {
+                Set<String> vistos = new HashSet<>();
+                inventarioDAO.recorrerTodos(p -> {
+                    vistos.add(p.getCodigo());
+                    ponerProductoEnMemoria(p);
+                });
+                if (desdeSnapshot) {
+                    // Productos de la instantánea que ya no existen en la BD
+                    new ArrayList<>(stockEnMemoria.keySet()).stream()
+                            .filter(codigo -> !vistos.contains(codigo))
+                            .forEach(this::quitarProductoDeMemoria);
+                }
+                return stockEnMemoria.size();
+            }), carga);
+
+            CompletableFuture<Void> proveedores = CompletableFuture.runAsync(() -> cronometrar("Proveedores", () -> {
+                Set<String> vistos = new HashSet<>();
+                proveedorDAO.recorrerTodos(p -> {
+                    vistos.add(p.getRuc());
+                    proveedoresEnMemoria.put(p.getRuc(), p);
+                });
+                if (desdeSnapshot) proveedoresEnMemoria.keySet().retainAll(vistos);
+                return proveedoresEnMemoria.size();
+            }), carga);
+
+            CompletableFuture<Void> transacciones = CompletableFuture.runAsync(() -> cronometrar("Transacciones", () -> {
+                Function<String, Producto> resolver = codigo -> {
+                    Producto p = stockEnMemoria.get(codigo);
+                    return p != null ? p : provisionales.computeIfAbsent(codigo, InventarioController::productoProvisional);
+                };
+                if (desdeSnapshot) {
+                    // Desde la marca baja: puede repetir transacciones de la instantánea, se descartan por ID
+                    inventarioDAO.recorrerTransaccionesPosteriores(marcaSnapshot, resolver, t -> {
+                        if (!transaccionRegistrada(t.getIdTransaccion())) registrarTransaccionEnMemoria(t);
+                        archivar(t.getIdTransaccion());
+                    });
+                } else {
+                    // En orden de clave primaria (sin ordenar por fecha); con el historial fuera del heap
+                    // se archiva mientras se lee: en el heap solo queda la ventana reciente
+                    inventarioDAO.recorrerTransaccionesPosteriores(0, resolver, t -> {
+                        registrarTransaccionEnMemoria(t);
+                        archivar(t.getIdTransaccion());
+                    });
+                }
+                return transaccionesEnMemoria.size() + (historialAntiguo != null ? historialAntiguo.tamano() : 0);
+            }), carga);
+
+            CompletableFuture.allOf(productos, proveedores, transacciones).join();
+        } catch (CompletionException e) {
+            // Con una carga parcial el historial, sus vistas y la marca de recuperación serían falsos:
+            // no se marca como cargado y el arranque falla
+            System.err.println("❌ Error cargando inventario, proveedores o transacciones desde BD: "
+                    + e.getCause().getMessage());
+            throw new IllegalStateException("Carga inicial desde la BD incompleta", e.getCause());
+        } finally {
+            carga.shutdown();
+        }
+
+        // Si los proveedores terminaron de cargarse después que los productos, estos aún apuntan
+        // a las instancias creadas por el DAO
+        stockEnMemoria.values().forEach(this::canonizarProveedor);
+        if (desdeSnapshot || !provisionales.isEmpty()) reenlazarTransacciones();
+        historialCargado = true;
+        archivarHistorialAntiguo();
+        construirVistasHistorial();
+        if (diario != null) reaplicarDiario();
+        System.out.println("✔ Carga inicial completada en " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) + " ms");
+        programarBarridoVencimientos();
+        if (diario != null && intervaloInstantaneaMs > 0) {
+            planificador.scheduleWithFixedDelay(this::guardarInstantaneaYCompactar,
+                    intervaloInstantaneaMs, intervaloInstantaneaMs, TimeUnit.MILLISECONDS);
+        }
+    }
 
-            // Carga proveedores
-            proveedorDAO.obtenerTodos().forEach(p -> proveedoresEnMemoria.put(p.getRuc(), p));
-            System.out.println("✔ Proveedores cargados desde la BD. Total: " + proveedoresEnMemoria.size());
+    /** Ruta de la instantánea local (por defecto inventario_snapshot.bin en el directorio de trabajo). */
+    public void setArchivoSnapshot(Path archivoSnapshot) {
+        this.archivoSnapshot = archivoSnapshot;
+    }
+
+    /** Con un pool de conexiones las tres lecturas de la carga inicial pueden ir en paralelo. */
+    public void setCargaParalela(boolean cargaParalela) {
+        this.cargaParalela = cargaParalela;
+    }
 
-            // Carga transacciones
-            inventarioDAO.obtenerTodasTransacciones().forEach(t -> transaccionesEnMemoria.put(t.getIdTransaccion(), t));
-            System.out.println("✔ Transacciones cargadas desde la BD. Total: " + transaccionesEnMemoria.size());
+    @FunctionalInterface
+    private interface FaseCarga {
+        int ejecutar() throws Exception;
+    }
 
+    private static void cronometrar(String fase, FaseCarga tarea) {
+        long inicio = System.nanoTime();
+        int total;
+        try {
+            total = tarea.ejecutar();
         } catch (Exception e) {
-            System.err.println("⚠ Error cargando inventario, proveedores o transacciones desde BD: " + e.getMessage());
+            System.err.println("⚠ Error cargando " + fase.toLowerCase() + " desde BD: " + e.getMessage());
+            throw new CompletionException(e);
+        }
+        System.out.println("✔ " + fase + " cargado desde la BD. Total: " + total
+                + " (" + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) + " ms)");
+    }
+
+    private static Producto productoProvisional(String codigo) {
+        return new Producto(codigo, null, 0.0, 0, null);
+    }
+
+    /**
+     * Hace que el código de cada transacción sea el mismo String del producto en el catálogo
+     * (las leídas con un producto provisional o desde la instantánea traen su propia copia);
+     * descarta las transacciones huérfanas.
+     */
+    private void reenlazarTransacciones() {
+        int descartadas = 0;
+        for (Transaccion t : transaccionesEnMemoria.values()) {
+            Producto real = stockEnMemoria.get(t.getCodigoProducto());
+            if (real != null && real.getCodigo() == t.getCodigoProducto()) continue;
+
+            if (real != null) {
+                t.setProducto(real);   // comparte el String del código con el catálogo
+            } else {
+                transaccionesEnMemoria.remove(t.getIdTransaccion());
+                indiceTemporal.eliminar(t);
+                descartadas++;
+            }
+        }
+        if (descartadas > 0) {
+            System.out.println("⚠ Transacciones sin producto en el catálogo descartadas: " + descartadas);
+        }
+    }
+
+    /**
+     * Llena el archivo columnar, el kardex y los agregados por periodo en una sola pasada por el
+     * historial (ambos niveles); desde aquí cada transacción nueva se agrega al vuelo.
+     */
+    private void construirVistasHistorial() {
+        long inicio = System.nanoTime();
+        archivoColumnar.limpiar();
+        kardex.limpiar();
+        agregados.limpiar();
+        recorrerHistorial(null, null, null, t -> {
+            archivoColumnar.agregar(t);
+            kardex.agregar(t);
+            agregarAAgregados(t);
+        });
+        System.out.println("✔ Archivo columnar de transacciones: " + archivoColumnar.tamano() + " filas (~"
+                + archivoColumnar.tamanoEnBytes() / (1024 * 1024) + " MB), kardex: " + kardex.tamano()
+                + " movimientos, agregados: " + agregados.tamano()
+                + " movimientos (" + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) + " ms)");
+    }
+
+    // =========================================================================
+    //  VENCIMIENTOS: BARRIDO PROGRAMADO
+    // =========================================================================
+    /**
+     * Ejecuta un barrido inmediato y luego uno diario a medianoche.
+     * Los productos vencidos pasan al conjunto de vencidos y se notifica a los oyentes.
+     */
+    public void programarBarridoVencimientos() {
+        if (planificador != null) return;
+
+        indiceVencimientos.agregarOyente(p ->
+                System.out.println("⚠ Producto vencido: " + p.getCodigo() + " (" + p.getFechaVencimiento() + ")"));
+        barrerVencimientos();
+
+        planificador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "tareas-inventario");
+            t.setDaemon(true);
+            return t;
+        });
+        LocalDateTime ahora = LocalDateTime.now();
+        long hastaMedianoche = ChronoUnit.MILLIS.between(ahora, ahora.toLocalDate().plusDays(1).atStartOfDay());
+        planificador.scheduleAtFixedRate(this::barrerVencimientos,
+                hastaMedianoche, TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+    }
+
+    /** Barrido manual (también lo usa la tarea diaria). */
+    public List<ProductoPerecedero> barrerVencimientos() {
+        List<ProductoPerecedero> vencidos = indiceVencimientos.barrer(LocalDate.now());
+        if (!vencidos.isEmpty()) {
+            System.out.println("✔ Barrido de vencimientos: " + vencidos.size() + " producto(s) vencido(s)");
         }
+        return vencidos;
+    }
+
+    /** Suscribe un oyente a los eventos "producto vencido" del barrido. */
+    public void agregarOyenteVencimiento(Consumer<ProductoPerecedero> oyente) {
+        indiceVencimientos.agregarOyente(oyente);
+    }
+
+    // =========================================================================
+    //  ESCRITURA DIFERIDA (WRITE-BEHIND)
+    // =========================================================================
+    /**
+     * Activa la persistencia diferida con commit agrupado.
+     *
+     * @param capacidadCola       Máximo de transacciones pendientes de persistir.
+     * @param tamanoGrupo         Máximo de transacciones por commit.
+     * @param ventanaMs           Espera máxima de un grupo incompleto.
+     * @param esperaEncolarMs     Espera máxima cuando la cola está llena (luego se rechaza).
+     * @param durablePorDefecto   true: las llamadas esperan el commit salvo que indiquen lo contrario.
+     */
+    public void habilitarEscrituraDiferida(int capacidadCola, int tamanoGrupo, long ventanaMs,
+                                           long esperaEncolarMs, ModoConfirmacion confirmacionPorDefecto) {
+        if (escritorDiferido != null) return;
+        this.escritorDiferido = new EscritorDiferidoTransacciones(inventarioDAO,
+                new EscritorDiferidoTransacciones.OyenteEscritura() {
+                    @Override
+                    public void alConfirmar(List<Transaccion> confirmadas) {
+                        alConfirmarEscritura(confirmadas);
+                    }
+
+                    @Override
+                    public void alFallar(Transaccion transaccion, String motivo) {
+                        alFallarEscritura(transaccion, motivo);
+                    }
+
+                    @Override
+                    public void alAbandonar(List<Transaccion> pendientes, String motivo) {
+                        alAbandonarEscritura(pendientes);
+                    }
+                },
+                capacidadCola, tamanoGrupo, ventanaMs, esperaEncolarMs);
+        this.confirmacionPorDefecto = confirmacionPorDefecto;
+        System.out.println("✔ Escritura diferida habilitada (grupo: " + tamanoGrupo + ", ventana: " + ventanaMs + " ms)");
+    }
+
+    /**
+     * Activa el diario local de movimientos (requiere escritura diferida). Los movimientos que
+     * quedaron sin confirmar en la BD se vuelven a aplicar al terminar la carga inicial.
+     *
+     * @param intervaloInstantaneaMs Cada cuánto guardar la instantánea y compactar el diario (0 = solo al cerrar).
+     */
+    public void habilitarDiarioTransacciones(Path directorio, DiarioTransacciones.PoliticaSincronizacion politica,
+                                             long intervaloSincronizacionMs, long tamanoSegmento,
+                                             long intervaloInstantaneaMs) {
+        if (diario != null) return;
+        if (escritorDiferido == null) {
+            System.err.println("⚠ El diario de transacciones requiere escritura diferida; no se habilita.");
+            return;
+        }
+        try {
+            this.diario = new DiarioTransacciones(directorio, politica, intervaloSincronizacionMs, tamanoSegmento);
+            this.intervaloInstantaneaMs = intervaloInstantaneaMs;
+            System.out.println("✔ Diario de transacciones habilitado en '" + directorio + "' (sincronización: " + politica + ")");
+        } catch (IOException e) {
+            System.err.println("⚠ No se pudo abrir el diario de transacciones: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Guarda fuera del heap las transacciones más antiguas; en memoria quedan como objetos solo
+     * las de los últimos "ventanaReciente" IDs. Las consultas por ID, rango y página recorren
+     * ambos niveles.
+     */
+    public void habilitarHistorialFueraDeHeap(HistorialFueraDeHeap.Almacen almacen, Path directorio,
+                                              int ventanaReciente, int filasPorSegmento) {
+        if (historialAntiguo != null) return;
+        try {
+            this.historialAntiguo = new HistorialFueraDeHeap(almacen, directorio, filasPorSegmento);
+            this.ventanaReciente = Math.max(1, ventanaReciente);
+            System.out.println("✔ Historial fuera del heap habilitado (" + almacen + ", ventana en memoria: "
+                    + this.ventanaReciente + " transacciones)");
+        } catch (IOException e) {
+            System.err.println("⚠ No se pudo preparar el historial fuera del heap: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Publica las métricas del controlador en el registro: contadores/timers de transacciones
+     * (ver MetricasInventario) y gauges con el tamaño de las estructuras en memoria.
+     */
+    public void habilitarMetricas(MeterRegistry registro) {
+        metricas = new MetricasInventario(registro);
+        Gauge.builder("inventario.memoria.productos", stockEnMemoria, Map::size)
+                .description("Productos en el catálogo en memoria").register(registro);
+        Gauge.builder("inventario.memoria.proveedores", proveedoresEnMemoria, Map::size)
+                .description("Proveedores en memoria").register(registro);
+        Gauge.builder("inventario.memoria.transacciones", transaccionesEnMemoria, Map::size)
+                .description("Transacciones en el heap (ventana reciente)").register(registro);
+        Gauge.builder("inventario.historial.fuera.heap.filas", this,
+                        c -> c.historialAntiguo == null ? 0 : c.historialAntiguo.tamano())
+                .description("Transacciones archivadas fuera del heap").register(registro);
+        Gauge.builder("inventario.historial.fuera.heap.bytes", this,
+                        c -> c.historialAntiguo == null ? 0 : c.historialAntiguo.tamanoEnBytes())
+                .baseUnit("bytes").register(registro);
+        Gauge.builder("inventario.columnar.filas", archivoColumnar, ArchivoColumnarTransacciones::tamano)
+                .description("Filas del archivo columnar de transacciones").register(registro);
+        Gauge.builder("inventario.columnar.bytes", archivoColumnar, ArchivoColumnarTransacciones::tamanoEnBytes)
+                .baseUnit("bytes").register(registro);
+        Gauge.builder("inventario.async.en.cola", this,
+                        c -> c.ejecutorAsincrono == null ? 0 : c.ejecutorAsincrono.getQueue().size())
+                .description("Transacciones asíncronas admitidas esperando un hilo").register(registro);
+        Gauge.builder("inventario.async.activas", this,
+                        c -> c.ejecutorAsincrono == null ? 0 : c.ejecutorAsincrono.getActiveCount())
+                .description("Transacciones asíncronas en proceso").register(registro);
+        Gauge.builder("inventario.escritura.pendientes", this,
+                        c -> c.escritorDiferido == null ? 0 : c.escritorDiferido.getPendientes())
+                .description("Transacciones en la cola de escritura diferida").register(registro);
+    }
+
+    /**
+     * Habilita procesarTransaccionAsync sobre un ejecutor acotado: 'hilos' transacciones a la vez
+     * y hasta 'capacidadCola' esperando. Lo que no cabe se rechaza al momento (sin esperar), así
+     * una ráfaga no acumula hilos ni memoria y la latencia de lo admitido se mantiene acotada.
+     */
+    public void habilitarProcesamientoAsincrono(int hilos, int capacidadCola) {
+        if (ejecutorAsincrono != null) return;
+        AtomicInteger numero = new AtomicInteger();
+        ejecutorAsincrono = new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadCola),
+                r -> {
+                    Thread t = new Thread(r, "transacciones-async-" + numero.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        System.out.println("✔ Procesamiento asíncrono habilitado (hilos: " + hilos + ", cola: " + capacidadCola + ")");
+    }
+
+    /** Hilos del pool de análisis (ABC, rotación); 0 = uno por núcleo. */
+    public void setParalelismoAnalisis(int paralelismo) {
+        AnalisisInventario anterior = analisis;
+        analisis = new AnalisisInventario(archivoColumnar, stockEnMemoria, paralelismo);
+        anterior.cerrar();
+    }
+
+    public boolean isEscrituraDiferida() {
+        return escritorDiferido != null;
+    }
+
+    /** Cierre ordenado: vacía la cola de escritura diferida antes de terminar. */
+    @PreDestroy
+    public void cerrar() {
+        if (planificador != null) planificador.shutdownNow();
+        if (ejecutorAsincrono != null) {
+            // Lo ya admitido termina antes de cerrar la escritura diferida
+            ejecutorAsincrono.shutdown();
+            try {
+                ejecutorAsincrono.awaitTermination(ESPERA_CONFIRMACION_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (escritorDiferido != null) {
+            escritorDiferido.cerrar(ESPERA_CONFIRMACION_MS);
+        }
+        guardarInventarioSerializado();
+        if (diario != null) {
+            diario.compactar();
+            diario.cerrar();
+        }
+        if (historialAntiguo != null) historialAntiguo.cerrar();
+        analisis.cerrar();
+    }
+
+    /** Tarea periódica: instantánea del estado + borrado de los segmentos del diario ya confirmados. */
+    private void guardarInstantaneaYCompactar() {
+        guardarInventarioSerializado();
+        if (diario != null) {
+            int borrados = diario.compactar();
+            if (borrados > 0) System.out.println("✔ Diario compactado: " + borrados + " segmento(s) borrado(s)");
+        }
+    }
+
+    /**
+     * Recuperación: vuelve a aplicar los movimientos del diario que no llegaron a la BD
+     * (instantánea + BD + cola del diario). Los que ya figuran en la BD con su clave de movimiento
+     * (commit hecho pero sin marca de confirmación) se omiten para no duplicarlos. Los que no
+     * pudieron reanotarse por una causa transitoria (cola llena, diario no disponible) siguen en el
+     * diario para el próximo arranque; solo se descartan los que el inventario rechaza.
+     */
+    private void reaplicarDiario() {
+        List<DiarioTransacciones.Movimiento> recuperados = diario.getRecuperados();
+        if (recuperados.isEmpty()) return;
+
+        Map<String, Integer> enBD;
+        try {
+            List<String> claves = new ArrayList<>(recuperados.size());
+            recuperados.forEach(m -> claves.add(m.transaccion().getClaveMovimiento()));
+            enBD = inventarioDAO.buscarClavesMovimiento(claves);
+        } catch (Exception e) {
+            // Sin poder distinguirlos, reaplicar podría duplicar: se conservan para el próximo arranque
+            System.err.println("⚠ Diario: no se pudo consultar la BD, movimientos no reaplicados: " + e.getMessage());
+            return;
+        }
+
+        int reaplicados = 0, omitidos = 0, conservados = 0;
+        List<DiarioTransacciones.Movimiento> tratados = new ArrayList<>(recuperados.size());
+        for (DiarioTransacciones.Movimiento m : recuperados) {
+            Transaccion t = m.transaccion();
+            if (enBD.containsKey(t.getClaveMovimiento())) {
+                omitidos++;
+                tratados.add(m);
+                continue;
+            }
+            ResultadoMovimientoStock r = procesarTransaccionDiferida(t, ModoConfirmacion.MEMORIA);
+            switch (r.getEstado()) {
+                case ACEPTADO -> {
+                    reaplicados++;
+                    tratados.add(m);
+                }
+                case SATURADO, ERROR -> {
+                    conservados++;
+                    System.err.println("⚠ Movimiento del diario pendiente para el próximo arranque ("
+                            + t.getCodigoProducto() + "): " + r);
+                }
+                default -> {
+                    omitidos++;
+                    tratados.add(m);
+                    System.err.println("⚠ Movimiento del diario no reaplicado (" + t.getCodigoProducto() + "): " + r);
+                }
+            }
+        }
+        diario.olvidarRecuperados(tratados);
+        System.out.println("✔ Diario: " + reaplicados + " movimiento(s) reaplicado(s), " + omitidos + " omitido(s)"
+                + (conservados > 0 ? ", " + conservados + " pendiente(s)" : ""));
     }
 
     // =========================================================================
     //  SERIALIZACIÓN
     // =========================================================================
+    /** Guarda proveedores, productos y transacciones en la instantánea binaria local. */
     public void guardarInventarioSerializado() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(ARCHIVO_CACHE))) {
-            oos.writeObject(stockEnMemoria);
-            System.out.println("✔ Inventario serializado correctamente en '" + ARCHIVO_CACHE + "'");
+        long inicio = System.nanoTime();
+        try {
+            // La marca se calcula antes de recorrer el historial: todo lo que llegue a confirmarse
+            // con ID menor o igual ya está registrado en este momento
+            int marca = marcaRecuperacion();
+            SnapshotInventario.guardar(archivoSnapshot, marca,
+                    proveedoresEnMemoria.values(), stockEnMemoria.values(), this::recorrerTodasTransacciones);
+            System.out.println("✔ Instantánea del inventario guardada en '" + archivoSnapshot + "' ("
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) + " ms)");
         } catch (IOException e) {
             System.err.println("⚠ Error al guardar inventario: " + e.getMessage());
         }
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Carga el estado desde la instantánea local, si existe. La carga desde BD posterior
+     * solo completa lo que cambió desde entonces. Las transacciones se registran a medida que
+     * se leen; con el historial fuera del heap se archivan las de ID hasta la marca (las
+     * posteriores esperan en memoria a que la BD complete los huecos).
+     */
     public void cargarInventarioSerializado() {
-        File archivo = new File(ARCHIVO_CACHE);
-        if (!archivo.exists()) return;
+        Path archivo = archivoSnapshot;
+        if (!Files.exists(archivo)) return;
 
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(archivo))) {
-            Object data = ois.readObject();
-            if (data instanceof Map<?, ?> map) {
-                stockEnMemoria.clear();
-                stockEnMemoria.putAll((Map<String, Producto>) map);
-                System.out.println("✔ Inventario cargado desde caché. Total productos: " + stockEnMemoria.size());
-            }
-        } catch (IOException | ClassNotFoundException e) {
-            System.err.println("⚠ No se pudo cargar la caché del inventario, creando una nueva.");
-            stockEnMemoria.clear();
+        long inicio = System.nanoTime();
+        limpiarHistorialEnMemoria();
+        try {
+            SnapshotInventario.Contenido contenido = SnapshotInventario.cargar(archivo, catalogo -> {
+                limpiarProductosEnMemoria();
+                proveedoresEnMemoria.clear();
+                catalogo.proveedores().forEach(p -> proveedoresEnMemoria.put(p.getRuc(), p));
+                catalogo.productos().forEach(this::ponerProductoEnMemoria);
+                marcaSnapshot = catalogo.marcaRecuperacion();
+            }, t -> {
+                registrarTransaccionEnMemoria(t);
+                archivar(Math.min(t.getIdTransaccion(), marcaSnapshot));
+            });
+
+            System.out.println("✔ Inventario cargado desde instantánea (" + contenido.creado() + " UTC). Productos: "
+                    + stockEnMemoria.size() + ", proveedores: " + proveedoresEnMemoria.size()
+                    + ", transacciones: " + (transaccionesEnMemoria.size()
+                    + (historialAntiguo != null ? historialAntiguo.tamano() : 0))
+                    + " (" + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) + " ms)");
+        } catch (IOException | RuntimeException e) {
+            System.err.println("⚠ No se pudo cargar la instantánea del inventario (" + e.getMessage() + "), se cargará desde la BD.");
+            limpiarProductosEnMemoria();
+            proveedoresEnMemoria.clear();
+            limpiarHistorialEnMemoria();
+            marcaSnapshot = -1;
         }
     }
 
+    private void limpiarHistorialEnMemoria() {
+        transaccionesEnMemoria.clear();
+        indiceTemporal.limpiar();
+        if (historialAntiguo != null) historialAntiguo.limpiar();
+    }
+
     // =========================================================================
     //  CRUD / LÓGICA DE NEGOCIO
     // =========================================================================
@@ -107,7 +649,15 @@ public class InventarioController {
 
         try {
             proveedorDAO.guardar(proveedor);
-            proveedoresEnMemoria.put(proveedor.getRuc(), proveedor);
+
+            // Una sola instancia por RUC, compartida por todos sus productos
+            Proveedor existente = proveedoresEnMemoria.putIfAbsent(proveedor.getRuc(), proveedor);
+            if (existente != null) {
+                existente.setRazonSocial(proveedor.getRazonSocial());
+                existente.setContacto(proveedor.getContacto());
+            } else {
+                indiceCatalogo.porProveedor(proveedor.getRuc()).forEach(this::canonizarProveedor);
+            }
         } catch (Exception e) {
             System.err.println("⚠ Error al registrar proveedor: " + e.getMessage());
         }
@@ -117,6 +667,11 @@ public class InventarioController {
         return new ArrayList<>(proveedoresEnMemoria.values());
     }
 
+    /** Página de proveedores ordenados por RUC (paginación por cursor). */
+    public Pagina<Proveedor> obtenerPaginaProveedores(String despuesDeRuc, int limite) {
+        return Pagina.desde(proveedoresEnMemoria, despuesDeRuc, limite);
+    }
+
     public Proveedor buscarProveedorPorRuc(String ruc) {
         return proveedoresEnMemoria.get(ruc);
     }
@@ -127,87 +682,807 @@ public class InventarioController {
 
     // ------------------- PRODUCTOS -------------------
     public void registrarProducto(Producto producto) {
-        if (producto == null || stockEnMemoria.containsKey(producto.getCodigo())) return;
+        if (producto == null || producto.getCodigo() == null) return;
         if (producto instanceof ProductoPerecedero pp &&
             pp.getFechaVencimiento().isBefore(LocalDate.now())) return;
 
+        ReentrantLock lock = bloqueos.bloqueoDe(producto.getCodigo());
+        lock.lock();
         try {
+            if (stockEnMemoria.containsKey(producto.getCodigo())) return;
             inventarioDAO.guardar(producto);
-            stockEnMemoria.put(producto.getCodigo(), producto);
+            ponerProductoEnMemoria(producto);
         } catch (Exception e) {
             System.err.println("⚠ Error al registrar producto: " + e.getMessage());
+        } finally {
+            lock.unlock();
         }
     }
 
-    public void actualizarProducto(Producto producto) {
-        if (producto == null || !stockEnMemoria.containsKey(producto.getCodigo())) return;
+    /**
+     * Actualiza los campos editables (nombre, precio y stock absoluto) con los de 'cambios'.
+     * Primero se persisten (el stock como delta condicional sobre el valor en memoria) y solo si
+     * la BD los confirma se aplican a la instancia compartida, todo bajo el candado del producto.
+     * Nada se modifica antes de tomar la cerca de movimientos diferidos, así ningún delta en vuelo
+     * puede revertirse después sobre el stock nuevo.
+     *
+     * @return ACTUALIZADO, o el motivo por el que no se aplicó (memoria y kardex quedan intactos).
+     */
+    public ResultadoActualizacion actualizarProducto(String codigo, Producto cambios) {
+        if (codigo == null || cambios == null) return ResultadoActualizacion.NO_ENCONTRADO;
 
+        // Stock absoluto: con escritura diferida, solo cuando no quedan deltas del producto en cola
+        Collection<ReentrantLock> locks;
         try {
-            inventarioDAO.actualizarStockDB(producto.getCodigo(), producto.getStockActual());
-            stockEnMemoria.put(producto.getCodigo(), producto);
-        } catch (Exception e) {
+            locks = bloquearSinPendientes(List.of(codigo));
+        } catch (TimeoutException | InterruptedException e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            System.err.println("⚠ Error al actualizar producto: " + e.getMessage());
+            return ResultadoActualizacion.OCUPADO;
+        }
+        try {
+            Producto producto = stockEnMemoria.get(codigo);
+            if (producto == null) return ResultadoActualizacion.NO_ENCONTRADO;
+            int stockAnterior = producto.getStockActual();
+
+            if (!inventarioDAO.actualizarProductoDB(codigo, cambios.getNombre(), cambios.getPrecioUnitario(),
+                    stockAnterior, cambios.getStockActual())) {
+                System.err.println("⚠ Conflicto al actualizar producto " + codigo
+                        + ": el stock en la BD ya no es " + stockAnterior);
+                return ResultadoActualizacion.CONFLICTO;
+            }
+            producto.setNombre(cambios.getNombre());
+            producto.setPrecioUnitario(cambios.getPrecioUnitario());
+            producto.setStockActual(cambios.getStockActual());
+            reindexarProducto(producto);
+            // El cambio absoluto queda como ajuste en el kardex, no como otro saldo inicial
+            if (historialCargado) kardex.registrarAjuste(codigo, LocalDateTime.now(), cambios.getStockActual() - stockAnterior);
+            return ResultadoActualizacion.ACTUALIZADO;
+        } catch (SQLException e) {
             System.err.println("⚠ Error al actualizar producto: " + e.getMessage());
+            return ResultadoActualizacion.ERROR;
+        } finally {
+            bloqueos.liberar(locks);
+        }
+    }
+
+    /**
+     * Candados de los productos dados, tomados cuando ninguno tiene movimientos diferidos en vuelo.
+     * Los encolados ocurren bajo el candado del producto, así que mientras se sostienen ya no entran
+     * deltas nuevos y la BD coincide con la memoria. La espera se hace sin candados (el oyente de
+     * fallo los necesita para revertir).
+     */
+    private Collection<ReentrantLock> bloquearSinPendientes(Collection<String> codigos)
+            throws TimeoutException, InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ESPERA_CONFIRMACION_MS);
+        while (true) {
+            Collection<ReentrantLock> locks = bloqueos.bloquearTodos(codigos);
+            if (escritorDiferido == null || !escritorDiferido.tienePendientes(codigos)) return locks;
+            bloqueos.liberar(locks);
+
+            long restanteMs = TimeUnit.NANOSECONDS.toMillis(limite - System.nanoTime());
+            if (restanteMs <= 0 || !escritorDiferido.esperarSinPendientes(codigos, restanteMs)) {
+                throw new TimeoutException("Movimientos diferidos sin confirmar tras " + ESPERA_CONFIRMACION_MS + " ms");
+            }
         }
     }
 
     public void eliminarProducto(String codigo) {
-        stockEnMemoria.remove(codigo);
+        if (codigo == null) return;
+
+        ReentrantLock lock = bloqueos.bloqueoDe(codigo);
+        lock.lock();
+        try {
+            quitarProductoDeMemoria(codigo);
+        } finally {
+            lock.unlock();
+        }
     }
 
     public Producto buscarProductoPorCodigo(String codigo) {
-        return stockEnMemoria.get(codigo);
+        return codigo == null ? null : stockEnMemoria.get(codigo);
     }
 
     // ------------------- TRANSACCIONES -------------------
-    public void procesarTransaccion(Transaccion transaccion) {
-        if (transaccion == null || transaccion.getProducto() == null) return;
+    /**
+     * Procesa la transacción con la confirmación por defecto (ver {@link #procesarTransaccion(Transaccion, ModoConfirmacion)}).
+     */
+    public ResultadoMovimientoStock procesarTransaccion(Transaccion transaccion) {
+        return procesarTransaccion(transaccion, confirmacionPorDefecto);
+    }
 
-        Producto producto = transaccion.getProducto();
-        transaccion.aplicarMovimientoStock();
+    public ResultadoMovimientoStock procesarTransaccion(Transaccion transaccion, boolean esperarDurabilidad) {
+        return procesarTransaccion(transaccion, esperarDurabilidad ? ModoConfirmacion.DURABLE : ModoConfirmacion.MEMORIA);
+    }
 
+    /**
+     * Modo síncrono: aplica el movimiento en la BD como delta condicional (stock_actual + delta >= 0)
+     * junto con la inserción de la transacción, en un solo commit, y después sincroniza la memoria
+     * con el stock resultante de la BD.
+     *
+     * Modo diferido (escritura diferida habilitada): aplica el movimiento en memoria y lo encola
+     * para el commit agrupado. DURABLE espera a que su grupo se confirme en la BD; LOCAL espera a que
+     * el movimiento esté sincronizado en el diario local (si no hay diario, equivale a DURABLE);
+     * MEMORIA responde en cuanto queda encolado. LOCAL y MEMORIA devuelven el estado ACEPTADO.
+     *
+     * @return Resultado del movimiento: aplicado/aceptado (con el stock nuevo), stock insuficiente,
+     *         producto inexistente, transacción inválida (sin tipo o cantidad <= 0) o error de persistencia.
+     */
+    public ResultadoMovimientoStock procesarTransaccion(Transaccion transaccion, ModoConfirmacion modo) {
+        long inicio = System.nanoTime();
+        ResultadoMovimientoStock resultado = aplicarTransaccion(transaccion, modo);
+        metricas.registrarTransaccion(resultado, System.nanoTime() - inicio);
+        return resultado;
+    }
+
+    /**
+     * Versión asíncrona de {@link #procesarTransaccion(Transaccion, ModoConfirmacion)}: el hilo
+     * llamador no espera a la BD. El futuro se completa con el ID asignado y el stock resultante,
+     * o con el motivo del fallo; nunca se completa con excepción.
+     *
+     * Si la cola del ejecutor está llena se devuelve un resultado no admitido ya completado.
+     * Sin ejecutor habilitado (Swing) se procesa en el hilo llamador.
+     *
+     * @param modo Confirmación pedida (null = la configurada por defecto).
+     */
+    public CompletableFuture<ResultadoTransaccion> procesarTransaccionAsync(Transaccion transaccion, ModoConfirmacion modo) {
+        ModoConfirmacion confirmacion = modo != null ? modo : confirmacionPorDefecto;
+        if (ejecutorAsincrono == null) {
+            return CompletableFuture.completedFuture(
+                    ResultadoTransaccion.de(transaccion, procesarTransaccion(transaccion, confirmacion)));
+        }
+        try {
+            return CompletableFuture
+                    .supplyAsync(() -> ResultadoTransaccion.de(transaccion, procesarTransaccion(transaccion, confirmacion)),
+                            ejecutorAsincrono)
+                    .exceptionally(e -> ResultadoTransaccion.de(transaccion, ResultadoMovimientoStock.error(
+                            (e instanceof CompletionException && e.getCause() != null ? e.getCause() : e).getMessage())));
+        } catch (RejectedExecutionException e) {
+            metricas.registrarRechazoEnAdmision();
+            return CompletableFuture.completedFuture(ResultadoTransaccion.rechazada(transaccion,
+                    "Procesamiento saturado (" + ejecutorAsincrono.getQueue().size() + " en cola), reintente"));
+        }
+    }
+
+    private ResultadoMovimientoStock aplicarTransaccion(Transaccion transaccion, ModoConfirmacion modo) {
+        if (transaccion == null || transaccion.getCodigoProducto() == null) {
+            return ResultadoMovimientoStock.noEncontrado();
+        }
+        // Antes de tocar el stock (mismas reglas que el lote)
+        if (transaccion.getTipo() == null) {
+            return ResultadoMovimientoStock.invalido("tipo obligatorio (ENTRADA/SALIDA)");
+        }
+        if (transaccion.getCantidad() <= 0) {
+            return ResultadoMovimientoStock.invalido("cantidad debe ser mayor que cero");
+        }
+
+        if (escritorDiferido != null) {
+            return procesarTransaccionDiferida(transaccion, modo);
+        }
+
+        String codigo = transaccion.getCodigoProducto();
+
+        // El candado por producto mantiene la memoria coherente con el orden de la BD
+        ReentrantLock lock = bloqueos.bloqueoDe(codigo);
+        lock.lock();
         try {
-            inventarioDAO.actualizarStockDB(producto.getCodigo(), producto.getStockActual());
-            inventarioDAO.guardarTransaccion(transaccion);  // Persistir en DB
-            transaccionesEnMemoria.put(transaccion.getIdTransaccion(), transaccion);
-            System.out.println("✔ Transacción procesada (ID: " + transaccion.getIdTransaccion() + ")");
+            // Trabajar siempre sobre la instancia canónica en memoria (el JSON trae una copia)
+            Producto producto = stockEnMemoria.get(codigo);
+            if (producto == null) return ResultadoMovimientoStock.noEncontrado();
+            transaccion.setProducto(producto);
+            if (transaccion.getFecha() == null) transaccion.setFecha(LocalDateTime.now());
+
+            // Delta condicional + inserción con un solo commit; la memoria se toca después
+            iniciarEscritura(transaccion);
+            ResultadoMovimientoStock resultado = inventarioDAO.registrarMovimiento(transaccion);
+            if (resultado.getEstado() != ResultadoMovimientoStock.Estado.PRODUCTO_NO_ENCONTRADO) {
+                producto.setStockActual(resultado.getStockResultante());
+                reindexarProducto(producto);
+            }
+            if (!resultado.isAplicado()) {
+                System.out.println("✖ Transacción rechazada (" + codigo + "): " + resultado);
+                return resultado;
+            }
+
+            registrarTransaccionEnMemoria(transaccion);
+            return resultado;
         } catch (Exception e) {
             System.err.println("⚠ Error al procesar transacción: " + e.getMessage());
+            return ResultadoMovimientoStock.error(e.getMessage());
+        } finally {
+            terminarEscritura(transaccion);
+            lock.unlock();
+        }
+    }
+
+    private ResultadoMovimientoStock procesarTransaccionDiferida(Transaccion transaccion, ModoConfirmacion modo) {
+        String codigo = transaccion.getCodigoProducto();
+        CompletableFuture<Transaccion> confirmacion;
+        int stockNuevo;
+        long secuencia = -1;
+
+        // La plaza en la cola se reserva antes del candado: esperar al escritor con el candado tomado
+        // lo bloquearía a él cuando necesite ese mismo candado para revertir un fallo
+        try {
+            escritorDiferido.reservarPlaza();
+        } catch (RejectedExecutionException e) {
+            return ResultadoMovimientoStock.saturado(e.getMessage());
+        }
+        boolean encolada = false;
+
+        ReentrantLock lock = bloqueos.bloqueoDe(codigo);
+        lock.lock();
+        try {
+            Producto producto = stockEnMemoria.get(codigo);
+            if (producto == null) return ResultadoMovimientoStock.noEncontrado();
+            transaccion.setProducto(producto);
+            if (transaccion.getFecha() == null) transaccion.setFecha(LocalDateTime.now());
+
+            // La memoria es la referencia para admitir el movimiento; la BD lo recibe después
+            int delta = transaccion.calcularDeltaStock();
+            int disponible = producto.getStockActual();
+            if (disponible + delta < 0) return ResultadoMovimientoStock.stockInsuficiente(disponible);
+
+            stockNuevo = disponible + delta;
+            producto.setStockActual(stockNuevo);
+            try {
+                // Primero al diario (orden por producto garantizado por el candado), luego a la cola
+                if (diario != null) {
+                    // La misma clave va al diario y a la fila de la BD (una reaplicación la conserva)
+                    if (transaccion.getClaveMovimiento() == null) transaccion.setClaveMovimiento(UUID.randomUUID().toString());
+                    secuencia = diario.registrarMovimiento(transaccion);
+                    secuenciasDiario.put(transaccion, secuencia);
+                }
+                iniciarEscritura(transaccion);
+                encolada = true;   // encolar() consume la plaza (o la libera si rechaza)
+                confirmacion = escritorDiferido.encolar(transaccion);
+            } catch (RejectedExecutionException | IOException e) {
+                producto.setStockActual(disponible);   // contrapresión o diario no disponible: deshacer y rechazar
+                terminarEscritura(transaccion);
+                anularEnDiario(transaccion);
+                return e instanceof RejectedExecutionException
+                        ? ResultadoMovimientoStock.saturado(e.getMessage())
+                        : ResultadoMovimientoStock.error("No se pudo anotar en el diario: " + e.getMessage());
+            }
+            reindexarProducto(producto);
+        } finally {
+            lock.unlock();
+            if (!encolada) escritorDiferido.liberarPlaza();
+        }
+
+        if (modo == ModoConfirmacion.MEMORIA) return ResultadoMovimientoStock.aceptado(stockNuevo);
+        if (modo == ModoConfirmacion.LOCAL && diario != null) {
+            try {
+                return diario.esperarSincronizacion(secuencia, ESPERA_CONFIRMACION_MS)
+                        ? ResultadoMovimientoStock.aceptado(stockNuevo)
+                        : ResultadoMovimientoStock.error("Sin sincronización del diario tras " + ESPERA_CONFIRMACION_MS + " ms");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return ResultadoMovimientoStock.error("Interrumpido esperando el diario");
+            }
+        }
+
+        // Esperar el commit del grupo fuera del candado del producto
+        try {
+            confirmacion.get(ESPERA_CONFIRMACION_MS, TimeUnit.MILLISECONDS);
+            return ResultadoMovimientoStock.aplicado(stockNuevo);
+        } catch (TimeoutException e) {
+            return ResultadoMovimientoStock.error("Sin confirmación de la BD tras " + ESPERA_CONFIRMACION_MS + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResultadoMovimientoStock.error("Interrumpido esperando la confirmación");
+        } catch (ExecutionException e) {
+            return ResultadoMovimientoStock.error(e.getCause().getMessage());
+        }
+    }
+
+    // Oyente del escritor diferido: registrar lo confirmado en memoria
+    private void alConfirmarEscritura(List<Transaccion> confirmadas) {
+        for (Transaccion t : confirmadas) {
+            t.setClaveMovimiento(null);   // ya está en la BD; no retenerla en el historial en memoria
+            registrarTransaccionEnMemoria(t);
+            terminarEscritura(t);
+            Long secuencia = secuenciasDiario.remove(t);
+            if (secuencia != null) {
+                try {
+                    diario.registrarConfirmacion(secuencia, t.getIdTransaccion());
+                } catch (IOException e) {
+                    // Sin la marca, al reiniciar se detecta como ya presente en la BD y no se duplica
+                    System.err.println("⚠ No se pudo anotar la confirmación en el diario: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void anularEnDiario(Transaccion transaccion) {
+        Long secuencia = secuenciasDiario.remove(transaccion);
+        if (secuencia == null) return;
+        try {
+            diario.registrarAnulacion(secuencia);
+        } catch (IOException e) {
+            System.err.println("⚠ No se pudo anotar la anulación en el diario: " + e.getMessage());
+        }
+    }
+
+    // Oyente del escritor diferido: la BD rechazó el movimiento de forma definitiva, revertir la memoria
+    private void alFallarEscritura(Transaccion transaccion, String motivo) {
+        String codigo = transaccion.getCodigoProducto();
+        ReentrantLock lock = bloqueos.bloqueoDe(codigo);
+        lock.lock();
+        try {
+            Producto producto = stockEnMemoria.get(codigo);
+            if (producto != null) {
+                producto.setStockActual(producto.getStockActual() - transaccion.calcularDeltaStock());
+                reindexarProducto(producto);
+            }
+            terminarEscritura(transaccion);
+            anularEnDiario(transaccion);
+        } finally {
+            lock.unlock();
+        }
+        metricas.registrarReversion();
+        System.err.println("⚠ Transacción diferida revertida (" + codigo + "): " + motivo);
+    }
+
+    // Oyente del escritor diferido: cerró sin llegar a la BD por errores transitorios. No es un
+    // rechazo: la memoria conserva el movimiento y el diario su anotación, que se reaplica al reiniciar
+    private void alAbandonarEscritura(List<Transaccion> pendientes) {
+        for (Transaccion t : pendientes) {
+            terminarEscritura(t);
+            secuenciasDiario.remove(t);
+        }
+    }
+
+    /**
+     * Ingesta por lotes (sincronización del POS): valida todas las líneas contra el catálogo
+     * en memoria y las persiste con un único commit. Todo o nada.
+     */
+    public ResultadoLote procesarLoteTransacciones(List<Transaccion> lote) {
+        ResultadoLote resultado = aplicarLote(lote);
+        metricas.registrarLote(resultado);
+        return resultado;
+    }
+
+    private ResultadoLote aplicarLote(List<Transaccion> lote) {
+        if (lote == null || lote.isEmpty()) return ResultadoLote.invalido(List.of("El lote está vacío"));
+
+        // 1) Validación de todas las líneas antes de tocar la BD
+        List<String> errores = new ArrayList<>();
+        Set<String> codigos = new LinkedHashSet<>();
+        for (int i = 0; i < lote.size(); i++) {
+            Transaccion t = lote.get(i);
+            String linea = "Línea " + (i + 1) + ": ";
+            if (t == null || t.getCodigoProducto() == null) {
+                errores.add(linea + "transacción sin producto");
+            } else if (!stockEnMemoria.containsKey(t.getCodigoProducto())) {
+                errores.add(linea + "producto no existe (" + t.getCodigoProducto() + ")");
+            } else if (t.getTipo() == null) {
+                errores.add(linea + "tipo obligatorio (ENTRADA/SALIDA)");
+            } else if (t.getCantidad() <= 0) {
+                errores.add(linea + "cantidad debe ser mayor que cero");
+            } else {
+                codigos.add(t.getCodigoProducto());
+            }
+        }
+        if (!errores.isEmpty()) return ResultadoLote.invalido(errores);
+
+        // 2) Candados de todos los productos del lote (en orden fijo, sin interbloqueos), sin deltas
+        //    diferidos en vuelo: el lote se escribe directo en la BD y no debe cruzarse con la cola
+        Collection<ReentrantLock> locks;
+        try {
+            locks = bloquearSinPendientes(codigos);
+        } catch (TimeoutException e) {
+            return ResultadoLote.error(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResultadoLote.error("Interrumpido esperando movimientos diferidos");
+        }
+        try {
+            LocalDateTime ahora = LocalDateTime.now();
+            Map<String, Integer> deltas = new LinkedHashMap<>();
+            for (Transaccion t : lote) {
+                Producto producto = stockEnMemoria.get(t.getCodigoProducto());
+                if (producto == null) {
+                    return ResultadoLote.invalido(List.of("Producto eliminado durante el lote: " + t.getCodigoProducto()));
+                }
+                t.setProducto(producto);
+                if (t.getFecha() == null) t.setFecha(ahora);
+                deltas.merge(producto.getCodigo(), t.calcularDeltaStock(), Integer::sum);
+            }
+
+            // Rechazo temprano con el stock en memoria (evita un viaje a la BD)
+            deltas.forEach((codigo, delta) -> {
+                int disponible = stockEnMemoria.get(codigo).getStockActual();
+                if (disponible + delta < 0) {
+                    errores.add("Stock insuficiente para " + codigo + " (disponible: " + disponible
+                            + ", requerido: " + (-delta) + ")");
+                }
+            });
+            if (!errores.isEmpty()) return ResultadoLote.stockInsuficiente(errores);
+
+            // 3) Persistencia: deltas agrupados + inserción en batch + un commit
+            //    (una marca por lote: todos sus IDs son posteriores a la primera línea)
+            iniciarEscritura(lote.get(0));
+            Map<String, ResultadoMovimientoStock> resultados = inventarioDAO.guardarTransaccionesLote(lote);
+
+            resultados.forEach((codigo, r) -> {
+                if (!r.isAplicado()) errores.add(codigo + ": " + r.getMensaje());
+            });
+            if (!errores.isEmpty()) {
+                // La BD manda: reflejar su stock actual
+                resultados.forEach((codigo, r) -> {
+                    if (r.getEstado() != ResultadoMovimientoStock.Estado.PRODUCTO_NO_ENCONTRADO) {
+                        Producto producto = stockEnMemoria.get(codigo);
+                        producto.setStockActual(r.getStockResultante());
+                        reindexarProducto(producto);
+                    }
+                });
+                return ResultadoLote.stockInsuficiente(errores);
+            }
+
+            // Sin deltas en vuelo (también en modo diferido) el stock de la BD es el vigente
+            Map<String, Integer> stockResultante = new LinkedHashMap<>();
+            for (String codigo : deltas.keySet()) {
+                Producto producto = stockEnMemoria.get(codigo);
+                int stock = resultados.get(codigo).getStockResultante();
+                producto.setStockActual(stock);
+                reindexarProducto(producto);
+                stockResultante.put(codigo, stock);
+            }
+
+            List<Integer> ids = new ArrayList<>(lote.size());
+            for (Transaccion t : lote) {
+                ids.add(t.getIdTransaccion());
+                registrarTransaccionEnMemoria(t);
+            }
+            return ResultadoLote.aplicado(ids, stockResultante);
+
+        } catch (Exception e) {
+            System.err.println("⚠ Error al procesar lote de transacciones: " + e.getMessage());
+            return ResultadoLote.error(e.getMessage());
+        } finally {
+            terminarEscritura(lote.get(0));
+            bloqueos.liberar(locks);
         }
     }
 
     public List<Transaccion> obtenerTodasTransacciones() {
-        return new ArrayList<>(transaccionesEnMemoria.values());
+        if (historialAntiguo == null) return new ArrayList<>(transaccionesEnMemoria.values());
+
+        List<Transaccion> todas = new ArrayList<>();
+        recorrerTodasTransacciones(todas::add);
+        return todas;
+    }
+
+    /**
+     * Entrega todo el historial por ID sin copiarlo: el tramo archivado hasta el corte y luego la
+     * ventana en memoria. Mientras recorre no se archiva nada (archivar usa tryLock y lo deja para
+     * el siguiente registro), así ninguna transacción cambia de nivel a mitad del recorrido.
+     */
+    private void recorrerTodasTransacciones(Consumer<Transaccion> consumidor) {
+        if (historialAntiguo == null) {
+            transaccionesEnMemoria.values().forEach(consumidor);
+            return;
+        }
+        candadoArchivado.lock();
+        try {
+            int corte = historialAntiguo.getUltimoId();
+            historialAntiguo.recorrer(null, null, null, t -> {
+                if (t.getIdTransaccion() <= corte) consumidor.accept(t);
+            });
+            transaccionesEnMemoria.tailMap(corte, false).values().forEach(consumidor);
+        } finally {
+            candadoArchivado.unlock();
+        }
+    }
+
+    /** Página de transacciones ordenadas por ID (paginación por cursor). */
+    public Pagina<Transaccion> obtenerPaginaTransacciones(Integer despuesDeId, int limite) {
+        if (historialAntiguo == null) return Pagina.desde(transaccionesEnMemoria, despuesDeId, limite);
+
+        // Primero el tramo archivado (IDs <= corte) y, si no llena la página, la ventana en memoria
+        int corte = historialAntiguo.getUltimoId();
+        List<Transaccion> items = new ArrayList<>();
+        if (despuesDeId == null || despuesDeId < corte) {
+            for (Transaccion t : historialAntiguo.posteriores(despuesDeId, limite)) {
+                if (t.getIdTransaccion() <= corte) items.add(t);
+            }
+            if (items.size() == limite) {
+                return new Pagina<>(items, String.valueOf(items.get(items.size() - 1).getIdTransaccion()));
+            }
+        }
+        Integer desde = despuesDeId == null ? Integer.valueOf(corte) : Integer.valueOf(Math.max(despuesDeId, corte));
+        Pagina<Transaccion> resto = Pagina.desde(transaccionesEnMemoria, desde, limite - items.size());
+        items.addAll(resto.getItems());
+        return new Pagina<>(items, resto.getSiguienteCursor());
+    }
+
+    /** Como obtenerPaginaTransacciones, pero de la más reciente a la más antigua (el cursor baja). */
+    public Pagina<Transaccion> obtenerPaginaTransaccionesRecientes(Integer antesDeId, int limite) {
+        NavigableMap<Integer, Transaccion> recientes = transaccionesEnMemoria.descendingMap();
+        if (historialAntiguo == null) return Pagina.desde(recientes, antesDeId, limite);
+
+        // Primero la ventana en memoria (IDs > corte) y, si no llena la página, el tramo archivado
+        int corte = historialAntiguo.getUltimoId();
+        List<Transaccion> items = new ArrayList<>();
+        if (antesDeId == null || antesDeId > corte) {
+            Pagina<Transaccion> ventana = Pagina.desde(recientes.headMap(corte, false), antesDeId, limite);
+            if (ventana.getSiguienteCursor() != null) return ventana;
+            items.addAll(ventana.getItems());
+        }
+        if (items.size() < limite) {
+            int tope = antesDeId == null ? corte + 1 : Math.min(antesDeId, corte + 1);
+            items.addAll(historialAntiguo.anteriores(tope, limite - items.size()));
+        }
+        String cursor = items.size() == limite ? String.valueOf(items.get(items.size() - 1).getIdTransaccion()) : null;
+        return new Pagina<>(items, cursor);
     }
 
     public Transaccion obtenerTransaccionPorId(Integer id) {
-        return transaccionesEnMemoria.get(id);
+        if (id == null) return null;
+        Transaccion t = transaccionesEnMemoria.get(id);
+        return t != null || historialAntiguo == null ? t : historialAntiguo.buscar(id);
     }
 
+    /**
+     * Filtra por tipo y rango de fechas usando el índice temporal:
+     * solo se recorre el tramo del historial que cae dentro del rango.
+     * El resultado se ordena por fecha.
+     */
     public List<Transaccion> filtrarTransacciones(TipoTransaccion tipo, String fechaInicio, String fechaFin) {
-        return transaccionesEnMemoria.values().stream()
-                .filter(t -> tipo == null || t.getTipo() == tipo)
-                .filter(t -> {
-                    if (fechaInicio == null && fechaFin == null) return true;
-                    LocalDateTime inicio = (fechaInicio != null) ? LocalDateTime.parse(fechaInicio) : LocalDateTime.MIN;
-                    LocalDateTime fin = (fechaFin != null) ? LocalDateTime.parse(fechaFin) : LocalDateTime.MAX;
-                    return !t.getFecha().isBefore(inicio) && !t.getFecha().isAfter(fin);
-                })
-                .collect(Collectors.toList());
+        // Las fechas se interpretan una sola vez, no por cada elemento
+        LocalDateTime inicio = (fechaInicio != null) ? LocalDateTime.parse(fechaInicio) : null;
+        LocalDateTime fin = (fechaFin != null) ? LocalDateTime.parse(fechaFin) : null;
+        if (historialAntiguo == null) return new ArrayList<>(indiceTemporal.rango(tipo, inicio, fin));
+
+        List<Transaccion> resultado = new ArrayList<>();
+        recorrerHistorial(tipo, inicio, fin, resultado::add);
+        resultado.sort(Comparator.comparing(Transaccion::getFecha).thenComparing(Transaccion::getIdTransaccion));
+        return resultado;
+    }
+
+    /**
+     * Entrega las transacciones del filtro una a una, sin construir la lista completa
+     * (exportaciones en streaming).
+     *
+     * Las fechas llegan ya interpretadas: quien escribe la respuesta en streaming debe validarlas
+     * antes de enviar las cabeceras.
+     *
+     * @param desdeBD false = índice temporal en memoria; true = cursor de solo avance sobre la BD.
+     */
+    public void recorrerTransacciones(TipoTransaccion tipo, LocalDateTime inicio, LocalDateTime fin,
+                                      boolean desdeBD, Consumer<Transaccion> consumidor) throws Exception {
+        if (desdeBD) {
+            inventarioDAO.recorrerTransacciones(tipo, inicio, fin, stockEnMemoria::get, consumidor);
+        } else {
+            recorrerHistorial(tipo, inicio, fin, consumidor);
+        }
+    }
+
+    /**
+     * Recorre el historial en memoria: primero el tramo archivado fuera del heap (IDs hasta el
+     * corte) y luego la ventana reciente (IDs posteriores), así ninguna transacción sale dos veces
+     * aunque se archive mientras tanto.
+     */
+    private void recorrerHistorial(TipoTransaccion tipo, LocalDateTime inicio, LocalDateTime fin,
+                                   Consumer<Transaccion> consumidor) {
+        if (historialAntiguo == null) {
+            indiceTemporal.rango(tipo, inicio, fin).forEach(consumidor);
+            return;
+        }
+        int corte = historialAntiguo.getUltimoId();
+        historialAntiguo.recorrer(tipo, inicio, fin, t -> {
+            if (t.getIdTransaccion() <= corte) consumidor.accept(t);
+        });
+        for (Transaccion t : indiceTemporal.rango(tipo, inicio, fin)) {
+            if (t.getIdTransaccion() > corte) consumidor.accept(t);
+        }
+    }
+
+    /**
+     * Pasa fuera del heap las transacciones más antiguas (por ID) mientras la ventana en memoria
+     * supere "ventanaReciente" IDs. Se agrega primero al historial y luego se quita de memoria,
+     * así una lectura concurrente siempre la encuentra en algún nivel. Un solo hilo archiva a la vez.
+     */
+    private void archivarHistorialAntiguo() {
+        if (historialCargado) archivar(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Archiva solo IDs hasta "hastaId". Durante la carga es el último ID leído (o la marca de la
+     * instantánea): todo lo menor ya está en memoria, así el archivo sigue en orden de ID.
+     */
+    private void archivar(int hastaId) {
+        if (historialAntiguo == null || !candadoArchivado.tryLock()) return;
+        try {
+            int archivadas = 0;
+            while (!transaccionesEnMemoria.isEmpty() && transaccionesEnMemoria.firstKey() <= hastaId
+                    && transaccionesEnMemoria.lastKey() - transaccionesEnMemoria.firstKey() >= ventanaReciente) {
+                Map.Entry<Integer, Transaccion> e = transaccionesEnMemoria.firstEntry();
+                historialAntiguo.agregar(e.getValue());
+                transaccionesEnMemoria.remove(e.getKey(), e.getValue());
+                indiceTemporal.eliminar(e.getValue());
+                archivadas++;
+            }
+            if (archivadas > 1000) {
+                System.out.println("✔ Historial: " + archivadas + " transacciones pasadas fuera del heap (total: "
+                        + historialAntiguo.tamano() + ", ~" + historialAntiguo.tamanoEnBytes() / (1024 * 1024) + " MB)");
+            }
+        } catch (IOException e) {
+            System.err.println("⚠ No se pudo archivar el historial fuera del heap: " + e.getMessage());
+        } finally {
+            candadoArchivado.unlock();
+        }
+    }
+
+    /** Entradas, salidas y movimientos del filtro, sobre el archivo columnar. */
+    public ArchivoColumnarTransacciones.Resumen resumirTransacciones(TipoTransaccion tipo, String fechaInicio,
+                                                                      String fechaFin, String codigoProducto) {
+        return archivoColumnar.resumir(filtroColumnar(tipo, fechaInicio, fechaFin, codigoProducto));
+    }
+
+    /** Igual que resumirTransacciones, pero por producto, usuario, cliente, proveedor o tipo. */
+    public Map<String, ArchivoColumnarTransacciones.Resumen> agruparTransacciones(
+            ArchivoColumnarTransacciones.Dimension dimension, TipoTransaccion tipo,
+            String fechaInicio, String fechaFin, String codigoProducto) {
+        return archivoColumnar.agrupar(dimension, filtroColumnar(tipo, fechaInicio, fechaFin, codigoProducto));
+    }
+
+    // Mismos formatos de fecha que los agregados (yyyy-MM-dd o yyyy-MM-ddTHH:mm:ss)
+    private static ArchivoColumnarTransacciones.Filtro filtroColumnar(TipoTransaccion tipo, String fechaInicio,
+                                                                      String fechaFin, String codigoProducto) {
+        return new ArchivoColumnarTransacciones.Filtro(tipo, fechaDesde(fechaInicio), fechaHasta(fechaFin), codigoProducto);
+    }
+
+    // ------------------- MANTENIMIENTO DE ÍNDICES DEL CATÁLOGO -------------------
+    // Llamar bajo el candado del producto (salvo en la carga inicial, que es de un solo hilo)
+
+    private void ponerProductoEnMemoria(Producto producto) {
+        canonizarProveedor(producto);
+        stockEnMemoria.put(producto.getCodigo(), producto);
+        indiceCatalogo.indexar(producto);
+        indiceVencimientos.indexar(producto, LocalDate.now());
+        valorizacion.actualizar(producto, LocalDate.now());
+    }
+
+    private void quitarProductoDeMemoria(String codigo) {
+        stockEnMemoria.remove(codigo);
+        indiceCatalogo.eliminar(codigo);
+        indiceVencimientos.eliminar(codigo);
+        valorizacion.eliminar(codigo);
+    }
+
+    /** Reubica el producto en los índices tras un cambio de stock o de atributos. */
+    private void reindexarProducto(Producto producto) {
+        indiceCatalogo.indexar(producto);
+        valorizacion.actualizar(producto, LocalDate.now());
+    }
+
+    /** Oyente del barrido de vencimientos: recalcula el aporte del producto bajo su candado. */
+    private void revalorizarProducto(Producto producto) {
+        ReentrantLock lock = bloqueos.bloqueoDe(producto.getCodigo());
+        lock.lock();
+        try {
+            if (stockEnMemoria.get(producto.getCodigo()) == producto) {
+                valorizacion.actualizar(producto, LocalDate.now());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Sustituye el proveedor del producto por la instancia de proveedoresEnMemoria con el mismo RUC. */
+    private void canonizarProveedor(Producto producto) {
+        Proveedor actual = producto.getProveedor();
+        if (actual == null || actual.getRuc() == null) return;
+        Proveedor canonico = proveedoresEnMemoria.get(actual.getRuc());
+        if (canonico != null && canonico != actual) producto.setProveedor(canonico);
+    }
+
+    private void limpiarProductosEnMemoria() {
+        stockEnMemoria.clear();
+        indiceCatalogo.limpiar();
+        indiceVencimientos.limpiar();
+        valorizacion.limpiar();
+    }
+
+    /** Alta en el mapa por ID y en el índice temporal (único punto de inserción). */
+    private void registrarTransaccionEnMemoria(Transaccion t) {
+        if (t == null || t.getIdTransaccion() == null) return;
+        Producto producto = stockEnMemoria.get(t.getCodigoProducto());
+        if (producto != null) t.setProducto(producto);   // comparte el String del código con el catálogo
+        Transaccion anterior = transaccionesEnMemoria.put(t.getIdTransaccion(), t);
+        indiceTemporal.agregar(t);
+        ultimoIdRegistrado.accumulateAndGet(t.getIdTransaccion(), Math::max);
+        if (historialCargado && anterior == null) {
+            archivoColumnar.agregar(t);
+            kardex.agregar(t);
+            agregarAAgregados(t);
+            archivarHistorialAntiguo();
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    //  MARCA DE RECUPERACIÓN
+    // ----------------------------------------------------------------------
+    /** Se llama antes de que la transacción llegue a la BD (el ID aún no está asignado). */
+    private void iniciarEscritura(Transaccion t) {
+        escriturasEnCurso.put(t, ultimoIdRegistrado.get());
+    }
+
+    /** Se llama cuando la transacción ya quedó registrada en memoria, o no llegará a la BD. */
+    private void terminarEscritura(Transaccion t) {
+        escriturasEnCurso.remove(t);
+    }
+
+    /**
+     * ID hasta el cual todas las transacciones que lleguen a confirmarse ya están en memoria:
+     * el menor entre el último ID registrado, el punto de partida de cada escritura propia en curso
+     * y el ID previo a cada hueco entre los últimos VENTANA_HUECOS IDs (commits tardíos de otras
+     * instancias; un hueco definitivo, p.ej. un lote revertido, solo hace releer esas filas).
+     */
+    private int marcaRecuperacion() {
+        int marca = ultimoIdRegistrado.get();
+        for (int inicio : escriturasEnCurso.values()) {
+            marca = Math.min(marca, inicio);
+        }
+
+        int revisados = 0;
+        Integer siguiente = null;
+        for (Integer id : transaccionesEnMemoria.descendingKeySet()) {
+            if (siguiente != null && siguiente - id > 1) marca = Math.min(marca, id);
+            if (++revisados >= VENTANA_HUECOS) break;
+            siguiente = id;
+        }
+        return marca;
+    }
+
+    /** ¿Ya está la transacción en algún nivel del historial (ventana reciente o archivo)? */
+    private boolean transaccionRegistrada(Integer id) {
+        return obtenerTransaccionPorId(id) != null;
+    }
+
+    // Categoría y proveedor vigentes del producto al registrar el movimiento
+    private void agregarAAgregados(Transaccion t) {
+        Producto producto = stockEnMemoria.get(t.getCodigoProducto());
+        agregados.agregar(t, producto != null ? producto.getCategoria() : null, rucDe(producto));
+    }
+
+    private static String rucDe(Producto producto) {
+        return producto != null && producto.getProveedor() != null ? producto.getProveedor().getRuc() : null;
     }
 
     // =========================================================================
     //  MÉTODOS AUXILIARES / STREAMS
     // =========================================================================
+    /** Valor total del inventario: total acumulado de forma incremental, O(1). */
     public double obtenerValorTotalInventario() {
-        return stockEnMemoria.values().stream()
-                .mapToDouble(Producto::calcularValorInventario)
-                .sum();
+        return valorizacion.getTotal();
+    }
+
+    public Map<String, Double> obtenerValorPorCategoria() {
+        return valorizacion.getPorCategoria();
+    }
+
+    public Map<String, Double> obtenerValorPorProveedor() {
+        return valorizacion.getPorProveedor();
     }
 
+    /** Productos con stock menor que el umbral, vía índice ordenado por stock: O(log n + k). */
     public List<Producto> obtenerStockBajo(int umbral) {
-        return stockEnMemoria.values().stream()
-                .filter(p -> p.getStockActual() < umbral)
-                .toList();
+        return indiceCatalogo.stockMenorQue(umbral);
+    }
+
+    public List<Producto> obtenerProductosPorCategoria(String categoria) {
+        return indiceCatalogo.porCategoria(categoria);
+    }
+
+    public List<Producto> obtenerProductosPorProveedor(String ruc) {
+        return indiceCatalogo.porProveedor(ruc);
+    }
+
+    public Set<String> obtenerCategorias() {
+        return indiceCatalogo.categorias();
     }
 
     public List<String> obtenerNombresProductos() {
@@ -216,13 +1491,112 @@ public class InventarioController {
                 .toList();
     }
 
+    /** Perecederos que vencen en los próximos 30 días (consulta por rango en el índice de vencimientos). */
     public List<ProductoPerecedero> obtenerVencimientoProximo() {
-        return stockEnMemoria.values().stream()
-                .filter(ProductoPerecedero.class::isInstance)
-                .map(ProductoPerecedero.class::cast)
-                .filter(p -> !p.verificarVencimiento())
-                .filter(p -> ChronoUnit.DAYS.between(LocalDate.now(), p.getFechaVencimiento()) <= 30)
-                .toList();
+        return obtenerVencimientoProximo(DIAS_VENCIMIENTO_PROXIMO);
+    }
+
+    public List<ProductoPerecedero> obtenerVencimientoProximo(int dias) {
+        return indiceVencimientos.vencenEnLosProximos(dias, LocalDate.now());
+    }
+
+    /** Todos los perecederos aún no vencidos, ordenados por fecha de vencimiento. */
+    public List<ProductoPerecedero> obtenerPerecederosVigentes() {
+        return indiceVencimientos.vigentes(LocalDate.now());
+    }
+
+    public List<ProductoPerecedero> obtenerProductosVencidos() {
+        return indiceVencimientos.vencidos();
+    }
+
+    /** Página de productos ordenados por código (paginación por cursor). */
+    public Pagina<Producto> obtenerPaginaProductos(String despuesDeCodigo, int limite) {
+        return indiceCatalogo.pagina(despuesDeCodigo, limite);
+    }
+
+    // =========================================================================
+    //  KARDEX: STOCK A UNA FECHA
+    // =========================================================================
+    /**
+     * Stock del producto al final de la fecha indicada (yyyy-MM-dd = fin de ese día, o
+     * yyyy-MM-ddTHH:mm:ss). Con escritura diferida, los movimientos aún no confirmados en la BD
+     * ya están en el stock actual pero no en el kardex: cuentan como anteriores a toda fecha.
+     *
+     * @return El stock, o null si el producto no existe.
+     */
+    public Long obtenerStockAl(String codigo, String fecha) {
+        Producto producto = stockEnMemoria.get(codigo);
+        if (producto == null) return null;
+        return kardex.stockAl(codigo, fechaHasta(fecha), producto.getStockActual());
+    }
+
+    /** Movimientos del producto con el saldo después de cada uno (null si el producto no existe). */
+    public Pagina<KardexProductos.Movimiento> obtenerKardex(String codigo, String fechaInicio, String fechaFin,
+                                                             String despues, int limite) {
+        Producto producto = stockEnMemoria.get(codigo);
+        if (producto == null) return null;
+        return kardex.listar(codigo, fechaDesde(fechaInicio), fechaHasta(fechaFin), despues, limite, producto.getStockActual());
+    }
+
+    // =========================================================================
+    //  AGREGADOS POR PERIODO (HORA / DÍA / MES)
+    // =========================================================================
+    /**
+     * Totales de entradas y salidas de una clave (producto, categoría o RUC; ignorada con TOTAL)
+     * entre dos fechas (yyyy-MM-dd o yyyy-MM-ddTHH:mm:ss; null = sin límite). Se suman cubetas
+     * ya agregadas: no se recorre el historial.
+     */
+    public AgregadosTemporales.Totales resumirAgregados(AgregadosTemporales.Eje eje, String clave,
+                                                        String fechaInicio, String fechaFin) {
+        return agregados.resumir(eje, clave, fechaDesde(fechaInicio), fechaHasta(fechaFin));
+    }
+
+    /** Totales de cada clave del eje entre dos fechas (solo las claves con movimientos). */
+    public Map<String, AgregadosTemporales.Totales> agruparAgregados(AgregadosTemporales.Eje eje,
+                                                                    String fechaInicio, String fechaFin) {
+        return agregados.agrupar(eje, fechaDesde(fechaInicio), fechaHasta(fechaFin));
+    }
+
+    /** Serie por hora, día o mes de una clave entre dos fechas (solo los periodos con movimientos). */
+    public List<AgregadosTemporales.Cubeta> serieAgregados(AgregadosTemporales.Eje eje, String clave,
+                                                           AgregadosTemporales.Granularidad granularidad,
+                                                           String fechaInicio, String fechaFin) {
+        return agregados.serie(eje, clave, granularidad, fechaDesde(fechaInicio), fechaHasta(fechaFin));
+    }
+
+    // =========================================================================
+    //  ANÁLISIS: ABC Y ROTACIÓN
+    // =========================================================================
+    /**
+     * Clasificación ABC del catálogo. Con MOVIMIENTO la ventana es [fechaInicio, fechaFin] o,
+     * sin fechaInicio, los últimos 'dias' días (null = todo el historial).
+     */
+    public AnalisisInventario.ResultadoAbc clasificarAbc(AnalisisInventario.Criterio criterio, String fechaInicio,
+                                                         String fechaFin, Integer dias, double umbralA,
+                                                         double umbralB, String clase, int limite) {
+        return analisis.clasificarAbc(criterio, inicioVentana(fechaInicio, dias),
+                fechaHasta(fechaFin), umbralA, umbralB, clase, limite);
+    }
+
+    /** Los 'n' productos con más y con menos unidades de salida en la ventana (ver clasificarAbc). */
+    public AnalisisInventario.ResultadoRotacion obtenerRotacion(String fechaInicio, String fechaFin, Integer dias, int n) {
+        return analisis.rotacion(inicioVentana(fechaInicio, dias), fechaHasta(fechaFin), n);
+    }
+
+    private static LocalDateTime inicioVentana(String fechaInicio, Integer dias) {
+        if (fechaInicio != null) return fechaDesde(fechaInicio);
+        return dias == null ? null : LocalDateTime.now().minusDays(dias);
+    }
+
+    private static LocalDateTime fechaDesde(String fecha) {
+        if (fecha == null) return null;
+        return fecha.length() == 10 ? LocalDate.parse(fecha).atStartOfDay() : LocalDateTime.parse(fecha);
+    }
+
+    // Una fecha sin hora incluye todo ese día
+    private static LocalDateTime fechaHasta(String fecha) {
+        if (fecha == null) return null;
+        return fecha.length() == 10 ? LocalDate.parse(fecha).atTime(23, 59, 59) : LocalDateTime.parse(fecha);
     }
 
     public Map<String, Producto> getStockEnMemoria() {
@@ -0,0 +1,229 @@
+package controlador;
+
+import modelo.TipoTransaccion;
+import modelo.Transaccion;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * [KardexProductos.java]
+ * Kardex por producto: los movimientos de cada producto en orden de fecha, con puntos de
+ * control del saldo acumulado cada {@value #INTERVALO_CONTROL} movimientos.
+ *
+ * "¿Cuánto stock había el día D?" se resuelve con una búsqueda binaria por fecha, el punto de
+ * control anterior y a lo sumo {@value #INTERVALO_CONTROL} sumas, sin recorrer el historial.
+ *
+ * El kardex no guarda el stock inicial (la BD no lo tiene: el stock de alta no genera
+ * transacción). Se deduce del stock actual: saldo inicial = stock actual − suma de todos los
+ * movimientos. Los ajustes directos de stock (actualizarProducto) se anotan como movimientos
+ * propios, sin ID de transacción, para que el cambio absoluto no altere los saldos anteriores.
+ * Los ajustes solo viven en el kardex en memoria: al reconstruirlo desde la BD se vuelven parte
+ * del saldo inicial. Resolución de fechas: segundos (el empate se ordena por ID; los ajustes de
+ * un mismo segundo van antes que las transacciones).
+ *
+ * Cada producto tiene su propio candado: las escrituras y consultas de productos distintos no
+ * se bloquean entre sí.
+ */
+public class KardexProductos {
+
+    static final int INTERVALO_CONTROL = 64;
+
+    // Los ajustes se ordenan con IDs propios, por debajo de cualquier ID de transacción
+    private static final int PRIMER_ID_AJUSTE = Integer.MIN_VALUE;
+
+    /** Línea del kardex: el movimiento y el saldo resultante (ajuste: sin ID de transacción). */
+    public record Movimiento(Integer idTransaccion, LocalDateTime fecha, TipoTransaccion tipo, int cantidad,
+                             long saldo, boolean ajuste) {
+    }
+
+    /** Movimientos de un producto en arreglos paralelos, ordenados por (fecha, id). */
+    private static final class Libro {
+        final ReentrantReadWriteLock candado = new ReentrantReadWriteLock();
+        int ajustes;
+        int tamano;
+        int[] ids = new int[4];
+        long[] epoch = new long[4];
+        int[] delta = new int[4];
+        long[] controles = new long[1];   // controles[c] = suma de delta[0 .. c * INTERVALO_CONTROL)
+        long total;
+
+        void agregar(int id, long segundos, int d) {
+            if (tamano == ids.length) {
+                int capacidad = tamano * 2;
+                ids = Arrays.copyOf(ids, capacidad);
+                epoch = Arrays.copyOf(epoch, capacidad);
+                delta = Arrays.copyOf(delta, capacidad);
+            }
+            // Lo normal es llegar en orden de fecha: la posición es el final
+            int pos = tamano;
+            while (pos > 0 && (epoch[pos - 1] > segundos || (epoch[pos - 1] == segundos && ids[pos - 1] > id))) pos--;
+            if (pos < tamano) {
+                System.arraycopy(ids, pos, ids, pos + 1, tamano - pos);
+                System.arraycopy(epoch, pos, epoch, pos + 1, tamano - pos);
+                System.arraycopy(delta, pos, delta, pos + 1, tamano - pos);
+            }
+            ids[pos] = id;
+            epoch[pos] = segundos;
+            delta[pos] = d;
+            tamano++;
+            total += d;
+            recalcularControles(pos);
+        }
+
+        /** Rehace los puntos de control posteriores a la posición modificada. */
+        private void recalcularControles(int desde) {
+            int ultimo = tamano / INTERVALO_CONTROL;
+            if (controles.length <= ultimo) controles = Arrays.copyOf(controles, Math.max(ultimo + 1, controles.length * 2));
+            for (int c = desde / INTERVALO_CONTROL + 1; c <= ultimo; c++) {
+                long suma = controles[c - 1];
+                for (int i = (c - 1) * INTERVALO_CONTROL; i < c * INTERVALO_CONTROL; i++) suma += delta[i];
+                controles[c] = suma;
+            }
+        }
+
+        /** Suma de los primeros 'posicion' movimientos: punto de control + resto del tramo. */
+        long acumuladoHasta(int posicion) {
+            int c = posicion / INTERVALO_CONTROL;
+            long suma = controles[c];
+            for (int i = c * INTERVALO_CONTROL; i < posicion; i++) suma += delta[i];
+            return suma;
+        }
+
+        /** Cantidad de movimientos anteriores a (segundos, id); con id = MAX_VALUE, los de fecha <= segundos. */
+        int posicion(long segundos, int id) {
+            int bajo = 0, alto = tamano;
+            while (bajo < alto) {
+                int medio = (bajo + alto) >>> 1;
+                if (epoch[medio] < segundos || (epoch[medio] == segundos && ids[medio] <= id)) bajo = medio + 1;
+                else alto = medio;
+            }
+            return bajo;
+        }
+    }
+
+    private final Map<String, Libro> libros = new ConcurrentHashMap<>();
+    private final AtomicInteger movimientos = new AtomicInteger();
+
+    // =========================================================================
+    //  ESCRITURA
+    // =========================================================================
+    public void agregar(Transaccion t) {
+        if (t == null || t.getIdTransaccion() == null || t.getFecha() == null
+                || t.getTipo() == null || t.getCodigoProducto() == null) return;
+
+        Libro libro = libros.computeIfAbsent(t.getCodigoProducto(), c -> new Libro());
+        libro.candado.writeLock().lock();
+        try {
+            libro.agregar(t.getIdTransaccion(), ArchivoColumnarTransacciones.aEpoch(t.getFecha()), t.calcularDeltaStock());
+        } finally {
+            libro.candado.writeLock().unlock();
+        }
+        movimientos.incrementAndGet();
+    }
+
+    /**
+     * Anota un cambio directo del stock (stock absoluto) como movimiento del kardex. Llamar bajo el
+     * candado del producto, con el stock ya cambiado en memoria.
+     *
+     * @param delta Stock nuevo − stock anterior (0 = no se anota nada).
+     */
+    public void registrarAjuste(String codigo, LocalDateTime fecha, int delta) {
+        if (codigo == null || fecha == null || delta == 0) return;
+
+        Libro libro = libros.computeIfAbsent(codigo, c -> new Libro());
+        libro.candado.writeLock().lock();
+        try {
+            libro.agregar(PRIMER_ID_AJUSTE + libro.ajustes++, ArchivoColumnarTransacciones.aEpoch(fecha), delta);
+        } finally {
+            libro.candado.writeLock().unlock();
+        }
+        movimientos.incrementAndGet();
+    }
+
+    /** Vacía el kardex (solo durante la carga, sin escrituras concurrentes). */
+    public void limpiar() {
+        libros.clear();
+        movimientos.set(0);
+    }
+
+    // =========================================================================
+    //  CONSULTAS
+    // =========================================================================
+    public int tamano() {
+        return movimientos.get();
+    }
+
+    /**
+     * Stock del producto al final del instante indicado (incluye los movimientos de ese segundo).
+     *
+     * @param stockActual Stock vigente del producto (para deducir el saldo inicial).
+     */
+    public long stockAl(String codigo, LocalDateTime instante, int stockActual) {
+        Libro libro = libros.get(codigo);
+        if (libro == null) return stockActual;
+        libro.candado.readLock().lock();
+        try {
+            int posicion = libro.posicion(ArchivoColumnarTransacciones.aEpoch(instante), Integer.MAX_VALUE);
+            return stockActual - libro.total + libro.acumuladoHasta(posicion);
+        } finally {
+            libro.candado.readLock().unlock();
+        }
+    }
+
+    /**
+     * Movimientos del producto con su saldo, en orden de fecha, desde el cursor (o desde 'desde').
+     *
+     * @param desde   Fecha mínima (null = desde el primero).
+     * @param hasta   Fecha máxima, inclusive (null = hasta el último).
+     * @param despues Cursor de la página anterior ("segundos:id"), o null.
+     * @throws IllegalArgumentException Si el cursor no tiene ese formato.
+     */
+    public Pagina<Movimiento> listar(String codigo, LocalDateTime desde, LocalDateTime hasta, String despues,
+                                     int limite, int stockActual) {
+        long[] cursor = despues == null ? null : leerCursor(despues);
+        Libro libro = libros.get(codigo);
+        if (libro == null) return new Pagina<>(List.of(), null);
+        libro.candado.readLock().lock();
+        try {
+            int inicio = desde == null ? 0 : libro.posicion(ArchivoColumnarTransacciones.aEpoch(desde), Integer.MIN_VALUE);
+            if (cursor != null) inicio = Math.max(inicio, libro.posicion(cursor[0], (int) cursor[1]));
+            int fin = hasta == null ? libro.tamano : libro.posicion(ArchivoColumnarTransacciones.aEpoch(hasta), Integer.MAX_VALUE);
+
+            long saldo = stockActual - libro.total + libro.acumuladoHasta(inicio);
+            List<Movimiento> items = new ArrayList<>(Math.max(0, Math.min(limite, fin - inicio)));
+            int i = inicio;
+            for (; i < fin && items.size() < limite; i++) {
+                int d = libro.delta[i];
+                boolean ajuste = libro.ids[i] < 0;
+                saldo += d;
+                items.add(new Movimiento(ajuste ? null : libro.ids[i], ArchivoColumnarTransacciones.desdeEpoch(libro.epoch[i]),
+                        d < 0 ? TipoTransaccion.SALIDA : TipoTransaccion.ENTRADA, Math.abs(d), saldo, ajuste));
+            }
+            String siguiente = i < fin ? libro.epoch[i - 1] + ":" + libro.ids[i - 1] : null;
+            return new Pagina<>(items, siguiente);
+        } finally {
+            libro.candado.readLock().unlock();
+        }
+    }
+
+    /** Cursor "segundos:id" (el id es negativo en los ajustes) como {segundos, id}. */
+    private static long[] leerCursor(String cursor) {
+        int separador = cursor.indexOf(':');
+        if (separador < 0 || cursor.indexOf(':', separador + 1) >= 0) {
+            throw new IllegalArgumentException("Cursor de kardex inválido: " + cursor);
+        }
+        try {
+            return new long[] {Long.parseLong(cursor.substring(0, separador)),
+                    Integer.parseInt(cursor.substring(separador + 1))};
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor de kardex inválido: " + cursor, e);
+        }
+    }
+}
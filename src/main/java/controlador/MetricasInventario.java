@@ -0,0 +1,82 @@
+package controlador;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import persistencia.ResultadoMovimientoStock;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * [MetricasInventario.java]
+ * Contadores y timers del procesamiento de transacciones del InventarioController.
+ *
+ * - inventario.transacciones{resultado}: una por cada procesarTransaccion, etiquetada con el
+ *   estado del resultado (aplicado, aceptado, stock_insuficiente, producto_no_encontrado,
+ *   saturado, invalido, error).
+ * - inventario.transacciones.procesar{resultado}: duración de procesarTransaccion.
+ * - inventario.transacciones.revertidas: movimientos diferidos que la BD rechazó después.
+ * - inventario.transacciones.lotes{resultado}: lotes POS procesados.
+ * - inventario.transacciones.async.rechazadas: peticiones asíncronas rechazadas en la admisión.
+ *
+ * Sin registro (Swing, pruebas) se usa un compuesto vacío: los contadores no cuestan nada.
+ */
+public final class MetricasInventario {
+
+    private final Map<ResultadoMovimientoStock.Estado, Counter> transacciones = new EnumMap<>(ResultadoMovimientoStock.Estado.class);
+    private final Map<ResultadoMovimientoStock.Estado, Timer> duraciones = new EnumMap<>(ResultadoMovimientoStock.Estado.class);
+    private final Map<ResultadoLote.Estado, Counter> lotes = new EnumMap<>(ResultadoLote.Estado.class);
+    private final Counter revertidas;
+    private final Counter rechazadasEnAdmision;
+
+    public MetricasInventario(MeterRegistry registro) {
+        for (ResultadoMovimientoStock.Estado estado : ResultadoMovimientoStock.Estado.values()) {
+            String etiqueta = estado.name().toLowerCase(Locale.ROOT);
+            transacciones.put(estado, Counter.builder("inventario.transacciones")
+                    .description("Transacciones procesadas por resultado")
+                    .tag("resultado", etiqueta)
+                    .register(registro));
+            duraciones.put(estado, Timer.builder("inventario.transacciones.procesar")
+                    .description("Duración de procesarTransaccion")
+                    .tag("resultado", etiqueta)
+                    .register(registro));
+        }
+        for (ResultadoLote.Estado estado : ResultadoLote.Estado.values()) {
+            lotes.put(estado, Counter.builder("inventario.transacciones.lotes")
+                    .description("Lotes de transacciones por resultado")
+                    .tag("resultado", estado.name().toLowerCase(Locale.ROOT))
+                    .register(registro));
+        }
+        revertidas = Counter.builder("inventario.transacciones.revertidas")
+                .description("Movimientos diferidos revertidos porque la BD no los aceptó")
+                .register(registro);
+        rechazadasEnAdmision = Counter.builder("inventario.transacciones.async.rechazadas")
+                .description("Transacciones asíncronas rechazadas por cola llena")
+                .register(registro);
+    }
+
+    static MetricasInventario sinRegistro() {
+        return new MetricasInventario(new CompositeMeterRegistry());
+    }
+
+    void registrarTransaccion(ResultadoMovimientoStock resultado, long duracionNanos) {
+        transacciones.get(resultado.getEstado()).increment();
+        duraciones.get(resultado.getEstado()).record(duracionNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void registrarLote(ResultadoLote resultado) {
+        lotes.get(resultado.getEstado()).increment();
+    }
+
+    void registrarReversion() {
+        revertidas.increment();
+    }
+
+    void registrarRechazoEnAdmision() {
+        rechazadasEnAdmision.increment();
+    }
+}
@@ -0,0 +1,23 @@
+package controlador;
+
+/**
+ * [ModoConfirmacion.java]
+ * Cuándo se responde al cliente que registró una transacción con escritura diferida.
+ */
+public enum ModoConfirmacion {
+    /** Tras el commit en MySQL. */
+    DURABLE,
+    /** Tras anotarse y sincronizarse en el diario local (MySQL la recibe después). */
+    LOCAL,
+    /** En cuanto queda encolada (menor latencia, sin garantía ante una caída). */
+    MEMORIA;
+
+    /** Interpreta el valor de configuración o del parámetro ?ack= (null o desconocido → porDefecto). */
+    public static ModoConfirmacion desde(String valor, ModoConfirmacion porDefecto) {
+        if (valor == null) return porDefecto;
+        for (ModoConfirmacion modo : values()) {
+            if (modo.name().equalsIgnoreCase(valor.trim())) return modo;
+        }
+        return porDefecto;
+    }
+}
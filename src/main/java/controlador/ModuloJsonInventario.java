@@ -0,0 +1,109 @@
+package controlador;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.PropertyName;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.cfg.MapperConfig;
+import com.fasterxml.jackson.databind.introspect.AnnotatedClass;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.introspect.VirtualAnnotatedMember;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.VirtualBeanPropertyWriter;
+import com.fasterxml.jackson.databind.util.Annotations;
+import com.fasterxml.jackson.databind.util.SimpleBeanPropertyDefinition;
+import modelo.Producto;
+import modelo.Transaccion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * [ModuloJsonInventario.java]
+ * Módulo de Jackson para el JSON del inventario.
+ *
+ * Las transacciones guardan solo el código del producto; al serializarlas se agrega la propiedad
+ * "producto" con el producto del catálogo que tenga ese código (null si ya no existe), justo
+ * después de "codigoProducto". El catálogo lo aporta quien registra el módulo (AppConfig, con el
+ * del InventarioController), así el modelo no depende de ningún estado global.
+ */
+public final class ModuloJsonInventario extends SimpleModule {
+
+    public static final String PRODUCTO = "producto";
+
+    /** Propiedad calculada al serializar (no hay getter que leer): su valor para un objeto. */
+    public interface PropiedadCalculada {
+        Object valorDe(Object bean);
+    }
+
+    public ModuloJsonInventario(Function<String, Producto> catalogo) {
+        super("inventario");
+        setSerializerModifier(new BeanSerializerModifier() {
+            @Override
+            public List<BeanPropertyWriter> changeProperties(SerializationConfig config, BeanDescription descripcion,
+                                                             List<BeanPropertyWriter> propiedades) {
+                if (!Transaccion.class.isAssignableFrom(descripcion.getBeanClass())) return propiedades;
+
+                List<BeanPropertyWriter> conProducto = new ArrayList<>(propiedades.size() + 1);
+                BeanPropertyWriter producto = new ProductoDelCatalogo(config, descripcion, catalogo);
+                for (BeanPropertyWriter p : propiedades) {
+                    conProducto.add(p);
+                    if ("codigoProducto".equals(p.getName())) conProducto.add(producto);
+                }
+                if (!conProducto.contains(producto)) conProducto.add(producto);
+                return conProducto;
+            }
+        });
+    }
+
+    /** Propiedad virtual "producto": se resuelve contra el catálogo en cada serialización. */
+    private static final class ProductoDelCatalogo extends VirtualBeanPropertyWriter implements PropiedadCalculada {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Function<String, Producto> catalogo;
+
+        ProductoDelCatalogo(SerializationConfig config, BeanDescription descripcion, Function<String, Producto> catalogo) {
+            this(config, descripcion, config.constructType(Producto.class), catalogo);
+        }
+
+        // Miembro virtual como los de @JsonAppend: Jackson lo exige aunque no haya campo ni getter
+        private ProductoDelCatalogo(SerializationConfig config, BeanDescription descripcion, JavaType tipo,
+                                    Function<String, Producto> catalogo) {
+            this(SimpleBeanPropertyDefinition.construct(config,
+                            new VirtualAnnotatedMember(descripcion.getClassInfo(), descripcion.getBeanClass(),
+                                    PRODUCTO, tipo),
+                            PropertyName.construct(PRODUCTO)),
+                    descripcion.getClassAnnotations(), tipo, catalogo);
+        }
+
+        private ProductoDelCatalogo(BeanPropertyDefinition definicion, Annotations anotacionesClase,
+                                    JavaType tipo, Function<String, Producto> catalogo) {
+            super(definicion, anotacionesClase, tipo);
+            this.catalogo = catalogo;
+        }
+
+        @Override
+        public Object valorDe(Object bean) {
+            String codigo = ((Transaccion) bean).getCodigoProducto();
+            return codigo == null ? null : catalogo.apply(codigo);
+        }
+
+        @Override
+        protected Object value(Object bean, JsonGenerator gen, SerializerProvider prov) {
+            return valorDe(bean);
+        }
+
+        // La usa @JsonAppend (y cualquier copia de la configuración): misma propiedad, mismo catálogo
+        @Override
+        public VirtualBeanPropertyWriter withConfig(MapperConfig<?> config, AnnotatedClass declaringClass,
+                                                    BeanPropertyDefinition propDef, JavaType type) {
+            return new ProductoDelCatalogo(propDef, declaringClass.getAnnotations(), type, catalogo);
+        }
+    }
+}
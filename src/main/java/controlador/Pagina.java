@@ -0,0 +1,57 @@
+package controlador;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+
+/**
+ * [Pagina.java]
+ * Página de resultados con paginación por cursor (keyset).
+ *
+ * El cursor es la clave del último elemento devuelto; la siguiente página empieza justo
+ * después de él en el mapa ordenado (tailMap), así que el coste no depende de cuántas
+ * páginas se hayan recorrido y las altas/bajas concurrentes no desplazan los resultados.
+ * siguienteCursor es null cuando no quedan más elementos.
+ */
+public final class Pagina<T> {
+
+    public static final int LIMITE_POR_DEFECTO = 100;
+    public static final int LIMITE_MAXIMO = 1000;
+
+    private final List<T> items;
+    private final String siguienteCursor;
+
+    public Pagina(List<T> items, String siguienteCursor) {
+        this.items = items;
+        this.siguienteCursor = siguienteCursor;
+    }
+
+    /**
+     * Recorre como máximo "limite" elementos de la colección ordenada a partir del cursor.
+     *
+     * @param base    Mapa ordenado por la clave estable del listado.
+     * @param despues Clave del último elemento de la página anterior, o null para la primera.
+     */
+    public static <K, V> Pagina<V> desde(NavigableMap<K, V> base, K despues, int limite) {
+        NavigableMap<K, V> tramo = despues == null ? base : base.tailMap(despues, false);
+
+        List<V> items = new ArrayList<>(Math.min(limite, 64));
+        K ultima = null;
+        for (Map.Entry<K, V> e : tramo.entrySet()) {
+            if (items.size() == limite) return new Pagina<>(items, String.valueOf(ultima));
+            items.add(e.getValue());
+            ultima = e.getKey();
+        }
+        return new Pagina<>(items, null);
+    }
+
+    /** Límite pedido por el cliente acotado a [1, LIMITE_MAXIMO]. */
+    public static int normalizarLimite(Integer limite) {
+        if (limite == null) return LIMITE_POR_DEFECTO;
+        return Math.max(1, Math.min(limite, LIMITE_MAXIMO));
+    }
+
+    public List<T> getItems() { return items; }
+    public String getSiguienteCursor() { return siguienteCursor; }
+}
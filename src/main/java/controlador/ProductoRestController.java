@@ -5,7 +5,11 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Controller REST para productos.
@@ -21,11 +25,42 @@ public class ProductoRestController {
         this.inventarioController = inventarioController;
     }
 
-    // GET /api/productos → Lista de productos
+    // GET /api/productos → Productos ordenados por código, siempre paginados: {items, siguienteCursor}
+    // ?limite=N (por defecto 100, máximo 1000) &despues=<codigo> → página siguiente
+    // ?campos=codigo,nombre,stockActual → solo esos campos de cada producto
     @GetMapping
-    public ResponseEntity<List<Producto>> getTodosProductos() {
-        List<Producto> productos = inventarioController.getStockEnMemoria().values().stream().toList();
-        return ResponseEntity.ok(productos);
+    public ResponseEntity<?> getTodosProductos(
+            @RequestParam(required = false) String despues,
+            @RequestParam(required = false) Integer limite,
+            @RequestParam(required = false) String campos) {
+        Proyeccion proyeccion = Proyeccion.de(campos);
+
+        Pagina<Producto> pagina = inventarioController.obtenerPaginaProductos(despues, Pagina.normalizarLimite(limite));
+        return ResponseEntity.ok(proyeccion == null ? pagina : proyeccion.aplicar(pagina));
+    }
+
+    // GET /api/productos/categorias → Categorías existentes (para los filtros del frontend)
+    @GetMapping("/categorias")
+    public Set<String> getCategorias() {
+        return inventarioController.obtenerCategorias();
+    }
+
+    // GET /api/productos/categoria/{categoria} → Productos de una categoría (índice por categoría)
+    @GetMapping("/categoria/{categoria}")
+    public List<Producto> getProductosPorCategoria(@PathVariable String categoria) {
+        return inventarioController.obtenerProductosPorCategoria(categoria);
+    }
+
+    // GET /api/productos/proveedor/{ruc} → Productos de un proveedor (índice por RUC)
+    @GetMapping("/proveedor/{ruc}")
+    public List<Producto> getProductosPorProveedor(@PathVariable String ruc) {
+        return inventarioController.obtenerProductosPorProveedor(ruc);
+    }
+
+    // GET /api/productos/stock-bajo?umbral=10 → Productos con stock menor que el umbral (índice por stock)
+    @GetMapping("/stock-bajo")
+    public List<Producto> getProductosStockBajo(@RequestParam(defaultValue = "10") int umbral) {
+        return inventarioController.obtenerStockBajo(umbral);
     }
 
     // GET /api/productos/{codigo} → Producto específico
@@ -38,6 +73,42 @@ public class ProductoRestController {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
     }
 
+    // GET /api/productos/{codigo}/stock?asOf=2025-03-31 → Stock a esa fecha (kardex); sin asOf, el actual
+    // asOf: yyyy-MM-dd (al cierre del día) o yyyy-MM-ddTHH:mm:ss
+    @GetMapping("/{codigo}/stock")
+    public ResponseEntity<?> getStockAl(@PathVariable String codigo, @RequestParam(required = false) String asOf) {
+        Producto producto = inventarioController.buscarProductoPorCodigo(codigo);
+        if (producto == null) return ResponseEntity.notFound().build();
+
+        Map<String, Object> respuesta = new LinkedHashMap<>();
+        respuesta.put("codigo", codigo);
+        respuesta.put("asOf", asOf);
+        try {
+            respuesta.put("stock", asOf == null ? producto.getStockActual() : inventarioController.obtenerStockAl(codigo, asOf));
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("asOf inválido: " + asOf + " (yyyy-MM-dd o yyyy-MM-ddTHH:mm:ss)");
+        }
+        return ResponseEntity.ok(respuesta);
+    }
+
+    // GET /api/productos/{codigo}/kardex → Movimientos con saldo acumulado, en orden de fecha
+    // ?desde, ?hasta (yyyy-MM-dd o yyyy-MM-ddTHH:mm:ss), ?limite=N&despues=<cursor> → {items, siguienteCursor}
+    @GetMapping("/{codigo}/kardex")
+    public ResponseEntity<?> getKardex(
+            @PathVariable String codigo,
+            @RequestParam(required = false) String desde,
+            @RequestParam(required = false) String hasta,
+            @RequestParam(required = false) String despues,
+            @RequestParam(required = false) Integer limite) {
+        try {
+            Pagina<KardexProductos.Movimiento> pagina = inventarioController.obtenerKardex(
+                    codigo, desde, hasta, despues, Pagina.normalizarLimite(limite));
+            return pagina != null ? ResponseEntity.ok(pagina) : ResponseEntity.notFound().build();
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Parámetros inválidos: " + e.getMessage());
+        }
+    }
+
     // POST /api/productos → Crear producto
     @PostMapping
     public ResponseEntity<String> crearProducto(@RequestBody Producto producto) {
@@ -59,18 +130,19 @@ public class ProductoRestController {
             @PathVariable String codigo,
             @RequestBody Producto productoActualizado) {
 
-        Producto existente = inventarioController.buscarProductoPorCodigo(codigo);
-        if (existente == null) return ResponseEntity.notFound().build();
-
-        // Actualiza campos permitidos
-        existente.setNombre(productoActualizado.getNombre());
-        existente.setPrecioUnitario(productoActualizado.getPrecioUnitario());
-        existente.setStockActual(productoActualizado.getStockActual());
-        // Si quieres actualizar proveedor, tipo, etc., agrega aquí
-
-        // Llamar método específico de actualización (no registrarProducto)
-        inventarioController.actualizarProducto(existente);
-        return ResponseEntity.ok("Producto actualizado correctamente");
+        if (inventarioController.buscarProductoPorCodigo(codigo) == null) return ResponseEntity.notFound().build();
+
+        // Los campos permitidos (nombre, precio, stock) se persisten y aplican en el controlador, bajo
+        // el candado del producto; aquí no se toca la instancia compartida
+        return switch (inventarioController.actualizarProducto(codigo, productoActualizado)) {
+            case ACTUALIZADO -> ResponseEntity.ok("Producto actualizado correctamente");
+            case NO_ENCONTRADO -> ResponseEntity.notFound().build();
+            case CONFLICTO -> ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body("El stock del producto cambió: vuelva a leerlo y reintente");
+            case OCUPADO -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body("El producto tiene movimientos pendientes de confirmar; reintente más tarde");
+            case ERROR -> ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("No se pudo actualizar el producto");
+        };
     }
 
     // DELETE /api/productos/{codigo} → Eliminar producto
@@ -21,10 +21,18 @@ public class ProveedorRestController {
         this.inventarioController = inventarioController;
     }
 
-    // GET /api/proveedores → Lista de todos los proveedores
+    // GET /api/proveedores → Proveedores ordenados por RUC, siempre paginados: {items, siguienteCursor}
+    // ?limite=N (por defecto 100, máximo 1000) &despues=<ruc> → página siguiente
+    // ?campos=ruc,razonSocial → solo esos campos de cada proveedor
     @GetMapping
-    public List<Proveedor> getTodosProveedores() {
-        return inventarioController.obtenerTodosProveedores();
+    public Object getTodosProveedores(
+            @RequestParam(required = false) String despues,
+            @RequestParam(required = false) Integer limite,
+            @RequestParam(required = false) String campos) {
+        Proyeccion proyeccion = Proyeccion.de(campos);
+
+        Pagina<Proveedor> pagina = inventarioController.obtenerPaginaProveedores(despues, Pagina.normalizarLimite(limite));
+        return proyeccion == null ? pagina : proyeccion.aplicar(pagina);
     }
 
     // GET /api/proveedores/{ruc} → Proveedor específico
@@ -0,0 +1,147 @@
+package controlador;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
+
+import java.io.IOException;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * [Proyeccion.java]
+ * Proyección de campos para los listados (?campos=codigo,nombre,producto.codigo).
+ *
+ * Los campos se separan por comas; con "." se eligen campos de un objeto anidado
+ * (p.ej. "producto.codigo" devuelve solo el código del producto de cada transacción).
+ * Los campos desconocidos se ignoran.
+ *
+ * Cada elemento se escribe directamente en el JsonGenerator de la respuesta con las propiedades
+ * del serializador de Jackson de su clase (las mismas que el JSON completo, incluidas las que
+ * agrega ModuloJsonInventario): solo se leen y escriben las pedidas, sin construir el árbol
+ * completo del objeto para luego recortarlo.
+ */
+public final class Proyeccion {
+
+    /** Árbol de campos pedidos: campo → subcampos (sin subcampos = el campo completo). */
+    private static final class Campos extends LinkedHashMap<String, Campos> {}
+
+    private final Campos campos;
+
+    private Proyeccion(Campos campos) {
+        this.campos = campos;
+    }
+
+    /** @return La proyección, o null si no se pidió ninguna (se devuelve el objeto completo). */
+    public static Proyeccion de(String campos) {
+        if (campos == null || campos.isBlank()) return null;
+
+        Campos arbol = new Campos();
+        for (String ruta : campos.split(",")) {
+            Campos nivel = arbol;
+            for (String parte : ruta.trim().split("\\.")) {
+                if (parte.isEmpty()) break;
+                nivel = nivel.computeIfAbsent(parte, k -> new Campos());
+            }
+        }
+        return arbol.isEmpty() ? null : new Proyeccion(arbol);
+    }
+
+    public List<Fila> aplicar(List<?> items) {
+        List<Fila> resultado = new ArrayList<>(items.size());
+        for (Object item : items) {
+            resultado.add(new Fila(item));
+        }
+        return resultado;
+    }
+
+    public Pagina<Fila> aplicar(Pagina<?> pagina) {
+        return new Pagina<>(aplicar(pagina.getItems()), pagina.getSiguienteCursor());
+    }
+
+    /** Elemento proyectado: Jackson lo serializa escribiendo solo los campos pedidos. */
+    public final class Fila implements JsonSerializable {
+        private final Object item;
+
+        private Fila(Object item) {
+            this.item = item;
+        }
+
+        @Override
+        public void serialize(JsonGenerator gen, SerializerProvider provider) throws IOException {
+            escribir(item, campos, gen, provider);
+        }
+
+        @Override
+        public void serializeWithType(JsonGenerator gen, SerializerProvider provider, TypeSerializer typeSer)
+                throws IOException {
+            serialize(gen, provider);
+        }
+    }
+
+    // =========================================================================
+    //  ESCRITURA
+    // =========================================================================
+    private void escribir(Object valor, Campos pedidos, JsonGenerator gen, SerializerProvider provider)
+            throws IOException {
+        if (valor == null || pedidos.isEmpty() || sinSubcampos(valor)) {
+            provider.defaultSerializeValue(valor, gen);
+            return;
+        }
+        if (valor instanceof Iterable<?> elementos) {
+            gen.writeStartArray();
+            for (Object elemento : elementos) {
+                escribir(elemento, pedidos, gen, provider);
+            }
+            gen.writeEndArray();
+            return;
+        }
+
+        // El proveedor cachea el serializador de cada clase
+        JsonSerializer<Object> serializador = provider.findValueSerializer(valor.getClass());
+        if (!(serializador instanceof BeanSerializerBase bean)) {
+            serializador.serialize(valor, gen, provider);
+            return;
+        }
+
+        gen.writeStartObject();
+        for (Iterator<PropertyWriter> it = bean.properties(); it.hasNext(); ) {
+            PropertyWriter propiedad = it.next();
+            Campos subcampos = pedidos.get(propiedad.getName());
+            if (subcampos == null) continue;
+            try {
+                if (!subcampos.isEmpty() && propiedad instanceof ModuloJsonInventario.PropiedadCalculada calculada) {
+                    gen.writeFieldName(propiedad.getName());
+                    escribir(calculada.valorDe(valor), subcampos, gen, provider);
+                } else if (!subcampos.isEmpty() && propiedad instanceof BeanPropertyWriter escritor) {
+                    gen.writeFieldName(propiedad.getName());
+                    escribir(escritor.get(valor), subcampos, gen, provider);
+                } else {
+                    propiedad.serializeAsField(valor, gen, provider);
+                }
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw JsonMappingException.from(gen, "No se pudo leer '" + propiedad.getName() + "'", e);
+            }
+        }
+        gen.writeEndObject();
+    }
+
+    // Escalares, fechas, mapas y arreglos se escriben completos: los subcampos no aplican
+    private static boolean sinSubcampos(Object valor) {
+        return valor instanceof CharSequence || valor instanceof Number || valor instanceof Boolean
+                || valor instanceof Enum<?> || valor instanceof TemporalAccessor
+                || valor instanceof Map<?, ?> || valor.getClass().isArray();
+    }
+}
@@ -0,0 +1,19 @@
+package controlador;
+
+/**
+ * [ResultadoActualizacion.java]
+ * Resultado de actualizar un producto (PUT): distingue lo que el cliente puede reintentar
+ * releyendo el producto de lo que es un fallo del servidor.
+ */
+public enum ResultadoActualizacion {
+    /** Persistido en la BD y aplicado en memoria. */
+    ACTUALIZADO,
+    /** El producto no existe (o se eliminó mientras tanto). */
+    NO_ENCONTRADO,
+    /** El stock de la BD ya no es el que se leyó: hay que releer el producto antes de reintentar. */
+    CONFLICTO,
+    /** No se pudo tomar el producto a tiempo (movimientos diferidos sin confirmar, interrupción). */
+    OCUPADO,
+    /** Error de acceso a datos; nada se modificó. */
+    ERROR
+}
@@ -0,0 +1,53 @@
+package controlador;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * [ResultadoLote.java]
+ * Respuesta de la ingesta por lotes (POST /api/transacciones/batch).
+ * El lote es todo o nada: o se aplican todas las líneas o ninguna.
+ */
+public final class ResultadoLote {
+
+    public enum Estado {
+        APLICADO,
+        INVALIDO,
+        STOCK_INSUFICIENTE,
+        ERROR
+    }
+
+    private final Estado estado;
+    private final List<Integer> ids;                 // ID generado por línea, en el orden recibido
+    private final Map<String, Integer> stockResultante;
+    private final List<String> errores;
+
+    private ResultadoLote(Estado estado, List<Integer> ids, Map<String, Integer> stockResultante, List<String> errores) {
+        this.estado = estado;
+        this.ids = ids;
+        this.stockResultante = stockResultante;
+        this.errores = errores;
+    }
+
+    public static ResultadoLote aplicado(List<Integer> ids, Map<String, Integer> stockResultante) {
+        return new ResultadoLote(Estado.APLICADO, ids, stockResultante, List.of());
+    }
+
+    public static ResultadoLote invalido(List<String> errores) {
+        return new ResultadoLote(Estado.INVALIDO, List.of(), Map.of(), errores);
+    }
+
+    public static ResultadoLote stockInsuficiente(List<String> errores) {
+        return new ResultadoLote(Estado.STOCK_INSUFICIENTE, List.of(), Map.of(), errores);
+    }
+
+    public static ResultadoLote error(String mensaje) {
+        return new ResultadoLote(Estado.ERROR, List.of(), Map.of(), List.of(String.valueOf(mensaje)));
+    }
+
+    public Estado getEstado() { return estado; }
+    public int getProcesadas() { return ids.size(); }
+    public List<Integer> getIds() { return ids; }
+    public Map<String, Integer> getStockResultante() { return stockResultante; }
+    public List<String> getErrores() { return errores; }
+}
@@ -0,0 +1,57 @@
+package controlador;
+
+import modelo.Transaccion;
+import persistencia.ResultadoMovimientoStock;
+
+/**
+ * [ResultadoTransaccion.java]
+ * Respuesta del procesamiento asíncrono (POST /api/transacciones/async).
+ *
+ * Lleva el ID asignado por la BD (null si aún no se persistió: estado ACEPTADO, o si falló),
+ * el stock resultante y, si no se aplicó, el motivo tipado en el estado. admitida = false
+ * indica que se rechazó en la admisión (cola del ejecutor llena) sin llegar a procesarse.
+ */
+public final class ResultadoTransaccion {
+
+    private final ResultadoMovimientoStock.Estado estado;
+    private final Integer idTransaccion;
+    private final String codigoProducto;
+    private final int stockResultante;
+    private final String mensaje;
+    private final boolean admitida;
+
+    private ResultadoTransaccion(ResultadoMovimientoStock.Estado estado, Integer idTransaccion,
+                                 String codigoProducto, int stockResultante, String mensaje, boolean admitida) {
+        this.estado = estado;
+        this.idTransaccion = idTransaccion;
+        this.codigoProducto = codigoProducto;
+        this.stockResultante = stockResultante;
+        this.mensaje = mensaje;
+        this.admitida = admitida;
+    }
+
+    public static ResultadoTransaccion de(Transaccion transaccion, ResultadoMovimientoStock resultado) {
+        boolean persistida = resultado.getEstado() == ResultadoMovimientoStock.Estado.APLICADO;
+        return new ResultadoTransaccion(resultado.getEstado(),
+                persistida ? transaccion.getIdTransaccion() : null,
+                transaccion != null ? transaccion.getCodigoProducto() : null,
+                resultado.getStockResultante(), resultado.getMensaje(), true);
+    }
+
+    /** Rechazada en la admisión: no llegó a ejecutarse. */
+    public static ResultadoTransaccion rechazada(Transaccion transaccion, String motivo) {
+        return new ResultadoTransaccion(ResultadoMovimientoStock.Estado.SATURADO, null,
+                transaccion != null ? transaccion.getCodigoProducto() : null, 0, motivo, false);
+    }
+
+    public boolean isAplicada() {
+        return estado == ResultadoMovimientoStock.Estado.APLICADO || estado == ResultadoMovimientoStock.Estado.ACEPTADO;
+    }
+
+    public ResultadoMovimientoStock.Estado getEstado() { return estado; }
+    public Integer getIdTransaccion() { return idTransaccion; }
+    public String getCodigoProducto() { return codigoProducto; }
+    public int getStockResultante() { return stockResultante; }
+    public String getMensaje() { return mensaje; }
+    public boolean isAdmitida() { return admitida; }
+}
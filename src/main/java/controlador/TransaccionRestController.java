@@ -1,13 +1,25 @@
 // controlador/TransaccionRestController.java
 package controlador;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import modelo.Transaccion;
 import modelo.Producto;
 import modelo.TipoTransaccion;
+import persistencia.ResultadoMovimientoStock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Controller REST para transacciones.
@@ -18,29 +30,103 @@ import java.util.List;
 public class TransaccionRestController {
 
     private final InventarioController inventarioController;
+    private final ObjectMapper mapper;
 
-    public TransaccionRestController(InventarioController inventarioController) {
+    public TransaccionRestController(InventarioController inventarioController, ObjectMapper mapper) {
         this.inventarioController = inventarioController;
+        this.mapper = mapper;
     }
 
     // POST /api/transacciones → Registrar una transacción
+    // ?ack=durable espera el commit en BD; ?ack=local espera el diario local;
+    // ?ack=memoria responde al encolar (local y memoria solo con escritura diferida)
     @PostMapping
-    public ResponseEntity<String> crearTransaccion(@RequestBody Transaccion transaccion) {
-        Producto producto = transaccion.getProducto();
+    public ResponseEntity<String> crearTransaccion(
+            @RequestBody Transaccion transaccion,
+            @RequestParam(required = false) String ack) {
+        String codigo = transaccion.getCodigoProducto();
 
-        if (producto == null || inventarioController.buscarProductoPorCodigo(producto.getCodigo()) == null) {
+        if (codigo == null || inventarioController.buscarProductoPorCodigo(codigo) == null) {
             return ResponseEntity.badRequest().body("Producto no existe o transacción inválida");
         }
 
-        inventarioController.procesarTransaccion(transaccion);
-        return ResponseEntity.ok("Transacción procesada correctamente");
+        ResultadoMovimientoStock resultado = ack == null
+                ? inventarioController.procesarTransaccion(transaccion)
+                : inventarioController.procesarTransaccion(transaccion, ModoConfirmacion.desde(ack, ModoConfirmacion.DURABLE));
+        return switch (resultado.getEstado()) {
+            case APLICADO -> ResponseEntity.ok("Transacción procesada correctamente");
+            case ACEPTADO -> ResponseEntity.status(HttpStatus.ACCEPTED).body("Transacción aceptada (persistencia pendiente)");
+            case SATURADO -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(resultado.getMensaje());
+            case STOCK_INSUFICIENTE -> ResponseEntity.status(HttpStatus.CONFLICT).body(resultado.getMensaje());
+            case PRODUCTO_NO_ENCONTRADO -> ResponseEntity.badRequest().body("Producto no existe o transacción inválida");
+            case INVALIDO -> ResponseEntity.badRequest().body("Transacción inválida: " + resultado.getMensaje());
+            case ERROR -> ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error al procesar transacción: " + resultado.getMensaje());
+        };
     }
 
-    // GET /api/transacciones → Obtener historial completo de transacciones
+    // POST /api/transacciones/async → Igual que POST /api/transacciones, pero el hilo HTTP se libera
+    // mientras se procesa: {estado, idTransaccion, codigoProducto, stockResultante, mensaje, admitida}
+    // 429 + Retry-After si la cola de procesamiento está llena; 503 si la cola de escritura lo está
+    @PostMapping("/async")
+    public CompletableFuture<ResponseEntity<ResultadoTransaccion>> crearTransaccionAsync(
+            @RequestBody Transaccion transaccion,
+            @RequestParam(required = false) String ack) {
+        ModoConfirmacion modo = ack == null ? null : ModoConfirmacion.desde(ack, ModoConfirmacion.DURABLE);
+        return inventarioController.procesarTransaccionAsync(transaccion, modo).thenApply(resultado -> {
+            if (!resultado.isAdmitida()) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, "1")
+                        .body(resultado);
+            }
+            HttpStatus status = switch (resultado.getEstado()) {
+                case APLICADO -> HttpStatus.OK;
+                case ACEPTADO -> HttpStatus.ACCEPTED;
+                case SATURADO -> HttpStatus.SERVICE_UNAVAILABLE;
+                case STOCK_INSUFICIENTE -> HttpStatus.CONFLICT;
+                case PRODUCTO_NO_ENCONTRADO, INVALIDO -> HttpStatus.BAD_REQUEST;
+                case ERROR -> HttpStatus.INTERNAL_SERVER_ERROR;
+            };
+            return ResponseEntity.status(status).body(resultado);
+        });
+    }
+
+    // POST /api/transacciones/batch → Registrar un lote de transacciones (un solo commit)
+    @PostMapping("/batch")
+    public ResponseEntity<ResultadoLote> crearLoteTransacciones(@RequestBody List<Transaccion> lote) {
+        ResultadoLote resultado = inventarioController.procesarLoteTransacciones(lote);
+        HttpStatus status = switch (resultado.getEstado()) {
+            case APLICADO -> HttpStatus.OK;
+            case INVALIDO -> HttpStatus.BAD_REQUEST;
+            case STOCK_INSUFICIENTE -> HttpStatus.CONFLICT;
+            case ERROR -> HttpStatus.INTERNAL_SERVER_ERROR;
+        };
+        return ResponseEntity.status(status).body(resultado);
+    }
+
+    // GET /api/transacciones → Historial de transacciones, siempre paginado: {items, siguienteCursor}
+    // ?limite=N (por defecto 100, máximo 1000) &despues=<id> → página ordenada por ID
+    // ?orden=desc → de la más reciente a la más antigua (el cursor es el ID desde el que seguir bajando)
+    // ?campos=idTransaccion,tipo,cantidad,producto.codigo → filas reducidas (sin el grafo completo)
+    // El historial completo se descarga con /reporte (en streaming)
     @GetMapping
-    public List<Transaccion> obtenerTodasTransacciones() {
-        return inventarioController.obtenerTodasTransacciones();
-    }   
+    public ResponseEntity<?> obtenerTodasTransacciones(
+            @RequestParam(required = false) Integer despues,
+            @RequestParam(required = false) Integer limite,
+            @RequestParam(defaultValue = "asc") String orden,
+            @RequestParam(required = false) String campos) {
+        Proyeccion proyeccion = Proyeccion.de(campos);
+
+        Pagina<Transaccion> pagina;
+        if ("asc".equalsIgnoreCase(orden)) {
+            pagina = inventarioController.obtenerPaginaTransacciones(despues, Pagina.normalizarLimite(limite));
+        } else if ("desc".equalsIgnoreCase(orden)) {
+            pagina = inventarioController.obtenerPaginaTransaccionesRecientes(despues, Pagina.normalizarLimite(limite));
+        } else {
+            return ResponseEntity.badRequest().body("orden no soportado: " + orden + " (asc, desc)");
+        }
+        return ResponseEntity.ok(proyeccion == null ? pagina : proyeccion.aplicar(pagina));
+    }
 
     // GET /api/transacciones/{id} → Detalle de una transacción
     @GetMapping("/{id}")
@@ -59,34 +145,166 @@ public class TransaccionRestController {
         return inventarioController.filtrarTransacciones(tipo, fechaInicio, fechaFin);
     }
 
+    // GET /api/transacciones/resumen → Entradas, salidas y neto (archivo columnar, sin recorrer objetos)
+    // ?agruparPor=producto|usuario|cliente|proveedor|tipo añade los totales por grupo
+    // ?tipo, ?producto=<codigo>, ?fechaInicio, ?fechaFin (yyyy-MM-dd o yyyy-MM-ddTHH:mm:ss) filtran el resumen
+    @GetMapping("/resumen")
+    public ResponseEntity<?> resumirTransacciones(
+            @RequestParam(required = false) TipoTransaccion tipo,
+            @RequestParam(required = false) String fechaInicio,
+            @RequestParam(required = false) String fechaFin,
+            @RequestParam(required = false) String producto,
+            @RequestParam(required = false) String agruparPor) {
+        ArchivoColumnarTransacciones.Dimension dimension = null;
+        if (agruparPor != null) {
+            try {
+                dimension = ArchivoColumnarTransacciones.Dimension.desde(agruparPor);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body("agruparPor no soportado: " + agruparPor
+                        + " (producto, usuario, cliente, proveedor, tipo)");
+            }
+        }
+
+        try {
+            Map<String, Object> respuesta = new LinkedHashMap<>();
+            respuesta.put("total", inventarioController.resumirTransacciones(tipo, fechaInicio, fechaFin, producto));
+            if (dimension != null) {
+                respuesta.put("grupos", inventarioController.agruparTransacciones(dimension, tipo, fechaInicio, fechaFin, producto));
+            }
+            return ResponseEntity.ok(respuesta);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("Fecha inválida (yyyy-MM-dd o yyyy-MM-ddTHH:mm:ss)");
+        }
+    }
+
+    // GET /api/transacciones/agregados → Entradas y salidas por periodo desde los agregados por hora/día/mes
+    // ?por=total|producto|categoria|proveedor (total por defecto); con ?clave=<código/categoría/RUC> una sola clave
+    // ?fechaInicio, ?fechaFin (yyyy-MM-dd o yyyy-MM-ddTHH:mm:ss); ?granularidad=hora|dia|mes añade la serie
+    @GetMapping("/agregados")
+    public ResponseEntity<?> obtenerAgregados(
+            @RequestParam(defaultValue = "total") String por,
+            @RequestParam(required = false) String clave,
+            @RequestParam(required = false) String fechaInicio,
+            @RequestParam(required = false) String fechaFin,
+            @RequestParam(required = false) String granularidad) {
+        AgregadosTemporales.Eje eje;
+        AgregadosTemporales.Granularidad tamano = null;
+        try {
+            eje = AgregadosTemporales.Eje.desde(por);
+            if (granularidad != null) tamano = AgregadosTemporales.Granularidad.desde(granularidad);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("por (total, producto, categoria, proveedor) o granularidad (hora, dia, mes) no soportado");
+        }
+        if (tamano != null && eje != AgregadosTemporales.Eje.TOTAL && clave == null) {
+            return ResponseEntity.badRequest().body("La serie requiere una clave (o por=total)");
+        }
+
+        try {
+            Map<String, Object> respuesta = new LinkedHashMap<>();
+            if (clave != null || eje == AgregadosTemporales.Eje.TOTAL) {
+                respuesta.put("total", inventarioController.resumirAgregados(eje, clave, fechaInicio, fechaFin));
+                if (tamano != null) {
+                    respuesta.put("serie", inventarioController.serieAgregados(eje, clave, tamano, fechaInicio, fechaFin));
+                }
+            } else {
+                respuesta.put("grupos", inventarioController.agruparAgregados(eje, fechaInicio, fechaFin));
+            }
+            return ResponseEntity.ok(respuesta);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("Fecha inválida (yyyy-MM-dd o yyyy-MM-ddTHH:mm:ss)");
+        }
+    }
+
     // GET /api/transacciones/stock-bajo/{umbral} → Productos con stock bajo
     @GetMapping("/stock-bajo/{umbral}")
     public List<Producto> obtenerStockBajo(@PathVariable int umbral) {
         return inventarioController.obtenerStockBajo(umbral);
     }
 
-    // GET /api/transacciones/valor-total → Valor total del inventario
+    // GET /api/transacciones/valor-total → Valor total del inventario (total acumulado, O(1))
+    // ?desglose=true añade el valor por categoría y por proveedor
     @GetMapping("/valor-total")
-    public double obtenerValorTotalInventario() {
-        return inventarioController.obtenerValorTotalInventario();
+    public Object obtenerValorTotalInventario(@RequestParam(defaultValue = "false") boolean desglose) {
+        if (!desglose) return inventarioController.obtenerValorTotalInventario();
+
+        Map<String, Object> respuesta = new LinkedHashMap<>();
+        respuesta.put("total", inventarioController.obtenerValorTotalInventario());
+        respuesta.put("porCategoria", inventarioController.obtenerValorPorCategoria());
+        respuesta.put("porProveedor", inventarioController.obtenerValorPorProveedor());
+        return respuesta;
     }
 
-    // GET /api/transacciones/vencimiento-proximo → Productos perecederos próximos a vencer
+    // GET /api/transacciones/vencimiento-proximo → Productos perecederos aún vigentes (índice de vencimientos)
+    // ?dias=N limita a los que vencen en los próximos N días
     @GetMapping("/vencimiento-proximo")
-    public List<Producto> obtenerVencimientoProximo() {
-        return List.copyOf(inventarioController.getStockEnMemoria().values().stream()
-                .filter(p -> p instanceof modelo.ProductoPerecedero)
-                .map(p -> (modelo.ProductoPerecedero) p)
-                .filter(p -> !p.verificarVencimiento())
-                .toList());
+    public List<? extends Producto> obtenerVencimientoProximo(@RequestParam(required = false) Integer dias) {
+        return dias == null
+                ? inventarioController.obtenerPerecederosVigentes()
+                : inventarioController.obtenerVencimientoProximo(dias);
+    }
+
+    // GET /api/transacciones/vencidos → Perecederos marcados como vencidos por el barrido diario
+    @GetMapping("/vencidos")
+    public List<? extends Producto> obtenerVencidos() {
+        return inventarioController.obtenerProductosVencidos();
     }
 
     // GET /api/transacciones/reporte → Generar reporte (igual que filtrar)
+    // ?formato=ndjson|csv → se escribe fila a fila en la respuesta (memoria constante)
+    // ?origen=bd → en streaming, lee la BD con un cursor de solo avance en vez del índice en memoria
+    // (el cuerpo se declara StreamingResponseBody: Spring solo lo escribe en streaming si el tipo lo dice)
     @GetMapping("/reporte")
-    public List<Transaccion> generarReporte(
+    public ResponseEntity<StreamingResponseBody> generarReporte(
             @RequestParam(required = false) TipoTransaccion tipo,
             @RequestParam(required = false) String fechaInicio,
-            @RequestParam(required = false) String fechaFin) {
-        return inventarioController.filtrarTransacciones(tipo, fechaInicio, fechaFin);
+            @RequestParam(required = false) String fechaFin,
+            @RequestParam(required = false) String formato,
+            @RequestParam(defaultValue = "memoria") String origen) {
+        // Antes de armar el cuerpo: una vez en streaming ya se enviaron el 200 y las cabeceras
+        LocalDateTime inicio;
+        LocalDateTime fin;
+        try {
+            inicio = fechaInicio != null ? LocalDateTime.parse(fechaInicio) : null;
+            fin = fechaFin != null ? LocalDateTime.parse(fechaFin) : null;
+        } catch (DateTimeParseException e) {
+            byte[] mensaje = "Fecha inválida (yyyy-MM-ddTHH:mm:ss)".getBytes(StandardCharsets.UTF_8);
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body(salida -> salida.write(mensaje));
+        }
+
+        if (formato == null || formato.equalsIgnoreCase("json")) {
+            List<Transaccion> transacciones = inventarioController.filtrarTransacciones(tipo, fechaInicio, fechaFin);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(salida -> mapper.writeValue(salida, transacciones));
+        }
+
+        ExportadorTransacciones.Formato f;
+        try {
+            f = ExportadorTransacciones.Formato.valueOf(formato.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            byte[] mensaje = ("Formato no soportado: " + formato + " (json, ndjson, csv)").getBytes(StandardCharsets.UTF_8);
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body(salida -> salida.write(mensaje));
+        }
+        boolean desdeBD = "bd".equalsIgnoreCase(origen);
+
+        StreamingResponseBody cuerpo = salida -> ExportadorTransacciones.exportar(f, salida, mapper,
+                inventarioController::buscarProductoPorCodigo, consumidor -> {
+            try {
+                inventarioController.recorrerTransacciones(tipo, inicio, fin, desdeBD, consumidor);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException("Error al generar el reporte: " + e.getMessage(), e);
+            }
+        });
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(f.getTipoContenido()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"reporte-transacciones." + f.getExtension() + "\"")
+                .body(cuerpo);
     }
 }
@@ -0,0 +1,117 @@
+package controlador;
+
+import modelo.Producto;
+import modelo.ProductoPerecedero;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * [ValorizacionInventario.java]
+ * Valor del inventario mantenido de forma incremental (total, por categoría y por proveedor).
+ *
+ * Cada producto aporta precio × stock (0 si es perecedero vencido). Cuando cambia el stock,
+ * el precio, la categoría o el proveedor de un producto, solo se ajusta la diferencia con su
+ * aporte anterior, así consultar el valor total cuesta O(1) en vez de recorrer el catálogo.
+ * Las actualizaciones de un mismo producto deben hacerse bajo su candado (BloqueosPorProducto).
+ */
+public class ValorizacionInventario {
+
+    static final String SIN_CATEGORIA = "sin categoría";
+    static final String SIN_PROVEEDOR = "sin proveedor";
+
+    /** Lo que aporta cada producto a los totales (para poder restarlo después). */
+    private record Aporte(double valor, String categoria, String ruc) {}
+
+    private final Map<String, Aporte> aportes = new ConcurrentHashMap<>();
+    private final DoubleAdder total = new DoubleAdder();
+    private final Map<String, DoubleAdder> porCategoria = new ConcurrentHashMap<>();
+    private final Map<String, DoubleAdder> porProveedor = new ConcurrentHashMap<>();
+
+    /** Alta o recálculo del aporte de un producto. */
+    public void actualizar(Producto p, LocalDate hoy) {
+        if (p == null || p.getCodigo() == null) return;
+
+        Aporte nuevo = new Aporte(
+                valorDe(p, hoy),
+                Objects.requireNonNullElse(IndiceCatalogo.claveCategoria(p.getCategoria()), SIN_CATEGORIA),
+                p.getProveedor() == null || p.getProveedor().getRuc() == null ? SIN_PROVEEDOR : p.getProveedor().getRuc());
+
+        Aporte anterior = aportes.put(p.getCodigo(), nuevo);
+        if (anterior != null && anterior.valor() == nuevo.valor()
+                && Objects.equals(anterior.categoria(), nuevo.categoria())
+                && Objects.equals(anterior.ruc(), nuevo.ruc())) {
+            return;
+        }
+        if (anterior != null) restar(anterior);
+        sumar(nuevo);
+    }
+
+    public void eliminar(String codigo) {
+        if (codigo == null) return;
+        Aporte anterior = aportes.remove(codigo);
+        if (anterior != null) restar(anterior);
+    }
+
+    public void limpiar() {
+        aportes.clear();
+        total.reset();
+        porCategoria.clear();
+        porProveedor.clear();
+    }
+
+    // =========================================================================
+    //  CONSULTAS (O(1) el total; O(categorías/proveedores) los desgloses)
+    // =========================================================================
+    public double getTotal() {
+        return redondear(total.sum());
+    }
+
+    public Map<String, Double> getPorCategoria() {
+        return instantanea(porCategoria);
+    }
+
+    public Map<String, Double> getPorProveedor() {
+        return instantanea(porProveedor);
+    }
+
+    // =========================================================================
+    //  AUXILIARES
+    // =========================================================================
+    /** Precio × stock del producto (0 si es perecedero y ya venció). */
+    static double valorDe(Producto p, LocalDate hoy) {
+        return (p instanceof ProductoPerecedero pp)
+                ? (pp.verificarVencimiento(hoy) ? 0.0 : pp.getPrecioUnitario() * pp.getStockActual())
+                : p.calcularValorInventario();
+    }
+
+    private void sumar(Aporte a) {
+        total.add(a.valor());
+        porCategoria.computeIfAbsent(a.categoria(), k -> new DoubleAdder()).add(a.valor());
+        porProveedor.computeIfAbsent(a.ruc(), k -> new DoubleAdder()).add(a.valor());
+    }
+
+    private void restar(Aporte a) {
+        total.add(-a.valor());
+        porCategoria.computeIfAbsent(a.categoria(), k -> new DoubleAdder()).add(-a.valor());
+        porProveedor.computeIfAbsent(a.ruc(), k -> new DoubleAdder()).add(-a.valor());
+    }
+
+    private static Map<String, Double> instantanea(Map<String, DoubleAdder> acumulados) {
+        Map<String, Double> resultado = new TreeMap<>();
+        acumulados.forEach((clave, valor) -> {
+            double v = redondear(valor.sum());
+            if (v != 0.0) resultado.put(clave, v);
+        });
+        return resultado;
+    }
+
+    /** Las sumas/restas sucesivas en double acumulan error: se presenta a céntimos. */
+    private static double redondear(double valor) {
+        return Math.round(valor * 100.0) / 100.0;
+    }
+}
@@ -14,7 +14,7 @@ public class Producto implements Serializable, IProducto {
     protected String codigo;
     protected String nombre;
     protected double precioUnitario;
-    protected int stockActual;
+    protected volatile int stockActual;   // volatile: lecturas sin bloqueo desde los endpoints
     protected Proveedor proveedor;
 
     // 🔹 Nuevos atributos
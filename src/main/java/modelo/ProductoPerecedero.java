@@ -30,7 +30,12 @@ public class ProductoPerecedero extends Producto implements Serializable {
 
     /** Devuelve true si el producto ya venció */
     public boolean verificarVencimiento() {
-        return fechaVencimiento != null && LocalDate.now().isAfter(fechaVencimiento);
+        return verificarVencimiento(LocalDate.now());
+    }
+
+    /** Variante con la fecha de referencia ya calculada (evita LocalDate.now() por elemento en recorridos) */
+    public boolean verificarVencimiento(LocalDate hoy) {
+        return fechaVencimiento != null && hoy.isAfter(fechaVencimiento);
     }
 
     // Getters y Setters
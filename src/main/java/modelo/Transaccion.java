@@ -1,10 +1,16 @@
 package modelo;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.io.Serializable;
 import java.time.LocalDateTime;
 
 /**
  * Representa una entrada o salida de stock.
+ *
+ * Guarda solo el código del producto, no el objeto: el historial en memoria no retiene un grafo
+ * Producto/Proveedor por transacción. Quien necesite el producto lo busca por código en su
+ * catálogo (el JSON de salida lo agrega ModuloJsonInventario).
  */
 public class Transaccion implements Serializable {
 
@@ -14,12 +20,14 @@ public class Transaccion implements Serializable {
     private TipoTransaccion tipo;             // ENTRADA / SALIDA
     private LocalDateTime fecha;
     private int cantidad;
-    private Producto producto;                // Objeto producto
+    private String codigoProducto;            // Referencia al producto (por código)
     private String razon;                     // Motivo de la transacción
     private String nota;                      // Comentario opcional
     private String usuario;                   // Usuario que registra la transacción
     private String idProveedor;               // Solo si tipo = ENTRADA
     private String idCliente;                 // Solo si tipo = SALIDA
+    @JsonIgnore
+    private String claveMovimiento;           // UUID del diario local (solo hasta confirmarse en la BD)
 
     public Transaccion() {}
 
@@ -29,7 +37,7 @@ public class Transaccion implements Serializable {
         this.tipo = tipo;
         this.fecha = LocalDateTime.now();
         this.cantidad = Math.max(cantidad, 0);
-        this.producto = producto;
+        setProducto(producto);
         this.razon = razon;
         this.nota = nota;
         this.usuario = usuario;
@@ -37,10 +45,9 @@ public class Transaccion implements Serializable {
         this.idCliente = idCliente;
     }
 
-    /** Aplica la entrada o salida de stock */
-    public void aplicarMovimientoStock() {
-        int movimiento = (tipo == TipoTransaccion.SALIDA) ? -cantidad : cantidad;
-        producto.actualizarStock(movimiento);
+    /** Variación de stock que produce la transacción (negativa para salidas) */
+    public int calcularDeltaStock() {
+        return (tipo == TipoTransaccion.SALIDA) ? -cantidad : cantidad;
     }
 
     // Getters
@@ -48,22 +55,29 @@ public class Transaccion implements Serializable {
     public TipoTransaccion getTipo() { return tipo; }
     public LocalDateTime getFecha() { return fecha; }
     public int getCantidad() { return cantidad; }
-    public Producto getProducto() { return producto; }
+    public String getCodigoProducto() { return codigoProducto; }
+
     public String getRazon() { return razon; }
     public String getNota() { return nota; }
     public String getUsuario() { return usuario; }
     public String getIdProveedor() { return idProveedor; }
     public String getIdCliente() { return idCliente; }
+    public String getClaveMovimiento() { return claveMovimiento; }
 
     // Setters
     public void setIdTransaccion(Integer idTransaccion) { this.idTransaccion = idTransaccion; }
     public void setTipo(TipoTransaccion tipo) { this.tipo = tipo; }
     public void setFecha(LocalDateTime fecha) { this.fecha = fecha; }
     public void setCantidad(int cantidad) { this.cantidad = cantidad; }
-    public void setProducto(Producto producto) { this.producto = producto; }
+    public void setCodigoProducto(String codigoProducto) { this.codigoProducto = codigoProducto; }
+
+    /** Solo se conserva el código (el JSON de entrada trae el objeto producto). */
+    public void setProducto(Producto producto) { this.codigoProducto = producto != null ? producto.getCodigo() : null; }
+
     public void setRazon(String razon) { this.razon = razon; }
     public void setNota(String nota) { this.nota = nota; }
     public void setUsuario(String usuario) { this.usuario = usuario; }
     public void setIdProveedor(String idProveedor) { this.idProveedor = idProveedor; }
     public void setIdCliente(String idCliente) { this.idCliente = idCliente; }
+    public void setClaveMovimiento(String claveMovimiento) { this.claveMovimiento = claveMovimiento; }
 }
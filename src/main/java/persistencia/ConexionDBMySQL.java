@@ -3,6 +3,7 @@ package persistencia;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * [ConexionDBMySQL.java]
@@ -22,6 +23,9 @@ public class ConexionDBMySQL implements IConexionDB {
     private final String clave;
 
     private Connection conexion;
+    // Evita abrir dos conexiones cuando varios hilos llaman a conectar() a la vez. ReentrantLock
+    // y no synchronized: la apertura es E/S y con hilos virtuales synchronized fija el portador
+    private final ReentrantLock lock = new ReentrantLock();
 
     /**
      * Constructor principal que recibe todos los parámetros.
@@ -51,25 +55,30 @@ public class ConexionDBMySQL implements IConexionDB {
 
     @Override
     public Connection conectar() throws SQLException {
+        lock.lock();
+        try {
+            // Reutilizar conexión abierta
+            if (conexion != null && !conexion.isClosed()) {
+                return conexion;
+            }
 
-        // Reutilizar conexión abierta
-        if (conexion != null && !conexion.isClosed()) {
-            return conexion;
-        }
+            try {
+                // Cargar driver explícitamente (buena práctica)
+                Class.forName("com.mysql.cj.jdbc.Driver");
+            } catch (ClassNotFoundException e) {
+                System.err.println("❌ No se encontró el driver MySQL: " + e.getMessage());
+            }
 
-        try {
-            // Cargar driver explícitamente (buena práctica)
-            Class.forName("com.mysql.cj.jdbc.Driver");
-        } catch (ClassNotFoundException e) {
-            System.err.println("❌ No se encontró el driver MySQL: " + e.getMessage());
+            conexion = DriverManager.getConnection(url, usuario, clave);
+            return conexion;
+        } finally {
+            lock.unlock();
         }
-
-        conexion = DriverManager.getConnection(url, usuario, clave);
-        return conexion;
     }
 
     @Override
     public void desconectar() {
+        lock.lock();
         try {
             if (conexion != null && !conexion.isClosed()) {
                 conexion.close();
@@ -77,6 +86,8 @@ public class ConexionDBMySQL implements IConexionDB {
             }
         } catch (SQLException e) {
             System.err.println("⚠️ Error al cerrar la conexión: " + e.getMessage());
+        } finally {
+            lock.unlock();
         }
     }
 }
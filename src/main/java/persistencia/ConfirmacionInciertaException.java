@@ -0,0 +1,16 @@
+package persistencia;
+
+import java.sql.SQLException;
+
+/**
+ * [ConfirmacionInciertaException.java]
+ * Falló el commit y no se sabe si llegó a la BD (p. ej. la conexión se cortó mientras se
+ * confirmaba). Reintentar a ciegas podría aplicar dos veces los mismos movimientos: quien la
+ * reciba debe comprobar antes qué quedó en la BD (claves de movimiento) o no reintentar.
+ */
+public class ConfirmacionInciertaException extends SQLException {
+
+    public ConfirmacionInciertaException(SQLException causa) {
+        super("Commit sin confirmar: " + causa.getMessage(), causa.getSQLState(), causa.getErrorCode(), causa);
+    }
+}
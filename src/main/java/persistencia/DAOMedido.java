@@ -0,0 +1,69 @@
+package persistencia;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * [DAOMedido.java]
+ * Decorador que mide cada llamada a un DAO con un Timer de Micrometer.
+ *
+ * Métrica "inventario.dao" con etiquetas dao, metodo y resultado (ok / error). Se aplica sobre
+ * la interfaz (IInventarioDAO, IProveedorDAO), así que los métodos nuevos quedan medidos sin
+ * tocar este archivo. Los métodos que reciben un consumidor (recorrer...) incluyen el tiempo
+ * del consumidor.
+ */
+public final class DAOMedido {
+
+    private DAOMedido() {
+    }
+
+    /**
+     * @param interfaz Interfaz del DAO (el proxy solo expone sus métodos).
+     * @param dao      Implementación real.
+     * @param registro Registro donde se publican los timers.
+     * @param nombre   Valor de la etiqueta "dao" (p. ej. "inventario").
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T medir(Class<T> interfaz, T dao, MeterRegistry registro, String nombre) {
+        Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+        return (T) Proxy.newProxyInstance(interfaz.getClassLoader(), new Class<?>[] {interfaz}, (proxy, metodo, args) -> {
+            if (metodo.getDeclaringClass() == Object.class) return invocar(metodo, dao, args);
+
+            long inicio = System.nanoTime();
+            String resultado = "ok";
+            try {
+                return invocar(metodo, dao, args);
+            } catch (Throwable e) {
+                resultado = "error";
+                throw e;
+            } finally {
+                long duracion = System.nanoTime() - inicio;
+                String fin = resultado;
+                timers.computeIfAbsent(metodo.getName() + '/' + fin, k -> Timer.builder("inventario.dao")
+                                .description("Duración de las llamadas al DAO")
+                                .tag("dao", nombre)
+                                .tag("metodo", metodo.getName())
+                                .tag("resultado", fin)
+                                .register(registro))
+                        .record(duracion, TimeUnit.NANOSECONDS);
+            }
+        });
+    }
+
+    // Propaga la excepción original del DAO (no la InvocationTargetException del reflejo)
+    private static Object invocar(Method metodo, Object dao, Object[] args) throws Throwable {
+        try {
+            return metodo.invoke(dao, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
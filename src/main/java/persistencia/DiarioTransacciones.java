@@ -0,0 +1,442 @@
+package persistencia;
+
+import modelo.TipoTransaccion;
+import modelo.Transaccion;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * [DiarioTransacciones.java]
+ * Diario local de solo anexado (append-only) de los movimientos aplicados en memoria.
+ *
+ * Se usa junto a la escritura diferida: cada movimiento se anota en el diario antes de entrar
+ * en la cola hacia MySQL, y se marca como confirmado (o anulado) cuando el commit termina.
+ * Al reiniciar, los movimientos sin confirmar son los que MySQL aún no tenía: se vuelven a aplicar.
+ * Cada movimiento lleva su clave única (la misma que se guarda en la fila de la BD), así la
+ * recuperación distingue los que sí llegaron a hacer commit aunque faltara su confirmación.
+ *
+ * - Registros: [int longitud][int CRC32][byte tipo][datos]; un registro truncado o con CRC
+ *   inválido marca el final útil del segmento (escritura interrumpida por una caída).
+ * - Segmentos: diario-NNNNNNNNNNNN.log, se rota al superar el tamaño máximo. compactar() borra
+ *   los segmentos que ya no contienen movimientos pendientes.
+ * - Sincronización a disco: SIEMPRE (fsync por registro), PERIODICA (cada N ms) o NUNCA (la del SO).
+ */
+public class DiarioTransacciones {
+
+    public enum PoliticaSincronizacion { SIEMPRE, PERIODICA, NUNCA }
+
+    /** Movimiento leído del diario al arrancar que no llegó a confirmarse en la BD. */
+    public record Movimiento(long secuencia, Transaccion transaccion) {}
+
+    private static final byte MOVIMIENTO = 1;
+    private static final byte CONFIRMACION = 2;
+    private static final byte ANULACION = 3;
+
+    private static final String PREFIJO = "diario-";
+    private static final String EXTENSION = ".log";
+
+    private final Path directorio;
+    private final PoliticaSincronizacion politica;
+    private final long tamanoMaximoSegmento;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition sincronizado = lock.newCondition();
+
+    private FileChannel canal;
+    private long segmentoActual;
+    private long tamanoSegmento;
+    private long ultimaSecuencia;
+    private long secuenciaSincronizada;
+    // Registros de cualquier tipo escritos / forzados a disco (confirmaciones y anulaciones incluidas)
+    private long registrosEscritos;
+    private long registrosSincronizados;
+
+    // Movimientos sin confirmar → segmento que los contiene (para saber qué segmentos pueden borrarse)
+    private final Map<Long, Long> pendientes = new TreeMap<>();
+    private final List<Movimiento> recuperados;
+
+    private final ScheduledExecutorService sincronizador;
+
+    /**
+     * Abre el diario: lee los segmentos existentes (recuperación) y empieza uno nuevo.
+     *
+     * @param directorio                Carpeta de los segmentos (se crea si no existe).
+     * @param politica                  Cuándo forzar los datos a disco.
+     * @param intervaloSincronizacionMs Periodo de fsync con la política PERIODICA.
+     * @param tamanoMaximoSegmento      Bytes a partir de los cuales se rota el segmento.
+     */
+    public DiarioTransacciones(Path directorio, PoliticaSincronizacion politica,
+                               long intervaloSincronizacionMs, long tamanoMaximoSegmento) throws IOException {
+        this.directorio = directorio;
+        this.politica = politica;
+        this.tamanoMaximoSegmento = Math.max(1024, tamanoMaximoSegmento);
+        Files.createDirectories(directorio);
+
+        Map<Long, Movimiento> sinConfirmar = new TreeMap<>();
+        Map<String, Long> secuenciaPorClave = new HashMap<>();
+        List<Long> segmentos = listarSegmentos();
+        for (long segmento : segmentos) {
+            leerSegmento(segmento, sinConfirmar, secuenciaPorClave);
+        }
+        this.recuperados = new ArrayList<>(sinConfirmar.values());
+
+        // Nunca se anexa tras una cola posiblemente truncada: siempre un segmento nuevo
+        this.segmentoActual = segmentos.isEmpty() ? 1 : segmentos.get(segmentos.size() - 1) + 1;
+        abrirSegmento();
+        this.secuenciaSincronizada = ultimaSecuencia;
+
+        if (politica == PoliticaSincronizacion.PERIODICA) {
+            sincronizador = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "diario-sincronizacion");
+                t.setDaemon(true);
+                return t;
+            });
+            long periodo = Math.max(1, intervaloSincronizacionMs);
+            sincronizador.scheduleWithFixedDelay(this::sincronizarSilencioso, periodo, periodo, TimeUnit.MILLISECONDS);
+        } else {
+            sincronizador = null;
+        }
+
+        if (!recuperados.isEmpty()) {
+            System.out.println("⚠ Diario: " + recuperados.size() + " movimiento(s) sin confirmar en la BD");
+        }
+    }
+
+    // =========================================================================
+    //  API
+    // =========================================================================
+
+    /**
+     * Anota un movimiento aplicado en memoria. La transacción debe traer su clave de movimiento.
+     * @return Número de secuencia asignado.
+     */
+    public long registrarMovimiento(Transaccion t) throws IOException {
+        lock.lock();
+        try {
+            long secuencia = ++ultimaSecuencia;
+            escribir(MOVIMIENTO, codificarMovimiento(secuencia, t));
+            pendientes.put(secuencia, segmentoActual);
+            return secuencia;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** El movimiento ya está en la BD con el ID indicado. */
+    public void registrarConfirmacion(long secuencia, int idTransaccion) throws IOException {
+        cerrarMovimiento(CONFIRMACION, secuencia, idTransaccion);
+    }
+
+    /** El movimiento se deshizo en memoria (rechazo de la cola o fallo definitivo en la BD). */
+    public void registrarAnulacion(long secuencia) throws IOException {
+        cerrarMovimiento(ANULACION, secuencia, 0);
+    }
+
+    /**
+     * Espera a que el movimiento esté forzado a disco.
+     *
+     * @return false si no se sincronizó dentro del plazo.
+     */
+    public boolean esperarSincronizacion(long secuencia, long esperaMaximaMs) throws InterruptedException {
+        if (politica == PoliticaSincronizacion.NUNCA) return true;
+
+        lock.lock();
+        try {
+            long restante = TimeUnit.MILLISECONDS.toNanos(esperaMaximaMs);
+            while (secuenciaSincronizada < secuencia) {
+                if (restante <= 0) return false;
+                restante = sincronizado.awaitNanos(restante);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Movimientos sin confirmar encontrados al abrir el diario, en orden de secuencia. */
+    public List<Movimiento> getRecuperados() {
+        return Collections.unmodifiableList(recuperados);
+    }
+
+    /**
+     * Da por tratados estos movimientos recuperados (ya se volvieron a anotar o la BD los rechazó),
+     * así sus segmentos pueden compactarse. Los no incluidos siguen pendientes para el próximo arranque.
+     */
+    public void olvidarRecuperados(Collection<Movimiento> tratados) {
+        lock.lock();
+        try {
+            Set<Long> secuencias = new HashSet<>();
+            tratados.forEach(m -> secuencias.add(m.secuencia()));
+            pendientes.keySet().removeAll(secuencias);
+            recuperados.removeIf(m -> secuencias.contains(m.secuencia()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Borra los segmentos anteriores al más antiguo que aún contiene movimientos pendientes. */
+    public int compactar() {
+        lock.lock();
+        try {
+            long limite = pendientes.values().stream().min(Long::compare).orElse(segmentoActual);
+            int borrados = 0;
+            for (long segmento : listarSegmentos()) {
+                if (segmento >= limite || segmento == segmentoActual) continue;
+                Files.deleteIfExists(rutaSegmento(segmento));
+                borrados++;
+            }
+            return borrados;
+        } catch (IOException e) {
+            System.err.println("⚠ Error compactando el diario: " + e.getMessage());
+            return 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void cerrar() {
+        if (sincronizador != null) sincronizador.shutdownNow();
+        lock.lock();
+        try {
+            if (canal != null && canal.isOpen()) {
+                sincronizar();
+                canal.close();
+            }
+        } catch (IOException e) {
+            System.err.println("⚠ Error al cerrar el diario: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getUltimaSecuencia() {
+        lock.lock();
+        try { return ultimaSecuencia; } finally { lock.unlock(); }
+    }
+
+    public int getPendientes() {
+        lock.lock();
+        try { return pendientes.size(); } finally { lock.unlock(); }
+    }
+
+    public PoliticaSincronizacion getPolitica() { return politica; }
+
+    // =========================================================================
+    //  ESCRITURA
+    // =========================================================================
+    private void cerrarMovimiento(byte tipo, long secuencia, int idTransaccion) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(12);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(secuencia);
+        out.writeInt(idTransaccion);
+
+        lock.lock();
+        try {
+            escribir(tipo, bytes.toByteArray());
+            pendientes.remove(secuencia);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Llamar con el candado tomado. */
+    private void escribir(byte tipo, byte[] datos) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(tipo);
+        crc.update(datos);
+
+        ByteBuffer registro = ByteBuffer.allocate(4 + 4 + 1 + datos.length);
+        registro.putInt(1 + datos.length).putInt((int) crc.getValue()).put(tipo).put(datos).flip();
+        while (registro.hasRemaining()) {
+            canal.write(registro);
+        }
+        tamanoSegmento += registro.limit();
+        registrosEscritos++;
+
+        if (politica == PoliticaSincronizacion.SIEMPRE) sincronizar();
+        if (tamanoSegmento >= tamanoMaximoSegmento) rotar();
+    }
+
+    private void rotar() throws IOException {
+        sincronizar();
+        canal.close();
+        segmentoActual++;
+        abrirSegmento();
+    }
+
+    private void abrirSegmento() throws IOException {
+        canal = FileChannel.open(rutaSegmento(segmentoActual),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        tamanoSegmento = canal.size();
+    }
+
+    /** Llamar con el candado tomado. */
+    private void sincronizar() throws IOException {
+        if (registrosSincronizados == registrosEscritos) return;
+        canal.force(false);
+        registrosSincronizados = registrosEscritos;
+        secuenciaSincronizada = ultimaSecuencia;
+        sincronizado.signalAll();
+    }
+
+    private void sincronizarSilencioso() {
+        lock.lock();
+        try {
+            sincronizar();
+        } catch (IOException e) {
+            System.err.println("⚠ Error sincronizando el diario: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static byte[] codificarMovimiento(long secuencia, Transaccion t) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(secuencia);
+        out.writeUTF(t.getClaveMovimiento());
+        out.writeUTF(t.getCodigoProducto());
+        out.writeUTF(t.getTipo().name());
+        out.writeInt(t.getCantidad());
+        out.writeLong(t.getFecha().toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(t.getFecha().getNano());
+        escribirOpcional(out, t.getRazon());
+        escribirOpcional(out, t.getNota());
+        escribirOpcional(out, t.getUsuario());
+        escribirOpcional(out, t.getIdProveedor());
+        escribirOpcional(out, t.getIdCliente());
+        return bytes.toByteArray();
+    }
+
+    private static void escribirOpcional(DataOutputStream out, String valor) throws IOException {
+        out.writeBoolean(valor != null);
+        if (valor != null) out.writeUTF(valor);
+    }
+
+    // =========================================================================
+    //  LECTURA (RECUPERACIÓN)
+    // =========================================================================
+    private void leerSegmento(long segmento, Map<Long, Movimiento> sinConfirmar,
+                              Map<String, Long> secuenciaPorClave) throws IOException {
+        try (InputStream archivo = Files.newInputStream(rutaSegmento(segmento));
+             DataInputStream in = new DataInputStream(new BufferedInputStream(archivo, 64 * 1024))) {
+            while (true) {
+                int longitud;
+                try {
+                    longitud = in.readInt();
+                } catch (EOFException fin) {
+                    return;
+                }
+                int crcEsperado = in.readInt();
+                if (longitud <= 0 || longitud > 1 << 20) return;
+
+                byte[] registro = new byte[longitud];
+                try {
+                    in.readFully(registro);
+                } catch (EOFException truncado) {
+                    System.err.println("⚠ Diario: registro truncado al final de " + rutaSegmento(segmento).getFileName());
+                    return;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(registro);
+                if ((int) crc.getValue() != crcEsperado) {
+                    System.err.println("⚠ Diario: CRC inválido en " + rutaSegmento(segmento).getFileName() + ", se ignora el resto");
+                    return;
+                }
+                aplicarRegistro(registro, segmento, sinConfirmar, secuenciaPorClave);
+            }
+        }
+    }
+
+    private void aplicarRegistro(byte[] registro, long segmento, Map<Long, Movimiento> sinConfirmar,
+                                 Map<String, Long> secuenciaPorClave) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(registro, 1, registro.length - 1));
+        long secuencia = in.readLong();
+        ultimaSecuencia = Math.max(ultimaSecuencia, secuencia);
+
+        if (registro[0] != MOVIMIENTO) {
+            sinConfirmar.remove(secuencia);
+            pendientes.remove(secuencia);
+            return;
+        }
+
+        Transaccion t = new Transaccion();
+        t.setClaveMovimiento(in.readUTF());
+        t.setCodigoProducto(in.readUTF());
+        t.setTipo(TipoTransaccion.valueOf(in.readUTF()));
+        t.setCantidad(in.readInt());
+        long segundos = in.readLong();
+        t.setFecha(LocalDateTime.ofEpochSecond(segundos, in.readInt(), ZoneOffset.UTC));
+        t.setRazon(leerOpcional(in));
+        t.setNota(leerOpcional(in));
+        t.setUsuario(leerOpcional(in));
+        t.setIdProveedor(leerOpcional(in));
+        t.setIdCliente(leerOpcional(in));
+        // Un movimiento reaplicado en un arranque anterior se anota de nuevo con la misma clave:
+        // la anotación nueva reemplaza a la vieja (y su confirmación o anulación las resuelve a ambas)
+        Long anterior = secuenciaPorClave.put(t.getClaveMovimiento(), secuencia);
+        if (anterior != null) {
+            sinConfirmar.remove(anterior);
+            pendientes.remove(anterior);
+        }
+        sinConfirmar.put(secuencia, new Movimiento(secuencia, t));
+        pendientes.put(secuencia, segmento);
+    }
+
+    private static String leerOpcional(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    // =========================================================================
+    //  AUXILIARES
+    // =========================================================================
+    private List<Long> listarSegmentos() throws IOException {
+        TreeSet<Long> numeros = new TreeSet<>();
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio, PREFIJO + "*" + EXTENSION)) {
+            for (Path archivo : archivos) {
+                String nombre = archivo.getFileName().toString();
+                try {
+                    numeros.add(Long.parseLong(nombre.substring(PREFIJO.length(), nombre.length() - EXTENSION.length())));
+                } catch (NumberFormatException ignorado) {
+                    // archivo ajeno al diario
+                }
+            }
+        }
+        return new ArrayList<>(numeros);
+    }
+
+    private Path rutaSegmento(long segmento) {
+        return directorio.resolve(String.format("%s%012d%s", PREFIJO, segmento, EXTENSION));
+    }
+}
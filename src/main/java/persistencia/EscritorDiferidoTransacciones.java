@@ -0,0 +1,518 @@
+package persistencia;
+
+import modelo.Transaccion;
+
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * [EscritorDiferidoTransacciones.java]
+ * Persistencia diferida (write-behind) con commit agrupado.
+ *
+ * Las transacciones ya validadas y aplicadas en memoria se encolan en una cola acotada.
+ * Un hilo escritor vacía la cola en grupos (por tamaño o por ventana de tiempo) y persiste
+ * cada grupo en una sola transacción de BD mediante IInventarioDAO.guardarTransaccionesLote.
+ *
+ * - Contrapresión: cada elemento ocupa una plaza de la cola, que se reserva con reservarPlaza()
+ *   antes de tomar candados (si no hay, espera hasta 'esperaEncolarMs' y luego rechaza). encolar()
+ *   consume la plaza sin bloquear, así el productor nunca espera al escritor con un candado que
+ *   el oyente de fallo (hilo escritor) necesita.
+ * - Confirmación: cada elemento devuelve un CompletableFuture que se completa cuando su grupo
+ *   hace commit; el llamador decide si esperarlo (durabilidad) o no (latencia).
+ * - Reintentos: un error transitorio (conexión, pool agotado, interbloqueo, tiempo de espera) no
+ *   revierte nada; el grupo se reintenta con espera creciente y, mientras tanto, la cola acotada
+ *   frena a los productores. Con diario activo, antes de reintentar se consultan las claves de
+ *   movimiento del grupo y lo que ya llegó a la BD se confirma en vez de reaplicarse. Solo un
+ *   rechazo definitivo (stock insuficiente, producto inexistente, dato inválido) se aísla por
+ *   línea y se notifica como fallo.
+ * - Cierre ordenado: cerrar() deja de aceptar elementos y vacía la cola antes de terminar. Lo que
+ *   al cerrar sigue sin poder persistirse se entrega como abandonado, sin revertir.
+ * - Barrera por producto: cuenta los movimientos de cada producto que siguen en vuelo (encolados y
+ *   aún sin notificar al oyente). Quien escriba en la BD por fuera de la cola (lotes, stock absoluto)
+ *   espera a que sus productos queden en cero para no cruzarse con deltas pendientes.
+ */
+public class EscritorDiferidoTransacciones {
+
+    /** Notificaciones del escritor hacia el dueño del estado en memoria. */
+    public interface OyenteEscritura {
+        /** El grupo se confirmó en la BD; las transacciones ya tienen su ID. */
+        void alConfirmar(List<Transaccion> confirmadas);
+
+        /** La BD rechazó la transacción de forma definitiva; el estado en memoria debe revertirse. */
+        void alFallar(Transaccion transaccion, String motivo);
+
+        /**
+         * El escritor no pudo confirmar estas transacciones: se cerró entre errores transitorios, o
+         * el commit quedó incierto y sin claves de movimiento no se puede reintentar sin duplicar.
+         * No fueron rechazadas: la memoria no se revierte y quien las tenga anotadas (diario)
+         * debe conservarlas para reaplicarlas.
+         */
+        void alAbandonar(List<Transaccion> pendientes, String motivo);
+    }
+
+    private static final long ESPERA_REINTENTO_INICIAL_MS = 100;
+    private static final long ESPERA_REINTENTO_MAXIMA_MS = 5_000;
+    private static final int REINTENTOS_AL_CERRAR = 3;
+
+    private final IInventarioDAO inventarioDAO;
+    private final OyenteEscritura oyente;
+    private final BlockingQueue<Pendiente> cola;
+    // Plazas libres de la cola: se toman al reservar y se devuelven cuando el escritor saca el elemento
+    private final Semaphore plazas;
+    private final int tamanoGrupo;
+    private final long ventanaMs;
+    private final long esperaEncolarMs;
+
+    private final Thread hiloEscritor;
+    private volatile boolean aceptando = true;
+    // encolar() comprueba 'aceptando' y encola bajo la lectura; cerrar() cambia el indicador bajo la
+    // escritura, así ningún elemento entra a la cola después de que el escritor la vació por última vez
+    private final ReentrantReadWriteLock candadoAdmision = new ReentrantReadWriteLock();
+
+    // Barrera por producto: movimientos en vuelo de cada código
+    private final Map<String, Integer> enVueloPorProducto = new ConcurrentHashMap<>();
+    private final ReentrantLock candadoBarrera = new ReentrantLock();
+    private final Condition productoSinPendientes = candadoBarrera.newCondition();
+
+    // Estadísticas
+    private final AtomicLong gruposConfirmados = new AtomicLong();
+    private final AtomicLong transaccionesConfirmadas = new AtomicLong();
+    private final AtomicLong transaccionesFallidas = new AtomicLong();
+    private final AtomicLong rechazadasPorCapacidad = new AtomicLong();
+    private final AtomicLong reintentos = new AtomicLong();
+    private final AtomicLong transaccionesAbandonadas = new AtomicLong();
+
+    /**
+     * @param inventarioDAO   DAO usado para persistir cada grupo.
+     * @param oyente          Recibe confirmaciones y fallos.
+     * @param capacidadCola   Máximo de transacciones pendientes en memoria.
+     * @param tamanoGrupo     Máximo de transacciones por commit.
+     * @param ventanaMs       Tiempo máximo que espera un grupo incompleto antes de persistirse.
+     * @param esperaEncolarMs Tiempo máximo de espera cuando la cola está llena.
+     */
+    public EscritorDiferidoTransacciones(IInventarioDAO inventarioDAO, OyenteEscritura oyente,
+                                         int capacidadCola, int tamanoGrupo,
+                                         long ventanaMs, long esperaEncolarMs) {
+        this.inventarioDAO = inventarioDAO;
+        this.oyente = oyente;
+        this.cola = new ArrayBlockingQueue<>(capacidadCola);
+        this.plazas = new Semaphore(capacidadCola);
+        this.tamanoGrupo = Math.max(1, tamanoGrupo);
+        this.ventanaMs = Math.max(0, ventanaMs);
+        this.esperaEncolarMs = Math.max(0, esperaEncolarMs);
+
+        this.hiloEscritor = new Thread(this::bucleEscritura, "escritor-diferido-transacciones");
+        this.hiloEscritor.setDaemon(false);   // no perder la cola si la JVM termina sin cerrar()
+        this.hiloEscritor.start();
+    }
+
+    // =========================================================================
+    //  API
+    // =========================================================================
+
+    /**
+     * Reserva una plaza en la cola para un encolar() posterior. Puede esperar hasta 'esperaEncolarMs',
+     * así que debe llamarse sin candados de productos tomados. Si la plaza no llega a usarse hay que
+     * devolverla con liberarPlaza().
+     *
+     * @throws RejectedExecutionException Si la cola sigue llena tras la espera, o el escritor está cerrado.
+     */
+    public void reservarPlaza() {
+        if (!aceptando) throw new RejectedExecutionException("El escritor diferido está cerrado");
+        boolean reservada;
+        try {
+            reservada = plazas.tryAcquire(esperaEncolarMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrumpido esperando espacio en la cola", e);
+        }
+        if (!reservada) {
+            rechazadasPorCapacidad.incrementAndGet();
+            throw new RejectedExecutionException("Cola de escritura llena (" + cola.size() + " pendientes)");
+        }
+    }
+
+    /** Devuelve una plaza reservada que no se usó (el movimiento no llegó a encolarse). */
+    public void liberarPlaza() {
+        plazas.release();
+    }
+
+    /**
+     * Encola una transacción ya aplicada en memoria, usando una plaza reservada antes con
+     * reservarPlaza(). No bloquea. Si se rechaza, la plaza se libera.
+     *
+     * @return Future que se completa con la transacción (con ID) al confirmarse en la BD,
+     *         o excepcionalmente si no pudo persistirse.
+     * @throws RejectedExecutionException Si el escritor está cerrado.
+     */
+    public CompletableFuture<Transaccion> encolar(Transaccion transaccion) {
+        Pendiente p = new Pendiente(transaccion);
+        candadoAdmision.readLock().lock();
+        try {
+            if (!aceptando) {
+                plazas.release();
+                throw new RejectedExecutionException("El escritor diferido está cerrado");
+            }
+
+            // Se cuenta antes de encolar: el hilo escritor puede terminarlo antes de que offer() regrese.
+            // Con la plaza reservada hay sitio: la cola nunca tiene más elementos que plazas tomadas
+            marcarEnVuelo(transaccion);
+            cola.add(p);
+        } finally {
+            candadoAdmision.readLock().unlock();
+        }
+        return p.confirmacion;
+    }
+
+    /** true si algún movimiento de estos productos sigue en cola o sin notificar al oyente. */
+    public boolean tienePendientes(Collection<String> codigos) {
+        for (String codigo : codigos) {
+            if (enVueloPorProducto.containsKey(codigo)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Espera a que ningún movimiento de estos productos siga en vuelo. No debe llamarse con los
+     * candados de esos productos tomados: el oyente de fallo los necesita para revertir.
+     *
+     * @return false si venció la espera con movimientos aún pendientes.
+     */
+    public boolean esperarSinPendientes(Collection<String> codigos, long esperaMs) throws InterruptedException {
+        long restante = TimeUnit.MILLISECONDS.toNanos(esperaMs);
+        candadoBarrera.lock();
+        try {
+            while (tienePendientes(codigos)) {
+                if (restante <= 0) return false;
+                restante = productoSinPendientes.awaitNanos(restante);
+            }
+            return true;
+        } finally {
+            candadoBarrera.unlock();
+        }
+    }
+
+    /**
+     * Deja de aceptar transacciones, persiste lo pendiente y detiene el hilo escritor.
+     *
+     * @param esperaMaximaMs Tiempo máximo para vaciar la cola.
+     */
+    public void cerrar(long esperaMaximaMs) {
+        // Sin interrupt(): interrumpir al escritor abortaría la espera de conexión del commit en curso
+        dejarDeAceptar();
+        try {
+            hiloEscritor.join(esperaMaximaMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (hiloEscritor.isAlive()) {
+            System.err.println("⚠ El escritor diferido no terminó de vaciar la cola. Pendientes: " + cola.size());
+        } else {
+            System.out.println("✔ Escritor diferido cerrado. Confirmadas: " + transaccionesConfirmadas.get());
+        }
+    }
+
+    public int getPendientes() { return cola.size(); }
+    public int getCapacidadRestante() { return cola.remainingCapacity(); }
+    public long getGruposConfirmados() { return gruposConfirmados.get(); }
+    public long getTransaccionesConfirmadas() { return transaccionesConfirmadas.get(); }
+    public long getTransaccionesFallidas() { return transaccionesFallidas.get(); }
+    public long getRechazadasPorCapacidad() { return rechazadasPorCapacidad.get(); }
+    public long getReintentos() { return reintentos.get(); }
+    public long getTransaccionesAbandonadas() { return transaccionesAbandonadas.get(); }
+
+    // Espera a que terminen los encolar() en curso; los siguientes ven el escritor cerrado
+    private void dejarDeAceptar() {
+        candadoAdmision.writeLock().lock();
+        try {
+            aceptando = false;
+        } finally {
+            candadoAdmision.writeLock().unlock();
+        }
+    }
+
+    // =========================================================================
+    //  HILO ESCRITOR
+    // =========================================================================
+    private void bucleEscritura() {
+        List<Pendiente> grupo = new ArrayList<>(tamanoGrupo);
+
+        while (aceptando || !cola.isEmpty()) {
+            try {
+                Pendiente primero = cola.poll(100, TimeUnit.MILLISECONDS);
+                if (primero == null) continue;
+                grupo.add(primero);
+                plazas.release();
+
+                // Completar el grupo hasta el tamaño máximo o el fin de la ventana
+                long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ventanaMs);
+                while (grupo.size() < tamanoGrupo) {
+                    int drenados = cola.drainTo(grupo, tamanoGrupo - grupo.size());
+                    if (drenados > 0) {
+                        plazas.release(drenados);
+                        continue;
+                    }
+                    long restante = limite - System.nanoTime();
+                    if (restante <= 0) break;
+                    Pendiente siguiente = cola.poll(restante, TimeUnit.NANOSECONDS);
+                    if (siguiente == null) break;
+                    grupo.add(siguiente);
+                    plazas.release();
+                }
+            } catch (InterruptedException e) {
+                // Interrupción externa = cierre: persistir lo agrupado y seguir hasta vaciar la cola
+                dejarDeAceptar();
+            }
+
+            if (!grupo.isEmpty()) {
+                persistirGrupo(grupo);
+                grupo.clear();
+            }
+        }
+
+    }
+
+    /**
+     * Persiste el grupo. Ante un error transitorio reintenta con espera creciente (sin límite
+     * mientras se aceptan elementos; al cerrar, unos pocos intentos y luego se abandona).
+     * Antes de cada reintento de un grupo con claves de movimiento se consulta cuáles ya están en
+     * la BD (un commit pudo llegar aunque su respuesta se perdiera): esas se confirman con su ID y
+     * solo se reintenta el resto. Sin claves no hay forma de saberlo, así que un commit incierto
+     * se abandona en vez de reintentarse (reintentar aplicaría dos veces el movimiento).
+     * Ante un rechazo definitivo el grupo ya se revirtió entero en la BD: se aíslan las líneas
+     * culpables persistiendo de una en una.
+     */
+    private void persistirGrupo(List<Pendiente> grupo) {
+        String rechazo;
+        long esperaMs = ESPERA_REINTENTO_INICIAL_MS;
+        int intentosAlCerrar = 0;
+        boolean verificar = false;   // un intento anterior pudo confirmarse sin que lo supiéramos
+        boolean nadaEnBD = false;    // la última verificación no encontró ninguna del grupo en la BD
+        while (true) {
+            boolean verificando = verificar;
+            try {
+                if (verificar) {
+                    int antes = grupo.size();
+                    grupo = confirmarYaPersistidas(grupo);
+                    if (grupo.isEmpty()) return;
+                    verificar = verificando = false;
+                    nadaEnBD = grupo.size() == antes;
+                }
+                List<Transaccion> transacciones = transaccionesDe(grupo);
+                Map<String, ResultadoMovimientoStock> resultados = inventarioDAO.guardarTransaccionesLote(transacciones);
+                rechazo = primerRechazo(resultados);
+                if (rechazo == null) {
+                    confirmar(grupo, transacciones);
+                    return;
+                }
+                break;
+            } catch (Exception e) {
+                boolean conClaves = tieneClaves(grupo);
+                // Un fallo de la propia consulta de claves siempre es transitorio: se vuelve a consultar
+                if (!verificando && esRechazoDefinitivo(e)) {
+                    // La violación puede ser la unicidad de clave_movimiento de un intento anterior que
+                    // sí se confirmó: solo es rechazo si la BD no tiene ninguna de las claves del grupo
+                    if (conClaves && !nadaEnBD) {
+                        verificar = true;
+                        continue;
+                    }
+                    rechazo = e.getMessage();
+                    break;
+                }
+                if (!verificando && !conClaves && esConfirmacionIncierta(e)) {
+                    abandonar(grupo, "Commit incierto, no se reintenta para no duplicar movimientos: " + e.getMessage());
+                    return;
+                }
+                verificar = conClaves;
+                nadaEnBD = false;
+                if (!aceptando && ++intentosAlCerrar > REINTENTOS_AL_CERRAR) {
+                    abandonar(grupo, "Sin persistir al cerrar el escritor diferido: " + e.getMessage());
+                    return;
+                }
+                reintentos.incrementAndGet();
+                if (!aceptando) esperaMs = ESPERA_REINTENTO_INICIAL_MS;   // al cerrar no se alarga la espera
+                System.err.println("⚠ Falló el commit agrupado (" + grupo.size() + " transacciones), reintento en "
+                        + esperaMs + " ms: " + e.getMessage());
+                try {
+                    Thread.sleep(esperaMs);
+                } catch (InterruptedException ie) {
+                    dejarDeAceptar();   // interrupción = cierre: quedan los intentos de cierre
+                }
+                esperaMs = Math.min(esperaMs * 2, ESPERA_REINTENTO_MAXIMA_MS);
+            }
+        }
+
+        if (grupo.size() > 1) {
+            for (Pendiente p : grupo) {
+                persistirGrupo(List.of(p));
+            }
+            return;
+        }
+        fallar(grupo.get(0), rechazo);
+    }
+
+    /**
+     * Confirma, con el ID que les dio la BD, las transacciones del grupo cuya clave de movimiento
+     * ya está persistida, y devuelve las que faltan.
+     */
+    private List<Pendiente> confirmarYaPersistidas(List<Pendiente> grupo) throws Exception {
+        List<String> claves = new ArrayList<>(grupo.size());
+        grupo.forEach(p -> claves.add(p.transaccion.getClaveMovimiento()));
+        Map<String, Integer> enBD = inventarioDAO.buscarClavesMovimiento(claves);
+        if (enBD.isEmpty()) return grupo;
+
+        List<Pendiente> persistidas = new ArrayList<>(enBD.size());
+        List<Pendiente> faltantes = new ArrayList<>(grupo.size() - enBD.size());
+        for (Pendiente p : grupo) {
+            Integer id = enBD.get(p.transaccion.getClaveMovimiento());
+            if (id == null) {
+                faltantes.add(p);
+            } else {
+                p.transaccion.setIdTransaccion(id);
+                persistidas.add(p);
+            }
+        }
+        System.err.println("⚠ " + persistidas.size() + " transacción(es) ya estaban en la BD tras un commit sin respuesta; se confirman sin reaplicar");
+        confirmar(persistidas, transaccionesDe(persistidas));
+        return faltantes;
+    }
+
+    private static List<Transaccion> transaccionesDe(List<Pendiente> grupo) {
+        List<Transaccion> transacciones = new ArrayList<>(grupo.size());
+        grupo.forEach(p -> transacciones.add(p.transaccion));
+        return transacciones;
+    }
+
+    // Solo con clave de movimiento (diario activo) se puede comprobar qué llegó a la BD
+    private static boolean tieneClaves(List<Pendiente> grupo) {
+        for (Pendiente p : grupo) {
+            if (p.transaccion.getClaveMovimiento() == null) return false;
+        }
+        return true;
+    }
+
+    static boolean esConfirmacionIncierta(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause()) {
+            if (e instanceof ConfirmacionInciertaException) return true;
+        }
+        return false;
+    }
+
+    // Motivo del primer producto que la BD no aceptó (stock insuficiente, inexistente), o null
+    private static String primerRechazo(Map<String, ResultadoMovimientoStock> resultados) {
+        for (Map.Entry<String, ResultadoMovimientoStock> r : resultados.entrySet()) {
+            if (!r.getValue().isAplicado()) return r.getKey() + ": " + r.getValue();
+        }
+        return null;
+    }
+
+    /**
+     * true si repetir el mismo grupo no puede cambiar el resultado: transacción inválida o dato/
+     * restricción rechazados por la BD (SQLSTATE 22 y 23). Todo lo demás (conexión, pool agotado o
+     * cerrado, interbloqueo, tiempo de espera, commit incierto) se trata como transitorio. Una
+     * violación de unicidad con claves de movimiento se verifica en persistirGrupo antes de darla
+     * por rechazo.
+     */
+    static boolean esRechazoDefinitivo(Throwable error) {
+        if (esConfirmacionIncierta(error)) return false;
+        for (Throwable e = error; e != null; e = e.getCause()) {
+            if (e instanceof IllegalArgumentException
+                    || e instanceof SQLDataException
+                    || e instanceof SQLIntegrityConstraintViolationException) {
+                return true;
+            }
+            if (e instanceof SQLException sql && sql.getSQLState() != null
+                    && (sql.getSQLState().startsWith("22") || sql.getSQLState().startsWith("23"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void confirmar(List<Pendiente> grupo, List<Transaccion> transacciones) {
+        gruposConfirmados.incrementAndGet();
+        transaccionesConfirmadas.addAndGet(grupo.size());
+        try {
+            oyente.alConfirmar(transacciones);
+        } catch (RuntimeException e) {
+            System.err.println("⚠ Error en el oyente de confirmación: " + e.getMessage());
+        }
+        transacciones.forEach(this::desmarcarEnVuelo);
+        grupo.forEach(p -> p.confirmacion.complete(p.transaccion));
+    }
+
+    private void fallar(Pendiente p, String rechazo) {
+        transaccionesFallidas.incrementAndGet();
+        String motivo = "La BD rechazó la transacción del producto "
+                + (p.transaccion.getCodigoProducto() != null ? p.transaccion.getCodigoProducto() : "?")
+                + (rechazo != null ? " (" + rechazo + ")" : "");
+        try {
+            oyente.alFallar(p.transaccion, motivo);
+        } catch (RuntimeException e) {
+            System.err.println("⚠ Error en el oyente de fallo: " + e.getMessage());
+        }
+        desmarcarEnVuelo(p.transaccion);
+        p.confirmacion.completeExceptionally(new IllegalStateException(motivo));
+    }
+
+    private void abandonar(List<Pendiente> grupo, String motivo) {
+        List<Transaccion> transacciones = transaccionesDe(grupo);
+        transaccionesAbandonadas.addAndGet(grupo.size());
+        System.err.println("❌ " + grupo.size() + " transacción(es) sin confirmar en la BD: " + motivo);
+        try {
+            oyente.alAbandonar(transacciones, motivo);
+        } catch (RuntimeException e) {
+            System.err.println("⚠ Error en el oyente de abandono: " + e.getMessage());
+        }
+        transacciones.forEach(this::desmarcarEnVuelo);
+        grupo.forEach(p -> p.confirmacion.completeExceptionally(new IllegalStateException(motivo)));
+    }
+
+    // =========================================================================
+    //  BARRERA POR PRODUCTO
+    // =========================================================================
+    private void marcarEnVuelo(Transaccion transaccion) {
+        String codigo = transaccion.getCodigoProducto();
+        if (codigo != null) enVueloPorProducto.merge(codigo, 1, Integer::sum);
+    }
+
+    // Se llama después del oyente: hasta entonces la memoria aún puede cambiar por este movimiento
+    private void desmarcarEnVuelo(Transaccion transaccion) {
+        String codigo = transaccion.getCodigoProducto();
+        if (codigo == null) return;
+        boolean quedoEnCero = enVueloPorProducto.computeIfPresent(codigo, (c, n) -> n > 1 ? n - 1 : null) == null;
+        if (!quedoEnCero) return;
+        candadoBarrera.lock();
+        try {
+            productoSinPendientes.signalAll();
+        } finally {
+            candadoBarrera.unlock();
+        }
+    }
+
+    /** Elemento de la cola: la transacción y su confirmación. */
+    private static final class Pendiente {
+        final Transaccion transaccion;
+        final CompletableFuture<Transaccion> confirmacion = new CompletableFuture<>();
+
+        Pendiente(Transaccion transaccion) {
+            this.transaccion = transaccion;
+        }
+    }
+}
@@ -0,0 +1,438 @@
+package persistencia;
+
+import modelo.TipoTransaccion;
+import modelo.Transaccion;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * [HistorialFueraDeHeap.java]
+ * Transacciones antiguas guardadas fuera del heap, en segmentos de registros de ancho fijo.
+ *
+ * Registro (49 bytes, big-endian):
+ * <pre>
+ *   int id | byte tipo | long segundos | int nanos | int cantidad |
+ *   int producto | int razón | int usuario | int idProveedor | int idCliente | long nota
+ * </pre>
+ * Los textos repetitivos (código, razón, usuario, proveedor, cliente) son ordinales de un
+ * diccionario en el heap (-1 = null): se repiten mucho, así que el diccionario es pequeño frente
+ * al historial. La nota es texto libre, casi siempre distinto: no pasa por el diccionario, se
+ * guarda fuera del heap como int longitud + bytes UTF-8 en segmentos de notas aparte, y el
+ * registro lleva su referencia (nº de segmento en los 32 bits altos, posición en los bajos;
+ * -1 = null, -2 = vacía).
+ *
+ * Los segmentos son ByteBuffer directos (DIRECTO) o archivos mapeados en memoria (MAPEADO, el
+ * SO puede descargarlos a disco). En ambos casos son espacio de trabajo: no sobreviven al
+ * reinicio (la BD y la instantánea siguen siendo la fuente del historial).
+ *
+ * Las filas se agregan en orden de ID (el más antiguo sale primero de la ventana en memoria);
+ * mientras ese orden se mantenga, la búsqueda por ID y por rango de fechas es binaria.
+ * Las lecturas devuelven objetos Transaccion nuevos, de vida corta.
+ */
+public class HistorialFueraDeHeap {
+
+    public enum Almacen {
+        DIRECTO, MAPEADO
+    }
+
+    private static final int TAM_REGISTRO = 4 + 1 + 8 + 4 + 4 + 5 * 4 + 8;
+    private static final int NULO = -1;
+    private static final byte SIN_TIPO = -1;
+    private static final String PREFIJO_SEGMENTO = "historial-";
+    private static final String PREFIJO_NOTAS = PREFIJO_SEGMENTO + "notas-";
+    private static final int TAM_SEGMENTO_NOTAS = 8 * 1024 * 1024;
+    private static final long NOTA_NULA = -1;
+    private static final long NOTA_VACIA = -2;
+
+    private final Almacen almacen;
+    private final Path directorio;
+    private final int filasPorSegmento;
+
+    private final ReentrantReadWriteLock candado = new ReentrantReadWriteLock();
+    private final List<ByteBuffer> segmentos = new ArrayList<>();
+    private final Map<String, Integer> ordinales = new HashMap<>();
+    private final List<String> textos = new ArrayList<>();
+    private final List<ByteBuffer> segmentosNotas = new ArrayList<>();
+    private int usadoNotas;   // bytes ocupados del último segmento de notas
+    private int filas;
+    private int ultimoId = Integer.MIN_VALUE;
+    private boolean ordenadoPorId = true;
+    private boolean ordenadoPorFecha = true;
+    private long ultimoSegundos = Long.MIN_VALUE;
+    private int ultimoNanos;
+
+    /**
+     * @param directorio       Carpeta de los segmentos mapeados (solo MAPEADO; se vacía al abrir).
+     * @param filasPorSegmento Registros por segmento (1M ≈ 49 MB; las notas van aparte).
+     */
+    public HistorialFueraDeHeap(Almacen almacen, Path directorio, int filasPorSegmento) throws IOException {
+        this.almacen = almacen;
+        this.directorio = directorio;
+        this.filasPorSegmento = Math.max(1024, filasPorSegmento);
+        if (almacen == Almacen.MAPEADO) {
+            Files.createDirectories(directorio);
+            borrarSegmentos();
+        }
+    }
+
+    // =========================================================================
+    //  ESCRITURA
+    // =========================================================================
+    public void agregar(Transaccion t) throws IOException {
+        if (t == null || t.getIdTransaccion() == null || t.getFecha() == null) return;
+
+        candado.writeLock().lock();
+        try {
+            // La nota primero: si falla no queda un segmento de filas vacío que desplace segmentoDe()
+            long nota = guardarNota(t.getNota());
+            int enSegmento = filas % filasPorSegmento;
+            if (enSegmento == 0) {
+                segmentos.add(nuevoSegmento(PREFIJO_SEGMENTO, segmentos.size(), (long) filasPorSegmento * TAM_REGISTRO));
+            }
+            ByteBuffer seg = segmentos.get(segmentos.size() - 1);
+            int pos = enSegmento * TAM_REGISTRO;
+
+            int id = t.getIdTransaccion();
+            long segundos = t.getFecha().toEpochSecond(ZoneOffset.UTC);
+            int nanos = t.getFecha().getNano();
+            if (filas > 0 && id < ultimoId) ordenadoPorId = false;
+            if (filas > 0 && comparar(segundos, nanos, ultimoSegundos, ultimoNanos) < 0) ordenadoPorFecha = false;
+
+            seg.putInt(pos, id);
+            seg.put(pos + 4, t.getTipo() != null ? (byte) t.getTipo().ordinal() : SIN_TIPO);
+            seg.putLong(pos + 5, segundos);
+            seg.putInt(pos + 13, nanos);
+            seg.putInt(pos + 17, t.getCantidad());
+            seg.putInt(pos + 21, ordinal(t.getCodigoProducto()));
+            seg.putInt(pos + 25, ordinal(t.getRazon()));
+            seg.putInt(pos + 29, ordinal(t.getUsuario()));
+            seg.putInt(pos + 33, ordinal(t.getIdProveedor()));
+            seg.putInt(pos + 37, ordinal(t.getIdCliente()));
+            seg.putLong(pos + 41, nota);
+
+            filas++;
+            ultimoId = Math.max(ultimoId, id);
+            ultimoSegundos = segundos;
+            ultimoNanos = nanos;
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    /** Libera los segmentos (y borra los archivos mapeados). */
+    public void cerrar() {
+        limpiar();
+    }
+
+    /** Vacía el historial; se puede seguir agregando (p.ej. al descartar una carga a medias). */
+    public void limpiar() {
+        candado.writeLock().lock();
+        try {
+            segmentos.clear();
+            segmentosNotas.clear();
+            usadoNotas = 0;
+            ordinales.clear();
+            textos.clear();
+            filas = 0;
+            ultimoId = Integer.MIN_VALUE;
+            ordenadoPorId = true;
+            ordenadoPorFecha = true;
+            if (almacen == Almacen.MAPEADO) borrarSegmentos();
+        } catch (IOException e) {
+            System.err.println("⚠ No se pudieron borrar los segmentos del historial: " + e.getMessage());
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    // =========================================================================
+    //  LECTURA
+    // =========================================================================
+    public Transaccion buscar(int id) {
+        candado.readLock().lock();
+        try {
+            if (filas == 0) return null;
+            if (ordenadoPorId) {
+                int bajo = 0, alto = filas;
+                while (bajo < alto) {
+                    int medio = (bajo + alto) >>> 1;
+                    if (idDe(medio) < id) bajo = medio + 1; else alto = medio;
+                }
+                return bajo < filas && idDe(bajo) == id ? leer(bajo) : null;
+            }
+            for (int i = 0; i < filas; i++) {
+                if (idDe(i) == id) return leer(i);
+            }
+            return null;
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    /**
+     * Entrega las transacciones del tipo y rango [desde, hasta] (null = sin límite).
+     * Con las filas en orden de fecha, el tramo se localiza por búsqueda binaria.
+     */
+    public void recorrer(TipoTransaccion tipo, LocalDateTime desde, LocalDateTime hasta, Consumer<Transaccion> consumidor) {
+        candado.readLock().lock();
+        try {
+            int inicio = 0, fin = filas;
+            if (ordenadoPorFecha) {
+                if (desde != null) inicio = primeraFilaDesde(desde.toEpochSecond(ZoneOffset.UTC), desde.getNano(), false);
+                if (hasta != null) fin = primeraFilaDesde(hasta.toEpochSecond(ZoneOffset.UTC), hasta.getNano(), true);
+            }
+            for (int i = inicio; i < fin; i++) {
+                if (tipo != null && tipoDe(i) != tipo.ordinal()) continue;
+                if (!ordenadoPorFecha && !dentroDeRango(i, desde, hasta)) continue;
+                consumidor.accept(leer(i));
+            }
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    /** Como máximo "limite" transacciones con ID mayor que despuesDeId (null = desde el principio), por ID. */
+    public List<Transaccion> posteriores(Integer despuesDeId, int limite) {
+        candado.readLock().lock();
+        try {
+            List<Transaccion> resultado = new ArrayList<>(Math.min(limite, 64));
+            if (!ordenadoPorId) {
+                // Caso raro (ID fuera de orden): se ordena una copia de los IDs que califican
+                List<int[]> candidatos = new ArrayList<>();
+                for (int i = 0; i < filas; i++) {
+                    if (despuesDeId == null || idDe(i) > despuesDeId) candidatos.add(new int[] {idDe(i), i});
+                }
+                candidatos.sort((a, b) -> Integer.compare(a[0], b[0]));
+                for (int k = 0; k < candidatos.size() && resultado.size() < limite; k++) {
+                    resultado.add(leer(candidatos.get(k)[1]));
+                }
+                return resultado;
+            }
+
+            int bajo = 0, alto = filas;
+            if (despuesDeId != null) {
+                while (bajo < alto) {
+                    int medio = (bajo + alto) >>> 1;
+                    if (idDe(medio) <= despuesDeId) bajo = medio + 1; else alto = medio;
+                }
+            }
+            for (int i = bajo; i < filas && resultado.size() < limite; i++) {
+                resultado.add(leer(i));
+            }
+            return resultado;
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    /** Como máximo "limite" transacciones con ID menor que antesDeId (null = desde el final), de la más reciente a la más antigua. */
+    public List<Transaccion> anteriores(Integer antesDeId, int limite) {
+        candado.readLock().lock();
+        try {
+            List<Transaccion> resultado = new ArrayList<>(Math.min(limite, 64));
+            if (!ordenadoPorId) {
+                List<int[]> candidatos = new ArrayList<>();
+                for (int i = 0; i < filas; i++) {
+                    if (antesDeId == null || idDe(i) < antesDeId) candidatos.add(new int[] {idDe(i), i});
+                }
+                candidatos.sort((a, b) -> Integer.compare(b[0], a[0]));
+                for (int k = 0; k < candidatos.size() && resultado.size() < limite; k++) {
+                    resultado.add(leer(candidatos.get(k)[1]));
+                }
+                return resultado;
+            }
+
+            int bajo = 0, alto = filas;
+            if (antesDeId != null) {
+                while (bajo < alto) {
+                    int medio = (bajo + alto) >>> 1;
+                    if (idDe(medio) < antesDeId) bajo = medio + 1; else alto = medio;
+                }
+            }
+            for (int i = (antesDeId == null ? filas : bajo) - 1; i >= 0 && resultado.size() < limite; i--) {
+                resultado.add(leer(i));
+            }
+            return resultado;
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    public int tamano() {
+        candado.readLock().lock();
+        try {
+            return filas;
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    /** ID más alto archivado (Integer.MIN_VALUE si está vacío). */
+    public int getUltimoId() {
+        candado.readLock().lock();
+        try {
+            return ultimoId;
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    /** Bytes reservados fuera del heap. */
+    public long tamanoEnBytes() {
+        candado.readLock().lock();
+        try {
+            long notas = 0;
+            for (ByteBuffer seg : segmentosNotas) notas += seg.capacity();
+            return (long) segmentos.size() * filasPorSegmento * TAM_REGISTRO + notas;
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    public Almacen getAlmacen() {
+        return almacen;
+    }
+
+    // =========================================================================
+    //  AUXILIARES
+    // =========================================================================
+    private ByteBuffer nuevoSegmento(String prefijo, int numero, long tamano) throws IOException {
+        if (almacen == Almacen.DIRECTO) return ByteBuffer.allocateDirect((int) tamano);
+
+        Path archivo = directorio.resolve(String.format("%s%06d.seg", prefijo, numero));
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // El mapeo sigue siendo válido después de cerrar el canal
+            return canal.map(FileChannel.MapMode.READ_WRITE, 0, tamano);
+        }
+    }
+
+    private void borrarSegmentos() throws IOException {
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio, PREFIJO_SEGMENTO + "*.seg")) {
+            for (Path archivo : archivos) Files.deleteIfExists(archivo);
+        }
+    }
+
+    private int ordinal(String valor) {
+        if (valor == null) return NULO;
+        Integer o = ordinales.get(valor);
+        if (o == null) {
+            o = textos.size();
+            ordinales.put(valor, o);
+            textos.add(valor);
+        }
+        return o;
+    }
+
+    private String texto(int ordinal) {
+        return ordinal == NULO ? null : textos.get(ordinal);
+    }
+
+    /** Copia la nota al final del último segmento de notas (o a uno nuevo) y devuelve su referencia. */
+    private long guardarNota(String nota) throws IOException {
+        if (nota == null) return NOTA_NULA;
+        if (nota.isEmpty()) return NOTA_VACIA;
+
+        byte[] bytes = nota.getBytes(StandardCharsets.UTF_8);
+        int necesario = 4 + bytes.length;
+        if (segmentosNotas.isEmpty() || TAM_SEGMENTO_NOTAS - usadoNotas < necesario) {
+            segmentosNotas.add(nuevoSegmento(PREFIJO_NOTAS, segmentosNotas.size(),
+                    Math.max(TAM_SEGMENTO_NOTAS, necesario)));
+            usadoNotas = 0;
+        }
+        ByteBuffer seg = segmentosNotas.get(segmentosNotas.size() - 1);
+        long referencia = ((long) (segmentosNotas.size() - 1) << 32) | usadoNotas;
+        seg.putInt(usadoNotas, bytes.length);
+        seg.put(usadoNotas + 4, bytes);
+        usadoNotas += necesario;
+        return referencia;
+    }
+
+    private String leerNota(long referencia) {
+        if (referencia == NOTA_NULA) return null;
+        if (referencia == NOTA_VACIA) return "";
+
+        ByteBuffer seg = segmentosNotas.get((int) (referencia >>> 32));
+        int pos = (int) referencia;
+        byte[] bytes = new byte[seg.getInt(pos)];
+        seg.get(pos + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private ByteBuffer segmentoDe(int fila) {
+        return segmentos.get(fila / filasPorSegmento);
+    }
+
+    private int posicionDe(int fila) {
+        return (fila % filasPorSegmento) * TAM_REGISTRO;
+    }
+
+    private int idDe(int fila) {
+        return segmentoDe(fila).getInt(posicionDe(fila));
+    }
+
+    private int tipoDe(int fila) {
+        return segmentoDe(fila).get(posicionDe(fila) + 4);
+    }
+
+    private boolean dentroDeRango(int fila, LocalDateTime desde, LocalDateTime hasta) {
+        ByteBuffer seg = segmentoDe(fila);
+        int pos = posicionDe(fila);
+        long segundos = seg.getLong(pos + 5);
+        int nanos = seg.getInt(pos + 13);
+        if (desde != null && comparar(segundos, nanos, desde.toEpochSecond(ZoneOffset.UTC), desde.getNano()) < 0) return false;
+        return hasta == null || comparar(segundos, nanos, hasta.toEpochSecond(ZoneOffset.UTC), hasta.getNano()) <= 0;
+    }
+
+    /** Primera fila con fecha >= (o > si "estricto") la dada; requiere orden por fecha. */
+    private int primeraFilaDesde(long segundos, int nanos, boolean estricto) {
+        int bajo = 0, alto = filas;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            ByteBuffer seg = segmentoDe(medio);
+            int pos = posicionDe(medio);
+            int c = comparar(seg.getLong(pos + 5), seg.getInt(pos + 13), segundos, nanos);
+            if (c < 0 || (estricto && c == 0)) bajo = medio + 1; else alto = medio;
+        }
+        return bajo;
+    }
+
+    private static int comparar(long segundosA, int nanosA, long segundosB, int nanosB) {
+        int c = Long.compare(segundosA, segundosB);
+        return c != 0 ? c : Integer.compare(nanosA, nanosB);
+    }
+
+    private Transaccion leer(int fila) {
+        ByteBuffer seg = segmentoDe(fila);
+        int pos = posicionDe(fila);
+
+        Transaccion t = new Transaccion();
+        t.setIdTransaccion(seg.getInt(pos));
+        byte tipo = seg.get(pos + 4);
+        t.setTipo(tipo == SIN_TIPO ? null : TipoTransaccion.values()[tipo]);
+        t.setFecha(LocalDateTime.ofEpochSecond(seg.getLong(pos + 5), seg.getInt(pos + 13), ZoneOffset.UTC));
+        t.setCantidad(seg.getInt(pos + 17));
+        t.setCodigoProducto(texto(seg.getInt(pos + 21)));
+        t.setRazon(texto(seg.getInt(pos + 25)));
+        t.setUsuario(texto(seg.getInt(pos + 29)));
+        t.setIdProveedor(texto(seg.getInt(pos + 33)));
+        t.setIdCliente(texto(seg.getInt(pos + 37)));
+        t.setNota(leerNota(seg.getLong(pos + 41)));
+        return t;
+    }
+}
@@ -1,6 +1,7 @@
 package persistencia;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
 /**
@@ -21,4 +22,14 @@ public interface IConexionDB {
      * Cierra la conexión a la base de datos.
      */
     void desconectar();
+
+    /**
+     * Prepara una consulta de solo avance para leer las filas en streaming.
+     * Connector/J solo transmite fila a fila con fetchSize = Integer.MIN_VALUE; otros drivers
+     * (H2 en modo MySQL, usado en las pruebas de carga) rechazan ese valor y usan un fetchSize normal.
+     */
+    static void leerEnStreaming(Connection conn, PreparedStatement ps) throws SQLException {
+        String url = conn.getMetaData().getURL();
+        ps.setFetchSize(url != null && url.startsWith("jdbc:mysql:") ? Integer.MIN_VALUE : 1000);
+    }
 }
\ No newline at end of file
@@ -1,9 +1,16 @@
 package persistencia;
 
 import modelo.Producto;
+import modelo.TipoTransaccion;
 import modelo.Transaccion;
 
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * [IInventarioDAO.java]
@@ -19,10 +26,35 @@ public interface IInventarioDAO {
 
     Producto obtenerPorCodigo(String codigo);
 
-    void actualizarStockDB(String codigo, int cantidad);
+    /**
+     * Persiste nombre, precio y stock de un producto. El stock se aplica como delta condicional:
+     * solo si en la BD sigue valiendo stockAnterior (si no, no se toca ninguna columna).
+     * @return false si el producto no existe o su stock en la BD ya no es stockAnterior (conflicto).
+     * @throws SQLException En caso de error de acceso a datos.
+     */
+    boolean actualizarProductoDB(String codigo, String nombre, double precio,
+                                 int stockAnterior, int stockNuevo) throws SQLException;
+
+    /**
+     * Movimiento completo en una sola transacción de BD: el delta condicional de stock y la
+     * inserción de la transacción se confirman juntos (o no se confirma ninguno). El ID generado
+     * se asigna a la transacción solo si hubo commit.
+     * @param transaccion Transacción con producto, tipo y cantidad válidos.
+     * @return Resultado del movimiento (con el stock resultante, o el actual si no se aplicó).
+     * @throws Exception En caso de error de acceso a datos (la transacción se revierte).
+     */
+    ResultadoMovimientoStock registrarMovimiento(Transaccion transaccion) throws Exception;
 
     List<Producto> obtenerTodos();
 
+    /**
+     * Recorre el catálogo con un cursor de solo avance, entregando los productos uno a uno
+     * (carga inicial sin lista intermedia).
+     * @param consumidor Recibe cada producto.
+     * @throws SQLException En caso de error al consultar.
+     */
+    void recorrerTodos(Consumer<Producto> consumidor) throws SQLException;
+
     // ==========================
     // TRANSACCIONES
     // ==========================
@@ -39,4 +71,50 @@ public interface IInventarioDAO {
      * @throws Exception En caso de error al consultar.
      */
     List<Transaccion> obtenerTodasTransacciones() throws Exception;
+
+    /**
+     * Recorre las transacciones de la BD con un cursor de solo avance, entregándolas una a una
+     * sin acumularlas en memoria (pensado para exportaciones de gran tamaño).
+     * @param tipo             Tipo de transacción, o null para todos.
+     * @param desde            Fecha inicial (inclusive), o null.
+     * @param hasta            Fecha final (inclusive), o null.
+     * @param resolverProducto Devuelve el Producto de un código (las filas sin producto se omiten).
+     * @param consumidor       Recibe cada transacción en orden de fecha.
+     * @throws Exception En caso de error al consultar.
+     */
+    void recorrerTransacciones(TipoTransaccion tipo, LocalDateTime desde, LocalDateTime hasta,
+                               Function<String, Producto> resolverProducto,
+                               Consumer<Transaccion> consumidor) throws Exception;
+
+    /**
+     * Igual que recorrerTransacciones, pero solo las de ID mayor que el indicado, en orden de ID
+     * (completa en memoria un historial cargado desde una instantánea local; con 0, la carga
+     * completa en el orden de la clave primaria, sin ordenar por fecha).
+     * @param idTransaccion Último ID ya conocido.
+     * @throws Exception En caso de error al consultar.
+     */
+    void recorrerTransaccionesPosteriores(int idTransaccion,
+                                          Function<String, Producto> resolverProducto,
+                                          Consumer<Transaccion> consumidor) throws Exception;
+
+    /**
+     * Persiste un lote de transacciones en una sola transacción de BD:
+     * los deltas de stock se agrupan por producto y las líneas se insertan con JDBC batch.
+     * Si algún producto no tiene stock suficiente (o no existe) se deshace todo el lote.
+     * Los IDs generados se asignan a cada transacción del lote.
+     * @param lote Transacciones a persistir.
+     * @return Resultado del movimiento por código de producto.
+     * @throws Exception En caso de error al guardar (el lote se revierte).
+     */
+    Map<String, ResultadoMovimientoStock> guardarTransaccionesLote(List<Transaccion> lote) throws Exception;
+
+    /**
+     * Claves de movimiento (las que asigna el diario local) que ya figuran en la BD.
+     * Sirve para no reaplicar los movimientos cuyo commit sí llegó (al arrancar, o al reintentar
+     * un commit cuya respuesta se perdió).
+     * @param claves Claves a comprobar.
+     * @return ID de transacción de cada clave presente en la tabla transaccion.
+     * @throws Exception En caso de error de acceso a datos.
+     */
+    Map<String, Integer> buscarClavesMovimiento(Collection<String> claves) throws Exception;
 }
@@ -3,6 +3,7 @@ package persistencia;
 import modelo.Proveedor;
 import java.sql.SQLException; // Import necesario
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * [IProveedorDAO.java]
@@ -29,4 +30,10 @@ public interface IProveedorDAO {
      * @return Una lista (List) de objetos Proveedor.
      */
     List<Proveedor> obtenerTodos() throws SQLException; // 💡 MEJORA: Nuevo método para listar
+
+    /**
+     * Recorre los proveedores con un cursor de solo avance, sin construir una lista intermedia.
+     * @param consumidor Recibe cada proveedor.
+     */
+    void recorrerTodos(Consumer<Proveedor> consumidor) throws SQLException;
 }
\ No newline at end of file
@@ -7,12 +7,16 @@ import modelo.Transaccion;
 import modelo.TipoTransaccion;
 
 import java.sql.*;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * [InventarioDAOImpl.java]
@@ -21,12 +25,61 @@ import java.util.stream.Collectors;
  */
 public class InventarioDAOImpl implements IInventarioDAO {
 
+    private static final String SQL_INSERTAR_TRANSACCION = """
+            INSERT INTO transaccion (
+                tipo, cantidad, codigo_producto, fecha, razon, nota,
+                usuario, id_proveedor, id_cliente
+            ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    // Con el diario local: la columna clave_movimiento debe existir (ver esquema.sql)
+    private static final String SQL_INSERTAR_TRANSACCION_CON_CLAVE = """
+            INSERT INTO transaccion (
+                tipo, cantidad, codigo_producto, fecha, razon, nota,
+                usuario, id_proveedor, id_cliente, clave_movimiento
+            ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String SQL_SELECCIONAR_PRODUCTOS = """
+            SELECT p.codigo, p.nombre, p.precio, p.stock_actual,
+                   p.tipo_producto, p.fecha_vencimiento, p.requiere_refrigeracion,
+                   p.categoria, p.garantia_meses,
+                   prov.ruc, prov.razon_social AS nombre_prov
+            FROM producto p
+            INNER JOIN proveedor prov ON p.ruc_proveedor = prov.ruc
+            """;
+
+    private static final String SQL_MOVER_STOCK = """
+            UPDATE producto SET stock_actual = stock_actual + ?
+            WHERE codigo = ? AND stock_actual + ? >= 0
+            """;
+
+    // El stock se escribe como delta sobre el valor leído: si otro proceso lo movió entretanto,
+    // no coincide ninguna fila y el llamador lo trata como conflicto (sin pisar ese movimiento)
+    private static final String SQL_ACTUALIZAR_PRODUCTO = """
+            UPDATE producto SET nombre = ?, precio = ?, stock_actual = stock_actual + ?
+            WHERE codigo = ? AND stock_actual = ?
+            """;
+
     private final IConexionDB conexionDB;
+    private boolean guardarClaveMovimiento = false;
 
     public InventarioDAOImpl(IConexionDB conexionDB) {
         this.conexionDB = conexionDB;
     }
 
+    /**
+     * Solo con el diario local: los INSERT de transacciones guardan también la clave de movimiento
+     * (columna clave_movimiento, que las BD existentes deben agregar antes; ver esquema.sql).
+     */
+    public void setGuardarClaveMovimiento(boolean guardarClaveMovimiento) {
+        this.guardarClaveMovimiento = guardarClaveMovimiento;
+    }
+
+    private String sqlInsertarTransaccion() {
+        return guardarClaveMovimiento ? SQL_INSERTAR_TRANSACCION_CON_CLAVE : SQL_INSERTAR_TRANSACCION;
+    }
+
     // ----------------------------------------------------------------------
     //  INSERTAR PRODUCTO
     // ----------------------------------------------------------------------
@@ -91,15 +144,7 @@ public class InventarioDAOImpl implements IInventarioDAO {
     public Producto obtenerPorCodigo(String codigo) {
         if (codigo == null) return null;
 
-        String sql = """
-                SELECT p.codigo, p.nombre, p.precio, p.stock_actual,
-                       p.tipo_producto, p.fecha_vencimiento, p.requiere_refrigeracion,
-                       p.categoria, p.garantia_meses,
-                       prov.ruc, prov.razon_social AS nombre_prov
-                FROM producto p
-                INNER JOIN proveedor prov ON p.ruc_proveedor = prov.ruc
-                WHERE p.codigo = ?
-                """;
+        String sql = SQL_SELECCIONAR_PRODUCTOS + " WHERE p.codigo = ?";
 
         try (Connection conn = conexionDB.conectar();
              PreparedStatement ps = conn.prepareStatement(sql)) {
@@ -109,42 +154,7 @@ public class InventarioDAOImpl implements IInventarioDAO {
             try (ResultSet rs = ps.executeQuery()) {
                 if (!rs.next()) return null;
 
-                Proveedor proveedor = new Proveedor(
-                        rs.getString("ruc"),
-                        rs.getString("nombre_prov"),
-                        ""
-                );
-
-                Producto prod;
-                String tipo = rs.getString("tipo_producto");
-                LocalDate fechaV = rs.getDate("fecha_vencimiento") != null
-                        ? rs.getDate("fecha_vencimiento").toLocalDate()
-                        : null;
-                boolean requiereRef = rs.getBoolean("requiere_refrigeracion");
-
-                if ("perecedero".equalsIgnoreCase(tipo)) {
-                    prod = new ProductoPerecedero(
-                            rs.getString("codigo"),
-                            rs.getString("nombre"),
-                            rs.getDouble("precio"),
-                            rs.getInt("stock_actual"),
-                            proveedor,
-                            fechaV,
-                            requiereRef
-                    );
-                } else {
-                    prod = new Producto(
-                            rs.getString("codigo"),
-                            rs.getString("nombre"),
-                            rs.getDouble("precio"),
-                            rs.getInt("stock_actual"),
-                            proveedor
-                    );
-                }
-
-                prod.setCategoria(rs.getString("categoria"));
-                prod.setGarantiaMeses(rs.getInt("garantia_meses"));
-                return prod;
+                return mapearProducto(rs, new HashMap<>());
             }
 
         } catch (SQLException e) {
@@ -154,121 +164,125 @@ public class InventarioDAOImpl implements IInventarioDAO {
     }
 
     // ----------------------------------------------------------------------
-    //  ACTUALIZAR STOCK
+    //  ACTUALIZAR PRODUCTO (NOMBRE, PRECIO Y STOCK COMO DELTA CONDICIONAL)
     // ----------------------------------------------------------------------
     @Override
-    public void actualizarStockDB(String codigo, int cantidad) {
-        if (codigo == null) return;
-
-        String sql = "UPDATE producto SET stock_actual = ? WHERE codigo = ?";
+    public boolean actualizarProductoDB(String codigo, String nombre, double precio,
+                                        int stockAnterior, int stockNuevo) throws SQLException {
+        if (codigo == null) return false;
 
         try (Connection conn = conexionDB.conectar();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+             PreparedStatement ps = conn.prepareStatement(SQL_ACTUALIZAR_PRODUCTO)) {
 
-            ps.setInt(1, cantidad);
-            ps.setString(2, codigo);
-            ps.executeUpdate();
+            ps.setString(1, nombre);
+            ps.setDouble(2, precio);
+            ps.setInt(3, stockNuevo - stockAnterior);
+            ps.setString(4, codigo);
+            ps.setInt(5, stockAnterior);
+            return ps.executeUpdate() > 0;
 
         } catch (SQLException e) {
-            System.err.println("❌ Error al actualizar stock: " + e.getMessage());
+            System.err.println("❌ Error al actualizar producto: " + e.getMessage());
+            throw e;
         }
     }
 
     // ----------------------------------------------------------------------
-    //  OBTENER TODOS
+    //  MOVIMIENTO COMPLETO (DELTA + INSERCIÓN, UN SOLO COMMIT)
     // ----------------------------------------------------------------------
     @Override
-    public List<Producto> obtenerTodos() {
-        List<Producto> lista = new ArrayList<>();
-        String sql = """
-                SELECT p.codigo, p.nombre, p.precio, p.stock_actual,
-                       p.tipo_producto, p.fecha_vencimiento, p.requiere_refrigeracion,
-                       p.categoria, p.garantia_meses,
-                       prov.ruc, prov.razon_social AS nombre_prov
-                FROM producto p
-                INNER JOIN proveedor prov ON p.ruc_proveedor = prov.ruc
-                """;
+    public ResultadoMovimientoStock registrarMovimiento(Transaccion transaccion) throws Exception {
+        if (transaccion == null || transaccion.getCodigoProducto() == null || transaccion.getTipo() == null) {
+            throw new IllegalArgumentException("Transacción inválida");
+        }
 
-        try (Connection conn = conexionDB.conectar();
-             PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-
-            while (rs.next()) {
-                Proveedor proveedor = new Proveedor(
-                        rs.getString("ruc"),
-                        rs.getString("nombre_prov"),
-                        ""
-                );
-
-                Producto prod;
-                String tipo = rs.getString("tipo_producto");
-                LocalDate fechaV = rs.getDate("fecha_vencimiento") != null
-                        ? rs.getDate("fecha_vencimiento").toLocalDate()
-                        : null;
-                boolean requiereRef = rs.getBoolean("requiere_refrigeracion");
-
-                if ("perecedero".equalsIgnoreCase(tipo)) {
-                    prod = new ProductoPerecedero(
-                            rs.getString("codigo"),
-                            rs.getString("nombre"),
-                            rs.getDouble("precio"),
-                            rs.getInt("stock_actual"),
-                            proveedor,
-                            fechaV,
-                            requiereRef
-                    );
-                } else {
-                    prod = new Producto(
-                            rs.getString("codigo"),
-                            rs.getString("nombre"),
-                            rs.getDouble("precio"),
-                            rs.getInt("stock_actual"),
-                            proveedor
-                    );
+        try (Connection conn = conexionDB.conectar()) {
+            boolean autoCommitOriginal = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+
+            try {
+                ResultadoMovimientoStock resultado = moverStock(conn, transaccion.getCodigoProducto(),
+                        transaccion.calcularDeltaStock());
+                if (!resultado.isAplicado()) {
+                    conn.rollback();
+                    return resultado;
+                }
+
+                Integer id = null;
+                try (PreparedStatement ps = conn.prepareStatement(sqlInsertarTransaccion(), Statement.RETURN_GENERATED_KEYS)) {
+                    asignarParametros(ps, transaccion);
+                    ps.executeUpdate();
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        if (rs.next()) id = rs.getInt(1);
+                    }
                 }
 
-                prod.setCategoria(rs.getString("categoria"));
-                prod.setGarantiaMeses(rs.getInt("garantia_meses"));
+                conn.commit();
+                transaccion.setIdTransaccion(id);
+                return resultado;
 
-                lista.add(prod);
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommitOriginal);
             }
 
         } catch (SQLException e) {
-            System.err.println("❌ Error al obtener todos los productos: " + e.getMessage());
+            System.err.println("❌ Error al registrar movimiento: " + e.getMessage());
+            throw e;
         }
+    }
 
+    // ----------------------------------------------------------------------
+    //  OBTENER TODOS
+    // ----------------------------------------------------------------------
+    @Override
+    public List<Producto> obtenerTodos() {
+        List<Producto> lista = new ArrayList<>();
+        try {
+            recorrerTodos(lista::add);
+        } catch (SQLException e) {
+            System.err.println("❌ Error al obtener todos los productos: " + e.getMessage());
+        }
         return lista;
     }
 
+    // ----------------------------------------------------------------------
+    //  RECORRER PRODUCTOS (CURSOR DE SOLO AVANCE)
+    // ----------------------------------------------------------------------
+    @Override
+    public void recorrerTodos(Consumer<Producto> consumidor) throws SQLException {
+        String sql = SQL_SELECCIONAR_PRODUCTOS;
+
+        try (Connection conn = conexionDB.conectar();
+             PreparedStatement ps = conn.prepareStatement(sql,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            IConexionDB.leerEnStreaming(conn, ps);
+            // Un solo Proveedor por RUC en todo el recorrido (no uno por fila)
+            Map<String, Proveedor> proveedores = new HashMap<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    consumidor.accept(mapearProducto(rs, proveedores));
+                }
+            }
+        }
+    }
+
     // ----------------------------------------------------------------------
     //  NUEVOS MÉTODOS: TRANSACCIONES
     // ----------------------------------------------------------------------
     @Override
     public void guardarTransaccion(Transaccion transaccion) throws Exception {
-        if (transaccion == null || transaccion.getProducto() == null) {
+        if (transaccion == null || transaccion.getCodigoProducto() == null) {
             throw new IllegalArgumentException("Transacción inválida");
         }
 
-        String sql = """
-                INSERT INTO transaccion (
-                    tipo, cantidad, codigo_producto, fecha, razon, nota,
-                    usuario, id_proveedor, id_cliente
-                ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
-                """;
-
         try (Connection conn = conexionDB.conectar();
-             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-
-            ps.setString(1, transaccion.getTipo().name());
-            ps.setInt(2, transaccion.getCantidad());
-            ps.setString(3, transaccion.getProducto().getCodigo());
-            ps.setTimestamp(4, Timestamp.valueOf(transaccion.getFecha()));
-            ps.setString(5, transaccion.getRazon() != null ? transaccion.getRazon() : "");
-            ps.setString(6, transaccion.getNota() != null ? transaccion.getNota() : "");
-            ps.setString(7, transaccion.getUsuario() != null ? transaccion.getUsuario() : "");
-            ps.setString(8, transaccion.getIdProveedor() != null ? transaccion.getIdProveedor() : null);
-            ps.setString(9, transaccion.getIdCliente() != null ? transaccion.getIdCliente() : null);
+             PreparedStatement ps = conn.prepareStatement(sqlInsertarTransaccion(), Statement.RETURN_GENERATED_KEYS)) {
 
+            asignarParametros(ps, transaccion);
             ps.executeUpdate();
 
             try (ResultSet rs = ps.getGeneratedKeys()) {
@@ -278,54 +292,339 @@ public class InventarioDAOImpl implements IInventarioDAO {
                 }
             }
 
-            System.out.println("✔ Transacción guardada: " + transaccion.getIdTransaccion());
-
         } catch (SQLException e) {
             System.err.println("❌ Error al guardar transacción: " + e.getMessage());
             throw e;
         }
     }
 
+    // ----------------------------------------------------------------------
+    //  LOTE DE TRANSACCIONES (JDBC BATCH + UN SOLO COMMIT)
+    // ----------------------------------------------------------------------
+    @Override
+    public Map<String, ResultadoMovimientoStock> guardarTransaccionesLote(List<Transaccion> lote) throws Exception {
+        if (lote == null || lote.isEmpty()) return Map.of();
+
+        // Agrupar los deltas por producto: un UPDATE por producto en vez de uno por línea
+        Map<String, Integer> deltas = new LinkedHashMap<>();
+        for (Transaccion t : lote) {
+            if (t == null || t.getCodigoProducto() == null || t.getTipo() == null) {
+                throw new IllegalArgumentException("Transacción inválida en el lote");
+            }
+            deltas.merge(t.getCodigoProducto(), t.calcularDeltaStock(), Integer::sum);
+        }
+
+        try (Connection conn = conexionDB.conectar()) {
+            boolean autoCommitOriginal = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+
+            try {
+                // 1) Movimientos de stock condicionados (stock_actual + delta >= 0)
+                List<String> codigos = new ArrayList<>(deltas.keySet());
+                int[] filas;
+                try (PreparedStatement ps = conn.prepareStatement(SQL_MOVER_STOCK)) {
+                    for (String codigo : codigos) {
+                        int delta = deltas.get(codigo);
+                        ps.setInt(1, delta);
+                        ps.setString(2, codigo);
+                        ps.setInt(3, delta);
+                        ps.addBatch();
+                    }
+                    filas = ps.executeBatch();
+                }
+
+                Map<String, Integer> stockActual = consultarStock(conn, codigos);
+                Map<String, ResultadoMovimientoStock> resultados = new LinkedHashMap<>();
+                boolean todosAplicados = true;
+                for (int i = 0; i < codigos.size(); i++) {
+                    String codigo = codigos.get(i);
+                    Integer stock = stockActual.get(codigo);
+                    ResultadoMovimientoStock r;
+                    if (stock == null) {
+                        r = ResultadoMovimientoStock.noEncontrado();
+                    } else if (filas[i] == 0) {
+                        r = ResultadoMovimientoStock.stockInsuficiente(stock);
+                    } else {
+                        r = ResultadoMovimientoStock.aplicado(stock);
+                    }
+                    todosAplicados &= r.isAplicado();
+                    resultados.put(codigo, r);
+                }
+
+                if (!todosAplicados) {
+                    conn.rollback();
+                    return resultados;
+                }
+
+                // 2) Inserción de las líneas en un único executeBatch
+                try (PreparedStatement ps = conn.prepareStatement(sqlInsertarTransaccion(), Statement.RETURN_GENERATED_KEYS)) {
+                    for (Transaccion t : lote) {
+                        asignarParametros(ps, t);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        int i = 0;
+                        while (rs.next() && i < lote.size()) {
+                            lote.get(i++).setIdTransaccion(rs.getInt(1));
+                        }
+                    }
+                }
+
+                try {
+                    conn.commit();
+                } catch (SQLException e) {
+                    throw new ConfirmacionInciertaException(e);
+                }
+                return resultados;
+
+            } catch (SQLException | RuntimeException e) {
+                // Sin rollback, restaurar el autocommit confirmaría lo ya ejecutado del lote
+                // (con la conexión caída el rollback también falla: no debe tapar el error original)
+                try {
+                    conn.rollback();
+                } catch (SQLException r) {
+                    e.addSuppressed(r);
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommitOriginal);
+            }
+
+        } catch (SQLException e) {
+            System.err.println("❌ Error al guardar lote de transacciones: " + e.getMessage());
+            throw e;
+        }
+    }
+
     @Override
     public List<Transaccion> obtenerTodasTransacciones() throws Exception {
         List<Transaccion> lista = new ArrayList<>();
 
-        // Cargar todos los productos primero
-        List<Producto> productos = obtenerTodos();
-        Map<String, Producto> mapaProductos = productos.stream()
-                .collect(Collectors.toMap(Producto::getCodigo, p -> p));
+        // Mapa de productos para resolver el código de cada fila (una sola lectura del catálogo)
+        Map<String, Producto> mapaProductos = new HashMap<>();
+        recorrerTodos(p -> mapaProductos.put(p.getCodigo(), p));
 
-        String sql = "SELECT * FROM transaccion";
+        recorrerTransacciones(null, null, null, mapaProductos::get, lista::add);
+        return lista;
+    }
+
+    // ----------------------------------------------------------------------
+    //  RECORRER TRANSACCIONES (CURSOR DE SOLO AVANCE)
+    // ----------------------------------------------------------------------
+    @Override
+    public void recorrerTransacciones(TipoTransaccion tipo, LocalDateTime desde, LocalDateTime hasta,
+                                      Function<String, Producto> resolverProducto,
+                                      Consumer<Transaccion> consumidor) throws Exception {
+        StringBuilder filtro = new StringBuilder();
+        List<Object> parametros = new ArrayList<>();
+        if (tipo != null) { filtro.append(" AND tipo = ?"); parametros.add(tipo.name()); }
+        if (desde != null) { filtro.append(" AND fecha >= ?"); parametros.add(Timestamp.valueOf(desde)); }
+        if (hasta != null) { filtro.append(" AND fecha <= ?"); parametros.add(Timestamp.valueOf(hasta)); }
+        filtro.append(" ORDER BY fecha, id_transaccion");
+
+        recorrerTransacciones(filtro.toString(), parametros, resolverProducto, consumidor);
+    }
+
+    @Override
+    public void recorrerTransaccionesPosteriores(int idTransaccion,
+                                                 Function<String, Producto> resolverProducto,
+                                                 Consumer<Transaccion> consumidor) throws Exception {
+        recorrerTransacciones(" AND id_transaccion > ? ORDER BY id_transaccion",
+                List.of(idTransaccion), resolverProducto, consumidor);
+    }
+
+    private void recorrerTransacciones(String filtro, List<Object> parametros,
+                                       Function<String, Producto> resolverProducto,
+                                       Consumer<Transaccion> consumidor) throws SQLException {
+        String sql = """
+                SELECT id_transaccion, tipo, fecha, cantidad, codigo_producto,
+                       razon, nota, usuario, id_proveedor, id_cliente
+                FROM transaccion WHERE 1 = 1
+                """ + filtro;
 
         try (Connection conn = conexionDB.conectar();
-            PreparedStatement ps = conn.prepareStatement(sql);
-            ResultSet rs = ps.executeQuery()) {
-
-            while (rs.next()) {
-                Producto producto = mapaProductos.get(rs.getString("codigo_producto"));
-                if (producto == null) continue;
-
-                Transaccion t = new Transaccion();
-                t.setIdTransaccion(rs.getInt("id_transaccion"));
-                t.setTipo(TipoTransaccion.valueOf(rs.getString("tipo")));
-                t.setFecha(rs.getTimestamp("fecha").toLocalDateTime());
-                t.setCantidad(rs.getInt("cantidad"));
-                t.setProducto(producto);
-                t.setRazon(rs.getString("razon"));
-                t.setNota(rs.getString("nota"));
-                t.setUsuario(rs.getString("usuario"));
-                t.setIdProveedor(rs.getString("id_proveedor"));
-                t.setIdCliente(rs.getString("id_cliente"));
-
-                lista.add(t);
+             PreparedStatement ps = conn.prepareStatement(sql,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            // Connector/J: fetchSize = Integer.MIN_VALUE transmite las filas una a una
+            // en lugar de cargar todo el resultado en memoria del cliente
+            IConexionDB.leerEnStreaming(conn, ps);
+            for (int i = 0; i < parametros.size(); i++) {
+                ps.setObject(i + 1, parametros.get(i));
+            }
+
+            // Razón, usuario y proveedor/cliente se repiten mucho entre filas: se comparte un String por valor
+            Map<String, String> textos = new HashMap<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Producto producto = resolverProducto.apply(rs.getString("codigo_producto"));
+                    if (producto == null) continue;
+                    consumidor.accept(mapearTransaccion(rs, producto, textos));
+                }
             }
 
         } catch (SQLException e) {
-            System.err.println("❌ Error al obtener transacciones: " + e.getMessage());
+            System.err.println("❌ Error al recorrer transacciones: " + e.getMessage());
             throw e;
         }
+    }
 
-        return lista;
+    // ----------------------------------------------------------------------
+    //  AUXILIARES
+    // ----------------------------------------------------------------------
+    /** @param proveedores Proveedores ya creados en este recorrido, por RUC (se reutilizan). */
+    private Producto mapearProducto(ResultSet rs, Map<String, Proveedor> proveedores) throws SQLException {
+        String ruc = rs.getString("ruc");
+        Proveedor proveedor = ruc == null ? null : proveedores.get(ruc);
+        if (proveedor == null) {
+            proveedor = new Proveedor(ruc, rs.getString("nombre_prov"), "");
+            if (ruc != null) proveedores.put(ruc, proveedor);
+        }
+
+        Producto prod;
+        String tipo = rs.getString("tipo_producto");
+        Date fechaV = rs.getDate("fecha_vencimiento");
+        boolean requiereRef = rs.getBoolean("requiere_refrigeracion");
+
+        if ("perecedero".equalsIgnoreCase(tipo)) {
+            prod = new ProductoPerecedero(
+                    rs.getString("codigo"),
+                    rs.getString("nombre"),
+                    rs.getDouble("precio"),
+                    rs.getInt("stock_actual"),
+                    proveedor,
+                    fechaV != null ? fechaV.toLocalDate() : null,
+                    requiereRef
+            );
+        } else {
+            prod = new Producto(
+                    rs.getString("codigo"),
+                    rs.getString("nombre"),
+                    rs.getDouble("precio"),
+                    rs.getInt("stock_actual"),
+                    proveedor
+            );
+        }
+
+        prod.setCategoria(rs.getString("categoria"));
+        prod.setGarantiaMeses(rs.getInt("garantia_meses"));
+        return prod;
+    }
+
+    private Transaccion mapearTransaccion(ResultSet rs, Producto producto, Map<String, String> textos) throws SQLException {
+        Transaccion t = new Transaccion();
+        t.setIdTransaccion(rs.getInt("id_transaccion"));
+        t.setTipo(TipoTransaccion.valueOf(rs.getString("tipo")));
+        t.setFecha(rs.getTimestamp("fecha").toLocalDateTime());
+        t.setCantidad(rs.getInt("cantidad"));
+        t.setProducto(producto);   // solo guarda el código (el String del producto resuelto)
+        t.setRazon(compartido(textos, rs.getString("razon")));
+        t.setNota(rs.getString("nota"));
+        t.setUsuario(compartido(textos, rs.getString("usuario")));
+        t.setIdProveedor(compartido(textos, rs.getString("id_proveedor")));
+        t.setIdCliente(compartido(textos, rs.getString("id_cliente")));
+        return t;
+    }
+
+    private static String compartido(Map<String, String> textos, String valor) {
+        return valor == null ? null : textos.computeIfAbsent(valor, v -> v);
+    }
+
+    private void asignarParametros(PreparedStatement ps, Transaccion transaccion) throws SQLException {
+        ps.setString(1, transaccion.getTipo().name());
+        ps.setInt(2, transaccion.getCantidad());
+        ps.setString(3, transaccion.getCodigoProducto());
+        ps.setTimestamp(4, Timestamp.valueOf(transaccion.getFecha()));
+        ps.setString(5, transaccion.getRazon() != null ? transaccion.getRazon() : "");
+        ps.setString(6, transaccion.getNota() != null ? transaccion.getNota() : "");
+        ps.setString(7, transaccion.getUsuario() != null ? transaccion.getUsuario() : "");
+        ps.setString(8, transaccion.getIdProveedor() != null ? transaccion.getIdProveedor() : null);
+        ps.setString(9, transaccion.getIdCliente() != null ? transaccion.getIdCliente() : null);
+        if (guardarClaveMovimiento) ps.setString(10, transaccion.getClaveMovimiento());
+    }
+
+    /**
+     * Delta condicional sobre la conexión dada (sin commit). La condición en el WHERE hace que la
+     * comprobación y la escritura sean una sola operación: dos hilos o dos instancias nunca pierden
+     * actualizaciones ni dejan stock negativo.
+     */
+    private ResultadoMovimientoStock moverStock(Connection conn, String codigo, int delta) throws SQLException {
+        try (PreparedStatement update = conn.prepareStatement(SQL_MOVER_STOCK);
+             PreparedStatement consulta = conn.prepareStatement("SELECT stock_actual FROM producto WHERE codigo = ?")) {
+
+            update.setInt(1, delta);
+            update.setString(2, codigo);
+            update.setInt(3, delta);
+            int filas = update.executeUpdate();
+
+            // Dentro de la misma transacción: la fila sigue bloqueada por el UPDATE
+            consulta.setString(1, codigo);
+            try (ResultSet rs = consulta.executeQuery()) {
+                if (!rs.next()) return ResultadoMovimientoStock.noEncontrado();
+                if (filas == 0) return ResultadoMovimientoStock.stockInsuficiente(rs.getInt(1));
+                return ResultadoMovimientoStock.aplicado(rs.getInt(1));
+            }
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    //  CLAVES DE MOVIMIENTO (RECUPERACIÓN DEL DIARIO)
+    // ----------------------------------------------------------------------
+    @Override
+    public Map<String, Integer> buscarClavesMovimiento(Collection<String> claves) throws Exception {
+        Map<String, Integer> presentes = new HashMap<>();
+        if (claves == null || claves.isEmpty()) return presentes;
+
+        List<String> lista = new ArrayList<>(claves);
+        final int bloque = 500;
+        try (Connection conn = conexionDB.conectar()) {
+            for (int desde = 0; desde < lista.size(); desde += bloque) {
+                List<String> parte = lista.subList(desde, Math.min(desde + bloque, lista.size()));
+                String marcadores = String.join(", ", Collections.nCopies(parte.size(), "?"));
+                String sql = "SELECT clave_movimiento, id_transaccion FROM transaccion WHERE clave_movimiento IN (" + marcadores + ")";
+
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < parte.size(); i++) {
+                        ps.setString(i + 1, parte.get(i));
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            presentes.put(rs.getString(1), rs.getInt(2));
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("❌ Error al buscar claves de movimiento: " + e.getMessage());
+            throw e;
+        }
+        return presentes;
+    }
+
+    /** Stock actual de varios productos, en bloques para no exceder el tamaño de la cláusula IN. */
+    private Map<String, Integer> consultarStock(Connection conn, List<String> codigos) throws SQLException {
+        Map<String, Integer> stock = new HashMap<>();
+        final int bloque = 500;
+
+        for (int desde = 0; desde < codigos.size(); desde += bloque) {
+            List<String> parte = codigos.subList(desde, Math.min(desde + bloque, codigos.size()));
+            String marcadores = String.join(", ", Collections.nCopies(parte.size(), "?"));
+            String sql = "SELECT codigo, stock_actual FROM producto WHERE codigo IN (" + marcadores + ")";
+
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (int i = 0; i < parte.size(); i++) {
+                    ps.setString(i + 1, parte.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        stock.put(rs.getString(1), rs.getInt(2));
+                    }
+                }
+            }
+        }
+        return stock;
     }
 
 }
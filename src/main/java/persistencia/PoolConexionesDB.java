@@ -0,0 +1,419 @@
+package persistencia;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * [PoolConexionesDB.java]
+ * Implementación de IConexionDB basada en un pool de conexiones JDBC.
+ *
+ * Cada llamada a conectar() entrega una conexión distinta del pool; al cerrarla
+ * (try-with-resources en los DAO) la conexión física vuelve al pool en vez de cerrarse.
+ *
+ * Características:
+ * - Tamaño mínimo y máximo
+ * - Validación al prestar (Connection.isValid)
+ * - Expulsión de conexiones ociosas y de vida máxima (tarea periódica)
+ * - Tiempo máximo de espera para obtener una conexión
+ * - Estadísticas: activas, ociosas y en espera
+ */
+public class PoolConexionesDB implements IConexionDB {
+
+    // Parámetros de conexión
+    private final String url;
+    private final String usuario;
+    private final String clave;
+
+    // Configuración del pool
+    private final int tamanoMinimo;
+    private final int tamanoMaximo;
+    private final long esperaMaximaMs;
+    private final long ociosoMaximoMs;
+    private final long vidaMaximaMs;
+    private final int validacionSegundos;
+
+    // Estado del pool (protegido por 'lock', sin synchronized alrededor de E/S bloqueante)
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition disponible = lock.newCondition();
+    private final Deque<ConexionFisica> ociosas = new ArrayDeque<>();
+    private int totalConexiones;   // ociosas + prestadas + en creación
+    private int activas;
+    private int enEspera;
+    private boolean cerrado;
+
+    private final ScheduledExecutorService mantenimiento;
+
+    /**
+     * Constructor principal.
+     *
+     * @param url             Dirección JDBC de la base de datos.
+     * @param usuario         Usuario de acceso.
+     * @param clave           Contraseña.
+     * @param tamanoMinimo    Conexiones que se mantienen abiertas aunque estén ociosas.
+     * @param tamanoMaximo    Máximo de conexiones físicas simultáneas.
+     * @param esperaMaximaMs  Tiempo máximo para obtener una conexión antes de fallar.
+     * @param ociosoMaximoMs  Tiempo tras el cual una conexión ociosa (por encima del mínimo) se cierra.
+     * @param vidaMaximaMs    Vida máxima de una conexión física.
+     */
+    public PoolConexionesDB(String url, String usuario, String clave,
+                            int tamanoMinimo, int tamanoMaximo,
+                            long esperaMaximaMs, long ociosoMaximoMs, long vidaMaximaMs) {
+        if (tamanoMaximo <= 0 || tamanoMinimo < 0 || tamanoMinimo > tamanoMaximo) {
+            throw new IllegalArgumentException("Tamaños de pool inválidos: min=" + tamanoMinimo + ", max=" + tamanoMaximo);
+        }
+        this.url = url;
+        this.usuario = usuario;
+        this.clave = clave;
+        this.tamanoMinimo = tamanoMinimo;
+        this.tamanoMaximo = tamanoMaximo;
+        this.esperaMaximaMs = esperaMaximaMs;
+        this.ociosoMaximoMs = ociosoMaximoMs;
+        this.vidaMaximaMs = vidaMaximaMs;
+        this.validacionSegundos = 2;
+
+        try {
+            // Cargar driver explícitamente (buena práctica)
+            Class.forName("com.mysql.cj.jdbc.Driver");
+        } catch (ClassNotFoundException e) {
+            System.err.println("❌ No se encontró el driver MySQL: " + e.getMessage());
+        }
+
+        this.mantenimiento = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pool-conexiones-mantenimiento");
+            t.setDaemon(true);
+            return t;
+        });
+        long periodo = Math.max(1_000L, Math.min(ociosoMaximoMs, vidaMaximaMs) / 2);
+        mantenimiento.scheduleWithFixedDelay(this::mantener, periodo, periodo, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Constructor con valores por defecto razonables para un servidor Tomcat
+     * (200 hilos de trabajo no necesitan 200 conexiones: la BD es el cuello de botella).
+     */
+    public PoolConexionesDB(String url, String usuario, String clave) {
+        this(url, usuario, clave, 2, 20, 5_000L, 600_000L, 1_800_000L);
+    }
+
+    // =========================================================================
+    //  IConexionDB
+    // =========================================================================
+    @Override
+    public Connection conectar() throws SQLException {
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(esperaMaximaMs);
+
+        while (true) {
+            ConexionFisica candidata = null;
+            boolean crear = false;
+
+            lock.lock();
+            try {
+                while (true) {
+                    if (cerrado) throw new SQLException("El pool de conexiones está cerrado");
+
+                    candidata = ociosas.pollFirst();
+                    if (candidata != null) break;
+
+                    if (totalConexiones < tamanoMaximo) {
+                        totalConexiones++;   // reservar el hueco antes de abrir fuera del lock
+                        crear = true;
+                        break;
+                    }
+
+                    long restante = limite - System.nanoTime();
+                    if (restante <= 0) {
+                        throw new SQLTimeoutException("Tiempo de espera agotado (" + esperaMaximaMs
+                                + " ms) para obtener conexión. " + estadisticas());
+                    }
+                    enEspera++;
+                    try {
+                        disponible.awaitNanos(restante);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrumpido esperando una conexión", e);
+                    } finally {
+                        enEspera--;
+                    }
+                }
+                activas++;
+            } finally {
+                lock.unlock();
+            }
+
+            // Apertura y validación fuera del lock (E/S bloqueante)
+            if (crear) {
+                try {
+                    return envolver(abrirConexion());
+                } catch (SQLException e) {
+                    liberarHueco(true);
+                    throw e;
+                }
+            }
+
+            if (!candidata.expirada(vidaMaximaMs) && esValida(candidata)) {
+                return envolver(candidata);
+            }
+            cerrarSilencioso(candidata);
+            liberarHueco(true);
+            // Reintentar: la conexión descartada dejó un hueco libre
+        }
+    }
+
+    /**
+     * Cierra todas las conexiones y detiene el mantenimiento.
+     * Las conexiones prestadas se cierran cuando sus usuarios las devuelvan.
+     */
+    @Override
+    public void desconectar() {
+        Deque<ConexionFisica> aCerrar;
+        lock.lock();
+        try {
+            cerrado = true;
+            aCerrar = new ArrayDeque<>(ociosas);
+            totalConexiones -= ociosas.size();
+            ociosas.clear();
+            disponible.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        mantenimiento.shutdownNow();
+        aCerrar.forEach(this::cerrarSilencioso);
+    }
+
+    // =========================================================================
+    //  ESTADÍSTICAS
+    // =========================================================================
+    public int getConexionesActivas() {
+        lock.lock();
+        try { return activas; } finally { lock.unlock(); }
+    }
+
+    public int getConexionesOciosas() {
+        lock.lock();
+        try { return ociosas.size(); } finally { lock.unlock(); }
+    }
+
+    public int getHilosEnEspera() {
+        lock.lock();
+        try { return enEspera; } finally { lock.unlock(); }
+    }
+
+    public int getConexionesTotales() {
+        lock.lock();
+        try { return totalConexiones; } finally { lock.unlock(); }
+    }
+
+    public int getTamanoMaximo() {
+        return tamanoMaximo;
+    }
+
+    public String estadisticas() {
+        lock.lock();
+        try {
+            return "Pool[activas=" + activas + ", ociosas=" + ociosas.size()
+                    + ", esperando=" + enEspera + ", total=" + totalConexiones + "/" + tamanoMaximo + "]";
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // =========================================================================
+    //  INTERNOS
+    // =========================================================================
+    private ConexionFisica abrirConexion() throws SQLException {
+        return new ConexionFisica(DriverManager.getConnection(url, usuario, clave));
+    }
+
+    private boolean esValida(ConexionFisica c) {
+        try {
+            return c.conexion.isValid(validacionSegundos);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /** Devuelve al pool la conexión prestada (llamado desde close() del proxy). */
+    private void devolver(ConexionFisica c) {
+        boolean descartar;
+        try {
+            // Dejar la conexión limpia para el siguiente usuario
+            if (!c.conexion.getAutoCommit()) {
+                c.conexion.rollback();
+                c.conexion.setAutoCommit(true);
+            }
+            c.conexion.clearWarnings();
+            descartar = c.expirada(vidaMaximaMs);
+        } catch (SQLException e) {
+            descartar = true;
+        }
+
+        lock.lock();
+        try {
+            activas--;
+            if (!descartar && !cerrado) {
+                c.ultimoUso = System.nanoTime();
+                ociosas.addFirst(c);   // LIFO: las conexiones calientes se reutilizan primero
+                disponible.signal();
+                return;
+            }
+            totalConexiones--;
+            disponible.signal();
+        } finally {
+            lock.unlock();
+        }
+        cerrarSilencioso(c);
+    }
+
+    /** Libera una reserva de conexión que no llegó a entregarse. */
+    private void liberarHueco(boolean eraActiva) {
+        lock.lock();
+        try {
+            totalConexiones--;
+            if (eraActiva) activas--;
+            disponible.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Tarea periódica: expulsa ociosas/expiradas y repone el mínimo. */
+    private void mantener() {
+        Deque<ConexionFisica> aCerrar = new ArrayDeque<>();
+        int faltantes;
+
+        lock.lock();
+        try {
+            if (cerrado) return;
+            long ahora = System.nanoTime();
+            Iterator<ConexionFisica> it = ociosas.descendingIterator(); // las más antiguas primero
+            while (it.hasNext()) {
+                ConexionFisica c = it.next();
+                boolean ociosaDeMas = totalConexiones > tamanoMinimo
+                        && ahora - c.ultimoUso > TimeUnit.MILLISECONDS.toNanos(ociosoMaximoMs);
+                if (ociosaDeMas || c.expirada(vidaMaximaMs)) {
+                    it.remove();
+                    totalConexiones--;
+                    aCerrar.add(c);
+                }
+            }
+            faltantes = Math.max(0, tamanoMinimo - totalConexiones);
+            totalConexiones += faltantes;
+        } finally {
+            lock.unlock();
+        }
+
+        aCerrar.forEach(this::cerrarSilencioso);
+
+        for (int i = 0; i < faltantes; i++) {
+            try {
+                ConexionFisica nueva = abrirConexion();
+                boolean descartar;
+                lock.lock();
+                try {
+                    descartar = cerrado;
+                    if (descartar) {
+                        totalConexiones--;
+                    } else {
+                        ociosas.addLast(nueva);
+                        disponible.signal();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                if (descartar) cerrarSilencioso(nueva);
+            } catch (SQLException e) {
+                liberarHueco(false);
+                System.err.println("⚠️ No se pudo reponer conexión del pool: " + e.getMessage());
+            }
+        }
+    }
+
+    private void cerrarSilencioso(ConexionFisica c) {
+        try {
+            c.conexion.close();
+        } catch (SQLException e) {
+            System.err.println("⚠️ Error al cerrar la conexión: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Envuelve la conexión física en un proxy cuyo close() devuelve la conexión al pool.
+     * Así los DAO existentes (try-with-resources) funcionan sin cambios.
+     */
+    private Connection envolver(ConexionFisica fisica) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new ConexionPrestada(fisica));
+    }
+
+    /** Conexión física más sus marcas de tiempo. */
+    private static final class ConexionFisica {
+        final Connection conexion;
+        final long creada = System.nanoTime();
+        long ultimoUso = creada;
+
+        ConexionFisica(Connection conexion) {
+            this.conexion = conexion;
+        }
+
+        boolean expirada(long vidaMaximaMs) {
+            return System.nanoTime() - creada > TimeUnit.MILLISECONDS.toNanos(vidaMaximaMs);
+        }
+    }
+
+    /** Manejador del proxy: intercepta close()/isClosed() y delega el resto. */
+    private final class ConexionPrestada implements InvocationHandler {
+        private final ConexionFisica fisica;
+        private volatile boolean devuelta;
+
+        ConexionPrestada(ConexionFisica fisica) {
+            this.fisica = fisica;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!devuelta) {
+                        devuelta = true;
+                        devolver(fisica);
+                    }
+                    return null;
+                case "isClosed":
+                    return devuelta || fisica.conexion.isClosed();
+                case "unwrap":
+                    if (args != null && args[0] == Connection.class) return proxy;
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "ConexionPrestada[" + fisica.conexion + "]";
+                default:
+                    break;
+            }
+            if (devuelta) throw new SQLException("La conexión ya fue devuelta al pool");
+            try {
+                return method.invoke(fisica.conexion, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -7,6 +7,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Implementación del DAO para la entidad Proveedor.
@@ -79,23 +80,29 @@ public class ProveedorDAOImpl implements IProveedorDAO {
     public List<Proveedor> obtenerTodos() throws SQLException {
 
         List<Proveedor> proveedores = new ArrayList<>();
+        recorrerTodos(proveedores::add);
+        return proveedores;
+    }
+
+    @Override
+    public void recorrerTodos(Consumer<Proveedor> consumidor) throws SQLException {
 
         String sql = "SELECT ruc, razon_social, contacto FROM proveedor";
 
         try (Connection conn = conexionDB.conectar();
-             PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-
-            while (rs.next()) {
-                Proveedor p = new Proveedor(
-                    rs.getString("ruc"),
-                    rs.getString("razon_social"),
-                    rs.getString("contacto")
-                );
-                proveedores.add(p);
+             PreparedStatement ps = conn.prepareStatement(sql,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            IConexionDB.leerEnStreaming(conn, ps); // filas en streaming (Connector/J)
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    consumidor.accept(new Proveedor(
+                        rs.getString("ruc"),
+                        rs.getString("razon_social"),
+                        rs.getString("contacto")
+                    ));
+                }
             }
         }
-
-        return proveedores;
     }
 }
@@ -0,0 +1,69 @@
+package persistencia;
+
+/**
+ * [ResultadoMovimientoStock.java]
+ * Resultado de aplicar un movimiento (delta) de stock.
+ * Reemplaza los avisos por System.err con un valor que el llamador puede inspeccionar.
+ */
+public final class ResultadoMovimientoStock {
+
+    public enum Estado {
+        APLICADO,
+        ACEPTADO,               // aplicado en memoria; la persistencia en BD está pendiente
+        STOCK_INSUFICIENTE,
+        PRODUCTO_NO_ENCONTRADO,
+        SATURADO,               // cola de escritura llena (contrapresión)
+        INVALIDO,               // sin tipo o con cantidad <= 0 (no se tocó el stock)
+        ERROR
+    }
+
+    private final Estado estado;
+    private final int stockResultante;   // stock tras el movimiento (o el actual si no se aplicó)
+    private final String mensaje;
+
+    private ResultadoMovimientoStock(Estado estado, int stockResultante, String mensaje) {
+        this.estado = estado;
+        this.stockResultante = stockResultante;
+        this.mensaje = mensaje;
+    }
+
+    public static ResultadoMovimientoStock aplicado(int stockResultante) {
+        return new ResultadoMovimientoStock(Estado.APLICADO, stockResultante, null);
+    }
+
+    public static ResultadoMovimientoStock aceptado(int stockResultante) {
+        return new ResultadoMovimientoStock(Estado.ACEPTADO, stockResultante, null);
+    }
+
+    public static ResultadoMovimientoStock stockInsuficiente(int stockActual) {
+        return new ResultadoMovimientoStock(Estado.STOCK_INSUFICIENTE, stockActual,
+                "Stock insuficiente (disponible: " + stockActual + ")");
+    }
+
+    public static ResultadoMovimientoStock noEncontrado() {
+        return new ResultadoMovimientoStock(Estado.PRODUCTO_NO_ENCONTRADO, 0, "Producto no existe");
+    }
+
+    public static ResultadoMovimientoStock saturado(String mensaje) {
+        return new ResultadoMovimientoStock(Estado.SATURADO, 0, mensaje);
+    }
+
+    public static ResultadoMovimientoStock invalido(String mensaje) {
+        return new ResultadoMovimientoStock(Estado.INVALIDO, 0, mensaje);
+    }
+
+    public static ResultadoMovimientoStock error(String mensaje) {
+        return new ResultadoMovimientoStock(Estado.ERROR, 0, mensaje);
+    }
+
+    public boolean isAplicado() { return estado == Estado.APLICADO; }
+
+    public Estado getEstado() { return estado; }
+    public int getStockResultante() { return stockResultante; }
+    public String getMensaje() { return mensaje; }
+
+    @Override
+    public String toString() {
+        return estado + (mensaje != null ? " - " + mensaje : " (stock: " + stockResultante + ")");
+    }
+}
@@ -0,0 +1,445 @@
+package persistencia;
+
+import modelo.Producto;
+import modelo.ProductoDuradero;
+import modelo.ProductoPerecedero;
+import modelo.Proveedor;
+import modelo.TipoTransaccion;
+import modelo.Transaccion;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * [SnapshotInventario.java]
+ * Instantánea binaria del estado en memoria (proveedores, productos y transacciones).
+ *
+ * Formato (big-endian):
+ * <pre>
+ *  CABECERA (32 bytes)
+ *    int   MAGIA ("INVS")       int  versión del esquema
+ *    long  creado (epoch ms)    long longitud del cuerpo
+ *    int   CRC32 del cuerpo     int  marca de recuperación (ID)
+ *  CUERPO
+ *    diccionario: int n, n × (int longitud, bytes UTF-8)   ← cada texto se guarda una sola vez
+ *    proveedores: int n, n × 12 bytes (ruc, razón social, contacto: índices del diccionario)
+ *    productos:   int n, n × 42 bytes (tipo, código, nombre, precio, stock, ruc, razón social,
+ *                 categoría, garantía, vencimiento en epochDay, refrigeración)
+ *    transacciones: por cada una, byte 1 + id, tipo, fecha (segundos + nanos), cantidad,
+ *                 producto, razón, usuario, idProveedor, idCliente (texto en línea o índice)
+ *                 y la nota (int longitud o -1, bytes UTF-8); al final, byte 0
+ * </pre>
+ * En el catálogo los textos son índices de 4 bytes al diccionario (-1 = null), así las filas
+ * tienen ancho fijo. Las transacciones no se conocen de antemano (se escriben mientras se
+ * recorre el historial, que puede estar fuera del heap): un texto repetitivo que aún no está en
+ * el diccionario se escribe en línea (-2, longitud, bytes) y recibe el siguiente índice; la nota,
+ * casi siempre distinta, va siempre en línea para no llenar el diccionario.
+ *
+ * La lectura mapea el cuerpo en memoria (MappedByteBuffer, solo lectura) y recorre el
+ * diccionario y las filas de ancho fijo del catálogo directamente sobre el mapeo. Las
+ * transacciones se apartan de lo que se pidió al introducir este formato (columnas de ancho fijo
+ * cargadas por mmap): la instantánea debe poder escribirse recorriendo un historial que no cabe
+ * en el heap (HistorialFueraDeHeap), sin conocer de antemano ni su número ni todos sus textos,
+ * así que van como registros de longitud variable con textos en línea, y se leen en streaming
+ * desde el final del catálogo (un mapeo está limitado a 2 GB y el historial puede superarlos).
+ * La escritura va en streaming a un archivo temporal que luego reemplaza al anterior de forma
+ * atómica; la lectura comprueba el CRC antes de entregar nada.
+ *
+ * La marca de recuperación es el ID a partir del cual hay que releer la BD al arrancar: todo
+ * ID menor o igual que llegue a confirmarse ya está en la instantánea. No es el ID más alto
+ * guardado, porque un ID menor puede confirmarse después que uno mayor.
+ */
+public final class SnapshotInventario {
+
+    private static final int MAGIA = 0x494E5653;   // "INVS"
+    public static final int VERSION = 3;
+
+    private static final int TAM_CABECERA = 32;
+    private static final int TAM_PROVEEDOR = 3 * 4;
+    private static final int TAM_PRODUCTO = 1 + 4 + 4 + 8 + 4 + 4 + 4 + 4 + 4 + 4 + 1;
+    private static final int TAM_BUFER = 1 << 16;
+
+    private static final byte TRANSACCION = 1;
+    private static final byte FIN_TRANSACCIONES = 0;
+
+    private static final byte TIPO_PRODUCTO = 0;
+    private static final byte TIPO_PERECEDERO = 1;
+    private static final byte TIPO_DURADERO = 2;
+
+    private static final int NULO = -1;
+    private static final int EN_LINEA = -2;
+    private static final int SIN_FECHA = Integer.MIN_VALUE;
+
+    /** Catálogo leído de una instantánea (los productos apuntan a los proveedores leídos). */
+    public record Contenido(LocalDateTime creado,
+                            int marcaRecuperacion,
+                            List<Proveedor> proveedores,
+                            List<Producto> productos) {
+    }
+
+    private SnapshotInventario() {
+    }
+
+    // =========================================================================
+    //  ESCRITURA
+    // =========================================================================
+    /**
+     * @param marcaRecuperacion ID hasta el cual las transacciones confirmadas ya están todas en
+     *                          "transacciones" (la carga relee de la BD las de ID mayor).
+     * @param transacciones     Recorre el historial entregando cada transacción (en orden de ID).
+     */
+    public static void guardar(Path archivo, int marcaRecuperacion,
+                               Collection<Proveedor> proveedores,
+                               Collection<Producto> productos,
+                               Consumer<Consumer<Transaccion>> transacciones) throws IOException {
+        // Copias: las colecciones de origen son concurrentes y pueden cambiar mientras se escribe
+        List<Proveedor> listaProveedores = new ArrayList<>(proveedores);
+        List<Producto> listaProductos = new ArrayList<>(productos);
+
+        Diccionario dic = new Diccionario();
+        for (Proveedor p : listaProveedores) {
+            dic.indice(p.getRuc()); dic.indice(p.getRazonSocial()); dic.indice(p.getContacto());
+        }
+        for (Producto p : listaProductos) {
+            dic.indice(p.getCodigo()); dic.indice(p.getNombre()); dic.indice(p.getCategoria());
+            if (p.getProveedor() != null) { dic.indice(p.getProveedor().getRuc()); dic.indice(p.getProveedor().getRazonSocial()); }
+        }
+
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            // El cuerpo se escribe a continuación de la cabecera, que se completa al final
+            canal.position(TAM_CABECERA);
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Channels.newOutputStream(canal), crc), TAM_BUFER));
+
+            dic.escribir(out);
+
+            out.writeInt(listaProveedores.size());
+            for (Proveedor p : listaProveedores) {
+                out.writeInt(dic.indice(p.getRuc()));
+                out.writeInt(dic.indice(p.getRazonSocial()));
+                out.writeInt(dic.indice(p.getContacto()));
+            }
+
+            out.writeInt(listaProductos.size());
+            for (Producto p : listaProductos) {
+                escribirProducto(out, p, dic);
+            }
+
+            try {
+                transacciones.accept(t -> {
+                    try {
+                        out.writeByte(TRANSACCION);
+                        escribirTransaccion(out, t, dic);
+                    } catch (IOException e) {
+                        throw new ErrorEscritura(e);
+                    }
+                });
+            } catch (ErrorEscritura e) {
+                throw e.causa;
+            }
+            out.writeByte(FIN_TRANSACCIONES);
+            out.flush();
+
+            long tamCuerpo = canal.position() - TAM_CABECERA;
+            ByteBuffer cabecera = ByteBuffer.allocate(TAM_CABECERA);
+            cabecera.putInt(MAGIA);
+            cabecera.putInt(VERSION);
+            cabecera.putLong(System.currentTimeMillis());
+            cabecera.putLong(tamCuerpo);
+            cabecera.putInt((int) crc.getValue());
+            cabecera.putInt(marcaRecuperacion);
+            canal.write(cabecera.flip(), 0);
+            canal.force(true);
+        }
+        Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Lleva una IOException a través del Consumer del recorrido. */
+    private static final class ErrorEscritura extends RuntimeException {
+        final IOException causa;
+
+        ErrorEscritura(IOException causa) {
+            super(causa);
+            this.causa = causa;
+        }
+    }
+
+    private static void escribirProducto(DataOutputStream out, Producto p, Diccionario dic) throws IOException {
+        LocalDate vencimiento = null;
+        boolean refrigeracion = false;
+        byte tipo = TIPO_PRODUCTO;
+        if (p instanceof ProductoPerecedero pp) {
+            tipo = TIPO_PERECEDERO;
+            vencimiento = pp.getFechaVencimiento();
+            refrigeracion = pp.isRequiereRefrigeracion();
+        } else if (p instanceof ProductoDuradero) {
+            tipo = TIPO_DURADERO;
+        }
+
+        out.writeByte(tipo);
+        out.writeInt(dic.indice(p.getCodigo()));
+        out.writeInt(dic.indice(p.getNombre()));
+        out.writeDouble(p.getPrecioUnitario());
+        out.writeInt(p.getStockActual());
+        out.writeInt(dic.indice(p.getProveedor() != null ? p.getProveedor().getRuc() : null));
+        out.writeInt(dic.indice(p.getProveedor() != null ? p.getProveedor().getRazonSocial() : null));
+        out.writeInt(dic.indice(p.getCategoria()));
+        out.writeInt(p.getGarantiaMeses());
+        out.writeInt(vencimiento != null ? (int) vencimiento.toEpochDay() : SIN_FECHA);
+        out.writeByte(refrigeracion ? 1 : 0);
+    }
+
+    private static void escribirTransaccion(DataOutputStream out, Transaccion t, Diccionario dic) throws IOException {
+        LocalDateTime fecha = t.getFecha();
+        out.writeInt(t.getIdTransaccion() != null ? t.getIdTransaccion() : 0);
+        out.writeByte(t.getTipo() != null ? t.getTipo().ordinal() : -1);
+        out.writeLong(fecha != null ? fecha.toEpochSecond(ZoneOffset.UTC) : Long.MIN_VALUE);
+        out.writeInt(fecha != null ? fecha.getNano() : 0);
+        out.writeInt(t.getCantidad());
+        dic.escribirTexto(out, t.getCodigoProducto());
+        dic.escribirTexto(out, t.getRazon());
+        dic.escribirTexto(out, t.getUsuario());
+        dic.escribirTexto(out, t.getIdProveedor());
+        dic.escribirTexto(out, t.getIdCliente());
+        escribirEnLinea(out, t.getNota());
+    }
+
+    private static void escribirEnLinea(DataOutputStream out, String texto) throws IOException {
+        if (texto == null) {
+            out.writeInt(NULO);
+            return;
+        }
+        byte[] b = texto.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    // =========================================================================
+    //  LECTURA
+    // =========================================================================
+    /**
+     * Lee una instantánea validando magia, versión, longitud y CRC. Primero entrega el catálogo a
+     * "alLeerCatalogo" y después cada transacción a "transacciones", a medida que se leen.
+     * @return El catálogo leído (el mismo que recibió alLeerCatalogo).
+     * @throws IOException Si el archivo no es una instantánea válida o está dañado.
+     */
+    public static Contenido cargar(Path archivo, Consumer<Contenido> alLeerCatalogo,
+                                   Consumer<Transaccion> transacciones) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            long tamTotal = canal.size();
+            if (tamTotal < TAM_CABECERA) throw new IOException("Instantánea truncada");
+
+            ByteBuffer cabecera = ByteBuffer.allocate(TAM_CABECERA);
+            while (cabecera.hasRemaining() && canal.read(cabecera) >= 0) { }
+            cabecera.flip();
+            if (cabecera.getInt() != MAGIA) throw new IOException("No es una instantánea de inventario");
+            int version = cabecera.getInt();
+            if (version != VERSION) throw new IOException("Versión de instantánea no soportada: " + version);
+            long creado = cabecera.getLong();
+            long tamCuerpo = cabecera.getLong();
+            int crcEsperado = cabecera.getInt();
+            int marcaRecuperacion = cabecera.getInt();
+
+            if (TAM_CABECERA + tamCuerpo != tamTotal) throw new IOException("Instantánea truncada");
+            if (crcDelCuerpo(canal) != crcEsperado) throw new IOException("CRC de la instantánea no coincide");
+
+            // Catálogo sobre el cuerpo mapeado; las transacciones siguen en streaming desde su final
+            MappedByteBuffer cuerpo = canal.map(FileChannel.MapMode.READ_ONLY, TAM_CABECERA,
+                    Math.min(tamCuerpo, Integer.MAX_VALUE));
+            List<String> dic;
+            Map<String, Proveedor> proveedores;
+            List<Producto> productos;
+            Map<String, Producto> porCodigo;
+            try {
+                dic = leerDiccionario(cuerpo);
+
+                int n = cuerpo.getInt();
+                proveedores = new LinkedHashMap<>(n * 2);
+                for (int i = 0; i < n; i++) {
+                    Proveedor p = new Proveedor(texto(dic, cuerpo.getInt()), texto(dic, cuerpo.getInt()), texto(dic, cuerpo.getInt()));
+                    proveedores.put(p.getRuc(), p);
+                }
+
+                n = cuerpo.getInt();
+                productos = new ArrayList<>(n);
+                porCodigo = new HashMap<>(n * 2);
+                Map<String, Proveedor> sinFicha = new HashMap<>();
+                for (int i = 0; i < n; i++) {
+                    Producto p = leerProducto(cuerpo, dic, proveedores, sinFicha);
+                    productos.add(p);
+                    porCodigo.put(p.getCodigo(), p);
+                }
+            } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+                throw new IOException("Catálogo de la instantánea dañado", e);
+            }
+
+            canal.position(TAM_CABECERA + cuerpo.position());
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(canal), TAM_BUFER));
+
+            Contenido contenido = new Contenido(
+                    LocalDateTime.ofEpochSecond(Math.floorDiv(creado, 1000), 0, ZoneOffset.UTC), marcaRecuperacion,
+                    new ArrayList<>(proveedores.values()), productos);
+            alLeerCatalogo.accept(contenido);
+
+            TipoTransaccion[] tipos = TipoTransaccion.values();
+            while (in.readByte() == TRANSACCION) {
+                Transaccion t = new Transaccion();
+                t.setIdTransaccion(in.readInt());
+                byte tipo = in.readByte();
+                t.setTipo(tipo >= 0 ? tipos[tipo] : null);
+                long segundos = in.readLong();
+                int nanos = in.readInt();
+                t.setFecha(segundos != Long.MIN_VALUE ? LocalDateTime.ofEpochSecond(segundos, nanos, ZoneOffset.UTC) : null);
+                t.setCantidad(in.readInt());
+                Producto producto = porCodigo.get(leerTexto(in, dic));
+                t.setProducto(producto);   // comparte el String del código con el producto leído
+                t.setRazon(leerTexto(in, dic));
+                t.setUsuario(leerTexto(in, dic));
+                t.setIdProveedor(leerTexto(in, dic));
+                t.setIdCliente(leerTexto(in, dic));
+                t.setNota(leerEnLinea(in));
+                if (producto != null) transacciones.accept(t);
+            }
+            return contenido;
+        }
+    }
+
+    /** CRC32 del cuerpo, leído por bloques desde el final de la cabecera. */
+    private static int crcDelCuerpo(FileChannel canal) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer bloque = ByteBuffer.allocateDirect(TAM_BUFER);
+        long posicion = TAM_CABECERA;
+        int leidos;
+        while ((leidos = canal.read(bloque, posicion)) > 0) {
+            crc.update(bloque.flip());
+            bloque.clear();
+            posicion += leidos;
+        }
+        return (int) crc.getValue();
+    }
+
+    private static Producto leerProducto(ByteBuffer in, List<String> dic,
+                                         Map<String, Proveedor> proveedores, Map<String, Proveedor> sinFicha) {
+        byte tipo = in.get();
+        String codigo = texto(dic, in.getInt());
+        String nombre = texto(dic, in.getInt());
+        double precio = in.getDouble();
+        int stock = in.getInt();
+        String ruc = texto(dic, in.getInt());
+        String razonSocial = texto(dic, in.getInt());
+        String categoria = texto(dic, in.getInt());
+        int garantia = in.getInt();
+        int vencimiento = in.getInt();
+        boolean refrigeracion = in.get() != 0;
+
+        // Mismo proveedor → misma instancia (la de la tabla de proveedores si existe)
+        Proveedor proveedor = null;
+        if (ruc != null) {
+            proveedor = proveedores.get(ruc);
+            if (proveedor == null) proveedor = sinFicha.computeIfAbsent(ruc, r -> new Proveedor(r, razonSocial, ""));
+        }
+
+        Producto p = switch (tipo) {
+            case TIPO_PERECEDERO -> new ProductoPerecedero(codigo, nombre, precio, stock, proveedor,
+                    vencimiento != SIN_FECHA ? LocalDate.ofEpochDay(vencimiento) : null, refrigeracion);
+            case TIPO_DURADERO -> new ProductoDuradero(codigo, nombre, precio, stock, proveedor, categoria, garantia);
+            default -> new Producto(codigo, nombre, precio, stock, proveedor);
+        };
+        p.setCategoria(categoria);
+        p.setGarantiaMeses(garantia);
+        return p;
+    }
+
+    private static List<String> leerDiccionario(ByteBuffer in) {
+        int n = in.getInt();
+        List<String> textos = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            byte[] bytes = new byte[in.getInt()];
+            in.get(bytes);
+            textos.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return textos;
+    }
+
+    private static String texto(List<String> dic, int indice) {
+        return indice == NULO ? null : dic.get(indice);
+    }
+
+    /** Índice al diccionario, o un texto nuevo en línea que pasa a ocupar el siguiente índice. */
+    private static String leerTexto(DataInputStream in, List<String> dic) throws IOException {
+        int indice = in.readInt();
+        if (indice != EN_LINEA) return texto(dic, indice);
+        String texto = leerBytes(in, in.readInt());
+        dic.add(texto);
+        return texto;
+    }
+
+    private static String leerEnLinea(DataInputStream in) throws IOException {
+        int longitud = in.readInt();
+        return longitud == NULO ? null : leerBytes(in, longitud);
+    }
+
+    private static String leerBytes(DataInputStream in, int longitud) throws IOException {
+        byte[] bytes = new byte[longitud];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Diccionario de textos: cada cadena distinta recibe un índice y se escribe una vez. */
+    private static final class Diccionario {
+        private final Map<String, Integer> indices = new LinkedHashMap<>();
+
+        int indice(String texto) {
+            if (texto == null) return NULO;
+            return indices.computeIfAbsent(texto, t -> indices.size());
+        }
+
+        void escribir(DataOutputStream out) throws IOException {
+            out.writeInt(indices.size());
+            for (String texto : indices.keySet()) {
+                escribirEnLinea(out, texto);
+            }
+        }
+
+        /** Después del catálogo: un texto aún sin índice se escribe en línea y lo recibe. */
+        void escribirTexto(DataOutputStream out, String texto) throws IOException {
+            Integer i = texto == null ? Integer.valueOf(NULO) : indices.get(texto);
+            if (i != null) {
+                out.writeInt(i);
+                return;
+            }
+            indices.put(texto, indices.size());
+            out.writeInt(EN_LINEA);
+            escribirEnLinea(out, texto);
+        }
+    }
+}
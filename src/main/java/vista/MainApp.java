@@ -2,6 +2,7 @@ package vista;
 
 import persistencia.InventarioDAOImpl;
 import persistencia.ConexionDBMySQL;
+import persistencia.PoolConexionesDB;
 import persistencia.ProveedorDAOImpl;
 import persistencia.IConexionDB;
 import com.formdev.flatlaf.FlatLightLaf;
@@ -20,11 +21,11 @@ public class MainApp {
             UIManager.setLookAndFeel(new FlatLightLaf());
 
             // === 2. Configurar DAOs y conexión a BD ===
-            IConexionDB conexionDB = new ConexionDBMySQL(
-                    "jdbc:mysql://localhost:3306/inventario",
-                    "admin",
-                    "270509"
-            );
+            // Pool de conexiones por defecto; -Dinventario.db.pool=false usa la conexión única
+            String url = "jdbc:mysql://localhost:3306/inventario?rewriteBatchedStatements=true";
+            IConexionDB conexionDB = Boolean.parseBoolean(System.getProperty("inventario.db.pool", "true"))
+                    ? new PoolConexionesDB(url, "admin", "270509")
+                    : new ConexionDBMySQL(url, "admin", "270509");
 
             InventarioDAOImpl inventarioDAO = new InventarioDAOImpl(conexionDB);
             ProveedorDAOImpl proveedorDAO = new ProveedorDAOImpl(conexionDB);
@@ -0,0 +1,189 @@
+package controlador;
+
+import modelo.TipoTransaccion;
+import modelo.Transaccion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Totales por rango contra una suma directa del historial, con rangos que cruzan bordes de
+ * hora, día y mes (incluido febrero bisiesto).
+ */
+class AgregadosTemporalesTest {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2024, 1, 28, 0, 0);
+    private static final LocalDateTime FIN = LocalDateTime.of(2024, 3, 3, 0, 0);
+
+    private final List<Transaccion> historial = new ArrayList<>();
+    private AgregadosTemporales agregados;
+
+    @BeforeEach
+    void preparar() {
+        // Movimientos pseudoaleatorios entre INICIO y FIN; se agregan desordenados a propósito
+        Random azar = new Random(11);
+        long minutos = ChronoUnit.MINUTES.between(INICIO, FIN);
+        for (int i = 0; i < 3000; i++) {
+            Transaccion t = new Transaccion();
+            t.setIdTransaccion(i + 1);
+            t.setTipo(azar.nextInt(3) == 0 ? TipoTransaccion.SALIDA : TipoTransaccion.ENTRADA);
+            t.setCantidad(1 + azar.nextInt(20));
+            t.setFecha(INICIO.plusMinutes(azar.nextLong(minutos)).plusSeconds(azar.nextInt(60)));
+            t.setCodigoProducto(i % 2 == 0 ? "P1" : "P2");
+            t.setUsuario("almacen1");
+            historial.add(t);
+        }
+        // Bordes exactos: último segundo de enero, medianoche de marzo, 29 de febrero
+        historial.add(movimiento(9001, LocalDateTime.of(2024, 1, 31, 23, 59, 59), 100));
+        historial.add(movimiento(9002, LocalDateTime.of(2024, 3, 1, 0, 0), 200));
+        historial.add(movimiento(9003, LocalDateTime.of(2024, 2, 29, 12, 0), 300));
+
+        agregados = new AgregadosTemporales();
+        for (Transaccion t : historial) {
+            agregados.agregar(t, "P1".equals(t.getCodigoProducto()) ? " Hogar " : "Herramientas", "20100000001");
+        }
+    }
+
+    @Test
+    void rangosEnLosBordesDeHoraDiaYMes() {
+        LocalDateTime[][] rangos = {
+                {LocalDateTime.of(2024, 1, 31, 23, 15), LocalDateTime.of(2024, 3, 1, 0, 0)},
+                {LocalDateTime.of(2024, 1, 31, 23, 59, 59), LocalDateTime.of(2024, 2, 1, 0, 0)},
+                {LocalDateTime.of(2024, 2, 1, 0, 0), LocalDateTime.of(2024, 2, 29, 23, 59)},
+                {LocalDateTime.of(2024, 2, 1, 0, 0), LocalDateTime.of(2024, 2, 1, 0, 0)},
+                {LocalDateTime.of(2024, 1, 28, 5, 30), LocalDateTime.of(2024, 3, 2, 18, 10)},
+                {LocalDateTime.of(2024, 2, 10, 13, 0), LocalDateTime.of(2024, 2, 10, 13, 59)},
+                {LocalDateTime.of(2024, 2, 10, 13, 0), LocalDateTime.of(2024, 2, 11, 2, 0)},
+                {LocalDateTime.of(2024, 2, 28, 22, 0), LocalDateTime.of(2024, 3, 1, 1, 0)},
+                {LocalDateTime.of(2024, 3, 5, 0, 0), LocalDateTime.of(2024, 4, 1, 0, 0)},   // sin datos
+                {LocalDateTime.of(2024, 2, 5, 0, 0), LocalDateTime.of(2024, 2, 4, 0, 0)},   // invertido
+        };
+        for (LocalDateTime[] r : rangos) {
+            assertTotales(AgregadosTemporales.Eje.TOTAL, "", r[0], r[1]);
+            assertTotales(AgregadosTemporales.Eje.PRODUCTO, "P1", r[0], r[1]);
+        }
+    }
+
+    @Test
+    void rangosAlAzarCoincidenConLaSumaDirecta() {
+        Random azar = new Random(23);
+        long horas = ChronoUnit.HOURS.between(INICIO, FIN) + 48;
+        for (int i = 0; i < 300; i++) {
+            LocalDateTime a = INICIO.minusHours(24).plusHours(azar.nextLong(horas)).plusMinutes(azar.nextInt(60));
+            LocalDateTime b = a.plusHours(azar.nextLong(horas / 2)).plusMinutes(azar.nextInt(60));
+            assertTotales(AgregadosTemporales.Eje.TOTAL, "", a, b);
+        }
+    }
+
+    @Test
+    void extremosAbiertos() {
+        LocalDateTime corte = LocalDateTime.of(2024, 2, 15, 9, 45);
+        assertTotales(AgregadosTemporales.Eje.TOTAL, "", null, null);
+        assertTotales(AgregadosTemporales.Eje.TOTAL, "", null, corte);
+        assertTotales(AgregadosTemporales.Eje.TOTAL, "", corte, null);
+        assertTotales(AgregadosTemporales.Eje.PRODUCTO, "P2", null, corte);
+
+        AgregadosTemporales.Totales todo = agregados.resumir(AgregadosTemporales.Eje.TOTAL, "", null, null);
+        assertEquals(historial.size(), todo.getMovimientos());
+        assertEquals(historial.size(), agregados.tamano());
+    }
+
+    @Test
+    void laCategoriaSeConsultaNormalizada() {
+        AgregadosTemporales.Totales esperado = agregados.resumir(AgregadosTemporales.Eje.PRODUCTO, "P1", null, null);
+
+        assertEquals(esperado, agregados.resumir(AgregadosTemporales.Eje.CATEGORIA, "hogar", null, null));
+        assertEquals(esperado, agregados.resumir(AgregadosTemporales.Eje.CATEGORIA, "  HOGAR", null, null));
+        assertEquals(0, agregados.resumir(AgregadosTemporales.Eje.CATEGORIA, "Jardín", null, null).getMovimientos());
+
+        Map<String, AgregadosTemporales.Totales> porCategoria = agregados.agrupar(AgregadosTemporales.Eje.CATEGORIA, null, null);
+        assertEquals(List.of("herramientas", "hogar"), List.copyOf(porCategoria.keySet()));
+        assertEquals(esperado, porCategoria.get("hogar"));
+    }
+
+    @Test
+    void agruparOmiteLasClavesSinMovimientosEnElRango() {
+        AgregadosTemporales soloUno = new AgregadosTemporales();
+        soloUno.agregar(movimiento(1, LocalDateTime.of(2024, 2, 1, 10, 0), 5), "Hogar", "20100000001");
+        Transaccion otro = movimiento(2, LocalDateTime.of(2024, 3, 1, 10, 0), 7);
+        otro.setCodigoProducto("P2");
+        soloUno.agregar(otro, "Hogar", null);
+
+        Map<String, AgregadosTemporales.Totales> febrero = soloUno.agrupar(AgregadosTemporales.Eje.PRODUCTO,
+                LocalDateTime.of(2024, 2, 1, 0, 0), LocalDateTime.of(2024, 2, 29, 23, 0));
+        assertEquals(Map.of("P1", new AgregadosTemporales.Totales(5, 0, 1, 0)), febrero);
+
+        // Sin proveedor: se agrupa bajo la clave "sin dato"
+        assertTrue(soloUno.agrupar(AgregadosTemporales.Eje.PROVEEDOR, null, null).containsKey(ArchivoColumnarTransacciones.SIN_DATO));
+    }
+
+    @Test
+    void serieDevuelveLasCubetasDelRango() {
+        List<AgregadosTemporales.Cubeta> meses = agregados.serie(AgregadosTemporales.Eje.TOTAL, "",
+                AgregadosTemporales.Granularidad.MES, LocalDateTime.of(2024, 1, 31, 12, 0), LocalDateTime.of(2024, 3, 1, 0, 0));
+        assertEquals(List.of(LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 2, 1, 0, 0), LocalDateTime.of(2024, 3, 1, 0, 0)),
+                meses.stream().map(AgregadosTemporales.Cubeta::inicio).toList());
+        assertEquals(sumaDirecta(null, LocalDateTime.of(2024, 1, 31, 23, 59), h -> true),
+                meses.get(0).totales());
+
+        List<AgregadosTemporales.Cubeta> dias = agregados.serie(AgregadosTemporales.Eje.TOTAL, "",
+                AgregadosTemporales.Granularidad.DIA, LocalDateTime.of(2024, 2, 28, 0, 0), LocalDateTime.of(2024, 3, 1, 23, 0));
+        assertEquals(3, dias.size());
+        assertEquals(LocalDateTime.of(2024, 2, 29, 0, 0), dias.get(1).inicio());
+        assertEquals(sumaDirecta(LocalDateTime.of(2024, 2, 29, 0, 0), LocalDateTime.of(2024, 2, 29, 23, 0), h -> true),
+                dias.get(1).totales());
+
+        List<AgregadosTemporales.Cubeta> hora = agregados.serie(AgregadosTemporales.Eje.PRODUCTO, "P1",
+                AgregadosTemporales.Granularidad.HORA, LocalDateTime.of(2024, 1, 31, 23, 30), LocalDateTime.of(2024, 1, 31, 23, 30));
+        assertEquals(1, hora.size());
+        assertEquals(LocalDateTime.of(2024, 1, 31, 23, 0), hora.get(0).inicio());
+    }
+
+    private void assertTotales(AgregadosTemporales.Eje eje, String clave, LocalDateTime desde, LocalDateTime hasta) {
+        AgregadosTemporales.Totales esperado = sumaDirecta(desde, hasta,
+                t -> eje == AgregadosTemporales.Eje.TOTAL || t.getCodigoProducto().equals(clave));
+        assertEquals(esperado, agregados.resumir(eje, clave, desde, hasta), eje + " " + clave + " " + desde + " → " + hasta);
+    }
+
+    // Resolución horaria: cuenta la hora completa de ambos extremos
+    private AgregadosTemporales.Totales sumaDirecta(LocalDateTime desde, LocalDateTime hasta,
+                                                   Predicate<Transaccion> filtro) {
+        long entradas = 0, salidas = 0;
+        int nEntradas = 0, nSalidas = 0;
+        for (Transaccion t : historial) {
+            LocalDateTime hora = t.getFecha().truncatedTo(ChronoUnit.HOURS);
+            if (desde != null && hora.isBefore(desde.truncatedTo(ChronoUnit.HOURS))) continue;
+            if (hasta != null && hora.isAfter(hasta.truncatedTo(ChronoUnit.HOURS))) continue;
+            if (!filtro.test(t)) continue;
+            if (t.getTipo() == TipoTransaccion.SALIDA) {
+                salidas += t.getCantidad();
+                nSalidas++;
+            } else {
+                entradas += t.getCantidad();
+                nEntradas++;
+            }
+        }
+        return new AgregadosTemporales.Totales(entradas, salidas, nEntradas, nSalidas);
+    }
+
+    private static Transaccion movimiento(int id, LocalDateTime fecha, int cantidad) {
+        Transaccion t = new Transaccion();
+        t.setIdTransaccion(id);
+        t.setTipo(TipoTransaccion.ENTRADA);
+        t.setCantidad(cantidad);
+        t.setFecha(fecha);
+        t.setCodigoProducto("P1");
+        t.setUsuario("almacen1");
+        return t;
+    }
+}
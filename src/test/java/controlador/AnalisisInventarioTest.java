@@ -0,0 +1,162 @@
+package controlador;
+
+import modelo.Producto;
+import modelo.ProductoPerecedero;
+import modelo.TipoTransaccion;
+import modelo.Transaccion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** Fronteras de la clasificación ABC y su orden con el catálogo repartido entre varios hilos. */
+class AnalisisInventarioTest {
+
+    private final Map<String, Producto> catalogo = new ConcurrentHashMap<>();
+    private final ArchivoColumnarTransacciones archivo = new ArchivoColumnarTransacciones();
+    private AnalisisInventario analisis;
+
+    @AfterEach
+    void cerrar() {
+        if (analisis != null) analisis.cerrar();
+    }
+
+    @Test
+    void quienEmpiezaJustoEnElUmbralPasaALaClaseSiguiente() {
+        // Valores 50, 30, 10, 5, 5 (total 100): el acumulado antes de C1 es exactamente 80 %
+        // y antes de D2 exactamente 95 %
+        agregar("A1", 50);
+        agregar("A2", 30);
+        agregar("C1", 10);
+        agregar("D1", 5);
+        agregar("D2", 5);
+        analisis = new AnalisisInventario(archivo, catalogo, 2);
+
+        AnalisisInventario.ResultadoAbc r = clasificar(null);
+
+        assertEquals(100.0, r.total());
+        assertEquals(List.of("A1", "A2", "C1", "D1", "D2"), codigos(r.items()));
+        assertEquals(List.of("A", "A", "B", "B", "C"), r.items().stream().map(AnalisisInventario.ItemAbc::clase).toList());
+        assertEquals(List.of(50.0, 80.0, 90.0, 95.0, 100.0),
+                r.items().stream().map(AnalisisInventario.ItemAbc::porcentajeAcumulado).toList());
+        assertEquals(List.of(
+                new AnalisisInventario.ResumenClase("A", 2, 80.0, 80.0),
+                new AnalisisInventario.ResumenClase("B", 2, 15.0, 15.0),
+                new AnalisisInventario.ResumenClase("C", 1, 5.0, 5.0)), r.clases());
+        assertEquals(List.of("C1", "D1"), codigos(clasificar("b").items()));
+        assertEquals(List.of("D2"), codigos(clasificar("C").items()));
+    }
+
+    @Test
+    void unProductoDominanteEsLaUnicaA() {
+        agregar("GRANDE", 900);
+        agregar("MEDIO", 60);
+        agregar("CHICO", 40);
+        analisis = new AnalisisInventario(archivo, catalogo, 2);
+
+        AnalisisInventario.ResultadoAbc r = clasificar(null);
+
+        // Antes de GRANDE el acumulado es 0 (< 80 %) → A; antes de MEDIO ya es 90 % → B
+        assertEquals(List.of("A", "B", "C"), r.items().stream().map(AnalisisInventario.ItemAbc::clase).toList());
+    }
+
+    @Test
+    void totalCeroDejaTodoEnC() {
+        agregar("X", 0);
+        agregar("Y", 0);
+        catalogo.put("VENCIDO", new ProductoPerecedero("VENCIDO", "Leche", 4.5, 10, null, LocalDate.now().minusDays(1), true));
+        analisis = new AnalisisInventario(archivo, catalogo, 2);
+
+        AnalisisInventario.ResultadoAbc r = clasificar(null);
+
+        assertEquals(0.0, r.total());
+        assertEquals(3, r.items().size());
+        r.items().forEach(i -> assertEquals("C", i.clase()));
+        r.items().forEach(i -> assertEquals(0.0, i.porcentajeAcumulado()));
+        assertEquals(0, r.clases().get(0).productos());
+        assertEquals(3, r.clases().get(2).productos());
+    }
+
+    @Test
+    void catalogoVacioNoFalla() {
+        analisis = new AnalisisInventario(archivo, catalogo, 2);
+
+        AnalisisInventario.ResultadoAbc r = clasificar(null);
+
+        assertEquals(0.0, r.total());
+        assertEquals(List.of(), r.items());
+    }
+
+    @Test
+    void elOrdenEnParaleloCoincideConUnOrdenSecuencial() {
+        // Más productos que una partición por hilo: el orden se arma mezclando tramos
+        Random azar = new Random(5);
+        for (int i = 0; i < 20_000; i++) agregar(String.format("P%05d", i), azar.nextInt(500));
+        analisis = new AnalisisInventario(archivo, catalogo, 4);
+
+        AnalisisInventario.ResultadoAbc r = analisis.clasificarAbc(AnalisisInventario.Criterio.VALOR, null, null,
+                AnalisisInventario.UMBRAL_A, AnalisisInventario.UMBRAL_B, null, Integer.MAX_VALUE);
+
+        List<Producto> esperado = new ArrayList<>(catalogo.values());
+        esperado.sort(Comparator.comparingDouble(Producto::calcularValorInventario).reversed()
+                .thenComparing(Producto::getCodigo));
+        assertEquals(esperado.stream().map(Producto::getCodigo).toList(), codigos(r.items()));
+        int productos = r.clases().stream().mapToInt(AnalisisInventario.ResumenClase::productos).sum();
+        assertEquals(catalogo.size(), productos);
+    }
+
+    @Test
+    void porMovimientoCuentaLasSalidasDeLaVentana() {
+        agregar("P1", 1);
+        agregar("P2", 1);
+        agregar("P3", 1);
+        LocalDateTime dia = LocalDateTime.of(2025, 2, 1, 10, 0);
+        salida(1, "P1", 70, dia);
+        salida(2, "P2", 30, dia);
+        salida(3, "P3", 500, dia.minusDays(10));   // fuera de la ventana
+        analisis = new AnalisisInventario(archivo, catalogo, 2);
+
+        AnalisisInventario.ResultadoAbc r = analisis.clasificarAbc(AnalisisInventario.Criterio.MOVIMIENTO,
+                dia.minusDays(1), dia, AnalisisInventario.UMBRAL_A, AnalisisInventario.UMBRAL_B, null, 10);
+
+        assertEquals(100.0, r.total());
+        assertEquals(List.of("P1", "P2", "P3"), codigos(r.items()));
+        // Antes de P2 el acumulado es 70 % (A); P3 no tiene salidas en la ventana
+        assertEquals(List.of("A", "A", "C"), r.items().stream().map(AnalisisInventario.ItemAbc::clase).toList());
+        assertEquals(dia, r.hasta());
+    }
+
+    private AnalisisInventario.ResultadoAbc clasificar(String clase) {
+        return analisis.clasificarAbc(AnalisisInventario.Criterio.VALOR, null, null,
+                AnalisisInventario.UMBRAL_A, AnalisisInventario.UMBRAL_B, clase, 100);
+    }
+
+    // Precio 1: el valor es el stock
+    private void agregar(String codigo, int valor) {
+        catalogo.put(codigo, new Producto(codigo, "Producto " + codigo, 1.0, valor, null));
+    }
+
+    private void salida(int id, String codigo, int cantidad, LocalDateTime fecha) {
+        Transaccion t = new Transaccion();
+        t.setIdTransaccion(id);
+        t.setTipo(TipoTransaccion.SALIDA);
+        t.setCantidad(cantidad);
+        t.setFecha(fecha);
+        t.setCodigoProducto(codigo);
+        t.setUsuario("almacen1");
+        archivo.agregar(t);
+    }
+
+    private static List<String> codigos(List<AnalisisInventario.ItemAbc> items) {
+        return items.stream().map(AnalisisInventario.ItemAbc::codigo).toList();
+    }
+}
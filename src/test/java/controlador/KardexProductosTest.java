@@ -0,0 +1,186 @@
+package controlador;
+
+import modelo.TipoTransaccion;
+import modelo.Transaccion;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Saldos del kardex alrededor de los puntos de control, inserciones fuera de orden y paginación. */
+class KardexProductosTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 8, 0);
+    // Más de dos tramos de puntos de control
+    private static final int N = 2 * KardexProductos.INTERVALO_CONTROL + 2;
+    // Entrada k = k unidades a BASE + k horas; con este stock actual el saldo inicial es 485
+    private static final int STOCK_ACTUAL = 485 + N * (N + 1) / 2;
+
+    @Test
+    void stockAlCoincideConLaSumaDirectaEnTodosLosTramos() {
+        KardexProductos kardex = new KardexProductos();
+        for (int k = 1; k <= N; k++) kardex.agregar(entrada(k));
+
+        assertEquals(N, kardex.tamano());
+        assertSaldos(kardex, 0, STOCK_ACTUAL);
+    }
+
+    @Test
+    void insercionesDesordenadasDanLosMismosSaldos() {
+        List<Integer> orden = new ArrayList<>();
+        for (int k = 1; k <= N; k++) orden.add(k);
+        Collections.shuffle(orden, new Random(7));
+        KardexProductos kardex = new KardexProductos();
+        for (int k : orden) kardex.agregar(entrada(k));
+
+        assertSaldos(kardex, 0, STOCK_ACTUAL);
+    }
+
+    @Test
+    void unMovimientoAntiguoDesplazaLosPuntosDeControl() {
+        KardexProductos kardex = new KardexProductos();
+        for (int k = 1; k <= N; k++) kardex.agregar(entrada(k));
+
+        // Llega tarde una entrada de 7 anterior a todo el historial: el stock actual sube 7
+        Transaccion tardia = movimiento(10_000, TipoTransaccion.ENTRADA, 7, BASE.minusHours(1));
+        kardex.agregar(tardia);
+
+        assertEquals(485, kardex.stockAl("P1", BASE.minusHours(2), STOCK_ACTUAL + 7));
+        assertEquals(492, kardex.stockAl("P1", BASE.minusHours(1), STOCK_ACTUAL + 7));
+        assertSaldos(kardex, 7, STOCK_ACTUAL + 7);
+    }
+
+    @Test
+    void empatesDelMismoSegundoSeOrdenanPorIdConLosAjustesPrimero() {
+        KardexProductos kardex = new KardexProductos();
+        LocalDateTime instante = BASE.plusMinutes(30);
+        kardex.agregar(movimiento(11, TipoTransaccion.SALIDA, 2, instante));
+        kardex.agregar(movimiento(10, TipoTransaccion.ENTRADA, 5, instante));
+        kardex.registrarAjuste("P1", instante, -1);
+
+        // 10 + 5 − 2 − 1 = 12 al final del segundo; antes, el saldo inicial
+        assertEquals(10, kardex.stockAl("P1", instante.minusSeconds(1), 12));
+        assertEquals(12, kardex.stockAl("P1", instante, 12));
+
+        List<KardexProductos.Movimiento> lineas = kardex.listar("P1", null, null, null, 10, 12).getItems();
+        assertEquals(3, lineas.size());
+        assertTrue(lineas.get(0).ajuste());
+        assertNull(lineas.get(0).idTransaccion());
+        assertEquals(TipoTransaccion.SALIDA, lineas.get(0).tipo());
+        assertEquals(9, lineas.get(0).saldo());
+        assertEquals(10, lineas.get(1).idTransaccion());
+        assertEquals(14, lineas.get(1).saldo());
+        assertEquals(11, lineas.get(2).idTransaccion());
+        assertEquals(12, lineas.get(2).saldo());
+    }
+
+    @Test
+    void unAjusteSoloCambiaLosSaldosPosteriores() {
+        KardexProductos kardex = new KardexProductos();
+        for (int k = 1; k <= N; k++) kardex.agregar(entrada(k));
+
+        // Ajuste de +100 a mitad del historial (entre la entrada 64 y la 65)
+        kardex.registrarAjuste("P1", BASE.plusHours(64).plusMinutes(30), 100);
+        kardex.registrarAjuste("P1", BASE.plusHours(70), 0);   // delta 0: no se anota
+
+        assertEquals(N + 1, kardex.tamano());
+        int actual = STOCK_ACTUAL + 100;
+        assertEquals(485 + 64 * 65 / 2, kardex.stockAl("P1", BASE.plusHours(64), actual));
+        assertEquals(485 + 64 * 65 / 2 + 100, kardex.stockAl("P1", BASE.plusHours(64).plusMinutes(30), actual));
+        assertEquals(actual, kardex.stockAl("P1", BASE.plusHours(N), actual));
+    }
+
+    @Test
+    void listarPaginaPorCursorSinRepetirNiSaltar() {
+        KardexProductos kardex = new KardexProductos();
+        for (int k = 1; k <= N; k++) kardex.agregar(entrada(k));
+
+        List<KardexProductos.Movimiento> todas = new ArrayList<>();
+        String cursor = null;
+        int paginas = 0;
+        do {
+            Pagina<KardexProductos.Movimiento> p = kardex.listar("P1", null, null, cursor, 50, STOCK_ACTUAL);
+            todas.addAll(p.getItems());
+            cursor = p.getSiguienteCursor();
+            paginas++;
+        } while (cursor != null);
+
+        assertEquals(3, paginas);
+        assertEquals(N, todas.size());
+        for (int k = 1; k <= N; k++) {
+            KardexProductos.Movimiento m = todas.get(k - 1);
+            assertEquals(k, m.idTransaccion());
+            assertEquals(BASE.plusHours(k), m.fecha());
+            assertEquals(kardex.stockAl("P1", m.fecha(), STOCK_ACTUAL), m.saldo());
+            assertFalse(m.ajuste());
+        }
+
+        // Rango inclusivo y página justa: sin cursor siguiente
+        Pagina<KardexProductos.Movimiento> rango = kardex.listar("P1", BASE.plusHours(60), BASE.plusHours(70), null, 11, STOCK_ACTUAL);
+        assertEquals(11, rango.getItems().size());
+        assertEquals(60, rango.getItems().get(0).idTransaccion());
+        assertEquals(70, rango.getItems().get(10).idTransaccion());
+        assertNull(rango.getSiguienteCursor());
+    }
+
+    @Test
+    void cursorMalFormadoEsArgumentoInvalido() {
+        KardexProductos kardex = new KardexProductos();
+        kardex.agregar(entrada(1));
+
+        for (String cursor : List.of("abc", "1:2:3", "x:1", "1:", "")) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> kardex.listar("P1", null, null, cursor, 10, STOCK_ACTUAL), cursor);
+        }
+        // Producto sin movimientos: página vacía
+        assertTrue(kardex.listar("OTRO", null, null, null, 10, 0).getItems().isEmpty());
+        assertEquals(42, kardex.stockAl("OTRO", BASE, 42));
+    }
+
+    @Test
+    void seIgnoranLosMovimientosIncompletos() {
+        KardexProductos kardex = new KardexProductos();
+        kardex.agregar(null);
+        kardex.agregar(movimiento(null, TipoTransaccion.ENTRADA, 1, BASE));
+        kardex.agregar(movimiento(1, TipoTransaccion.ENTRADA, 1, null));
+        kardex.agregar(movimiento(2, null, 1, BASE));
+
+        assertEquals(0, kardex.tamano());
+    }
+
+    // Compara stockAl con la suma directa en cada hora, justo antes de cada movimiento y después del último
+    private static void assertSaldos(KardexProductos kardex, int previo, int stockActual) {
+        for (int k = 0; k <= N + 1; k++) {
+            int m = Math.min(k, N);
+            long esperado = 485 + previo + (long) m * (m + 1) / 2;
+            assertEquals(esperado, kardex.stockAl("P1", BASE.plusHours(k), stockActual), "hora " + k);
+            if (k >= 1 && k <= N) {
+                assertEquals(esperado - k, kardex.stockAl("P1", BASE.plusHours(k).minusSeconds(1), stockActual), "antes de " + k);
+            }
+        }
+    }
+
+    private static Transaccion entrada(int k) {
+        return movimiento(k, TipoTransaccion.ENTRADA, k, BASE.plusHours(k));
+    }
+
+    private static Transaccion movimiento(Integer id, TipoTransaccion tipo, int cantidad, LocalDateTime fecha) {
+        Transaccion t = new Transaccion();
+        t.setIdTransaccion(id);
+        t.setTipo(tipo);
+        t.setCantidad(cantidad);
+        t.setFecha(fecha);
+        t.setCodigoProducto("P1");
+        t.setUsuario("almacen1");
+        return t;
+    }
+}
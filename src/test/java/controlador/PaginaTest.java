@@ -0,0 +1,89 @@
+package controlador;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Paginación por cursor (keyset) y acotado del límite. */
+class PaginaTest {
+
+    private static TreeMap<String, Integer> base(int n) {
+        TreeMap<String, Integer> mapa = new TreeMap<>();
+        for (int i = 1; i <= n; i++) mapa.put(String.format("P%03d", i), i);
+        return mapa;
+    }
+
+    @Test
+    void recorrePorCursorSinRepetirNiSaltar() {
+        TreeMap<String, Integer> mapa = base(25);
+        List<Integer> vistos = new ArrayList<>();
+        String cursor = null;
+        int paginas = 0;
+        do {
+            Pagina<Integer> p = Pagina.desde(mapa, cursor, 10);
+            vistos.addAll(p.getItems());
+            cursor = p.getSiguienteCursor();
+            paginas++;
+        } while (cursor != null);
+
+        assertEquals(3, paginas);
+        assertEquals(25, vistos.size());
+        for (int i = 0; i < 25; i++) assertEquals(i + 1, vistos.get(i));
+    }
+
+    @Test
+    void elCursorEsLaClaveDelUltimoDevuelto() {
+        Pagina<Integer> p = Pagina.desde(base(25), null, 10);
+
+        assertEquals("P010", p.getSiguienteCursor());
+        assertEquals(List.of(11, 12), Pagina.desde(base(25), "P010", 2).getItems());
+    }
+
+    @Test
+    void paginaJustaNoDejaCursor() {
+        TreeMap<String, Integer> mapa = base(20);
+
+        Pagina<Integer> primera = Pagina.desde(mapa, null, 10);
+        Pagina<Integer> segunda = Pagina.desde(mapa, primera.getSiguienteCursor(), 10);
+        assertEquals(10, segunda.getItems().size());
+        assertNull(segunda.getSiguienteCursor());
+        assertNull(Pagina.desde(mapa, null, 20).getSiguienteCursor());
+    }
+
+    @Test
+    void lasAltasYBajasNoDesplazanLaPaginaSiguiente() {
+        TreeMap<String, Integer> mapa = base(25);
+        String cursor = Pagina.desde(mapa, null, 10).getSiguienteCursor();
+
+        // Entre página y página se borra el último devuelto y se agrega uno antes del cursor
+        mapa.remove("P010");
+        mapa.put("P000", 0);
+
+        assertEquals(List.of(11, 12, 13), Pagina.desde(mapa, cursor, 3).getItems());
+    }
+
+    @Test
+    void cursorDespuesDelUltimoDevuelvePaginaVacia() {
+        Pagina<Integer> p = Pagina.desde(base(5), "P999", 10);
+
+        assertTrue(p.getItems().isEmpty());
+        assertNull(p.getSiguienteCursor());
+        assertTrue(Pagina.desde(new TreeMap<String, Integer>(), null, 10).getItems().isEmpty());
+    }
+
+    @Test
+    void normalizarLimiteAcotaAlRangoPermitido() {
+        assertEquals(Pagina.LIMITE_POR_DEFECTO, Pagina.normalizarLimite(null));
+        assertEquals(1, Pagina.normalizarLimite(0));
+        assertEquals(1, Pagina.normalizarLimite(-5));
+        assertEquals(37, Pagina.normalizarLimite(37));
+        assertEquals(Pagina.LIMITE_MAXIMO, Pagina.normalizarLimite(Pagina.LIMITE_MAXIMO));
+        assertEquals(Pagina.LIMITE_MAXIMO, Pagina.normalizarLimite(Integer.MAX_VALUE));
+    }
+}
@@ -0,0 +1,122 @@
+package controlador;
+
+import modelo.TipoTransaccion;
+import modelo.Transaccion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import persistencia.BaseDatosPrueba;
+import persistencia.DiarioTransacciones;
+import persistencia.InventarioDAOImpl;
+import persistencia.PoolConexionesDB;
+import persistencia.ProveedorDAOImpl;
+import persistencia.ResultadoMovimientoStock;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Arranque después de una caída con escritura diferida y diario: los movimientos anotados que
+ * no llegaron a la BD se reaplican una sola vez y los que sí llegaron (sin marca de confirmación)
+ * no se duplican.
+ */
+class RecuperacionDiarioTest {
+
+    @TempDir
+    Path directorio;
+
+    private BaseDatosPrueba bd;
+    private PoolConexionesDB pool;
+    private InventarioController controller;
+
+    @BeforeEach
+    void preparar() throws Exception {
+        bd = new BaseDatosPrueba();
+        pool = bd.pool(0, 4, 2_000);
+    }
+
+    @AfterEach
+    void cerrar() throws Exception {
+        if (controller != null) controller.cerrar();
+        pool.desconectar();
+        bd.close();
+    }
+
+    @Test
+    void reaplicaSoloLoQueNoLlegoALaBD() throws Exception {
+        // Antes de la caída: dos salidas de P1 anotadas en el diario; la primera hizo commit
+        // (stock 10 → 7 y fila con su clave) pero su confirmación no llegó a anotarse
+        Path carpetaDiario = directorio.resolve("diario");
+        Transaccion enBD = salida("P1", 3);
+        Transaccion perdida = salida("P1", 2);
+        DiarioTransacciones anterior = new DiarioTransacciones(carpetaDiario, DiarioTransacciones.PoliticaSincronizacion.SIEMPRE, 0, 1 << 20);
+        anterior.registrarMovimiento(enBD);
+        anterior.registrarMovimiento(perdida);
+        anterior.cerrar();
+        bd.agregarProducto("P1", 10.0, 7);
+        bd.ejecutar("""
+                INSERT INTO transaccion (tipo, cantidad, codigo_producto, fecha, usuario, clave_movimiento)
+                VALUES ('SALIDA', 3, 'P1', ?, 'almacen1', ?)
+                """, enBD.getFecha(), enBD.getClaveMovimiento());
+
+        controller = arrancar(carpetaDiario);
+
+        assertEquals(5, controller.buscarProductoPorCodigo("P1").getStockActual());
+        // Lo reaplicado llega a la BD por la cola: al cerrar se vacía
+        controller.cerrar();
+        controller = null;
+        assertEquals(5, bd.stock("P1"));
+        assertEquals(1, bd.contar("SELECT COUNT(*) FROM transaccion WHERE clave_movimiento = ?", enBD.getClaveMovimiento()));
+        assertEquals(1, bd.contar("SELECT COUNT(*) FROM transaccion WHERE clave_movimiento = ?", perdida.getClaveMovimiento()));
+        assertEquals(2, bd.contar("SELECT COUNT(*) FROM transaccion"));
+
+        // Un segundo arranque ya no tiene nada que reaplicar
+        DiarioTransacciones despues = new DiarioTransacciones(carpetaDiario, DiarioTransacciones.PoliticaSincronizacion.SIEMPRE, 0, 1 << 20);
+        assertTrue(despues.getRecuperados().isEmpty());
+        despues.cerrar();
+    }
+
+    @Test
+    void unMovimientoQueYaNoCabeSeDescartaSinTocarElStock() throws Exception {
+        Path carpetaDiario = directorio.resolve("diario");
+        DiarioTransacciones anterior = new DiarioTransacciones(carpetaDiario, DiarioTransacciones.PoliticaSincronizacion.SIEMPRE, 0, 1 << 20);
+        anterior.registrarMovimiento(salida("P1", 8));
+        anterior.cerrar();
+        bd.agregarProducto("P1", 10.0, 5);   // otra instancia dejó el stock por debajo de la salida
+
+        controller = arrancar(carpetaDiario);
+
+        assertEquals(5, controller.buscarProductoPorCodigo("P1").getStockActual());
+        ResultadoMovimientoStock r = controller.procesarTransaccion(salida("P1", 1), ModoConfirmacion.DURABLE);
+        assertEquals(ResultadoMovimientoStock.Estado.APLICADO, r.getEstado());
+        assertEquals(4, bd.stock("P1"));
+    }
+
+    private InventarioController arrancar(Path carpetaDiario) {
+        InventarioDAOImpl dao = new InventarioDAOImpl(pool);
+        dao.setGuardarClaveMovimiento(true);
+        InventarioController c = new InventarioController(dao, new ProveedorDAOImpl(pool));
+        c.setArchivoSnapshot(directorio.resolve("inventario_snapshot.bin"));
+        c.habilitarEscrituraDiferida(100, 50, 10, 1_000, ModoConfirmacion.DURABLE);
+        c.habilitarDiarioTransacciones(carpetaDiario, DiarioTransacciones.PoliticaSincronizacion.SIEMPRE, 0, 1 << 20, 0);
+        c.cargarInventarioDesdeBD();
+        return c;
+    }
+
+    private static Transaccion salida(String codigo, int cantidad) {
+        Transaccion t = new Transaccion();
+        t.setClaveMovimiento(UUID.randomUUID().toString());
+        t.setCodigoProducto(codigo);
+        t.setTipo(TipoTransaccion.SALIDA);
+        t.setCantidad(cantidad);
+        t.setFecha(LocalDateTime.of(2025, 3, 1, 10, 0));
+        t.setRazon("Venta");
+        t.setUsuario("almacen1");
+        return t;
+    }
+}
@@ -0,0 +1,93 @@
+package persistencia;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * [BaseDatosPrueba.java]
+ * BD H2 en memoria, en modo MySQL, con el esquema de la prueba de carga (/carga/esquema.sql).
+ *
+ * Cada instancia es una BD nueva con un proveedor (RUC) y sin productos. La BD vive mientras
+ * la conexión de guardia siga abierta: close() la descarta.
+ */
+public final class BaseDatosPrueba implements AutoCloseable {
+
+    public static final String RUC = "20100000001";
+
+    private static final AtomicInteger NUMERO = new AtomicInteger();
+
+    private final String url;
+    private final Connection guardia;
+
+    public BaseDatosPrueba() throws SQLException, IOException {
+        this.url = "jdbc:h2:mem:prueba" + NUMERO.incrementAndGet() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE";
+        this.guardia = DriverManager.getConnection(url, "sa", "");
+
+        String esquema;
+        try (InputStream in = BaseDatosPrueba.class.getResourceAsStream("/carga/esquema.sql")) {
+            if (in == null) throw new IOException("No se encontró /carga/esquema.sql");
+            esquema = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        try (Statement st = guardia.createStatement()) {
+            for (String sentencia : esquema.replaceAll("(?m)^--.*$", "").split(";")) {
+                if (!sentencia.isBlank()) st.execute(sentencia);
+            }
+        }
+        ejecutar("INSERT INTO proveedor (ruc, razon_social, contacto) VALUES (?, ?, ?)",
+                RUC, "Proveedor de prueba S.A.C.", "pruebas@proveedor.com");
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /** Pool sobre esta BD (el llamador lo cierra con desconectar()). */
+    public PoolConexionesDB pool(int tamanoMinimo, int tamanoMaximo, long esperaMaximaMs) {
+        return new PoolConexionesDB(url, "sa", "", tamanoMinimo, tamanoMaximo, esperaMaximaMs, 600_000L, 1_800_000L);
+    }
+
+    /** Producto duradero del proveedor de prueba. */
+    public void agregarProducto(String codigo, double precio, int stock) throws SQLException {
+        ejecutar("""
+                INSERT INTO producto (codigo, nombre, precio, stock_actual, ruc_proveedor, tipo_producto, categoria, garantia_meses)
+                VALUES (?, ?, ?, ?, ?, 'duradero', 'Hogar', 12)
+                """, codigo, "Producto " + codigo, precio, stock, RUC);
+    }
+
+    public int stock(String codigo) throws SQLException {
+        return (int) contar("SELECT stock_actual FROM producto WHERE codigo = ?", codigo);
+    }
+
+    /** Primera columna de la primera fila (0 si no hay filas). */
+    public long contar(String sql, Object... parametros) throws SQLException {
+        try (PreparedStatement ps = preparar(sql, parametros);
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    public int ejecutar(String sql, Object... parametros) throws SQLException {
+        try (PreparedStatement ps = preparar(sql, parametros)) {
+            return ps.executeUpdate();
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        guardia.close();
+    }
+
+    private PreparedStatement preparar(String sql, Object... parametros) throws SQLException {
+        PreparedStatement ps = guardia.prepareStatement(sql);
+        for (int i = 0; i < parametros.length; i++) ps.setObject(i + 1, parametros[i]);
+        return ps;
+    }
+}
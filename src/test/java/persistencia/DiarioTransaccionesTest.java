@@ -0,0 +1,185 @@
+package persistencia;
+
+import modelo.TipoTransaccion;
+import modelo.Transaccion;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Ida y vuelta del diario, marco de registros (longitud + CRC) y compactación de segmentos. */
+class DiarioTransaccionesTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void alReabrirQuedanLosMovimientosSinConfirmar() throws IOException {
+        DiarioTransacciones diario = abrir();
+        Transaccion confirmada = movimiento("P1", TipoTransaccion.SALIDA, 3);
+        Transaccion anulada = movimiento("P1", TipoTransaccion.SALIDA, 4);
+        Transaccion pendiente = movimiento("P2", TipoTransaccion.ENTRADA, 7);
+        pendiente.setNota("con ñ y tildes: pedido urgente");
+        pendiente.setIdProveedor("20100000001");
+        long s1 = diario.registrarMovimiento(confirmada);
+        long s2 = diario.registrarMovimiento(anulada);
+        long s3 = diario.registrarMovimiento(pendiente);
+        diario.registrarConfirmacion(s1, 41);
+        diario.registrarAnulacion(s2);
+        diario.cerrar();
+
+        DiarioTransacciones reabierto = abrir();
+        List<DiarioTransacciones.Movimiento> recuperados = reabierto.getRecuperados();
+
+        assertEquals(1, recuperados.size());
+        assertEquals(s3, recuperados.get(0).secuencia());
+        Transaccion leida = recuperados.get(0).transaccion();
+        assertEquals(pendiente.getClaveMovimiento(), leida.getClaveMovimiento());
+        assertEquals("P2", leida.getCodigoProducto());
+        assertEquals(TipoTransaccion.ENTRADA, leida.getTipo());
+        assertEquals(7, leida.getCantidad());
+        assertEquals(pendiente.getFecha(), leida.getFecha());
+        assertEquals(pendiente.getNota(), leida.getNota());
+        assertEquals("20100000001", leida.getIdProveedor());
+        assertNull(leida.getIdCliente());
+        // Las secuencias siguen después de las ya usadas
+        assertTrue(reabierto.registrarMovimiento(movimiento("P1", TipoTransaccion.ENTRADA, 1)) > s3);
+        reabierto.cerrar();
+    }
+
+    @Test
+    void unRegistroConCrcInvalidoCortaElSegmento() throws IOException {
+        DiarioTransacciones diario = abrir();
+        diario.registrarMovimiento(movimiento("P1", TipoTransaccion.SALIDA, 1));
+        diario.registrarMovimiento(movimiento("P1", TipoTransaccion.SALIDA, 2));
+        diario.cerrar();
+
+        // Se altera un byte de datos del último registro: su CRC ya no coincide
+        Path segmento = unicoSegmento();
+        try (FileChannel canal = FileChannel.open(segmento, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            long posicion = canal.size() - 3;
+            canal.read(b, posicion);
+            b.put(0, (byte) (b.get(0) ^ 0x01));
+            canal.write(b.rewind(), posicion);
+        }
+
+        DiarioTransacciones reabierto = abrir();
+        assertEquals(List.of(1), cantidades(reabierto));
+        reabierto.cerrar();
+    }
+
+    @Test
+    void unRegistroTruncadoPorUnaCaidaSeIgnora() throws IOException {
+        DiarioTransacciones diario = abrir();
+        diario.registrarMovimiento(movimiento("P1", TipoTransaccion.SALIDA, 1));
+        diario.registrarMovimiento(movimiento("P1", TipoTransaccion.SALIDA, 2));
+        diario.cerrar();
+
+        Path segmento = unicoSegmento();
+        try (FileChannel canal = FileChannel.open(segmento, StandardOpenOption.WRITE)) {
+            canal.truncate(canal.size() - 10);
+        }
+
+        DiarioTransacciones reabierto = abrir();
+        assertEquals(List.of(1), cantidades(reabierto));
+        // Se sigue en un segmento nuevo, nunca detrás de la cola truncada
+        reabierto.registrarMovimiento(movimiento("P1", TipoTransaccion.SALIDA, 3));
+        reabierto.cerrar();
+        assertEquals(List.of(1, 3), cantidades(abrirYCerrar()));
+    }
+
+    @Test
+    void reanotarLaMismaClaveReemplazaALaAnterior() throws IOException {
+        DiarioTransacciones diario = abrir();
+        Transaccion t = movimiento("P1", TipoTransaccion.SALIDA, 5);
+        diario.registrarMovimiento(t);
+        diario.cerrar();
+
+        // Arranque siguiente: se reaplica y se vuelve a anotar con la misma clave, luego se confirma
+        DiarioTransacciones segundo = abrir();
+        DiarioTransacciones.Movimiento recuperado = segundo.getRecuperados().get(0);
+        long nueva = segundo.registrarMovimiento(recuperado.transaccion());
+        segundo.olvidarRecuperados(List.of(recuperado));
+        segundo.registrarConfirmacion(nueva, 7);
+        segundo.cerrar();
+
+        assertTrue(abrirYCerrar().getRecuperados().isEmpty());
+    }
+
+    @Test
+    void compactarBorraLosSegmentosSinPendientes() throws IOException {
+        DiarioTransacciones diario = new DiarioTransacciones(directorio, DiarioTransacciones.PoliticaSincronizacion.NUNCA, 0, 1024);
+        long primera = 0;
+        for (int i = 0; i < 40; i++) {
+            long s = diario.registrarMovimiento(movimiento("P1", TipoTransaccion.ENTRADA, i + 1));
+            if (i == 0) primera = s;
+            else diario.registrarConfirmacion(s, i);
+        }
+        assertTrue(segmentos().size() > 2);
+
+        assertEquals(0, diario.compactar());   // el primer segmento tiene un pendiente
+        diario.registrarConfirmacion(primera, 1000);
+        assertTrue(diario.compactar() > 0);
+        assertEquals(1, segmentos().size());
+        diario.cerrar();
+    }
+
+    private DiarioTransacciones abrir() throws IOException {
+        return new DiarioTransacciones(directorio, DiarioTransacciones.PoliticaSincronizacion.SIEMPRE, 0, 1 << 20);
+    }
+
+    private DiarioTransacciones abrirYCerrar() throws IOException {
+        DiarioTransacciones diario = abrir();
+        diario.cerrar();
+        return diario;
+    }
+
+    private static List<Integer> cantidades(DiarioTransacciones diario) {
+        return diario.getRecuperados().stream().map(m -> m.transaccion().getCantidad()).toList();
+    }
+
+    private List<Path> segmentos() throws IOException {
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            return archivos.filter(p -> Files.isRegularFile(p)).sorted().toList();
+        }
+    }
+
+    // El segmento escrito antes de reabrir (al reabrir se crea uno nuevo vacío)
+    private Path unicoSegmento() throws IOException {
+        List<Path> conDatos = segmentos().stream().filter(p -> {
+            try {
+                return Files.size(p) > 0;
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }).toList();
+        assertEquals(1, conDatos.size());
+        return conDatos.get(0);
+    }
+
+    private static Transaccion movimiento(String codigo, TipoTransaccion tipo, int cantidad) {
+        Transaccion t = new Transaccion();
+        t.setClaveMovimiento(UUID.randomUUID().toString());
+        t.setCodigoProducto(codigo);
+        t.setTipo(tipo);
+        t.setCantidad(cantidad);
+        t.setFecha(LocalDateTime.of(2025, 3, 1, 10, 15, 30, 123_456_000));
+        t.setRazon("Ajuste de inventario");
+        t.setUsuario("almacen1");
+        return t;
+    }
+}
@@ -0,0 +1,210 @@
+package persistencia;
+
+import modelo.TipoTransaccion;
+import modelo.Transaccion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Escritura diferida contra la BD H2 de prueba. Los fallos se inyectan envolviendo el DAO real:
+ * antes del commit (nada llegó a la BD) o después (el commit llegó pero la respuesta se perdió).
+ */
+class EscritorDiferidoTransaccionesTest {
+
+    /** Qué hace el DAO envuelto en el próximo guardarTransaccionesLote. */
+    private enum Falla { NINGUNA, ANTES_DEL_COMMIT, RESPUESTA_PERDIDA }
+
+    private BaseDatosPrueba bd;
+    private PoolConexionesDB pool;
+    private InventarioDAOImpl daoReal;
+    private final List<Falla> fallas = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger llamadasLote = new AtomicInteger();
+    private final Oyente oyente = new Oyente();
+    private EscritorDiferidoTransacciones escritor;
+
+    @BeforeEach
+    void preparar() throws Exception {
+        bd = new BaseDatosPrueba();
+        bd.agregarProducto("P1", 10.0, 10);
+        bd.agregarProducto("P2", 20.0, 10);
+        pool = bd.pool(0, 4, 2_000);
+        daoReal = new InventarioDAOImpl(pool);
+        escritor = new EscritorDiferidoTransacciones(daoConFallas(), oyente, 100, 50, 20, 1_000);
+    }
+
+    @AfterEach
+    void cerrar() throws Exception {
+        escritor.cerrar(10_000);
+        pool.desconectar();
+        bd.close();
+    }
+
+    @Test
+    void errorTransitorioAntesDelCommitSeReintenta() throws Exception {
+        fallas.add(Falla.ANTES_DEL_COMMIT);
+
+        Transaccion t = encolar("P1", 3, false).get(5, TimeUnit.SECONDS);
+
+        assertNotNull(t.getIdTransaccion());
+        assertEquals(7, bd.stock("P1"));
+        assertEquals(1, bd.contar("SELECT COUNT(*) FROM transaccion"));
+        assertEquals(2, llamadasLote.get());
+        assertEquals(1, escritor.getReintentos());
+    }
+
+    @Test
+    void commitSinRespuestaConClaveSeConfirmaSinReaplicar() throws Exception {
+        daoReal.setGuardarClaveMovimiento(true);
+        fallas.add(Falla.RESPUESTA_PERDIDA);
+
+        Transaccion t = encolar("P1", 3, true).get(5, TimeUnit.SECONDS);
+
+        assertEquals(7, bd.stock("P1"));
+        assertEquals(1, bd.contar("SELECT COUNT(*) FROM transaccion"));
+        assertEquals(bd.contar("SELECT id_transaccion FROM transaccion WHERE clave_movimiento = ?", t.getClaveMovimiento()),
+                (long) t.getIdTransaccion());
+        assertEquals(1, llamadasLote.get());   // se verificó por clave, no se volvió a enviar
+        assertEquals(List.of(t), oyente.confirmadas);
+        assertTrue(oyente.fallidas.isEmpty());
+    }
+
+    @Test
+    void commitSinRespuestaSinClaveSeAbandonaSinReintentar() throws Exception {
+        fallas.add(Falla.RESPUESTA_PERDIDA);
+
+        CompletableFuture<Transaccion> confirmacion = encolar("P1", 3, false);
+
+        assertThrows(ExecutionException.class, () -> confirmacion.get(5, TimeUnit.SECONDS));
+        assertEquals(7, bd.stock("P1"));   // aplicado una sola vez
+        assertEquals(1, llamadasLote.get());
+        assertEquals(1, oyente.abandonadas.size());
+        assertTrue(oyente.fallidas.isEmpty());   // no se revierte lo que pudo quedar en la BD
+    }
+
+    @Test
+    void claveDuplicadaDeUnCommitAnteriorNoEsRechazo() throws Exception {
+        daoReal.setGuardarClaveMovimiento(true);
+        // Un intento anterior ya dejó la fila (y el stock movido) sin que el escritor lo supiera
+        String clave = UUID.randomUUID().toString();
+        bd.ejecutar("UPDATE producto SET stock_actual = stock_actual - 3 WHERE codigo = 'P1'");
+        bd.ejecutar("""
+                INSERT INTO transaccion (tipo, cantidad, codigo_producto, fecha, usuario, clave_movimiento)
+                VALUES ('SALIDA', 3, 'P1', CURRENT_TIMESTAMP, 'pruebas', ?)
+                """, clave);
+
+        Transaccion t = InventarioDAOImplTest.transaccion("P1", TipoTransaccion.SALIDA, 3);
+        t.setClaveMovimiento(clave);
+        escritor.reservarPlaza();
+        escritor.encolar(t).get(5, TimeUnit.SECONDS);
+
+        assertEquals(7, bd.stock("P1"));
+        assertEquals(1, bd.contar("SELECT COUNT(*) FROM transaccion"));
+        assertTrue(oyente.fallidas.isEmpty());
+        assertEquals(List.of(t), oyente.confirmadas);
+    }
+
+    @Test
+    void rechazoDefinitivoSoloRevierteLaLineaCulpable() throws Exception {
+        // Un grupo con una línea imposible: la BD revierte el grupo entero y el escritor aísla la culpable
+        escritor.cerrar(10_000);
+        escritor = new EscritorDiferidoTransacciones(daoConFallas(), oyente, 100, 50, 500, 1_000);
+
+        CompletableFuture<Transaccion> buena = encolar("P1", 3, false);
+        CompletableFuture<Transaccion> imposible = encolar("P2", 11, false);
+        CompletableFuture<Transaccion> otra = encolar("P2", 4, false);
+
+        buena.get(5, TimeUnit.SECONDS);
+        otra.get(5, TimeUnit.SECONDS);
+        assertThrows(ExecutionException.class, () -> imposible.get(5, TimeUnit.SECONDS));
+        assertEquals(7, bd.stock("P1"));
+        assertEquals(6, bd.stock("P2"));
+        assertEquals(1, oyente.fallidas.size());
+        assertEquals(11, oyente.fallidas.get(0).getCantidad());
+        assertEquals(1, escritor.getTransaccionesFallidas());
+    }
+
+    @Test
+    void laBarreraEsperaALosMovimientosEnVuelo() throws Exception {
+        fallas.add(Falla.ANTES_DEL_COMMIT);
+        CompletableFuture<Transaccion> confirmacion = encolar("P1", 1, false);
+
+        assertTrue(escritor.tienePendientes(List.of("P1")));
+        assertTrue(escritor.esperarSinPendientes(List.of("P1"), 5_000));
+        // La barrera se abre después del oyente (la futura puede completarse un instante más tarde)
+        assertEquals(1, oyente.confirmadas.size());
+        assertEquals(9, bd.stock("P1"));
+        confirmacion.get(5, TimeUnit.SECONDS);
+    }
+
+    private CompletableFuture<Transaccion> encolar(String codigo, int salida, boolean conClave) {
+        Transaccion t = InventarioDAOImplTest.transaccion(codigo, TipoTransaccion.SALIDA, salida);
+        if (conClave) t.setClaveMovimiento(UUID.randomUUID().toString());
+        escritor.reservarPlaza();
+        return escritor.encolar(t);
+    }
+
+    // El DAO real, con la falla programada aplicada a guardarTransaccionesLote
+    private IInventarioDAO daoConFallas() {
+        return (IInventarioDAO) Proxy.newProxyInstance(IInventarioDAO.class.getClassLoader(),
+                new Class<?>[]{IInventarioDAO.class}, (proxy, metodo, args) -> {
+                    Falla falla = Falla.NINGUNA;
+                    if (metodo.getName().equals("guardarTransaccionesLote")) {
+                        llamadasLote.incrementAndGet();
+                        if (!fallas.isEmpty()) falla = fallas.remove(0);
+                    }
+                    if (falla == Falla.ANTES_DEL_COMMIT) {
+                        throw new SQLTransientConnectionException("Conexión perdida (simulada)", "08S01");
+                    }
+                    Object resultado;
+                    try {
+                        resultado = metodo.invoke(daoReal, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (falla == Falla.RESPUESTA_PERDIDA) {
+                        throw new ConfirmacionInciertaException(new SQLException("Respuesta del commit perdida (simulada)", "08S01"));
+                    }
+                    return resultado;
+                });
+    }
+
+    private static final class Oyente implements EscritorDiferidoTransacciones.OyenteEscritura {
+        final List<Transaccion> confirmadas = Collections.synchronizedList(new ArrayList<>());
+        final List<Transaccion> fallidas = Collections.synchronizedList(new ArrayList<>());
+        final List<Transaccion> abandonadas = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void alConfirmar(List<Transaccion> lote) {
+            confirmadas.addAll(lote);
+        }
+
+        @Override
+        public void alFallar(Transaccion transaccion, String motivo) {
+            fallidas.add(transaccion);
+        }
+
+        @Override
+        public void alAbandonar(List<Transaccion> pendientes, String motivo) {
+            abandonadas.addAll(pendientes);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package persistencia;
+
+import modelo.TipoTransaccion;
+import modelo.Transaccion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Búsquedas binarias del historial fuera del heap: por ID, por cursor (posteriores/anteriores)
+ * y por rango de fechas, con filas repartidas en varios segmentos.
+ */
+class HistorialFueraDeHeapTest {
+
+    // filasPorSegmento mínimo: 3000 filas ocupan tres segmentos
+    private static final int FILAS_POR_SEGMENTO = 1024;
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @TempDir
+    Path directorio;
+
+    private HistorialFueraDeHeap historial;
+
+    @AfterEach
+    void cerrar() {
+        if (historial != null) historial.cerrar();
+    }
+
+    @Test
+    void buscarPorIdEncuentraLosPresentesEnCualquierSegmento() throws IOException {
+        historial = conIdsPares(HistorialFueraDeHeap.Almacen.DIRECTO, 3000);
+
+        assertEquals(2, historial.buscar(2).getIdTransaccion());
+        assertEquals(2048, historial.buscar(2048).getIdTransaccion());   // última fila del primer segmento
+        assertEquals(2050, historial.buscar(2050).getIdTransaccion());   // primera del segundo
+        assertEquals(6000, historial.buscar(6000).getIdTransaccion());
+        assertEquals(BASE.plusMinutes(2050), historial.buscar(2050).getFecha());
+        assertNull(historial.buscar(2049));
+        assertNull(historial.buscar(0));
+        assertNull(historial.buscar(6002));
+    }
+
+    @Test
+    void posterioresEmpiezaJustoDespuesDelCursor() throws IOException {
+        historial = conIdsPares(HistorialFueraDeHeap.Almacen.DIRECTO, 3000);
+
+        assertEquals(List.of(2, 4, 6), ids(historial.posteriores(null, 3)));
+        assertEquals(List.of(2050, 2052), ids(historial.posteriores(2048, 2)));
+        assertEquals(List.of(2050, 2052), ids(historial.posteriores(2049, 2)));   // cursor que no existe
+        assertTrue(historial.posteriores(6000, 5).isEmpty());
+    }
+
+    @Test
+    void anterioresRecorreHaciaAtrasDesdeElCursor() throws IOException {
+        historial = conIdsPares(HistorialFueraDeHeap.Almacen.DIRECTO, 3000);
+
+        assertEquals(List.of(6000, 5998), ids(historial.anteriores(null, 2)));
+        assertEquals(List.of(2048, 2046, 2044), ids(historial.anteriores(2050, 3)));
+        assertEquals(List.of(2048, 2046, 2044), ids(historial.anteriores(2049, 3)));
+        assertTrue(historial.anteriores(2, 5).isEmpty());
+    }
+
+    @Test
+    void recorrerIncluyeAmbosExtremosDelRango() throws IOException {
+        historial = conIdsPares(HistorialFueraDeHeap.Almacen.DIRECTO, 3000);
+
+        List<Transaccion> todas = new ArrayList<>();
+        historial.recorrer(null, BASE.plusMinutes(100), BASE.plusMinutes(110), todas::add);
+        assertEquals(List.of(100, 102, 104, 106, 108, 110), ids(todas));
+
+        List<Transaccion> entradas = new ArrayList<>();
+        historial.recorrer(TipoTransaccion.ENTRADA, BASE.plusMinutes(2040), BASE.plusMinutes(2060), entradas::add);
+        assertEquals(List.of(2040, 2044, 2048, 2052, 2056, 2060), ids(entradas));
+
+        List<Transaccion> nada = new ArrayList<>();
+        historial.recorrer(null, BASE.plusMinutes(101), BASE.plusMinutes(101).plusSeconds(59), nada::add);
+        assertTrue(nada.isEmpty());
+
+        // Un nanosegundo a cada lado deja fuera los extremos
+        List<Transaccion> interior = new ArrayList<>();
+        historial.recorrer(null, BASE.plusMinutes(100).plusNanos(1), BASE.plusMinutes(110).minusNanos(1), interior::add);
+        assertEquals(List.of(102, 104, 106, 108), ids(interior));
+    }
+
+    @Test
+    void idsFueraDeOrdenSiguenSiendoConsultables() throws IOException {
+        historial = new HistorialFueraDeHeap(HistorialFueraDeHeap.Almacen.DIRECTO, directorio, FILAS_POR_SEGMENTO);
+        for (int id : new int[] {5, 3, 9, 7}) historial.agregar(transaccion(id));
+
+        assertEquals(3, historial.buscar(3).getIdTransaccion());
+        assertEquals(List.of(3, 5, 7), ids(historial.posteriores(null, 3)));
+        assertEquals(List.of(7, 5), ids(historial.anteriores(9, 2)));
+        assertEquals(9, historial.getUltimoId());
+    }
+
+    @Test
+    void textosYNotasSobrevivenAlAlmacenMapeado() throws IOException {
+        historial = new HistorialFueraDeHeap(HistorialFueraDeHeap.Almacen.MAPEADO, directorio, FILAS_POR_SEGMENTO);
+        Transaccion sinNota = transaccion(1);
+        Transaccion notaVacia = transaccion(2);
+        notaVacia.setNota("");
+        Transaccion conNota = transaccion(3);
+        conNota.setNota("Devolución: caja dañada — reponer ñ".repeat(50));
+        conNota.setIdCliente("C-77");
+        historial.agregar(sinNota);
+        historial.agregar(notaVacia);
+        historial.agregar(conNota);
+
+        assertNull(historial.buscar(1).getNota());
+        assertEquals("", historial.buscar(2).getNota());
+        Transaccion leida = historial.buscar(3);
+        assertEquals(conNota.getNota(), leida.getNota());
+        assertEquals("C-77", leida.getIdCliente());
+        assertEquals("P1", leida.getCodigoProducto());
+        assertEquals("almacen1", leida.getUsuario());
+
+        historial.cerrar();
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            assertEquals(0, archivos.filter(p -> p.getFileName().toString().startsWith("historial-")).count());
+        }
+    }
+
+    private HistorialFueraDeHeap conIdsPares(HistorialFueraDeHeap.Almacen almacen, int filas) throws IOException {
+        HistorialFueraDeHeap h = new HistorialFueraDeHeap(almacen, directorio, FILAS_POR_SEGMENTO);
+        for (int i = 1; i <= filas; i++) h.agregar(transaccion(2 * i));
+        return h;
+    }
+
+    // Fecha = BASE + id minutos; entrada si el ID es múltiplo de 4
+    private static Transaccion transaccion(int id) {
+        Transaccion t = new Transaccion();
+        t.setIdTransaccion(id);
+        t.setTipo(id % 4 == 0 ? TipoTransaccion.ENTRADA : TipoTransaccion.SALIDA);
+        t.setFecha(BASE.plusMinutes(id));
+        t.setCantidad(id);
+        t.setCodigoProducto("P1");
+        t.setRazon("Venta");
+        t.setUsuario("almacen1");
+        return t;
+    }
+
+    private static List<Integer> ids(List<Transaccion> transacciones) {
+        return transacciones.stream().map(Transaccion::getIdTransaccion).toList();
+    }
+}
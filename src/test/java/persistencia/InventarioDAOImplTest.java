@@ -0,0 +1,125 @@
+package persistencia;
+
+import modelo.TipoTransaccion;
+import modelo.Transaccion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** DAO contra la BD H2 de prueba: deltas condicionados, lote en un solo commit y claves de movimiento. */
+class InventarioDAOImplTest {
+
+    private BaseDatosPrueba bd;
+    private PoolConexionesDB pool;
+    private InventarioDAOImpl dao;
+
+    @BeforeEach
+    void preparar() throws Exception {
+        bd = new BaseDatosPrueba();
+        bd.agregarProducto("P1", 10.0, 5);
+        bd.agregarProducto("P2", 20.0, 100);
+        pool = bd.pool(0, 4, 2_000);
+        dao = new InventarioDAOImpl(pool);
+    }
+
+    @AfterEach
+    void cerrar() throws Exception {
+        pool.desconectar();
+        bd.close();
+    }
+
+    @Test
+    void movimientoSinStockSuficienteNoTocaLaBD() throws Exception {
+        ResultadoMovimientoStock r = dao.registrarMovimiento(transaccion("P1", TipoTransaccion.SALIDA, 6));
+
+        assertEquals(ResultadoMovimientoStock.Estado.STOCK_INSUFICIENTE, r.getEstado());
+        assertEquals(5, bd.stock("P1"));
+        assertEquals(0, bd.contar("SELECT COUNT(*) FROM transaccion"));
+    }
+
+    @Test
+    void movimientoAplicadoDevuelveElStockYElId() throws Exception {
+        Transaccion t = transaccion("P1", TipoTransaccion.SALIDA, 5);
+        ResultadoMovimientoStock r = dao.registrarMovimiento(t);
+
+        assertTrue(r.isAplicado());
+        assertEquals(0, r.getStockResultante());
+        assertEquals(0, bd.stock("P1"));
+        assertNotNull(t.getIdTransaccion());
+    }
+
+    @Test
+    void loteConUnProductoRechazadoNoAplicaNada() throws Exception {
+        List<Transaccion> lote = List.of(
+                transaccion("P2", TipoTransaccion.SALIDA, 10),
+                transaccion("P1", TipoTransaccion.SALIDA, 3),
+                transaccion("P1", TipoTransaccion.SALIDA, 3));   // 6 > 5 entre las dos líneas
+
+        Map<String, ResultadoMovimientoStock> r = dao.guardarTransaccionesLote(lote);
+
+        assertTrue(r.get("P2").isAplicado());
+        assertEquals(ResultadoMovimientoStock.Estado.STOCK_INSUFICIENTE, r.get("P1").getEstado());
+        assertEquals(100, bd.stock("P2"));
+        assertEquals(5, bd.stock("P1"));
+        assertEquals(0, bd.contar("SELECT COUNT(*) FROM transaccion"));
+    }
+
+    @Test
+    void loteAplicadoAsignaLosIdsEnOrden() throws Exception {
+        List<Transaccion> lote = List.of(
+                transaccion("P2", TipoTransaccion.SALIDA, 10),
+                transaccion("P1", TipoTransaccion.ENTRADA, 1),
+                transaccion("P2", TipoTransaccion.ENTRADA, 4));
+
+        Map<String, ResultadoMovimientoStock> r = dao.guardarTransaccionesLote(lote);
+
+        assertTrue(r.values().stream().allMatch(ResultadoMovimientoStock::isAplicado));
+        assertEquals(94, bd.stock("P2"));
+        assertEquals(6, bd.stock("P1"));
+        assertTrue(lote.get(0).getIdTransaccion() < lote.get(1).getIdTransaccion());
+        assertTrue(lote.get(1).getIdTransaccion() < lote.get(2).getIdTransaccion());
+    }
+
+    @Test
+    void buscarClavesMovimientoDevuelveElIdDeLasPresentes() throws Exception {
+        dao.setGuardarClaveMovimiento(true);
+        Transaccion guardada = transaccion("P2", TipoTransaccion.SALIDA, 1);
+        guardada.setClaveMovimiento(UUID.randomUUID().toString());
+        dao.guardarTransaccionesLote(List.of(guardada));
+        String ausente = UUID.randomUUID().toString();
+
+        Map<String, Integer> enBD = dao.buscarClavesMovimiento(List.of(guardada.getClaveMovimiento(), ausente));
+
+        assertEquals(Map.of(guardada.getClaveMovimiento(), guardada.getIdTransaccion()), enBD);
+    }
+
+    @Test
+    void actualizarConStockDesactualizadoNoEscribe() throws Exception {
+        assertFalse(dao.actualizarProductoDB("P1", "Nuevo", 12.0, 4, 8));
+        assertEquals(5, bd.stock("P1"));
+
+        assertTrue(dao.actualizarProductoDB("P1", "Nuevo", 12.0, 5, 8));
+        assertEquals(8, bd.stock("P1"));
+    }
+
+    static Transaccion transaccion(String codigo, TipoTransaccion tipo, int cantidad) {
+        Transaccion t = new Transaccion();
+        t.setCodigoProducto(codigo);
+        t.setTipo(tipo);
+        t.setCantidad(cantidad);
+        t.setFecha(LocalDateTime.of(2025, 3, 1, 10, 0));
+        t.setRazon(tipo == TipoTransaccion.ENTRADA ? "Compra" : "Venta");
+        t.setUsuario("pruebas");
+        return t;
+    }
+}
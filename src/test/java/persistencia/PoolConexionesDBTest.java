@@ -0,0 +1,140 @@
+package persistencia;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Préstamo, devolución, espera acotada y validación de conexiones del pool. */
+class PoolConexionesDBTest {
+
+    private BaseDatosPrueba bd;
+    private PoolConexionesDB pool;
+
+    @BeforeEach
+    void preparar() throws Exception {
+        bd = new BaseDatosPrueba();
+        pool = bd.pool(0, 2, 300);
+    }
+
+    @AfterEach
+    void cerrar() throws Exception {
+        pool.desconectar();
+        bd.close();
+    }
+
+    @Test
+    void cerrarDevuelveLaConexionFisicaAlPool() throws Exception {
+        Connection fisica;
+        try (Connection c = pool.conectar()) {
+            fisica = fisicaDe(c);
+            assertEquals(1, pool.getConexionesActivas());
+        }
+        assertEquals(0, pool.getConexionesActivas());
+        assertEquals(1, pool.getConexionesOciosas());
+
+        try (Connection c = pool.conectar()) {
+            assertSame(fisica, fisicaDe(c));   // la misma conexión física, no una nueva
+        }
+        assertEquals(1, pool.getConexionesTotales());
+    }
+
+    @Test
+    void laConexionDevueltaNoSePuedeUsar() throws Exception {
+        Connection c = pool.conectar();
+        c.close();
+
+        assertTrue(c.isClosed());
+        assertThrows(SQLException.class, c::createStatement);
+        c.close();   // cerrar dos veces no devuelve dos veces
+        assertEquals(1, pool.getConexionesOciosas());
+    }
+
+    @Test
+    void laDevolucionDeshaceLoNoConfirmado() throws Exception {
+        bd.agregarProducto("P1", 10.0, 5);
+        try (Connection c = pool.conectar()) {
+            c.setAutoCommit(false);
+            try (Statement st = c.createStatement()) {
+                st.executeUpdate("UPDATE producto SET stock_actual = 99 WHERE codigo = 'P1'");
+            }
+        }
+        assertEquals(5, bd.stock("P1"));
+
+        try (Connection c = pool.conectar()) {
+            assertTrue(c.getAutoCommit());
+        }
+    }
+
+    @Test
+    void sinConexionesLibresEsperaHastaElLimite() throws Exception {
+        Connection a = pool.conectar();
+        Connection b = pool.conectar();
+        try {
+            long inicio = System.nanoTime();
+            assertThrows(SQLTimeoutException.class, pool::conectar);
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) >= 250);
+            assertEquals(2, pool.getConexionesTotales());
+        } finally {
+            a.close();
+            b.close();
+        }
+    }
+
+    @Test
+    void quienEsperaRecibeLaConexionDevuelta() throws Exception {
+        pool.desconectar();
+        pool = bd.pool(0, 1, 5_000);
+        Connection prestada = pool.conectar();
+
+        CompletableFuture<Boolean> espera = CompletableFuture.supplyAsync(() -> {
+            try (Connection c = pool.conectar()) {
+                return c.isValid(1);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (pool.getHilosEnEspera() == 0) Thread.sleep(5);
+        prestada.close();
+
+        assertTrue(espera.get(5, TimeUnit.SECONDS));
+        assertEquals(1, pool.getConexionesTotales());
+    }
+
+    @Test
+    void unaConexionOciosaInvalidaSeDescartaAlPrestar() throws Exception {
+        Connection c = pool.conectar();
+        Connection fisica = fisicaDe(c);
+        c.close();
+        fisica.close();   // la BD "cortó" la conexión mientras estaba ociosa
+
+        try (Connection nueva = pool.conectar()) {
+            assertFalse(fisicaDe(nueva).isClosed());
+            assertTrue(nueva.isValid(1));
+        }
+        assertEquals(1, pool.getConexionesTotales());
+    }
+
+    @Test
+    void elPoolCerradoNoPresta() {
+        pool.desconectar();
+        assertThrows(SQLException.class, pool::conectar);
+    }
+
+    // El proxy delega getMetaData(): los metadatos son de la conexión física
+    private static Connection fisicaDe(Connection prestada) throws SQLException {
+        return prestada.getMetaData().getConnection();
+    }
+}
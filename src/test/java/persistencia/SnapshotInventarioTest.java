@@ -0,0 +1,167 @@
+package persistencia;
+
+import modelo.Producto;
+import modelo.ProductoDuradero;
+import modelo.ProductoPerecedero;
+import modelo.Proveedor;
+import modelo.TipoTransaccion;
+import modelo.Transaccion;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Ida y vuelta de la instantánea binaria y rechazo de archivos dañados. */
+class SnapshotInventarioTest {
+
+    @TempDir
+    Path directorio;
+
+    private final Proveedor acme = new Proveedor("20100000001", "Acme S.A.C.", "ventas@acme.pe");
+    private final Proveedor andino = new Proveedor("20100000002", "Ñandú E.I.R.L.", null);
+
+    @Test
+    void idaYVueltaConservaCatalogoTransaccionesYMarca() throws IOException {
+        Path archivo = directorio.resolve("inventario_snapshot.bin");
+        List<Producto> productos = List.of(
+                new ProductoPerecedero("LEC-01", "Leche", 4.5, 30, acme, LocalDate.of(2025, 6, 30), true),
+                new ProductoDuradero("TAL-02", "Taladro", 250.0, 3, andino, "Herramientas", 24),
+                new Producto("GEN-03", "Genérico", 1.0, 0, null));
+        List<Transaccion> historial = List.of(
+                transaccion(1, "LEC-01", TipoTransaccion.ENTRADA, 40, "Compra", null, LocalDateTime.of(2025, 1, 31, 23, 59, 59, 999_000_000)),
+                transaccion(2, "LEC-01", TipoTransaccion.SALIDA, 10, "Venta", "cliente frecuente", LocalDateTime.of(2025, 2, 1, 0, 0)),
+                transaccion(3, "TAL-02", TipoTransaccion.SALIDA, 1, "Venta", "", LocalDateTime.of(2025, 2, 1, 8, 30)));
+
+        SnapshotInventario.guardar(archivo, 2, List.of(acme, andino), productos, consumidor -> historial.forEach(consumidor));
+        List<Transaccion> leidas = new ArrayList<>();
+        SnapshotInventario.Contenido contenido = SnapshotInventario.cargar(archivo, c -> { }, leidas::add);
+
+        assertEquals(2, contenido.marcaRecuperacion());
+        assertEquals(List.of("20100000001", "20100000002"), contenido.proveedores().stream().map(Proveedor::getRuc).toList());
+        assertEquals("Ñandú E.I.R.L.", contenido.proveedores().get(1).getRazonSocial());
+        assertNull(contenido.proveedores().get(1).getContacto());
+
+        ProductoPerecedero leche = assertInstanceOf(ProductoPerecedero.class, contenido.productos().get(0));
+        assertEquals(LocalDate.of(2025, 6, 30), leche.getFechaVencimiento());
+        assertTrue(leche.isRequiereRefrigeracion());
+        assertEquals(4.5, leche.getPrecioUnitario());
+        assertEquals(30, leche.getStockActual());
+        assertSame(contenido.proveedores().get(0), leche.getProveedor());   // misma instancia canónica
+
+        ProductoDuradero taladro = assertInstanceOf(ProductoDuradero.class, contenido.productos().get(1));
+        assertEquals("Herramientas", taladro.getCategoria());
+        assertEquals(24, taladro.getGarantiaMeses());
+        assertNull(contenido.productos().get(2).getProveedor());
+
+        assertEquals(3, leidas.size());
+        for (int i = 0; i < historial.size(); i++) {
+            Transaccion esperada = historial.get(i), leida = leidas.get(i);
+            assertEquals(esperada.getIdTransaccion(), leida.getIdTransaccion());
+            assertEquals(esperada.getTipo(), leida.getTipo());
+            assertEquals(esperada.getFecha(), leida.getFecha());
+            assertEquals(esperada.getCantidad(), leida.getCantidad());
+            assertEquals(esperada.getCodigoProducto(), leida.getCodigoProducto());
+            assertEquals(esperada.getRazon(), leida.getRazon());
+            assertEquals(esperada.getNota(), leida.getNota());
+            assertEquals(esperada.getUsuario(), leida.getUsuario());
+        }
+    }
+
+    @Test
+    void elCatalogoSeEntregaAntesQueLasTransacciones() throws IOException {
+        Path archivo = directorio.resolve("inventario_snapshot.bin");
+        Producto p = new Producto("A", "A", 1.0, 1, acme);
+        SnapshotInventario.guardar(archivo, 0, List.of(acme), List.of(p),
+                consumidor -> consumidor.accept(transaccion(1, "A", TipoTransaccion.ENTRADA, 1, null, null, LocalDateTime.of(2025, 1, 1, 0, 0))));
+
+        List<String> orden = new ArrayList<>();
+        SnapshotInventario.cargar(archivo, c -> orden.add("catalogo"), t -> orden.add("transaccion"));
+
+        assertEquals(List.of("catalogo", "transaccion"), orden);
+    }
+
+    @Test
+    void unByteAlteradoEnElCuerpoSeDetectaPorCrc() throws IOException {
+        Path archivo = guardarEjemplo();
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long posicion = canal.size() - 5;
+            ByteBuffer b = ByteBuffer.allocate(1);
+            canal.read(b, posicion);
+            b.put(0, (byte) (b.get(0) ^ 0x40));
+            canal.write(b.rewind(), posicion);
+        }
+
+        IOException e = assertThrows(IOException.class, () -> SnapshotInventario.cargar(archivo, c -> { }, t -> { }));
+        assertTrue(e.getMessage().contains("CRC"));
+    }
+
+    @Test
+    void unArchivoTruncadoSeRechaza() throws IOException {
+        Path archivo = guardarEjemplo();
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.WRITE)) {
+            canal.truncate(canal.size() - 1);
+        }
+
+        assertThrows(IOException.class, () -> SnapshotInventario.cargar(archivo, c -> { }, t -> { }));
+    }
+
+    @Test
+    void unaEscrituraFallidaNoPisaLaInstantaneaAnterior() throws IOException {
+        Path archivo = guardarEjemplo();
+        byte[] anterior = Files.readAllBytes(archivo);
+
+        Consumer<Consumer<Transaccion>> fallaAMitad = consumidor -> {
+            throw new IllegalStateException("historial no disponible");
+        };
+        assertThrows(IllegalStateException.class,
+                () -> SnapshotInventario.guardar(archivo, 9, List.of(acme), List.of(), fallaAMitad));
+
+        assertArrayEquals(anterior, Files.readAllBytes(archivo));
+        assertFalse(SnapshotInventario.cargar(archivo, c -> { }, t -> { }).productos().isEmpty());
+    }
+
+    private Path guardarEjemplo() throws IOException {
+        Path archivo = directorio.resolve("inventario_snapshot.bin");
+        Producto p = new ProductoDuradero("TAL-02", "Taladro", 250.0, 3, acme, "Herramientas", 24);
+        List<Transaccion> historial = new ArrayList<>();
+        for (int i = 1; i <= 50; i++) {
+            historial.add(transaccion(i, "TAL-02", TipoTransaccion.ENTRADA, i, "Compra", "nota " + i,
+                    LocalDateTime.of(2025, 1, 1, 0, 0).plusHours(i)));
+        }
+        SnapshotInventario.guardar(archivo, 50, List.of(acme), List.of(p), consumidor -> historial.forEach(consumidor));
+        return archivo;
+    }
+
+    private static Transaccion transaccion(int id, String codigo, TipoTransaccion tipo, int cantidad,
+                                           String razon, String nota, LocalDateTime fecha) {
+        Transaccion t = new Transaccion();
+        t.setIdTransaccion(id);
+        t.setCodigoProducto(codigo);
+        t.setTipo(tipo);
+        t.setCantidad(cantidad);
+        t.setRazon(razon);
+        t.setNota(nota);
+        t.setUsuario("almacen1");
+        t.setFecha(fecha);
+        return t;
+    }
+}